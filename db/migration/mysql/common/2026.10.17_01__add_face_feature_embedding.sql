@@ -0,0 +1,17 @@
+-- Add packed little-endian float32 embedding to face_features
+-- feature_vector (base64 TEXT) is kept for the remote search path
+ALTER TABLE face_features
+  ADD COLUMN feature_embedding BLOB     DEFAULT NULL AFTER feature_vector,
+  ADD COLUMN feature_dim       SMALLINT DEFAULT NULL AFTER feature_embedding;
+
+-- Backfill: face-ai encodings are base64 of the packed float32 bytes,
+-- so the BLOB is the decoded string. Rows in any other format stay NULL
+-- and are decoded from feature_vector by the application.
+UPDATE face_features
+SET feature_embedding = FROM_BASE64(feature_vector),
+    feature_dim       = LENGTH(FROM_BASE64(feature_vector)) DIV 4
+WHERE feature_embedding IS NULL
+  AND feature_vector IS NOT NULL
+  AND FROM_BASE64(feature_vector) IS NOT NULL
+  AND LENGTH(FROM_BASE64(feature_vector)) > 0
+  AND LENGTH(FROM_BASE64(feature_vector)) % 4 = 0;
@@ -0,0 +1,43 @@
+-- Bulk face enrollment jobs: the uploaded source is staged in MinIO and
+-- replayed on resume; face_enrollment_items records every processed line
+-- so a resumed job skips work that was already committed.
+CREATE TABLE IF NOT EXISTS face_enrollment_jobs (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    requested_by    BIGINT NOT NULL,
+    source_object   VARCHAR(255) NOT NULL,
+    source_format   VARCHAR(20) NOT NULL,
+    status          VARCHAR(20) NOT NULL DEFAULT 'queued',
+    total           INT DEFAULT NULL,
+    processed       INT NOT NULL DEFAULT 0,
+    enrolled        INT NOT NULL DEFAULT 0,
+    duplicates      INT NOT NULL DEFAULT 0,
+    failed          INT NOT NULL DEFAULT 0,
+    error_message   VARCHAR(500) DEFAULT NULL,
+    created_at      DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at      DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    completed_at    DATETIME DEFAULT NULL,
+    INDEX idx_face_enrollment_jobs_status_updated (status, updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS face_enrollment_items (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id           BIGINT NOT NULL,
+    seq              INT NOT NULL,
+    user_id          BIGINT DEFAULT NULL,
+    status           VARCHAR(20) NOT NULL,
+    message          VARCHAR(255) DEFAULT NULL,
+    face_feature_id  BIGINT DEFAULT NULL,
+    created_at       DATETIME DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_face_enrollment_items_job_seq (job_id, seq),
+    CONSTRAINT fk_face_enrollment_items_job FOREIGN KEY (job_id) REFERENCES face_enrollment_jobs(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bulk enrollment registers faces on behalf of other users: admin only
+INSERT INTO permissions (name, description, service) VALUES
+('face:enroll_bulk', 'Bulk enroll face identities', 'face');
+
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.name = 'SUPERADMIN'
+  AND p.name = 'face:enroll_bulk';
@@ -0,0 +1,9 @@
+-- Face search diagnostics (quantization recall/latency report) scan the whole gallery: admin only
+INSERT INTO permissions (name, description, service) VALUES
+('face:search_admin', 'Run face search diagnostics', 'face');
+
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.name = 'SUPERADMIN'
+  AND p.name = 'face:search_admin';
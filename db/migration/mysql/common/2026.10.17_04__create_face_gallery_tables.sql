@@ -0,0 +1,32 @@
+-- Named face galleries (site / group / watchlist) scope 1:N recognition to
+-- their members. Membership is per user, so faces a member registers later
+-- are searched without touching the gallery.
+CREATE TABLE IF NOT EXISTS face_galleries (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(100) NOT NULL,
+    type         VARCHAR(20) NOT NULL,
+    description  VARCHAR(255) DEFAULT NULL,
+    created_by   BIGINT DEFAULT NULL,
+    created_at   DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at   DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_face_galleries_name (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS face_gallery_members (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    gallery_id  BIGINT NOT NULL,
+    user_id     BIGINT NOT NULL,
+    created_at  DATETIME DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_face_gallery_members_gallery_user (gallery_id, user_id),
+    INDEX idx_face_gallery_members_user (user_id),
+    CONSTRAINT fk_face_gallery_members_gallery FOREIGN KEY (gallery_id) REFERENCES face_galleries(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO permissions (name, description, service) VALUES
+('face:gallery_manage', 'Create face galleries and manage their members', 'face');
+
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.name = 'SUPERADMIN'
+  AND p.name = 'face:gallery_manage';
@@ -0,0 +1,36 @@
+-- Background re-embedding of stored face images with a new recognition
+-- algorithm. Source features are walked in id order; last_feature_id is the
+-- checkpoint a resumed job continues from, active_millis the run time used
+-- to report throughput.
+CREATE TABLE IF NOT EXISTS face_reembedding_jobs (
+    id                BIGINT AUTO_INCREMENT PRIMARY KEY,
+    requested_by      BIGINT NOT NULL,
+    source_algorithm  VARCHAR(50) NOT NULL,
+    target_algorithm  VARCHAR(50) NOT NULL,
+    status            VARCHAR(20) NOT NULL DEFAULT 'queued',
+    total             INT DEFAULT NULL,
+    last_feature_id   BIGINT NOT NULL DEFAULT 0,
+    processed         INT NOT NULL DEFAULT 0,
+    reembedded        INT NOT NULL DEFAULT 0,
+    skipped           INT NOT NULL DEFAULT 0,
+    failed            INT NOT NULL DEFAULT 0,
+    active_millis     BIGINT NOT NULL DEFAULT 0,
+    error_message     VARCHAR(500) DEFAULT NULL,
+    created_at        DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at        DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    completed_at      DATETIME DEFAULT NULL,
+    INDEX idx_face_reembedding_jobs_status_updated (status, updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- The job walks features by algorithm in id order
+CREATE INDEX idx_face_features_algorithm_status_id ON face_features(algorithm_reg, status, id);
+
+-- Re-embedding rewrites every user's face features: admin only
+INSERT INTO permissions (name, description, service) VALUES
+('face:reembed', 'Re-embed stored faces with a new recognition algorithm', 'face');
+
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.name = 'SUPERADMIN'
+  AND p.name = 'face:reembed';
@@ -0,0 +1,4 @@
+-- Face images are stored content-addressed: every row for the same image bytes
+-- points at one MinIO object, and the rows referencing an object are its
+-- reference count, looked up before uploading and before deleting
+CREATE INDEX idx_face_images_object_name ON face_images(object_name);
@@ -0,0 +1,9 @@
+-- Actuator metrics are no longer public: admin only
+INSERT INTO permissions (name, description, service) VALUES
+('metrics:read', 'Read actuator metrics', 'system');
+
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.name = 'SUPERADMIN'
+  AND p.name = 'metrics:read';
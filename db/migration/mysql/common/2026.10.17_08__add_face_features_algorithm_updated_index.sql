@@ -0,0 +1,3 @@
+-- Incremental gallery replay reads the rows of one algorithm changed since the
+-- gallery watermark (FaceFeatureRepository.findEmbeddingChangesSince), ordered by updated_at
+CREATE INDEX idx_face_features_algorithm_updated_at ON face_features(algorithm_reg, updated_at);
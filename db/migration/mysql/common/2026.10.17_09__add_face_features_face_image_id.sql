@@ -0,0 +1,5 @@
+-- Links a feature to the stored image it was encoded from, so re-embedding
+-- re-encodes exactly that image and can tell which images already have a
+-- feature for the target algorithm. Null for features registered before.
+ALTER TABLE face_features ADD COLUMN face_image_id BIGINT NULL;
+CREATE INDEX idx_face_features_face_image_id ON face_features(face_image_id);
@@ -0,0 +1,124 @@
+package com.mario.backend.face.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs SIMD kernels for one pair, and sequential vs fork/join exhaustive
+ * scans of a gallery, at the 128-d (facenet) and 512-d (arcface) sizes.
+ * <pre>./gradlew jmh -Pjmh.includes=DistanceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DistanceBenchmark {
+
+    private static final int TOP_K = 10;
+
+    @Param({"128", "512"})
+    private int dimension;
+
+    @Param({"10000"})
+    private int gallerySize;
+
+    private float[] probe;
+    private float[] other;
+    private byte[] otherPacked;
+    private ExactScan.Rows rows;
+
+    private final VectorDistance scalar = Distances.scalar();
+    private final VectorDistance simd = Distances.get();
+    private final ExactScan scalarScan = new ExactScan(scalar, Integer.MAX_VALUE);
+    private final ExactScan simdScan = new ExactScan(simd, Integer.MAX_VALUE);
+    private final ExactScan parallelScan = new ExactScan(simd, 1024);
+
+    @Setup
+    public void setUp() {
+        if (!Distances.isSimd()) {
+            System.err.println("WARNING: SIMD kernel unavailable, 'simd' results are scalar");
+        }
+        Random random = new Random(42);
+        probe = randomVector(random);
+        other = randomVector(random);
+        otherPacked = EmbeddingCodec.toBytes(other);
+
+        float[][] vectors = new float[gallerySize][];
+        for (int i = 0; i < gallerySize; i++) {
+            vectors[i] = randomVector(random);
+        }
+        rows = new ExactScan.Rows() {
+            @Override
+            public int size() {
+                return vectors.length;
+            }
+
+            @Override
+            public float[] vector(int row) {
+                return vectors[row];
+            }
+
+            @Override
+            public long key(int row) {
+                return row;
+            }
+
+            @Override
+            public long userId(int row) {
+                return row;
+            }
+        };
+    }
+
+    @Benchmark
+    public float pairL2Scalar() {
+        return scalar.squaredL2(probe, other);
+    }
+
+    @Benchmark
+    public float pairL2Simd() {
+        return simd.squaredL2(probe, other);
+    }
+
+    @Benchmark
+    public float pairCosinePackedScalar() {
+        return scalar.cosineDistance(probe, otherPacked);
+    }
+
+    @Benchmark
+    public float pairCosinePackedSimd() {
+        return simd.cosineDistance(probe, otherPacked);
+    }
+
+    @Benchmark
+    public List<SearchMatch> scanScalar() {
+        return scalarScan.topK(probe, rows, TOP_K);
+    }
+
+    @Benchmark
+    public List<SearchMatch> scanSimd() {
+        return simdScan.topK(probe, rows, TOP_K);
+    }
+
+    @Benchmark
+    public List<SearchMatch> scanParallelSimd() {
+        return parallelScan.topK(probe, rows, TOP_K);
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
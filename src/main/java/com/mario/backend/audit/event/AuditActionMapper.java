@@ -36,8 +36,20 @@ public final class AuditActionMapper {
         // Face endpoints
         rule("POST", "/api/v1/face/register-identity", "face:register", "face", -1);
         rule("POST", "/api/v1/face/recognize-identity", "face:recognize", "face", -1);
+        rule("POST", "/api/v1/face/recognize-batch", "face:recognize_batch", "face", -1);
+        rule("POST", "/api/v1/face/verify", "face:verify", "face", -1);
         rule("POST", "/api/v1/face/delete-identity", "face:delete", "face", -1);
         rule("GET", "/api/v1/face/is-registered", "face:check", "face", -1);
+        rule("POST", "/api/v1/face/enrollments", "face:enroll_bulk", "face_enrollment", -1);
+        ruleWithId("GET", "/api/v1/face/enrollments/(\\d+)", "face:enroll_status", "face_enrollment", 1);
+        ruleWithId("GET", "/api/v1/face/jobs/([0-9a-f-]+)", "face:job_status", "face_job", 1);
+        rule("GET", "/api/v1/face/search/quantization-report", "face:quantization_report", "face", -1);
+        rule("POST", "/api/v1/face/reembeddings", "face:reembed", "face_reembedding", -1);
+        ruleWithId("GET", "/api/v1/face/reembeddings/(\\d+)", "face:reembed_status", "face_reembedding", 1);
+        rule("POST", "/api/v1/face/galleries", "face:gallery_create", "face_gallery", -1);
+        ruleWithId("DELETE", "/api/v1/face/galleries/(\\d+)", "face:gallery_delete", "face_gallery", 1);
+        ruleWithId("POST", "/api/v1/face/galleries/(\\d+)/members", "face:gallery_members_add", "face_gallery", 1);
+        ruleWithId("DELETE", "/api/v1/face/galleries/(\\d+)/members", "face:gallery_members_remove", "face_gallery", 1);
 
         // Audit endpoints
         rule("GET", "/api/v1/audit/all", "audit:list", "audit", -1);
@@ -37,6 +37,18 @@ public enum ErrorCode {
     FACE_RECOGNITION_FAILED(HttpStatus.INTERNAL_SERVER_ERROR, "RECOGNITION_FAILED", "Failed to recognize face"),
     FACE_DELETION_FAILED(HttpStatus.INTERNAL_SERVER_ERROR, "DELETION_FAILED", "Failed to delete face"),
     FACE_ALREADY_REGISTERED(HttpStatus.CONFLICT, "FACE_ALREADY_REGISTERED", "This face image has already been registered"),
+    FACE_BATCH_TOO_LARGE(HttpStatus.BAD_REQUEST, "BATCH_TOO_LARGE", "Too many images in one batch"),
+    FACE_IMAGE_INVALID(HttpStatus.BAD_REQUEST, "FACE_IMAGE_INVALID", "Image is empty, too large or not valid base64"),
+    ENROLLMENT_SOURCE_INVALID(HttpStatus.BAD_REQUEST, "ENROLLMENT_SOURCE_INVALID", "Upload a .zip archive or an NDJSON file"),
+    ENROLLMENT_JOB_NOT_FOUND(HttpStatus.NOT_FOUND, "ENROLLMENT_JOB_NOT_FOUND", "Enrollment job not found"),
+    FACE_JOB_NOT_FOUND(HttpStatus.NOT_FOUND, "FACE_JOB_NOT_FOUND", "Face job not found or expired"),
+    FACE_JOB_QUEUE_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE, "FACE_JOB_QUEUE_UNAVAILABLE", "Face job queue unavailable, retry later or register synchronously"),
+    FACE_GALLERY_NOT_FOUND(HttpStatus.NOT_FOUND, "FACE_GALLERY_NOT_FOUND", "Face gallery not found"),
+    FACE_GALLERY_NAME_EXISTS(HttpStatus.CONFLICT, "FACE_GALLERY_NAME_EXISTS", "Face gallery name already exists"),
+    REEMBEDDING_JOB_NOT_FOUND(HttpStatus.NOT_FOUND, "REEMBEDDING_JOB_NOT_FOUND", "Re-embedding job not found"),
+    REEMBEDDING_JOB_INVALID(HttpStatus.BAD_REQUEST, "REEMBEDDING_JOB_INVALID", "Source and target algorithm must differ"),
+    REEMBEDDING_JOB_CONFLICT(HttpStatus.CONFLICT, "REEMBEDDING_JOB_CONFLICT", "A re-embedding job for this algorithm is already running"),
+    FACE_GALLERY_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE, "FACE_GALLERY_UNAVAILABLE", "Face gallery cannot score matches right now, retry later"),
 
     // External service errors
     EXTERNAL_SERVICE_RETRY_EXHAUSTED(HttpStatus.SERVICE_UNAVAILABLE, "RETRY_EXHAUSTED", "External service unavailable after retries"),
@@ -0,0 +1,152 @@
+package com.mario.backend.common.http;
+
+import com.mario.backend.gateway.config.HttpClientProperties;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gradient-style adaptive limit on in-flight calls to one downstream.
+ * <p>
+ * Two moving averages of the round-trip time are kept: a short one tracking the
+ * current latency and a long one standing in for the no-load latency. Their ratio
+ * (allowing {@code rttTolerance} of slack, clamped to [0.5, 1]) scales the limit,
+ * and {@code sqrt(limit)} of headroom is added so it can probe upwards:
+ * <pre>
+ *   newLimit = limit * clamp(rttTolerance * longRtt / shortRtt, 0.5, 1) + sqrt(limit)
+ * </pre>
+ * Queueing inside face-ai shows up as a rising short RTT and pulls the limit down
+ * before timeouts do; a dropped call (timeout, 429, 5xx) cuts it by 10%. The limit
+ * only grows while at least half of it is in use, so an idle period cannot inflate it.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private double limit;
+    private double shortRtt;
+    private double longRtt;
+    private int inFlight;
+    private int queued;
+
+    public AdaptiveConcurrencyLimiter(HttpClientProperties.ConcurrencyLimit config) {
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.rttTolerance = config.getRttTolerance();
+        this.smoothing = config.getSmoothing();
+        this.maxQueue = config.getMaxQueue();
+        this.maxWaitNanos = config.getMaxWait().toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, config.getInitialLimit()));
+    }
+
+    /**
+     * Takes a permit, waiting at most {@code maxWait} behind at most {@code maxQueue}
+     * other callers; returns false when the call should be shed.
+     */
+    public synchronized boolean acquire() {
+        if (tryAcquire()) {
+            return true;
+        }
+        if (queued >= maxQueue || maxWaitNanos <= 0) {
+            return false;
+        }
+        queued++;
+        try {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued--;
+        }
+    }
+
+    /**
+     * Takes a permit only if one is free right now, for async callers that have no
+     * thread to park.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The downstream answered (successfully or with a client error) after {@code rttNanos}.
+     */
+    public synchronized void onSuccess(long rttNanos) {
+        int utilisation = inFlight;
+        inFlight--;
+        double rtt = Math.max(1, rttNanos);
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        if (longRtt / shortRtt > 2) {
+            // Latency fell well below the baseline (e.g. face-ai scaled out); let the baseline follow
+            longRtt *= 0.95;
+        }
+
+        if (utilisation >= limit / 2) {
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+        }
+        notifyAll();
+    }
+
+    /**
+     * The call timed out or the downstream signalled overload.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        limit = clamp(limit * BACKOFF_RATIO);
+        notifyAll();
+    }
+
+    /**
+     * The call failed for a reason that says nothing about the downstream's load.
+     */
+    public synchronized void onIgnore() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,11 @@
+package com.mario.backend.common.http;
+
+/**
+ * Thrown without calling the downstream when its adaptive concurrency limit is reached.
+ */
+public class ConcurrencyLimitExceededException extends HttpClientException {
+
+    public ConcurrencyLimitExceededException(String url, String downstream, int limit) {
+        super(url, "Concurrency limit of " + limit + " in-flight calls to " + downstream + " reached");
+    }
+}
@@ -1,10 +1,26 @@
 package com.mario.backend.common.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.mario.backend.face.service.IdempotencyService;
+import com.mario.backend.gateway.config.HttpClientProperties;
 import com.mario.backend.logging.context.TraceContext;
-import io.github.resilience4j.retry.annotation.Retry;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSink;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -12,55 +28,367 @@ import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+/**
+ * Each call runs as {@code Retry(CircuitBreaker(Bulkhead(ConcurrencyLimit(request))))}
+ * against the downstream its URL belongs to (see {@code http-client.downstreams}).
+ * <p>
+ * Only {@link RetryableHttpException}s are retried and counted by the breaker, and
+ * every retry after the first attempt must be paid for from the downstream's
+ * {@link RetryBudget}. An open breaker, a full bulkhead or a reached
+ * {@link AdaptiveConcurrencyLimiter} limit fails the call at once with an
+ * {@link HttpClientException}, so an unhealthy or overloaded dependency no longer
+ * holds request threads for the whole backoff schedule.
+ * <p>
+ * The {@code *Async} variants run the same chain without blocking: the request goes
+ * out through OkHttp's {@code enqueue}, backoff delays and hedges are scheduled on a
+ * timer, and the breaker, bulkhead and limiter are asked for a permit up front instead
+ * of being waited on. Trace and idempotency headers are taken from the calling thread
+ * when the request is built, so retries and hedges carry them too. The returned future
+ * completes on an OkHttp or timer thread; chain blocking work with the
+ * {@code *Async} stages of {@link CompletableFuture}.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class HttpClientService {
 
     private static final MediaType JSON = MediaType.parse("application/json");
+    private static final String CONFIG = "externalService";
+    private static final BodyReader<String> STRING = body -> body != null ? body.string() : "";
 
     private final OkHttpClient okHttpClient;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final RetryRegistry retryRegistry;
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Downstream> downstreams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-client-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    @Retry(name = "externalService", fallbackMethod = "handleRetryExhausted")
     public String get(String url) {
-        Request request = newRequestBuilder(url)
+        return call(url, STRING, () -> newRequestBuilder(url)
                 .get()
-                .build();
-        return execute(request, url);
+                .build());
     }
 
-    @Retry(name = "externalService", fallbackMethod = "handleRetryExhaustedWithBody")
     public String post(String url, Map<String, Object> body) {
-        Request request = newRequestBuilder(url)
+        return call(url, STRING, () -> newRequestBuilder(url)
+                .post(buildRequestBody(body, url))
+                .build());
+    }
+
+    /**
+     * Binds a successful response into {@code responseType} with the shared ObjectMapper
+     * as it streams off the connection, without holding the body as a String or a JSON
+     * tree first. A body that does not fit the type fails with an {@link HttpClientException}.
+     */
+    public <T> T post(String url, Map<String, Object> body, TypeReference<T> responseType) {
+        return call(url, typed(responseType), () -> newRequestBuilder(url)
                 .post(buildRequestBody(body, url))
-                .build();
-        return execute(request, url);
+                .build());
     }
 
-    @Retry(name = "externalService", fallbackMethod = "handleRetryExhaustedWithBody")
     public String put(String url, Map<String, Object> body) {
-        Request request = newRequestBuilder(url)
+        return call(url, STRING, () -> newRequestBuilder(url)
                 .put(buildRequestBody(body, url))
-                .build();
-        return execute(request, url);
+                .build());
     }
 
-    @Retry(name = "externalService", fallbackMethod = "handleRetryExhaustedWithBody")
     public String delete(String url, Map<String, Object> body) {
-        Request request = newRequestBuilder(url)
+        return call(url, STRING, () -> newRequestBuilder(url)
                 .delete(buildRequestBody(body, url))
-                .build();
-        return execute(request, url);
+                .build());
     }
 
-    @Retry(name = "externalService", fallbackMethod = "handleRetryExhausted")
     public String delete(String url) {
-        Request request = newRequestBuilder(url)
+        return call(url, STRING, () -> newRequestBuilder(url)
+                .delete()
+                .build());
+    }
+
+    public CompletableFuture<String> getAsync(String url) {
+        return callAsync(url, STRING, newRequestBuilder(url)
+                .get()
+                .build());
+    }
+
+    public CompletableFuture<String> postAsync(String url, Map<String, Object> body) {
+        return callAsync(url, STRING, newRequestBuilder(url)
+                .post(buildRequestBody(body, url))
+                .build());
+    }
+
+    public CompletableFuture<String> putAsync(String url, Map<String, Object> body) {
+        return callAsync(url, STRING, newRequestBuilder(url)
+                .put(buildRequestBody(body, url))
+                .build());
+    }
+
+    public CompletableFuture<String> deleteAsync(String url) {
+        return callAsync(url, STRING, newRequestBuilder(url)
                 .delete()
-                .build();
-        return execute(request, url);
+                .build());
+    }
+
+    /**
+     * Waits for a future from one of the {@code *Async} methods, throwing its failure
+     * as the blocking methods would.
+     */
+    public static <T> T await(CompletableFuture<T> future, String url) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof TimeoutException) {
+                throw new HttpClientException(url, "Timed out waiting for response");
+            }
+            throw new HttpClientException(url, "HTTP request failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new HttpClientException(url, "Interrupted while waiting for response", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private <T> T call(String url, BodyReader<T> reader, Supplier<Request> requests) {
+        Downstream downstream = downstream(url);
+        Supplier<T> request = () -> send(downstream, requests.get(), url, reader);
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(downstream.circuitBreaker(),
+                Bulkhead.decorateSupplier(downstream.bulkhead(), limited(downstream, url, request)));
+        Retry.Context<T> context = downstream.retry().context();
+        int maxAttempts = downstream.retry().getRetryConfig().getMaxAttempts();
+        downstream.retryBudget().onRequest();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T response = guarded.get();
+                context.onComplete();
+                return response;
+            } catch (CallNotPermittedException | BulkheadFullException e) {
+                throw rejected(downstream, url, e);
+            } catch (RetryableHttpException e) {
+                if (attempt < maxAttempts && !downstream.retryBudget().tryRetry()) {
+                    throw retryBudgetExhausted(downstream, url, e);
+                }
+                try {
+                    // Waits out the backoff, or rethrows once the attempts are used up
+                    context.onRuntimeError(e);
+                } catch (RetryableHttpException exhausted) {
+                    throw retriesExhausted(url, exhausted);
+                }
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(String url, BodyReader<T> reader, Request request) {
+        Downstream downstream = downstream(url);
+        downstream.retryBudget().onRequest();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attemptAsync(downstream, request, url, reader, downstream.retry().asyncContext(), 1, result);
+        return result;
+    }
+
+    private <T> void attemptAsync(Downstream downstream, Request request, String url, BodyReader<T> reader,
+                                  Retry.AsyncContext<T> context, int attempt, CompletableFuture<T> result) {
+        guardedAsync(downstream, request, url, reader).whenComplete((response, error) -> {
+            if (error == null) {
+                context.onComplete();
+                result.complete(response);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException) {
+                result.completeExceptionally(rejected(downstream, url, (RuntimeException) cause));
+                return;
+            }
+            if (!(cause instanceof RetryableHttpException retryable)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (attempt < downstream.retry().getRetryConfig().getMaxAttempts()
+                    && !downstream.retryBudget().tryRetry()) {
+                result.completeExceptionally(retryBudgetExhausted(downstream, url, retryable));
+                return;
+            }
+            // The backoff to wait before the next attempt, or -1 once the attempts are used up
+            long delayMillis = context.onError(retryable);
+            if (delayMillis < 0) {
+                result.completeExceptionally(retriesExhausted(url, retryable));
+                return;
+            }
+            try {
+                timer.schedule(() -> attemptAsync(downstream, request, url, reader, context, attempt + 1, result),
+                        delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(new HttpClientException(url, "HTTP client is shut down", e));
+            }
+        });
+    }
+
+    /**
+     * The async counterpart of {@code CircuitBreaker(Bulkhead(ConcurrencyLimit(request)))}:
+     * permits are only tried, never waited for, and released when the call completes.
+     */
+    private <T> CompletableFuture<T> guardedAsync(Downstream downstream, Request request, String url,
+                                                  BodyReader<T> reader) {
+        CircuitBreaker circuitBreaker = downstream.circuitBreaker();
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(
+                    CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+        }
+        Bulkhead bulkhead = downstream.bulkhead();
+        if (!bulkhead.tryAcquirePermission()) {
+            BulkheadFullException rejected = BulkheadFullException.createBulkheadFullException(bulkhead);
+            circuitBreaker.onError(0, TimeUnit.NANOSECONDS, rejected);
+            return CompletableFuture.failedFuture(rejected);
+        }
+        AdaptiveConcurrencyLimiter limiter = downstream.limiter();
+        if (limiter != null && !limiter.tryAcquire()) {
+            meterRegistry.counter("http.client.concurrency.rejected", "downstream", downstream.name()).increment();
+            ConcurrencyLimitExceededException rejected =
+                    new ConcurrencyLimitExceededException(url, downstream.name(), limiter.limit());
+            bulkhead.onComplete();
+            circuitBreaker.onError(0, TimeUnit.NANOSECONDS, rejected);
+            return CompletableFuture.failedFuture(rejected);
+        }
+
+        long start = System.nanoTime();
+        return sendAsync(downstream, request, url, reader).whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - start;
+            Throwable cause = error != null ? unwrap(error) : null;
+            if (limiter != null) {
+                if (cause == null || cause instanceof NonRetryableHttpException) {
+                    limiter.onSuccess(elapsed);
+                } else if (cause instanceof RetryableHttpException) {
+                    limiter.onDropped();
+                } else {
+                    limiter.onIgnore();
+                }
+            }
+            bulkhead.onComplete();
+            if (cause == null) {
+                circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, cause);
+            }
+        });
+    }
+
+    private HttpClientException rejected(Downstream downstream, String url, RuntimeException e) {
+        log.warn("Rejected call to {} ({}): {}", url, downstream.name(), e.getMessage());
+        return new HttpClientException(url, "External service unavailable: " + e.getMessage(), e);
+    }
+
+    private HttpClientException retryBudgetExhausted(Downstream downstream, String url, RetryableHttpException e) {
+        meterRegistry.counter("http.client.retry.budget.exhausted", "downstream", downstream.name()).increment();
+        log.warn("Retry budget for {} exhausted, not retrying {}: {}", downstream.name(), url, e.getMessage());
+        return new HttpClientException(url, "External service unavailable: " + e.getMessage(), e);
+    }
+
+    private static HttpClientException retriesExhausted(String url, RetryableHttpException e) {
+        log.error("Retry exhausted for {}: {}", url, e.getMessage());
+        return new HttpClientException(url, "External service unavailable after retries: " + e.getMessage(), e);
+    }
+
+    private <T> Supplier<T> limited(Downstream downstream, String url, Supplier<T> request) {
+        AdaptiveConcurrencyLimiter limiter = downstream.limiter();
+        if (limiter == null) {
+            return request;
+        }
+        return () -> {
+            if (!limiter.acquire()) {
+                meterRegistry.counter("http.client.concurrency.rejected", "downstream", downstream.name()).increment();
+                throw new ConcurrencyLimitExceededException(url, downstream.name(), limiter.limit());
+            }
+            long start = System.nanoTime();
+            try {
+                T response = request.get();
+                limiter.onSuccess(System.nanoTime() - start);
+                return response;
+            } catch (NonRetryableHttpException e) {
+                // The downstream answered; its latency is still a valid sample
+                limiter.onSuccess(System.nanoTime() - start);
+                throw e;
+            } catch (RetryableHttpException e) {
+                limiter.onDropped();
+                throw e;
+            } catch (RuntimeException e) {
+                limiter.onIgnore();
+                throw e;
+            }
+        };
+    }
+
+    private Downstream downstream(String url) {
+        return downstreams.computeIfAbsent(downstreamName(url), name -> {
+            HttpClientProperties.RetryBudget budget = properties.getRetryBudget();
+            AdaptiveConcurrencyLimiter limiter = null;
+            if (properties.getConcurrencyLimit().isEnabled()) {
+                limiter = new AdaptiveConcurrencyLimiter(properties.getConcurrencyLimit());
+                Gauge.builder("http.client.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                        .tag("downstream", name).register(meterRegistry);
+                Gauge.builder("http.client.concurrency.in_flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                        .tag("downstream", name).register(meterRegistry);
+                Gauge.builder("http.client.concurrency.queued", limiter, AdaptiveConcurrencyLimiter::queued)
+                        .tag("downstream", name).register(meterRegistry);
+            }
+            HttpClientProperties.Hedging hedging = properties.getHedging();
+            return new Downstream(name,
+                    circuitBreakerRegistry.circuitBreaker(name, circuitBreakerRegistry.getConfiguration(CONFIG)
+                            .orElseGet(circuitBreakerRegistry::getDefaultConfig)),
+                    bulkheadRegistry.bulkhead(name, bulkheadRegistry.getConfiguration(CONFIG)
+                            .orElseGet(bulkheadRegistry::getDefaultConfig)),
+                    retryRegistry.retry(CONFIG),
+                    new RetryBudget(budget.getRatio(), budget.getMinRetriesPerSecond(), budget.getMaxBalance()),
+                    limiter,
+                    new RetryBudget(hedging.getBudgetRatio(), hedging.getMinHedgesPerSecond(), hedging.getMaxBalance()),
+                    new ConcurrentHashMap<>());
+        });
+    }
+
+    private String downstreamName(String url) {
+        String name = null;
+        int matched = -1;
+        for (Map.Entry<String, String> entry : properties.getDownstreams().entrySet()) {
+            String baseUrl = entry.getValue();
+            if (baseUrl != null && url.startsWith(baseUrl) && baseUrl.length() > matched) {
+                name = entry.getKey();
+                matched = baseUrl.length();
+            }
+        }
+        if (name != null) {
+            return name;
+        }
+        HttpUrl parsed = HttpUrl.parse(url);
+        return parsed != null ? parsed.host() + ":" + parsed.port() : CONFIG;
     }
 
     private Request.Builder newRequestBuilder(String url) {
@@ -69,56 +397,245 @@ public class HttpClientService {
         if (traceId != null) {
             builder.addHeader("X-Request-ID", traceId);
         }
+        // Set here rather than only in the interceptor: hedged and async calls run on OkHttp's threads,
+        // and a request is built once on the caller's thread and reused by every attempt
+        String idempotencyKey = IdempotencyService.getCurrentKey();
+        if (idempotencyKey != null) {
+            builder.header("X-Idempotency-Key", idempotencyKey);
+        }
         return builder;
     }
 
+    /**
+     * Serializes the body straight into the connection as OkHttp writes the request,
+     * so large payloads (base64 images) never exist as an intermediate JSON String.
+     * Sent chunked; {@code writeTo} may run again on retry, which is fine since the map is kept.
+     */
     private RequestBody buildRequestBody(Map<String, Object> body, String url) {
-        try {
-            return RequestBody.create(objectMapper.writeValueAsString(body), JSON);
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(sink.outputStream())) {
+                    // OkHttp owns the sink; only flush it
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    objectMapper.writeValue(generator, body);
+                }
+            }
+        };
+    }
+
+    private <T> T send(Downstream downstream, Request request, String url, BodyReader<T> reader) {
+        if (isHedged(request)) {
+            return await(sendAsync(downstream, request, url, reader), url);
+        }
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            return read(response, url, reader);
         } catch (IOException e) {
-            throw new HttpClientException(url, "Failed to serialize request body", e);
+            throw translate(e, url);
         }
     }
 
-    private String execute(Request request, String url) {
-        try (Response response = okHttpClient.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
-            int statusCode = response.code();
+    private boolean isHedged(Request request) {
+        HttpClientProperties.Hedging hedging = properties.getHedging();
+        return hedging.isEnabled() && hedging.getPaths().contains(request.url().encodedPath());
+    }
+
+    /**
+     * Sends the request and, if no answer has arrived after the configured latency
+     * percentile for its path, an identical second one; the first answer wins and
+     * the other call is cancelled. Only paths listed in {@code http-client.hedging.paths}
+     * (safe to send twice) are hedged, and each hedge is paid for from the hedging budget.
+     * A hedge is one more call in flight, so it also takes its own concurrency limiter
+     * permit and is skipped when none is free.
+     */
+    private <T> CompletableFuture<T> sendAsync(Downstream downstream, Request request, String url,
+                                               BodyReader<T> reader) {
+        CompletableFuture<HedgedResponse<T>> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        Call primary = okHttpClient.newCall(request);
+        if (!isHedged(request)) {
+            enqueue(primary, url, reader, false, winner, outstanding, null);
+            return winner.thenApply(HedgedResponse::body);
+        }
+
+        HttpClientProperties.Hedging hedging = properties.getHedging();
+        LatencyWindow latencies = downstream.latencies().computeIfAbsent(request.url().encodedPath(),
+                path -> new LatencyWindow(hedging.getWindowSize(), hedging.getMinSamples()));
+        // Negative until there are enough samples to know what slow means for this path
+        long delayNanos = latencies.percentile(hedging.getPercentile());
+        long start = System.nanoTime();
+        AtomicReference<Call> hedge = new AtomicReference<>();
+        AtomicReference<String> outcome = new AtomicReference<>("not_needed");
+        enqueue(primary, url, reader, false, winner, outstanding, null);
+        ScheduledFuture<?> hedgeTimer = null;
+        if (delayNanos >= 0) {
+            downstream.hedgeBudget().onRequest();
+            try {
+                hedgeTimer = timer.schedule(() -> {
+                    if (winner.isDone()) {
+                        return;
+                    }
+                    // Checked before the budget so a hedge that can't go out costs no budget
+                    AdaptiveConcurrencyLimiter limiter = downstream.limiter();
+                    if (limiter != null && !limiter.tryAcquire()) {
+                        outcome.set("limited");
+                        return;
+                    }
+                    if (!downstream.hedgeBudget().tryRetry()) {
+                        if (limiter != null) {
+                            limiter.onIgnore();
+                        }
+                        outcome.set("budget_exhausted");
+                        return;
+                    }
+                    outstanding.incrementAndGet();
+                    Call call = primary.clone();
+                    hedge.set(call);
+                    enqueue(call, url, reader, true, winner, outstanding, limiter);
+                    if (winner.isDone()) {
+                        // The primary answered while the hedge was being sent
+                        call.cancel();
+                    }
+                }, Math.max(delayNanos, hedging.getMinDelay().toNanos()), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("HTTP client timer is shut down, not hedging {}", url);
+            }
+        }
 
-            if (response.isSuccessful()) {
-                return responseBody;
+        ScheduledFuture<?> pendingHedge = hedgeTimer;
+        return winner.whenComplete((response, error) -> {
+            if (pendingHedge != null) {
+                pendingHedge.cancel(false);
             }
+            primary.cancel();
+            Call hedged = hedge.get();
+            if (hedged != null) {
+                hedged.cancel();
+            }
+            if (error != null) {
+                return;
+            }
+            latencies.record(System.nanoTime() - start);
+            if (delayNanos >= 0) {
+                String result = hedged == null ? outcome.get() : response.hedge() ? "hedge_won" : "primary_won";
+                meterRegistry.counter("http.client.hedging", "downstream", downstream.name(), "outcome", result)
+                        .increment();
+            }
+        }).thenApply(HedgedResponse::body);
+    }
 
-            if (statusCode == 429 || statusCode >= 500) {
-                throw new RetryableHttpException(url,
-                        "HTTP " + statusCode + ": " + responseBody, statusCode);
+    /**
+     * @param permit the limiter a hedge took its own permit from, released when the call
+     *               ends; null for a primary, whose permit is held by its caller
+     */
+    private <T> void enqueue(Call call, String url, BodyReader<T> reader, boolean hedge,
+                             CompletableFuture<HedgedResponse<T>> winner, AtomicInteger outstanding,
+                             AdaptiveConcurrencyLimiter permit) {
+        long start = System.nanoTime();
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                RuntimeException error = null;
+                try (response) {
+                    winner.complete(new HedgedResponse<>(read(response, url, reader), hedge));
+                } catch (IOException e) {
+                    error = translate(e, url);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                done(call, error);
             }
 
-            throw new NonRetryableHttpException(url,
-                    "HTTP " + statusCode + ": " + responseBody, statusCode, responseBody);
+            @Override
+            public void onFailure(Call call, IOException e) {
+                done(call, translate(e, url));
+            }
 
-        } catch (RetryableHttpException | NonRetryableHttpException e) {
-            throw e;
-        } catch (SocketTimeoutException e) {
-            throw new RetryableHttpException(url, "Request timed out", e);
-        } catch (ConnectException e) {
-            throw new RetryableHttpException(url, "Connection failed", e);
-        } catch (UnknownHostException e) {
-            throw new RetryableHttpException(url, "DNS resolution failed", e);
-        } catch (IOException e) {
-            throw new RetryableHttpException(url, "HTTP request failed: " + e.getMessage(), e);
+            private void done(Call call, RuntimeException error) {
+                if (permit != null) {
+                    // Cancelled once the other call won: says nothing about the downstream's load
+                    if (call.isCanceled()) {
+                        permit.onIgnore();
+                    } else if (error == null || error instanceof NonRetryableHttpException) {
+                        permit.onSuccess(System.nanoTime() - start);
+                    } else if (error instanceof RetryableHttpException) {
+                        permit.onDropped();
+                    } else {
+                        permit.onIgnore();
+                    }
+                }
+                // A failed request loses only once the other one has failed as well
+                if (error != null && outstanding.decrementAndGet() == 0) {
+                    winner.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private <T> BodyReader<T> typed(TypeReference<T> type) {
+        return body -> objectMapper.readerFor(type).readValue(body.byteStream());
+    }
+
+    private static <T> T read(Response response, String url, BodyReader<T> reader) throws IOException {
+        if (response.isSuccessful()) {
+            try {
+                return reader.read(response.body());
+            } catch (JsonProcessingException e) {
+                throw new HttpClientException(url, "Failed to parse response body: " + e.getOriginalMessage(), e);
+            }
         }
+
+        String responseBody = response.body() != null ? response.body().string() : "";
+        int statusCode = response.code();
+
+        if (statusCode == 429 || statusCode >= 500) {
+            throw new RetryableHttpException(url,
+                    "HTTP " + statusCode + ": " + responseBody, statusCode);
+        }
+
+        throw new NonRetryableHttpException(url,
+                "HTTP " + statusCode + ": " + responseBody, statusCode, responseBody);
+    }
+
+    private static HttpClientException translate(IOException e, String url) {
+        if (e instanceof JsonProcessingException) {
+            return new HttpClientException(url, "Failed to serialize request body", e);
+        }
+        if (e instanceof SocketTimeoutException) {
+            return new RetryableHttpException(url, "Request timed out", e);
+        }
+        if (e instanceof ConnectException) {
+            return new RetryableHttpException(url, "Connection failed", e);
+        }
+        if (e instanceof UnknownHostException) {
+            return new RetryableHttpException(url, "DNS resolution failed", e);
+        }
+        return new RetryableHttpException(url, "HTTP request failed: " + e.getMessage(), e);
+    }
+
+    /**
+     * Reads a successful response body; the body is closed by the caller.
+     */
+    @FunctionalInterface
+    private interface BodyReader<T> {
+
+        T read(ResponseBody body) throws IOException;
     }
 
-    @SuppressWarnings("unused")
-    private String handleRetryExhausted(String url, Exception ex) {
-        log.error("Retry exhausted for GET/DELETE {}: {}", url, ex.getMessage());
-        throw new HttpClientException(url, "External service unavailable after retries: " + ex.getMessage(), ex);
+    private record HedgedResponse<T>(T body, boolean hedge) {
     }
 
-    @SuppressWarnings("unused")
-    private String handleRetryExhaustedWithBody(String url, Map<String, Object> body, Exception ex) {
-        log.error("Retry exhausted for {}: {}", url, ex.getMessage());
-        throw new HttpClientException(url, "External service unavailable after retries: " + ex.getMessage(), ex);
+    private record Downstream(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead, Retry retry,
+                              RetryBudget retryBudget, AdaptiveConcurrencyLimiter limiter,
+                              RetryBudget hedgeBudget, Map<String, LatencyWindow> latencies) {
     }
 }
@@ -0,0 +1,52 @@
+package com.mario.backend.common.http;
+
+import java.util.Arrays;
+
+/**
+ * The most recent response times of one call path, for choosing when to hedge.
+ * The percentile is recomputed at most every {@value #RECOMPUTE_EVERY} samples,
+ * so reading it stays cheap on the request path.
+ */
+public class LatencyWindow {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final int minSamples;
+    private int count;
+    private int next;
+    private int sinceRecompute;
+    private double cachedFor = -1;
+    private long cached = -1;
+
+    public LatencyWindow(int size, int minSamples) {
+        this.samples = new long[size];
+        this.minSamples = Math.min(minSamples, size);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        sinceRecompute++;
+    }
+
+    /**
+     * @return the latency in nanoseconds below which {@code percentile} of the samples fall,
+     *         or -1 while fewer than the minimum number of samples have been recorded
+     */
+    public synchronized long percentile(double percentile) {
+        if (count < minSamples) {
+            return -1;
+        }
+        if (cached < 0 || cachedFor != percentile || sinceRecompute >= RECOMPUTE_EVERY) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            cached = sorted[Math.max(0, Math.min(count - 1, index))];
+            cachedFor = percentile;
+            sinceRecompute = 0;
+        }
+        return cached;
+    }
+}
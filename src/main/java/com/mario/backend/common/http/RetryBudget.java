@@ -0,0 +1,42 @@
+package com.mario.backend.common.http;
+
+/**
+ * Token bucket limiting retries to a share of first attempts per downstream.
+ * <p>
+ * Every first attempt deposits {@code ratio} tokens and the bucket also refills at
+ * {@code minRetriesPerSecond}; a retry needs one whole token. When the downstream
+ * fails every call, retries are therefore capped at roughly {@code ratio} of the
+ * traffic instead of multiplying it by the retry attempt count.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minRetriesPerNano;
+    private final double maxBalance;
+
+    private double balance;
+    private long lastRefill;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, int maxBalance) {
+        this.ratio = ratio;
+        this.minRetriesPerNano = minRetriesPerSecond / 1_000_000_000.0;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized void onRequest() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    public synchronized boolean tryRetry() {
+        long now = System.nanoTime();
+        balance = Math.min(maxBalance, balance + (now - lastRefill) * minRetriesPerNano);
+        lastRefill = now;
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mario.backend.common.http;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@link ExternalServiceResponse} with {@code data} bound to a type instead of a
+ * JSON tree; read with {@code HttpClientService.post(url, body, responseType)}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TypedExternalServiceResponse<T> {
+
+    private String code = "";
+
+    private String status = "";
+
+    private String message = "Unknown response";
+
+    private T data;
+
+    @JsonIgnore
+    public boolean isSuccess() {
+        return "0000".equals(code) || "success".equals(status);
+    }
+}
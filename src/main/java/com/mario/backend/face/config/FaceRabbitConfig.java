@@ -0,0 +1,72 @@
+package com.mario.backend.face.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FaceRabbitConfig {
+
+    public static final String FACE_EXCHANGE = "face.exchange";
+    public static final String FACE_DLX = "face.dlx";
+    public static final String FACE_DLQ = "face.dlq";
+
+    public static final String FACE_REGISTER_QUEUE = "face.register.queue";
+    public static final String FACE_REGISTER_ROUTING_KEY = "face.register";
+
+    // Dead letter exchange and queue
+    @Bean
+    public FanoutExchange faceDlx() {
+        return new FanoutExchange(FACE_DLX, true, false);
+    }
+
+    @Bean
+    public Queue faceDlq() {
+        return QueueBuilder.durable(FACE_DLQ).build();
+    }
+
+    @Bean
+    public Binding faceDlqBinding() {
+        return BindingBuilder.bind(faceDlq()).to(faceDlx());
+    }
+
+    @Bean
+    public DirectExchange faceExchange() {
+        return new DirectExchange(FACE_EXCHANGE, true, false);
+    }
+
+    // Registration jobs (encode + upload + persist)
+    @Bean
+    public Queue faceRegisterQueue() {
+        return QueueBuilder.durable(FACE_REGISTER_QUEUE)
+                .withArgument("x-dead-letter-exchange", FACE_DLX)
+                .build();
+    }
+
+    @Bean
+    public Binding faceRegisterBinding() {
+        return BindingBuilder.bind(faceRegisterQueue()).to(faceExchange()).with(FACE_REGISTER_ROUTING_KEY);
+    }
+
+    /**
+     * Bounded worker pool for registration jobs: throughput is capped by consumer
+     * count, and prefetch 1 keeps queued jobs on the broker rather than in memory.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory faceRegisterListenerFactory(ConnectionFactory connectionFactory,
+                                                                           MessageConverter messageConverter,
+                                                                           FaceRecognitionProperties properties) {
+        FaceRecognitionProperties.Jobs jobs = properties.getJobs();
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setConcurrentConsumers(jobs.getConcurrency());
+        factory.setMaxConcurrentConsumers(jobs.getMaxConcurrency());
+        factory.setPrefetchCount(1);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
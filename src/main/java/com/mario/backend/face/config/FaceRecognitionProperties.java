@@ -0,0 +1,322 @@
+package com.mario.backend.face.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "face-recognition")
+public class FaceRecognitionProperties {
+
+    /**
+     * Algorithm new faces are encoded with and recognition searches; switch after re-embedding.
+     */
+    private String algorithmReg = "facenet_mobilenet";
+
+    private Search search = new Search();
+
+    private Gallery gallery = new Gallery();
+
+    private Batch batch = new Batch();
+
+    private EncodeBatching encodeBatching = new EncodeBatching();
+
+    private Coalescing coalescing = new Coalescing();
+
+    private ResultCache resultCache = new ResultCache();
+
+    private Image image = new Image();
+
+    private Enrollment enrollment = new Enrollment();
+
+    private Jobs jobs = new Jobs();
+
+    private Reembedding reembedding = new Reembedding();
+
+    public enum SearchMode {
+        /**
+         * Encode the probe via face-ai, then run top-K search against the in-JVM index.
+         */
+        LOCAL,
+        /**
+         * Legacy mode: post the whole candidate gallery to face-ai /api/v1/face/search.
+         */
+        REMOTE,
+        /**
+         * face-ai keeps a replica of the gallery fed by versioned deltas; searches
+         * send only the probe and the gallery version.
+         */
+        SYNCED
+    }
+
+    public enum QuantizationMode {
+        /**
+         * Full-precision float32 vectors in the HNSW graph.
+         */
+        NONE,
+        /**
+         * int8 per dimension (4x smaller), flat scan + full-precision re-rank.
+         */
+        INT8,
+        /**
+         * Product quantization, {@code pq-subquantizers} bytes per vector, flat scan + re-rank.
+         */
+        PQ
+    }
+
+    public enum RerankSource {
+        /**
+         * The gallery's memory-mapped snapshot, plus faces added since on heap; needs snapshots enabled.
+         */
+        SNAPSHOT,
+        /**
+         * One {@code face_features} query per search; ties recognition latency to the MySQL pool.
+         */
+        DATABASE
+    }
+
+    public enum SnapshotStore {
+        /**
+         * Each node writes and maps its own snapshot file.
+         */
+        LOCAL,
+        /**
+         * One node writes and uploads; every node downloads the latest at boot.
+         */
+        MINIO
+    }
+
+    @Getter
+    @Setter
+    public static class Search {
+        private SearchMode mode = SearchMode.LOCAL;
+        private int topK = 5;
+        private double matchThreshold = 1.1;
+        /**
+         * Most recent faces of the caller a 1:1 verify compares the probe against.
+         */
+        private int verifyMaxFaces = 10;
+        private Hnsw hnsw = new Hnsw();
+        private Quantization quantization = new Quantization();
+        private Replica replica = new Replica();
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        /**
+         * How long a search waits for a full resync of the face-ai replica before
+         * falling back to posting the candidates.
+         */
+        private Duration resyncTimeout = Duration.ofMinutes(2);
+    }
+
+    @Getter
+    @Setter
+    public static class Quantization {
+        /**
+         * Only applies in LOCAL search mode; REMOTE needs full vectors to post to face-ai.
+         */
+        private QuantizationMode mode = QuantizationMode.NONE;
+        /**
+         * Approximate candidates re-scored at full precision, as a multiple of the requested top-K.
+         */
+        private int rerankFactor = 4;
+        /**
+         * Where full-precision vectors for the re-rank come from.
+         */
+        private RerankSource rerankSource = RerankSource.SNAPSHOT;
+        /**
+         * Galleries smaller than this stay full precision.
+         */
+        private int minTrainingSize = 1000;
+        private int trainingSample = 10000;
+        private int pqSubquantizers = 32;
+        private int pqIterations = 6;
+    }
+
+    @Getter
+    @Setter
+    public static class Gallery {
+        private long syncIntervalMs = 1000;
+        private Duration replayMargin = Duration.ofSeconds(5);
+        /**
+         * Algorithms loaded at startup; readiness reports OUT_OF_SERVICE until they are.
+         */
+        private List<String> preload = new ArrayList<>(List.of("facenet_mobilenet"));
+        private Snapshot snapshot = new Snapshot();
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        private boolean enabled = true;
+        private SnapshotStore store = SnapshotStore.LOCAL;
+        private String dir = System.getProperty("java.io.tmpdir") + "/face-gallery-snapshots";
+        /**
+         * How often loaded galleries that changed since their last snapshot are re-written.
+         */
+        private long intervalMs = 600000;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        private int maxSize = 32;
+    }
+
+    @Getter
+    @Setter
+    public static class EncodeBatching {
+        /**
+         * Coalesce concurrent registration / enrollment encodes into face-ai /encode-batch calls.
+         */
+        private boolean enabled = true;
+        private int maxBatchSize = 16;
+        /**
+         * How long a batch waits for more images after its first one arrives.
+         */
+        private Duration linger = Duration.ofMillis(5);
+        private int maxConcurrentBatches = 4;
+        /**
+         * Upper bound on a caller's wait, covering queueing behind other batches and the call itself.
+         */
+        private Duration waitTimeout = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+        /**
+         * Identical concurrent register / recognize / verify requests share one computation.
+         */
+        private boolean enabled = true;
+        /**
+         * Also coalesce across nodes through a Redis lease.
+         */
+        private boolean distributed = false;
+        /**
+         * Upper bound on how long other nodes wait for the lease holder's result.
+         */
+        private Duration lease = Duration.ofSeconds(10);
+        private Duration pollInterval = Duration.ofMillis(25);
+        private Duration resultTtl = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        /**
+         * Successful /recognize results per image hash and gallery version, per node.
+         */
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Image {
+        /**
+         * Upper bound on a multipart / binary face image upload.
+         */
+        private int maxBytes = 5 * 1024 * 1024;
+        /**
+         * Unreferenced stored images younger than this are kept: a registration that
+         * uploaded one may not have committed yet.
+         */
+        private Duration orphanGracePeriod = Duration.ofHours(24);
+        private long orphanSweepIntervalMs = 3600000;
+    }
+
+    @Getter
+    @Setter
+    public static class Enrollment {
+        /**
+         * Threads running hash / dedupe / encode / upload per job.
+         */
+        private int workers = 8;
+        /**
+         * Records read but not yet persisted; the reader blocks once this many are pending.
+         */
+        private int maxInFlight = 64;
+        private int insertBatchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(500);
+        private int maxImageBytes = 5 * 1024 * 1024;
+        private Duration heartbeatInterval = Duration.ofSeconds(20);
+        /**
+         * Tries per record before it is recorded as failed, unless nothing else enrolled meanwhile (job pauses).
+         */
+        private int maxRecordAttempts = 3;
+        /**
+         * A queued/running job whose heartbeat is older than this is assumed orphaned and resumed.
+         */
+        private Duration staleAfter = Duration.ofMinutes(2);
+        private long resumeCheckIntervalMs = 30000;
+    }
+
+    @Getter
+    @Setter
+    public static class Reembedding {
+        /**
+         * Source features read, re-encoded and committed (with the checkpoint) together.
+         */
+        private int batchSize = 64;
+        /**
+         * Parallel image download / encode per page; encodes share the micro-batcher with live registrations.
+         */
+        private int workers = 4;
+        /**
+         * Throttle so a migration on a live system leaves face-ai headroom; 0 disables it.
+         */
+        private int maxImagesPerSecond = 20;
+        /**
+         * Features stored before images were linked are matched to the user's image stored closest in time,
+         * but only within this window; otherwise they count as failed instead of re-encoding a guess.
+         */
+        private Duration imageMatchTolerance = Duration.ofSeconds(5);
+        /**
+         * A queued/running job whose heartbeat is older than this is assumed orphaned and resumed.
+         */
+        private Duration staleAfter = Duration.ofMinutes(2);
+        private long resumeCheckIntervalMs = 30000;
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+        /**
+         * Registration job consumers per node; the effective worker pool size.
+         */
+        private int concurrency = 4;
+        private int maxConcurrency = 8;
+        /**
+         * How long job status stays queryable after the last update.
+         */
+        private Duration ttl = Duration.ofHours(24);
+    }
+
+    @Getter
+    @Setter
+    public static class Hnsw {
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private double maxDeletedRatio = 0.3;
+        /**
+         * Galleries up to this size are searched exhaustively (exact, SIMD) instead of via the graph.
+         */
+        private int exactScanBelow = 10000;
+        /**
+         * Rows per fork/join task in an exhaustive scan.
+         */
+        private int scanChunk = 4096;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mario.backend.face.consumer;
+
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRabbitConfig;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.event.FaceRegistrationMessage;
+import com.mario.backend.face.service.FaceRegistrationJobService;
+import com.mario.backend.face.service.FaceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceRegistrationConsumer {
+
+    private final FaceService faceService;
+    private final FaceRegistrationJobService jobService;
+
+    @RabbitListener(queues = FaceRabbitConfig.FACE_REGISTER_QUEUE, containerFactory = "faceRegisterListenerFactory")
+    public void consume(FaceRegistrationMessage message,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered) {
+        String previous = jobService.markRunning(message.getJobId());
+        if (previous == null) {
+            log.warn("Dropping face registration job {}: status expired", message.getJobId());
+            return;
+        }
+        if (FaceRegistrationJobService.COMPLETED.equals(previous) || FaceRegistrationJobService.FAILED.equals(previous)) {
+            log.debug("Face registration job {} already finished, ignoring redelivery", message.getJobId());
+            return;
+        }
+
+        try {
+            FaceResponse result = faceService.registerFace(message.getUserId(), message.getImageData());
+            jobService.complete(message.getJobId(), result);
+        } catch (ApiException e) {
+            // A redelivered message whose first attempt committed before the node died
+            if (Boolean.TRUE.equals(redelivered) && ErrorCode.FACE_ALREADY_REGISTERED.getCode().equals(e.getCode())) {
+                jobService.complete(message.getJobId(), FaceResponse.builder()
+                        .success(true)
+                        .code("0000")
+                        .message("Face registered")
+                        .userId(message.getUserId())
+                        .build());
+                return;
+            }
+            log.info("Face registration job {} failed: {}", message.getJobId(), e.getMessage());
+            jobService.fail(message.getJobId(), e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            // Unexpected failure: record it, then let the message dead-letter to face.dlq
+            log.error("Face registration job {} crashed", message.getJobId(), e);
+            jobService.fail(message.getJobId(), "500", "Face registration failed");
+            throw e;
+        }
+    }
+}
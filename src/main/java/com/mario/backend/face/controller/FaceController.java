@@ -2,16 +2,32 @@ package com.mario.backend.face.controller;
 
 import com.mario.backend.auth.security.AuthenticatedUser;
 import com.mario.backend.common.dto.ApiResponse;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceBatchResponse;
+import com.mario.backend.face.dto.FaceJobResponse;
+import com.mario.backend.face.dto.FaceRecognizeBatchRequest;
 import com.mario.backend.face.dto.FaceRecognizeRequest;
 import com.mario.backend.face.dto.FaceRegisterRequest;
 import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceVerifyRequest;
+import com.mario.backend.face.dto.FaceVerifyResponse;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.service.FaceRegistrationJobService;
 import com.mario.backend.face.service.FaceService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/v1/face")
@@ -19,6 +35,8 @@ import org.springframework.web.bind.annotation.*;
 public class FaceController {
 
     private final FaceService faceService;
+    private final FaceRegistrationJobService faceRegistrationJobService;
+    private final FaceRecognitionProperties properties;
 
     @PostMapping("/register-identity")
     @PreAuthorize("hasAuthority('face:register')")
@@ -29,12 +47,82 @@ public class FaceController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    /**
+     * Binary upload: the file is read once into the buffer that is hashed, sent and stored.
+     */
+    @PostMapping(value = "/register-identity", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('face:register')")
+    public ResponseEntity<ApiResponse<FaceResponse>> registerFaceUpload(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam("image") MultipartFile image) throws IOException {
+        FaceResponse response = faceService.registerFace(user.getUserId(), readImage(image));
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @PostMapping(value = "/register-identity", params = "async=true", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAuthority('face:register')")
+    public ResponseEntity<ApiResponse<FaceJobResponse>> registerFaceAsync(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @Valid @RequestBody FaceRegisterRequest request) {
+        FaceJobResponse job = faceRegistrationJobService.submitRegistration(user.getUserId(), request.getImageData());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/face/jobs/" + job.getJobId()))
+                .body(ApiResponse.success(job));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasAuthority('face:register')")
+    public ResponseEntity<ApiResponse<FaceJobResponse>> getJob(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(ApiResponse.success(faceRegistrationJobService.getJob(user.getUserId(), jobId)));
+    }
+
     @PostMapping("/recognize-identity")
     @PreAuthorize("hasAuthority('face:recognize')")
     public ResponseEntity<ApiResponse<FaceResponse>> recognizeFace(
             @AuthenticationPrincipal AuthenticatedUser user,
             @Valid @RequestBody FaceRecognizeRequest request) {
-        FaceResponse response = faceService.recognizeFace(user.getUserId(), request.getImageData());
+        FaceResponse response = faceService.recognizeFace(user.getUserId(), request.getImageData(),
+                request.getGalleryId());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @PostMapping(value = "/recognize-identity", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('face:recognize')")
+    public ResponseEntity<ApiResponse<FaceResponse>> recognizeFaceUpload(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam("image") MultipartFile image,
+            @RequestParam(value = "gallery_id", required = false) Long galleryId) throws IOException {
+        FaceResponse response = faceService.recognizeFace(user.getUserId(), readImage(image), galleryId);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @PostMapping("/verify")
+    @PreAuthorize("hasAuthority('face:recognize')")
+    public ResponseEntity<ApiResponse<FaceVerifyResponse>> verifyFace(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @Valid @RequestBody FaceVerifyRequest request) {
+        FaceVerifyResponse response = faceService.verifyFace(user.getUserId(), request.getImageData());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @PostMapping(value = "/verify", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('face:recognize')")
+    public ResponseEntity<ApiResponse<FaceVerifyResponse>> verifyFaceUpload(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam("image") MultipartFile image) throws IOException {
+        FaceVerifyResponse response = faceService.verifyFace(user.getUserId(), readImage(image));
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @PostMapping("/recognize-batch")
+    @PreAuthorize("hasAuthority('face:recognize')")
+    public ResponseEntity<ApiResponse<FaceBatchResponse>> recognizeBatch(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @Valid @RequestBody FaceRecognizeBatchRequest request) {
+        FaceBatchResponse response = faceService.recognizeBatch(user.getUserId(), request.getImages(),
+                request.getGalleryId());
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -53,4 +141,11 @@ public class FaceController {
         FaceResponse response = faceService.isRegistered(user.getUserId());
         return ResponseEntity.ok(ApiResponse.success(response));
     }
+
+    private ImagePayload readImage(MultipartFile image) throws IOException {
+        if (image.isEmpty() || image.getSize() > properties.getImage().getMaxBytes()) {
+            throw new ApiException(ErrorCode.FACE_IMAGE_INVALID);
+        }
+        return ImagePayload.of(image.getBytes());
+    }
 }
@@ -0,0 +1,74 @@
+package com.mario.backend.face.controller;
+
+import com.mario.backend.auth.security.AuthenticatedUser;
+import com.mario.backend.common.dto.ApiResponse;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.dto.FaceEnrollmentJobResponse;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import com.mario.backend.face.service.FaceEnrollmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/v1/face/enrollments")
+@RequiredArgsConstructor
+public class FaceEnrollmentController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final FaceEnrollmentService faceEnrollmentService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('face:enroll_bulk')")
+    public ResponseEntity<ApiResponse<FaceEnrollmentJobResponse>> uploadFile(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        FaceEnrollmentJob.SourceFormat format = detectFormat(file.getOriginalFilename(), file.getContentType());
+        try (InputStream in = file.getInputStream()) {
+            FaceEnrollmentJobResponse response =
+                    faceEnrollmentService.createJob(user.getUserId(), in, file.getSize(), format);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(response));
+        }
+    }
+
+    @PostMapping(consumes = NDJSON)
+    @PreAuthorize("hasAuthority('face:enroll_bulk')")
+    public ResponseEntity<ApiResponse<FaceEnrollmentJobResponse>> uploadStream(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            HttpServletRequest request) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            FaceEnrollmentJobResponse response = faceEnrollmentService.createJob(
+                    user.getUserId(), in, request.getContentLengthLong(), FaceEnrollmentJob.SourceFormat.ndjson);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(response));
+        }
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAuthority('face:enroll_bulk')")
+    public ResponseEntity<ApiResponse<FaceEnrollmentJobResponse>> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(faceEnrollmentService.getJob(id)));
+    }
+
+    private static FaceEnrollmentJob.SourceFormat detectFormat(String fileName, String contentType) {
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".zip") || "application/zip".equals(contentType)) {
+            return FaceEnrollmentJob.SourceFormat.zip;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || NDJSON.equals(contentType)) {
+            return FaceEnrollmentJob.SourceFormat.ndjson;
+        }
+        throw new ApiException(ErrorCode.ENROLLMENT_SOURCE_INVALID);
+    }
+}
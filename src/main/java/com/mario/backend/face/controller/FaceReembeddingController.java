@@ -0,0 +1,37 @@
+package com.mario.backend.face.controller;
+
+import com.mario.backend.auth.security.AuthenticatedUser;
+import com.mario.backend.common.dto.ApiResponse;
+import com.mario.backend.face.dto.FaceReembeddingJobResponse;
+import com.mario.backend.face.dto.FaceReembeddingRequest;
+import com.mario.backend.face.service.FaceReembeddingService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/face/reembeddings")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('face:reembed')")
+public class FaceReembeddingController {
+
+    private final FaceReembeddingService faceReembeddingService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<FaceReembeddingJobResponse>> createJob(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @Valid @RequestBody FaceReembeddingRequest request) {
+        FaceReembeddingJobResponse response = faceReembeddingService.createJob(
+                user.getUserId(), request.getSourceAlgorithm(), request.getTargetAlgorithm());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(response));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<FaceReembeddingJobResponse>> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(faceReembeddingService.getJob(id)));
+    }
+}
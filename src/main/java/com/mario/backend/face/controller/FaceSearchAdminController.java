@@ -0,0 +1,27 @@
+package com.mario.backend.face.controller;
+
+import com.mario.backend.common.dto.ApiResponse;
+import com.mario.backend.face.dto.FaceQuantizationReportResponse;
+import com.mario.backend.face.service.FaceSearchDiagnosticsService;
+import com.mario.backend.face.service.FaceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/face/search")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('face:search_admin')")
+public class FaceSearchAdminController {
+
+    private final FaceSearchDiagnosticsService diagnosticsService;
+
+    @GetMapping("/quantization-report")
+    public ResponseEntity<ApiResponse<FaceQuantizationReportResponse>> quantizationReport(
+            @RequestParam(defaultValue = FaceService.DEFAULT_REG_ALGORITHM) String algorithm,
+            @RequestParam(defaultValue = "200") int queries,
+            @RequestParam(defaultValue = "5") int k) {
+        return ResponseEntity.ok(ApiResponse.success(diagnosticsService.quantizationReport(algorithm, queries, k)));
+    }
+}
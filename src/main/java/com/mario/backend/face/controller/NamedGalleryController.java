@@ -0,0 +1,62 @@
+package com.mario.backend.face.controller;
+
+import com.mario.backend.auth.security.AuthenticatedUser;
+import com.mario.backend.common.dto.ApiResponse;
+import com.mario.backend.face.dto.NamedGalleryMembersRequest;
+import com.mario.backend.face.dto.NamedGalleryRequest;
+import com.mario.backend.face.dto.NamedGalleryResponse;
+import com.mario.backend.face.service.NamedGalleryService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/face/galleries")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('face:gallery_manage')")
+public class NamedGalleryController {
+
+    private final NamedGalleryService namedGalleryService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<NamedGalleryResponse>> create(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @Valid @RequestBody NamedGalleryRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(namedGalleryService.create(user.getUserId(), request)));
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<NamedGalleryResponse>>> list() {
+        return ResponseEntity.ok(ApiResponse.success(namedGalleryService.list()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<NamedGalleryResponse>> get(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(namedGalleryService.get(id)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> delete(@PathVariable Long id) {
+        namedGalleryService.delete(id);
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @PostMapping("/{id}/members")
+    public ResponseEntity<ApiResponse<NamedGalleryResponse>> addMembers(
+            @PathVariable Long id,
+            @Valid @RequestBody NamedGalleryMembersRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(namedGalleryService.addMembers(id, request.getUserIds())));
+    }
+
+    @DeleteMapping("/{id}/members")
+    public ResponseEntity<ApiResponse<NamedGalleryResponse>> removeMembers(
+            @PathVariable Long id,
+            @Valid @RequestBody NamedGalleryMembersRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(namedGalleryService.removeMembers(id, request.getUserIds())));
+    }
+}
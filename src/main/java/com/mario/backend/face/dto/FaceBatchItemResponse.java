@@ -0,0 +1,25 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceBatchItemResponse {
+
+    private Integer index;
+
+    private Boolean success;
+
+    private String code;
+
+    private String message;
+
+    private FaceSearchData data;
+}
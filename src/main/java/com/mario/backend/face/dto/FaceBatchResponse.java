@@ -0,0 +1,35 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceBatchResponse {
+
+    private Boolean success;
+
+    private String code;
+
+    private String message;
+
+    @JsonProperty("user_id")
+    private Long userId;
+
+    private Integer total;
+
+    private Integer succeeded;
+
+    private Integer failed;
+
+    private List<FaceBatchItemResponse> results;
+}
@@ -0,0 +1,67 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceEnrollmentJobResponse {
+
+    @JsonProperty("job_id")
+    private Long jobId;
+
+    private String status;
+
+    private Integer total;
+
+    private Integer processed;
+
+    private Integer enrolled;
+
+    private Integer duplicates;
+
+    private Integer failed;
+
+    /**
+     * Percentage of records processed; absent until the total is known.
+     */
+    private Double progress;
+
+    @JsonProperty("error_message")
+    private String errorMessage;
+
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+
+    @JsonProperty("completed_at")
+    private LocalDateTime completedAt;
+
+    private List<Failure> failures;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+
+        private Integer seq;
+
+        @JsonProperty("user_id")
+        private Long userId;
+
+        private String message;
+    }
+}
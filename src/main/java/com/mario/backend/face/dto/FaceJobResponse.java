@@ -0,0 +1,41 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceJobResponse {
+
+    @JsonProperty("job_id")
+    private String jobId;
+
+    /**
+     * pending, running, completed or failed.
+     */
+    private String status;
+
+    @JsonProperty("user_id")
+    private Long userId;
+
+    private String code;
+
+    private String message;
+
+    private FaceResponse result;
+
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,31 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One search hit, as face-ai returns it and as it is returned to the caller once
+ * enriched with the matched user's name.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FaceMatch {
+
+    private String userId;
+
+    private Double distance;
+
+    private Boolean matched;
+
+    private String firstName;
+
+    private String lastName;
+}
@@ -0,0 +1,58 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceQuantizationReportResponse {
+
+    @JsonProperty("algorithm_reg")
+    private String algorithmReg;
+
+    private Integer vectors;
+
+    private Integer dimension;
+
+    private Integer k;
+
+    private Integer queries;
+
+    @JsonProperty("current_mode")
+    private String currentMode;
+
+    private List<Variant> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+
+        private String variant;
+
+        @JsonProperty("bytes_per_vector")
+        private Integer bytesPerVector;
+
+        private Double compression;
+
+        @JsonProperty("recall_at_k")
+        private Double recallAtK;
+
+        @JsonProperty("mean_latency_us")
+        private Double meanLatencyMicros;
+
+        @JsonProperty("p95_latency_us")
+        private Double p95LatencyMicros;
+
+        @JsonProperty("train_ms")
+        private Long trainMillis;
+    }
+}
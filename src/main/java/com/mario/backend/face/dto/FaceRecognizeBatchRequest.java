@@ -0,0 +1,25 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceRecognizeBatchRequest {
+
+    @NotEmpty(message = "At least one image is required")
+    @JsonProperty("images")
+    private List<@NotBlank(message = "Image data is required") String> images;
+
+    @JsonProperty("gallery_id")
+    private Long galleryId;
+}
@@ -16,4 +16,10 @@ public class FaceRecognizeRequest {
     @NotBlank(message = "Image data is required")
     @JsonProperty("image_data")
     private String imageData;
+
+    /**
+     * Optional named gallery to search instead of every registered face.
+     */
+    @JsonProperty("gallery_id")
+    private Long galleryId;
 }
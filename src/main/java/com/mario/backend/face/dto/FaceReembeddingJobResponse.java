@@ -0,0 +1,62 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceReembeddingJobResponse {
+
+    @JsonProperty("job_id")
+    private Long jobId;
+
+    private String status;
+
+    @JsonProperty("source_algorithm")
+    private String sourceAlgorithm;
+
+    @JsonProperty("target_algorithm")
+    private String targetAlgorithm;
+
+    private Integer total;
+
+    private Integer processed;
+
+    private Integer reembedded;
+
+    private Integer skipped;
+
+    private Integer failed;
+
+    /**
+     * Percentage of the faces counted at creation that have been processed.
+     */
+    private Double progress;
+
+    /**
+     * Faces processed per second of running time, excluding pauses between resumes.
+     */
+    @JsonProperty("images_per_second")
+    private Double imagesPerSecond;
+
+    @JsonProperty("error_message")
+    private String errorMessage;
+
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+
+    @JsonProperty("completed_at")
+    private LocalDateTime completedAt;
+}
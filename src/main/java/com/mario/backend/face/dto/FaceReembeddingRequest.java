@@ -0,0 +1,28 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceReembeddingRequest {
+
+    @NotBlank(message = "Target algorithm is required")
+    @Size(max = 50, message = "Target algorithm must not exceed 50 characters")
+    @JsonProperty("target_algorithm")
+    private String targetAlgorithm;
+
+    /**
+     * Defaults to the algorithm the service currently recognises with.
+     */
+    @Size(max = 50, message = "Source algorithm must not exceed 50 characters")
+    @JsonProperty("source_algorithm")
+    private String sourceAlgorithm;
+}
@@ -2,7 +2,6 @@ package com.mario.backend.face.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -32,5 +31,5 @@ public class FaceResponse {
     @JsonProperty("registered")
     private Boolean registered;
 
-    private JsonNode data;
+    private FaceSearchData data;
 }
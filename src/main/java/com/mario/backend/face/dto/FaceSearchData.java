@@ -0,0 +1,34 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The {@code data} of a face-ai {@code /api/v1/face/search} answer, bound straight
+ * from the response stream; also the {@code data} of a recognition response.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FaceSearchData {
+
+    public static final TypeReference<TypedExternalServiceResponse<FaceSearchData>> RESPONSE = new TypeReference<>() {
+    };
+
+    private List<FaceMatch> matches;
+
+    @JsonProperty("query_encoding")
+    private String queryEncoding;
+}
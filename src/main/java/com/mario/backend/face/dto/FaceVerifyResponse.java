@@ -0,0 +1,31 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FaceVerifyResponse {
+
+    private Boolean success;
+
+    private String code;
+
+    private String message;
+
+    @JsonProperty("user_id")
+    private Long userId;
+
+    private Boolean matched;
+
+    private Double distance;
+
+    private Double threshold;
+}
@@ -0,0 +1,24 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NamedGalleryMembersRequest {
+
+    @NotEmpty(message = "At least one user id is required")
+    @Size(max = 10000, message = "At most 10000 user ids per request")
+    @JsonProperty("user_ids")
+    private List<@NotNull Long> userIds;
+}
@@ -0,0 +1,27 @@
+package com.mario.backend.face.dto;
+
+import com.mario.backend.face.entity.NamedGallery;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NamedGalleryRequest {
+
+    @NotBlank(message = "Gallery name is required")
+    @Size(max = 100, message = "Gallery name must not exceed 100 characters")
+    private String name;
+
+    @NotNull(message = "Gallery type is required (site, group or watchlist)")
+    private NamedGallery.GalleryType type;
+
+    @Size(max = 255, message = "Description must not exceed 255 characters")
+    private String description;
+}
@@ -0,0 +1,40 @@
+package com.mario.backend.face.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NamedGalleryResponse {
+
+    private Long id;
+
+    private String name;
+
+    private String type;
+
+    private String description;
+
+    @JsonProperty("member_count")
+    private Long memberCount;
+
+    /**
+     * Set on membership changes: how many of the requested users were actually added / removed.
+     */
+    private Integer changed;
+
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,417 @@
+package com.mario.backend.face.enrollment;
+
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceImage;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.image.FaceImageStore;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.repository.FaceEnrollmentItemRepository;
+import com.mario.backend.face.repository.FaceEnrollmentJobRepository;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.EncodeResult;
+import com.mario.backend.face.service.IdempotencyService;
+import com.mario.backend.face.service.MinioService;
+import com.mario.backend.users.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one bulk enrollment job:
+ * <pre>
+ *   source --(maxInFlight permits)--> workers: hash, dedupe, encode, upload --> batched insert
+ * </pre>
+ * The coordinating thread reads the source and writes batches; a permit is
+ * held from the moment a record is read until its batch is committed, so a
+ * slow face-ai or database stalls reading instead of buffering the upload.
+ * <p>
+ * Each committed batch records its items, so a resumed run skips every
+ * sequence number already present in {@code face_enrollment_items}.
+ * A record whose processing fails is tried again, up to
+ * {@code maxRecordAttempts} times, and then recorded as failed, so one bad
+ * record cannot hold the job up. Only when face-ai or MinIO keep failing and
+ * no other record was enrolled in the meantime is it treated as an outage:
+ * the run ends without finishing the job, its heartbeat goes stale and the
+ * job is picked up again by {@code FaceEnrollmentService}. Every job update is
+ * guarded by the run's {@link JobLease}, so a run that stalled long enough
+ * for another node to take the job over stops at its next write.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkEnrollmentPipeline {
+
+    private final FaceEnrollmentJobRepository jobRepository;
+    private final FaceEnrollmentItemRepository itemRepository;
+    private final FaceImageRepository faceImageRepository;
+    private final UserRepository userRepository;
+    private final MinioService minioService;
+    private final FaceImageStore faceImageStore;
+    private final EncodeBatcher encodeBatcher;
+    private final IdempotencyService idempotencyService;
+    private final EnrollmentBatchWriter batchWriter;
+    private final FaceGalleryCache faceGalleryCache;
+    private final FaceRecognitionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Processes the job to completion, or until a transient failure, interrupt or
+     * loss of the lease.
+     */
+    public void run(FaceEnrollmentJob job, JobLease lease) {
+        FaceRecognitionProperties.Enrollment config = properties.getEnrollment();
+        BitSet done = new BitSet();
+        itemRepository.findSeqsByJobId(job.getId()).forEach(done::set);
+        if (!done.isEmpty()) {
+            log.info("Resuming enrollment job {}: {} records already processed", job.getId(), done.cardinality());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(config.getWorkers(), r -> {
+            Thread thread = new Thread(r, "face-enroll-" + job.getId() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        JobRun run = new JobRun(job.getId(), lease, config, workers);
+
+        try (InputStream in = minioService.openObject(job.getSourceObject());
+             EnrollmentSource source = EnrollmentSource.open(in, job.getSourceFormat(), config.getMaxImageBytes())) {
+
+            EnrollmentRecord record;
+            while (!run.aborted && (record = source.next()) != null) {
+                if (done.get(record.seq())) {
+                    continue;
+                }
+                run.submit(record);
+            }
+            run.awaitAll();
+
+            if (run.aborted) {
+                log.warn("Enrollment job {} paused after a transient failure: {}; it will be resumed",
+                        job.getId(), run.abortReason);
+                return;
+            }
+            int total = source.count();
+            lease.write((seen, now) -> jobRepository.finish(job.getId(), FaceEnrollmentJob.JobStatus.completed,
+                    total, null, seen, now));
+            log.info("Enrollment job {} completed: {} records", job.getId(), total);
+            deleteQuietly(job.getSourceObject());
+
+        } catch (LeaseLostException e) {
+            log.warn("Enrollment job {} was taken over by another node; stopping this run", job.getId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Enrollment job {} interrupted; it will be resumed", job.getId());
+        } catch (Exception e) {
+            log.error("Enrollment job {} failed: {}", job.getId(), e.getMessage());
+            markFailed(lease, e.getMessage());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private EnrollmentOutcome process(EnrollmentRecord record, Set<String> seen) {
+        if (!record.isValid()) {
+            return EnrollmentOutcome.failed(record, record.error());
+        }
+        Long userId = record.userId();
+        String imageHash = idempotencyService.computeImageHash(record.imageBase64());
+        String key = userId + ":" + imageHash;
+        if (!seen.add(key)) {
+            return EnrollmentOutcome.duplicate(record);
+        }
+        try {
+            EnrollmentOutcome outcome = enroll(record, imageHash);
+            if (outcome.retry()) {
+                // So the next attempt is not taken for a duplicate of this one
+                seen.remove(key);
+            }
+            return outcome;
+        } catch (RuntimeException e) {
+            seen.remove(key);
+            throw e;
+        }
+    }
+
+    private EnrollmentOutcome enroll(EnrollmentRecord record, String imageHash) {
+        Long userId = record.userId();
+        if (faceImageRepository.existsByUserIdAndImageHash(userId, imageHash)) {
+            return EnrollmentOutcome.duplicate(record);
+        }
+        if (!userRepository.existsById(userId)) {
+            return EnrollmentOutcome.failed(record, "User not found");
+        }
+
+        String encoding;
+        String algorithmReg;
+        try {
+            EncodeResult encoded = encodeBatcher.encode(record.imageBase64(), properties.getAlgorithmReg());
+            if (!encoded.isSuccess()) {
+                return EnrollmentOutcome.failed(record, encoded.message());
+            }
+            encoding = encoded.encoding();
+            algorithmReg = encoded.algorithmReg();
+        } catch (NonRetryableHttpException e) {
+            return EnrollmentOutcome.failed(record, e.getMessage());
+        } catch (HttpClientException e) {
+            return EnrollmentOutcome.unavailable(record, "face-ai unavailable: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return EnrollmentOutcome.failed(record, e.getMessage());
+        }
+
+        String objectName;
+        try {
+            objectName = faceImageStore.store(ImagePayload.fromBase64(record.imageBase64()));
+        } catch (IllegalArgumentException e) {
+            return EnrollmentOutcome.failed(record, "Invalid base64 image");
+        } catch (RuntimeException e) {
+            return EnrollmentOutcome.unavailable(record, "MinIO unavailable: " + e.getMessage());
+        }
+
+        byte[] embedding = packEmbedding(encoding);
+        FaceFeature feature = FaceFeature.builder()
+                .userId(userId)
+                .featureVector(encoding)
+                .featureEmbedding(embedding)
+                .featureDim(embedding != null ? embedding.length / Float.BYTES : null)
+                .algorithmReg(algorithmReg)
+                .status(FaceFeature.FaceStatus.active)
+                .build();
+        FaceImage image = FaceImage.builder()
+                .userId(userId)
+                .imagePath(objectName)
+                .bucketName(faceImageStore.getBucketName())
+                .objectName(objectName)
+                .imageHash(imageHash)
+                .build();
+        return EnrollmentOutcome.enrolled(record, feature, image);
+    }
+
+    private static byte[] packEmbedding(String encoding) {
+        try {
+            return EmbeddingCodec.toBytes(encoding);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void markFailed(JobLease lease, String message) {
+        try {
+            lease.write((seen, now) -> jobRepository.finish(lease.jobId(), FaceEnrollmentJob.JobStatus.failed, null,
+                    truncate(message), seen, now));
+        } catch (LeaseLostException e) {
+            log.warn("Enrollment job {} was taken over by another node; not marking it failed", lease.jobId());
+        }
+    }
+
+    private void deleteQuietly(String objectName) {
+        try {
+            minioService.deleteImage(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to delete MinIO object {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    /**
+     * Per-run state, touched only by the coordinating thread except for {@link #outcomes}.
+     */
+    private final class JobRun {
+
+        private final Long jobId;
+        private final JobLease lease;
+        private final FaceRecognitionProperties.Enrollment config;
+        private final ExecutorService workers;
+        private final Semaphore inFlight;
+        private final BlockingQueue<EnrollmentOutcome> outcomes = new LinkedBlockingQueue<>();
+        private final Set<String> seen = ConcurrentHashMap.newKeySet();
+        private final List<EnrollmentOutcome> pending = new ArrayList<>();
+        private final Map<Integer, Attempts> attempts = new HashMap<>();
+        private final Deque<EnrollmentRecord> retries = new ArrayDeque<>();
+        private long enrolledSoFar;
+        private long lastFlush = System.nanoTime();
+        private long lastHeartbeat = System.nanoTime();
+        private boolean aborted;
+        private String abortReason;
+
+        private JobRun(Long jobId, JobLease lease, FaceRecognitionProperties.Enrollment config,
+                       ExecutorService workers) {
+            this.jobId = jobId;
+            this.lease = lease;
+            this.config = config;
+            this.workers = workers;
+            this.inFlight = new Semaphore(config.getMaxInFlight());
+        }
+
+        void submit(EnrollmentRecord record) throws InterruptedException {
+            execute(record);
+            EnrollmentRecord retry;
+            while ((retry = retries.poll()) != null) {
+                execute(retry);
+            }
+        }
+
+        void awaitAll() throws InterruptedException {
+            while (!retries.isEmpty() || inFlight.availablePermits() + pending.size() < config.getMaxInFlight()) {
+                EnrollmentRecord retry = retries.poll();
+                if (retry != null) {
+                    execute(retry);
+                    continue;
+                }
+                EnrollmentOutcome outcome = outcomes.poll(config.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (outcome != null) {
+                    accept(outcome);
+                }
+                drain();
+            }
+            flush();
+        }
+
+        private void execute(EnrollmentRecord record) throws InterruptedException {
+            // Backpressure: no further reads until an earlier record is committed
+            while (!inFlight.tryAcquire(config.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+                drain();
+            }
+            workers.execute(() -> {
+                EnrollmentOutcome outcome;
+                try {
+                    outcome = process(record, seen);
+                } catch (Exception e) {
+                    outcome = EnrollmentOutcome.retry(record, e.getMessage());
+                }
+                outcomes.add(outcome);
+            });
+            drain();
+        }
+
+        private void drain() {
+            EnrollmentOutcome outcome;
+            while ((outcome = outcomes.poll()) != null) {
+                accept(outcome);
+            }
+            long sinceFlush = System.nanoTime() - lastFlush;
+            if (pending.size() >= config.getInsertBatchSize()
+                    || (!pending.isEmpty() && sinceFlush >= config.getFlushInterval().toNanos())) {
+                flush();
+            } else if (System.nanoTime() - lastHeartbeat >= config.getHeartbeatInterval().toNanos()) {
+                lease.write((seen, now) -> jobRepository.heartbeat(jobId, seen, now));
+                lastHeartbeat = System.nanoTime();
+            }
+        }
+
+        private void accept(EnrollmentOutcome outcome) {
+            if (!outcome.retry()) {
+                if (outcome.status() == FaceEnrollmentItem.ItemStatus.enrolled) {
+                    enrolledSoFar++;
+                }
+                pending.add(outcome);
+                return;
+            }
+            meterRegistry.counter("face.enrollment.records", "result", "retry").increment();
+            if (aborted) {
+                // Not recorded, so the record is reprocessed when the job resumes
+                inFlight.release();
+                return;
+            }
+            EnrollmentRecord record = outcome.record();
+            Attempts tried = attempts.computeIfAbsent(record.seq(), seq -> new Attempts(enrolledSoFar));
+            if (++tried.count < config.getMaxRecordAttempts()) {
+                inFlight.release();
+                retries.add(record);
+                return;
+            }
+            attempts.remove(record.seq());
+            if (outcome.outage() && enrolledSoFar == tried.enrolledBefore) {
+                // Nothing got through since this record first failed: the service is down, not the record bad
+                inFlight.release();
+                abort(outcome.message());
+                return;
+            }
+            log.warn("Enrollment job {}: giving up on record {} after {} attempts: {}",
+                    jobId, record.seq(), tried.count, outcome.message());
+            pending.add(EnrollmentOutcome.failed(record,
+                    "Failed after " + tried.count + " attempts: " + outcome.message()));
+        }
+
+        private void abort(String reason) {
+            if (!aborted) {
+                aborted = true;
+                abortReason = reason;
+            }
+            retries.clear();
+        }
+
+        private void flush() {
+            lastFlush = System.nanoTime();
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<EnrollmentOutcome> batch = List.copyOf(pending);
+            pending.clear();
+            long start = System.nanoTime();
+            try {
+                List<FaceFeature> saved = lease.update((seen, now) -> batchWriter.persist(jobId, batch, seen, now));
+                if (!saved.isEmpty()) {
+                    faceGalleryCache.onRegistered(saved);
+                }
+            } catch (LeaseLostException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // Nothing in the batch was committed; its uploads are left for FaceImageSweeper
+                abort("Batch insert failed: " + e.getMessage());
+                return;
+            } finally {
+                inFlight.release(batch.size());
+            }
+            lastHeartbeat = System.nanoTime();
+            meterRegistry.timer("face.enrollment.flush").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (EnrollmentOutcome outcome : batch) {
+                meterRegistry.counter("face.enrollment.records", "result", outcome.status().name()).increment();
+            }
+            if (log.isDebugEnabled()) {
+                long enrolled = batch.stream()
+                        .filter(o -> o.status() == FaceEnrollmentItem.ItemStatus.enrolled).count();
+                log.debug("Enrollment job {}: committed {} records ({} enrolled)", jobId, batch.size(), enrolled);
+            }
+        }
+
+        private static final class Attempts {
+
+            private final long enrolledBefore;
+            private int count;
+
+            private Attempts(long enrolledBefore) {
+                this.enrolledBefore = enrolledBefore;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mario.backend.face.enrollment;
+
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceImage;
+import com.mario.backend.face.repository.FaceEnrollmentItemRepository;
+import com.mario.backend.face.repository.FaceEnrollmentJobRepository;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.repository.FaceImageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists a batch of outcomes, their item records and the job counters in
+ * one short transaction, so progress and checkpoints never disagree. The
+ * counter update is guarded by the job heartbeat; if another node has
+ * re-claimed the job the whole batch rolls back.
+ */
+@Component
+@RequiredArgsConstructor
+public class EnrollmentBatchWriter {
+
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceImageRepository faceImageRepository;
+    private final FaceEnrollmentItemRepository itemRepository;
+    private final FaceEnrollmentJobRepository jobRepository;
+
+    @Transactional
+    public List<FaceFeature> persist(Long jobId, List<EnrollmentOutcome> outcomes, LocalDateTime seen,
+                                     LocalDateTime now) {
+        List<FaceFeature> features = new ArrayList<>();
+        List<FaceImage> images = new ArrayList<>();
+        for (EnrollmentOutcome outcome : outcomes) {
+            if (outcome.status() == FaceEnrollmentItem.ItemStatus.enrolled) {
+                features.add(outcome.feature());
+                images.add(outcome.image());
+            }
+        }
+        faceImageRepository.saveAll(images);
+        for (int i = 0; i < features.size(); i++) {
+            features.get(i).setFaceImageId(images.get(i).getId());
+        }
+        List<FaceFeature> saved = faceFeatureRepository.saveAll(features);
+
+        int enrolled = 0;
+        int duplicates = 0;
+        int failed = 0;
+        List<FaceEnrollmentItem> items = new ArrayList<>(outcomes.size());
+        for (EnrollmentOutcome outcome : outcomes) {
+            switch (outcome.status()) {
+                case enrolled -> enrolled++;
+                case duplicate -> duplicates++;
+                case failed -> failed++;
+            }
+            items.add(FaceEnrollmentItem.builder()
+                    .jobId(jobId)
+                    .seq(outcome.record().seq())
+                    .userId(outcome.record().userId())
+                    .status(outcome.status())
+                    .message(truncate(outcome.message()))
+                    .faceFeatureId(outcome.feature() != null ? outcome.feature().getId() : null)
+                    .build());
+        }
+        itemRepository.saveAll(items);
+        JobLease.check(jobId, jobRepository.addProgress(jobId, enrolled, duplicates, failed, seen, now));
+        return saved;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mario.backend.face.enrollment;
+
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceImage;
+
+/**
+ * Result of processing one record. Enrolled outcomes carry the unsaved
+ * feature and image rows; {@code retry} outcomes hit a failure that may not
+ * recur and are left unrecorded so the record is processed again. Of those,
+ * {@code outage} ones failed on face-ai or MinIO and may mean the service is
+ * down rather than that the record is bad.
+ */
+public record EnrollmentOutcome(EnrollmentRecord record, FaceEnrollmentItem.ItemStatus status, String message,
+                         FaceFeature feature, FaceImage image, boolean retry, boolean outage) {
+
+    static EnrollmentOutcome enrolled(EnrollmentRecord record, FaceFeature feature, FaceImage image) {
+        return new EnrollmentOutcome(record, FaceEnrollmentItem.ItemStatus.enrolled, null, feature, image,
+                false, false);
+    }
+
+    static EnrollmentOutcome duplicate(EnrollmentRecord record) {
+        return new EnrollmentOutcome(record, FaceEnrollmentItem.ItemStatus.duplicate,
+                "Image already registered for this user", null, null, false, false);
+    }
+
+    static EnrollmentOutcome failed(EnrollmentRecord record, String message) {
+        return new EnrollmentOutcome(record, FaceEnrollmentItem.ItemStatus.failed, message, null, null,
+                false, false);
+    }
+
+    static EnrollmentOutcome unavailable(EnrollmentRecord record, String message) {
+        return new EnrollmentOutcome(record, null, message, null, null, true, true);
+    }
+
+    static EnrollmentOutcome retry(EnrollmentRecord record, String message) {
+        return new EnrollmentOutcome(record, null, message, null, null, true, false);
+    }
+}
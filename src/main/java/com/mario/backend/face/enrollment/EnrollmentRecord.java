@@ -0,0 +1,21 @@
+package com.mario.backend.face.enrollment;
+
+/**
+ * One (userId, image) pair read from a bulk enrollment source. Records that
+ * could not be parsed carry an {@code error} instead of an image so they are
+ * still counted and reported at their position.
+ */
+public record EnrollmentRecord(int seq, Long userId, String imageBase64, String error) {
+
+    static EnrollmentRecord of(int seq, long userId, String imageBase64) {
+        return new EnrollmentRecord(seq, userId, imageBase64, null);
+    }
+
+    static EnrollmentRecord invalid(int seq, Long userId, String error) {
+        return new EnrollmentRecord(seq, userId, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.mario.backend.face.enrollment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Pull-based reader over a bulk enrollment upload. Records are produced one
+ * at a time so the caller controls how far ahead of the pipeline it reads.
+ * <ul>
+ *   <li>{@code ndjson}: one {@code {"user_id": 1, "image_data": "<base64>"}} per line</li>
+ *   <li>{@code zip}: entries named {@code <userId>.jpg} or {@code <userId>/<any>.jpg}</li>
+ * </ul>
+ * Sequence numbers are stable for a given source, which is what resume relies on.
+ */
+public abstract class EnrollmentSource implements Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    protected final int maxImageBytes;
+    private int nextSeq;
+
+    protected EnrollmentSource(int maxImageBytes) {
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    public static EnrollmentSource open(InputStream in, FaceEnrollmentJob.SourceFormat format, int maxImageBytes) {
+        return switch (format) {
+            case zip -> new ZipSource(in, maxImageBytes);
+            case ndjson -> new NdjsonSource(in, maxImageBytes);
+        };
+    }
+
+    /**
+     * Returns the next record, or {@code null} once the source is exhausted.
+     */
+    public abstract EnrollmentRecord next() throws IOException;
+
+    /**
+     * Number of records returned so far.
+     */
+    public int count() {
+        return nextSeq;
+    }
+
+    protected int nextSeq() {
+        return nextSeq++;
+    }
+
+    private static final class NdjsonSource extends EnrollmentSource {
+
+        private final BufferedReader reader;
+        private final int maxLineChars;
+        private final StringBuilder line = new StringBuilder();
+
+        private NdjsonSource(InputStream in, int maxImageBytes) {
+            super(maxImageBytes);
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            // Base64 inflates by 4/3; leave room for the surrounding JSON
+            this.maxLineChars = maxImageBytes / 3 * 4 + 1024;
+        }
+
+        @Override
+        public EnrollmentRecord next() throws IOException {
+            while (true) {
+                Boolean fits = readLine();
+                if (fits == null) {
+                    return null;
+                }
+                if (!fits) {
+                    return EnrollmentRecord.invalid(nextSeq(), null, "Line exceeds " + maxLineChars + " characters");
+                }
+                if (!line.toString().isBlank()) {
+                    return parse(nextSeq(), line.toString());
+                }
+            }
+        }
+
+        private EnrollmentRecord parse(int seq, String json) {
+            Long userId = null;
+            try {
+                JsonNode node = OBJECT_MAPPER.readTree(json);
+                JsonNode id = node.path("user_id");
+                if (id.isIntegralNumber() || (id.isTextual() && id.asText().matches("\\d{1,18}"))) {
+                    userId = id.asLong();
+                }
+                String image = node.path("image_data").asText(null);
+                if (userId == null || image == null || image.isBlank()) {
+                    return EnrollmentRecord.invalid(seq, userId, "Expected user_id and image_data");
+                }
+                return EnrollmentRecord.of(seq, userId, image);
+            } catch (IOException e) {
+                return EnrollmentRecord.invalid(seq, userId, "Malformed JSON line");
+            }
+        }
+
+        /**
+         * Reads one line into {@link #line} without letting it grow past the limit.
+         * Returns {@code null} at end of input and {@code false} if the line was truncated.
+         */
+        private Boolean readLine() throws IOException {
+            line.setLength(0);
+            boolean truncated = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c == '\n') {
+                    return !truncated;
+                }
+                if (line.length() < maxLineChars) {
+                    line.append((char) c);
+                } else {
+                    truncated = true;
+                }
+            }
+            if (line.isEmpty() && !truncated) {
+                return null;
+            }
+            return !truncated;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class ZipSource extends EnrollmentSource {
+
+        private final ZipInputStream zip;
+
+        private ZipSource(InputStream in, int maxImageBytes) {
+            super(maxImageBytes);
+            this.zip = new ZipInputStream(in);
+        }
+
+        @Override
+        public EnrollmentRecord next() throws IOException {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isHidden(entry.getName())) {
+                    continue;
+                }
+                int seq = nextSeq();
+                Long userId = parseUserId(entry.getName());
+                if (userId == null) {
+                    return EnrollmentRecord.invalid(seq, null, "Cannot derive user id from " + entry.getName());
+                }
+                byte[] image = zip.readNBytes(maxImageBytes + 1);
+                if (image.length > maxImageBytes) {
+                    return EnrollmentRecord.invalid(seq, userId, "Image exceeds " + maxImageBytes + " bytes");
+                }
+                if (image.length == 0) {
+                    return EnrollmentRecord.invalid(seq, userId, "Empty image");
+                }
+                return EnrollmentRecord.of(seq, userId, Base64.getEncoder().encodeToString(image));
+            }
+            return null;
+        }
+
+        private static boolean isHidden(String name) {
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            return name.startsWith("__MACOSX/") || fileName.startsWith(".");
+        }
+
+        private static Long parseUserId(String name) {
+            int slash = name.indexOf('/');
+            String candidate = slash >= 0 ? name.substring(0, slash) : name;
+            int dot = candidate.indexOf('.');
+            if (dot >= 0) {
+                candidate = candidate.substring(0, dot);
+            }
+            try {
+                return Long.parseLong(candidate);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+}
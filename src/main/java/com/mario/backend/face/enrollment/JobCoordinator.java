@@ -0,0 +1,104 @@
+package com.mario.backend.face.enrollment;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs resumable background jobs of one kind, one at a time per node.
+ * <p>
+ * Ownership is taken with a compare-and-set on the job heartbeat
+ * ({@code updated_at}): a claim only succeeds if nobody touched the job since
+ * the heartbeat the caller saw. Jobs whose heartbeat goes stale (node crash,
+ * transient failure) are handed to {@link #resume} by the owning service's
+ * periodic check and claimed again by whichever node gets there first. The
+ * runner gets the claim as a {@link JobLease} and guards its own updates with it.
+ */
+@Slf4j
+public class JobCoordinator {
+
+    /**
+     * Compare-and-set on the job heartbeat; returns 0 when another node won.
+     */
+    @FunctionalInterface
+    public interface Claim {
+        int claim(Long jobId, LocalDateTime seen, LocalDateTime now);
+    }
+
+    /**
+     * Runs a job this node has just claimed.
+     */
+    @FunctionalInterface
+    public interface Runner {
+        void run(JobLease lease);
+    }
+
+    private final String label;
+    private final Claim claim;
+    private final Runner runner;
+    private final ExecutorService executor;
+    private final Set<Long> scheduledJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param label      job kind as it appears in log lines, e.g. "Enrollment"
+     * @param threadName name of the coordinating thread
+     */
+    public JobCoordinator(String label, String threadName, Claim claim, Runner runner) {
+        this.label = label;
+        this.claim = claim;
+        this.runner = runner;
+        this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, threadName));
+    }
+
+    /**
+     * DATETIME has second precision; heartbeats are compared for equality when claiming.
+     */
+    public static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Queues a claim of the job, unless this node already has it queued or running.
+     */
+    public void schedule(Long jobId, LocalDateTime seenHeartbeat) {
+        if (!scheduledJobs.add(jobId)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                LocalDateTime claimed = now();
+                if (claim.claim(jobId, seenHeartbeat, claimed) == 0) {
+                    log.debug("{} job {} was claimed by another node", label, jobId);
+                    return;
+                }
+                runner.run(new JobLease(jobId, claimed));
+            } catch (Exception e) {
+                log.error("{} job {} stopped unexpectedly: {}", label, jobId, e.getMessage());
+            } finally {
+                scheduledJobs.remove(jobId);
+            }
+        });
+    }
+
+    /**
+     * Schedules a job whose heartbeat went stale.
+     */
+    public void resume(Long jobId, LocalDateTime seenHeartbeat) {
+        if (!scheduledJobs.contains(jobId)) {
+            log.info("{} job {} has been idle since {}, resuming", label, jobId, seenHeartbeat);
+            schedule(jobId, seenHeartbeat);
+        }
+    }
+
+    /**
+     * Interrupted jobs keep their state and are resumed once their heartbeat goes stale.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
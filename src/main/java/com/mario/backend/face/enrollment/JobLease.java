@@ -0,0 +1,64 @@
+package com.mario.backend.face.enrollment;
+
+import java.time.LocalDateTime;
+
+/**
+ * This node's claim on a job: the heartbeat it last wrote. Every later update
+ * of the job carries that heartbeat in its WHERE clause, as the claim does, and
+ * moves it on; once another node has re-claimed a job this node stalled on, the
+ * next update matches no row and the run stops instead of overwriting the new
+ * owner's progress.
+ * <p>
+ * Used only by the thread running the job.
+ */
+public final class JobLease {
+
+    /**
+     * An update guarded by {@code seen} that writes {@code now} as the new heartbeat.
+     */
+    @FunctionalInterface
+    public interface Update<T> {
+        T apply(LocalDateTime seen, LocalDateTime now);
+    }
+
+    private final Long jobId;
+    private LocalDateTime heartbeat;
+
+    public JobLease(Long jobId, LocalDateTime heartbeat) {
+        this.jobId = jobId;
+        this.heartbeat = heartbeat;
+    }
+
+    public Long jobId() {
+        return jobId;
+    }
+
+    /**
+     * Runs an update that throws {@link LeaseLostException} itself when it matched no
+     * row, typically inside a transaction that must roll back with it.
+     */
+    public <T> T update(Update<T> update) {
+        LocalDateTime now = JobCoordinator.now();
+        T result = update.apply(heartbeat, now);
+        heartbeat = now;
+        return result;
+    }
+
+    /**
+     * Runs a single guarded UPDATE statement.
+     *
+     * @throws LeaseLostException when it matched no row
+     */
+    public void write(Update<Integer> update) {
+        update((seen, now) -> {
+            check(jobId, update.apply(seen, now));
+            return null;
+        });
+    }
+
+    public static void check(Long jobId, int updated) {
+        if (updated == 0) {
+            throw new LeaseLostException(jobId);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.mario.backend.face.enrollment;
+
+/**
+ * A guarded job update matched no row: another node has claimed the job since
+ * this node last wrote its heartbeat.
+ */
+public class LeaseLostException extends IllegalStateException {
+
+    public LeaseLostException(Long jobId) {
+        super("Job " + jobId + " was claimed by another node");
+    }
+}
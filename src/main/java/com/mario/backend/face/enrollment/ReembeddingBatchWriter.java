@@ -0,0 +1,36 @@
+package com.mario.backend.face.enrollment;
+
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.repository.FaceReembeddingJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts one page of re-embedded features and advances the job checkpoint in
+ * the same transaction, so a resumed run never re-encodes a committed page.
+ * Both are rolled back if another node has re-claimed the job meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReembeddingBatchWriter {
+
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceReembeddingJobRepository jobRepository;
+
+    @Transactional
+    public List<FaceFeature> persist(Long jobId, List<FaceFeature> features, long afterId, long lastFeatureId,
+                                     int skipped, int failed, long elapsedMillis, LocalDateTime seen,
+                                     LocalDateTime now) {
+        List<FaceFeature> saved = faceFeatureRepository.saveAll(features);
+        int updated = jobRepository.checkpoint(jobId, afterId, lastFeatureId, saved.size(), skipped, failed,
+                elapsedMillis, seen, now);
+        // Another run re-claimed the job or already committed this page; roll back rather than insert duplicates
+        JobLease.check(jobId, updated);
+        return saved;
+    }
+}
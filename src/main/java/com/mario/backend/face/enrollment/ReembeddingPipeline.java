@@ -0,0 +1,337 @@
+package com.mario.backend.face.enrollment;
+
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceImage;
+import com.mario.backend.face.entity.FaceReembeddingJob;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.repository.FaceReembeddingJobRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.EncodeResult;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one re-embedding job: every active face of the source algorithm is
+ * re-encoded from its stored image with the target algorithm and saved as an
+ * additional active feature, leaving the source feature in place so the
+ * service keeps recognising with the source algorithm until it is switched.
+ * <p>
+ * Features are processed in id order, one page per transaction; the page's
+ * new features and the job checkpoint commit together, so a resumed run
+ * starts at the first unprocessed feature. A face is re-encoded from the
+ * image its feature was encoded from, and skipped when that image already has
+ * an active target feature, which also makes a re-run after the switch a cheap
+ * way to catch faces registered in between. Transient failures (face-ai retries
+ * exhausted, MinIO down) end the run without finishing the job; its heartbeat
+ * then goes stale and {@code FaceReembeddingService} resumes it. Job updates are
+ * guarded by the run's {@link JobLease} and the run stops once it is lost.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReembeddingPipeline {
+
+    private final FaceReembeddingJobRepository jobRepository;
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceImageRepository faceImageRepository;
+    private final MinioService minioService;
+    private final EncodeBatcher encodeBatcher;
+    private final ReembeddingBatchWriter batchWriter;
+    private final FaceGalleryCache faceGalleryCache;
+    private final FaceRecognitionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public void run(FaceReembeddingJob job, JobLease lease) {
+        FaceRecognitionProperties.Reembedding config = properties.getReembedding();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(config.getWorkers(), r -> {
+            Thread thread = new Thread(r, "face-reembed-" + job.getId() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Throttle throttle = new Throttle(config.getMaxImagesPerSecond());
+        long cursor = job.getLastFeatureId();
+        if (cursor > 0) {
+            log.info("Resuming re-embedding job {} after feature {}: {} faces already processed",
+                    job.getId(), cursor, job.getProcessed());
+        }
+
+        try {
+            while (true) {
+                long pageStart = System.nanoTime();
+                List<FaceFeature> page = faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                        FaceFeature.FaceStatus.active, job.getSourceAlgorithm(), cursor,
+                        PageRequest.of(0, config.getBatchSize()));
+                if (page.isEmpty()) {
+                    lease.write((seen, now) -> jobRepository.finish(job.getId(),
+                            FaceReembeddingJob.JobStatus.completed, null, seen, now));
+                    log.info("Re-embedding job {} completed: {} -> {}",
+                            job.getId(), job.getSourceAlgorithm(), job.getTargetAlgorithm());
+                    return;
+                }
+
+                PageResult result = processPage(job, page, workers, throttle);
+                if (result.retryReason != null) {
+                    log.warn("Re-embedding job {} paused after a transient failure: {}; it will be resumed",
+                            job.getId(), result.retryReason);
+                    return;
+                }
+
+                long lastFeatureId = page.get(page.size() - 1).getId();
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pageStart);
+                long afterId = cursor;
+                List<FaceFeature> saved = lease.update((seen, now) -> batchWriter.persist(job.getId(),
+                        result.features, afterId, lastFeatureId, result.skipped, result.failed, elapsedMillis,
+                        seen, now));
+                faceGalleryCache.onRegistered(saved);
+                cursor = lastFeatureId;
+
+                count("reembedded", saved.size());
+                count("skipped", result.skipped);
+                count("failed", result.failed);
+                log.info("Re-embedding job {}: {} faces up to id {} in {} ms ({} re-embedded, {} skipped, {} failed, {}/s)",
+                        job.getId(), page.size(), lastFeatureId, elapsedMillis, saved.size(), result.skipped,
+                        result.failed, elapsedMillis == 0 ? page.size() : page.size() * 1000L / elapsedMillis);
+            }
+        } catch (LeaseLostException e) {
+            log.warn("Re-embedding job {} was taken over by another node; stopping this run", job.getId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Re-embedding job {} interrupted; it will be resumed", job.getId());
+        } catch (Exception e) {
+            log.error("Re-embedding job {} failed: {}", job.getId(), e.getMessage());
+            markFailed(lease, e.getMessage());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private PageResult processPage(FaceReembeddingJob job, List<FaceFeature> page, ExecutorService workers,
+                                   Throttle throttle) throws InterruptedException, ExecutionException {
+        Set<Long> userIds = page.stream().map(FaceFeature::getUserId).collect(Collectors.toSet());
+        Map<Long, List<FaceImage>> imagesByUser = faceImageRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.groupingBy(FaceImage::getUserId));
+        Duration tolerance = properties.getReembedding().getImageMatchTolerance();
+
+        PageResult result = new PageResult();
+        List<FaceFeature> sources = new ArrayList<>();
+        List<FaceImage> images = new ArrayList<>();
+        for (FaceFeature source : page) {
+            FaceImage image = sourceImage(source, imagesByUser.get(source.getUserId()), tolerance);
+            if (image == null) {
+                log.warn("No stored image found for face {} of userId={}", source.getId(), source.getUserId());
+                result.failed++;
+                continue;
+            }
+            sources.add(source);
+            images.add(image);
+        }
+        Set<Long> done = new HashSet<>();
+        if (!images.isEmpty()) {
+            done.addAll(faceFeatureRepository.findFaceImageIdsWithFeature(FaceFeature.FaceStatus.active,
+                    job.getTargetAlgorithm(), images.stream().map(FaceImage::getId).toList()));
+        }
+
+        List<Future<Outcome>> pending = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            FaceFeature source = sources.get(i);
+            FaceImage image = images.get(i);
+            if (!done.add(image.getId())) {
+                result.skipped++;
+                continue;
+            }
+            throttle.acquire();
+            pending.add(workers.submit(() -> reembed(source, image, job.getTargetAlgorithm())));
+        }
+
+        for (Future<Outcome> future : pending) {
+            Outcome outcome = future.get();
+            if (outcome.feature() != null) {
+                result.features.add(outcome.feature());
+            } else if (outcome.retryReason() != null) {
+                result.retryReason = outcome.retryReason();
+            } else {
+                result.failed++;
+            }
+        }
+        return result;
+    }
+
+    private Outcome reembed(FaceFeature source, FaceImage image, String targetAlgorithm) {
+        byte[] bytes;
+        try {
+            bytes = minioService.downloadImage(image.getObjectName());
+        } catch (RuntimeException e) {
+            if (isMissingObject(e)) {
+                log.warn("Image {} of userId={} is missing from MinIO", image.getObjectName(), source.getUserId());
+                return Outcome.failed();
+            }
+            return Outcome.retry("MinIO unavailable: " + e.getMessage());
+        }
+
+        EncodeResult encoded;
+        try {
+            encoded = encodeBatcher.encode(ImagePayload.of(bytes), targetAlgorithm);
+        } catch (NonRetryableHttpException e) {
+            log.warn("face-ai rejected image {} of userId={}: {}", image.getObjectName(), source.getUserId(),
+                    e.getMessage());
+            return Outcome.failed();
+        } catch (HttpClientException e) {
+            return Outcome.retry("face-ai unavailable: " + e.getMessage());
+        }
+        if (!encoded.isSuccess()) {
+            log.warn("No face re-encoded from image {} of userId={}: {}", image.getObjectName(), source.getUserId(),
+                    encoded.message());
+            return Outcome.failed();
+        }
+
+        byte[] embedding;
+        try {
+            embedding = EmbeddingCodec.toBytes(encoded.encoding());
+        } catch (IllegalArgumentException e) {
+            embedding = null;
+        }
+        return Outcome.of(FaceFeature.builder()
+                .userId(source.getUserId())
+                .faceImageId(image.getId())
+                .featureVector(encoded.encoding())
+                .featureEmbedding(embedding)
+                .featureDim(embedding != null ? embedding.length / Float.BYTES : null)
+                .algorithmReg(encoded.algorithmReg() != null ? encoded.algorithmReg() : targetAlgorithm)
+                .status(FaceFeature.FaceStatus.active)
+                .build());
+    }
+
+    /**
+     * The image the feature was encoded from: the linked one, or for a feature
+     * stored before images were linked, the user's image stored closest in time
+     * (both rows are written by the same registration). Null when the closest is
+     * further away than {@code tolerance}, rather than a guess.
+     */
+    public static FaceImage sourceImage(FaceFeature feature, List<FaceImage> images, Duration tolerance) {
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+        if (feature.getFaceImageId() != null) {
+            return images.stream()
+                    .filter(image -> feature.getFaceImageId().equals(image.getId()))
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (feature.getCreatedAt() == null) {
+            return null;
+        }
+        return images.stream()
+                .filter(image -> image.getCreatedAt() != null)
+                .filter(image -> gap(image, feature).compareTo(tolerance) <= 0)
+                .min(Comparator.comparing((FaceImage image) -> gap(image, feature))
+                        .thenComparing(FaceImage::getId, Comparator.reverseOrder()))
+                .orElse(null);
+    }
+
+    private static Duration gap(FaceImage image, FaceFeature feature) {
+        return Duration.between(image.getCreatedAt(), feature.getCreatedAt()).abs();
+    }
+
+    private static boolean isMissingObject(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ErrorResponseException response
+                    && "NoSuchKey".equals(response.errorResponse().code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void count(String result, int amount) {
+        if (amount > 0) {
+            meterRegistry.counter("face.reembedding.images", "result", result).increment(amount);
+        }
+    }
+
+    private void markFailed(JobLease lease, String message) {
+        try {
+            lease.write((seen, now) -> jobRepository.finish(lease.jobId(), FaceReembeddingJob.JobStatus.failed,
+                    truncate(message), seen, now));
+        } catch (LeaseLostException e) {
+            log.warn("Re-embedding job {} was taken over by another node; not marking it failed", lease.jobId());
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private record Outcome(FaceFeature feature, String retryReason) {
+
+        static Outcome of(FaceFeature feature) {
+            return new Outcome(feature, null);
+        }
+
+        static Outcome failed() {
+            return new Outcome(null, null);
+        }
+
+        static Outcome retry(String reason) {
+            return new Outcome(null, reason);
+        }
+    }
+
+    private static final class PageResult {
+        private final List<FaceFeature> features = new ArrayList<>();
+        private int skipped;
+        private int failed;
+        private String retryReason;
+    }
+
+    /**
+     * Spaces out encode submissions so a migration leaves face-ai headroom for live traffic.
+     */
+    private static final class Throttle {
+
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        private Throttle(int perSecond) {
+            this.intervalNanos = perSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / perSecond : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (next > now) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+            }
+            next = Math.max(next, now) + intervalNanos;
+        }
+    }
+}
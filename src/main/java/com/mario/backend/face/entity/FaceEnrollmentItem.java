@@ -0,0 +1,52 @@
+package com.mario.backend.face.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "face_enrollment_items", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_face_enrollment_items_job_seq", columnNames = {"job_id", "seq"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceEnrollmentItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    /**
+     * Zero-based position of the record in the job source.
+     */
+    @Column(nullable = false)
+    private Integer seq;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private ItemStatus status;
+
+    @Column(length = 255)
+    private String message;
+
+    @Column(name = "face_feature_id")
+    private Long faceFeatureId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum ItemStatus {
+        enrolled, duplicate, failed
+    }
+}
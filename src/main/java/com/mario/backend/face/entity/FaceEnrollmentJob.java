@@ -0,0 +1,79 @@
+package com.mario.backend.face.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "face_enrollment_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceEnrollmentJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "requested_by", nullable = false)
+    private Long requestedBy;
+
+    /**
+     * MinIO object holding the uploaded archive / NDJSON, replayed on resume.
+     */
+    @Column(name = "source_object", nullable = false)
+    private String sourceObject;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source_format", length = 20, nullable = false)
+    private SourceFormat sourceFormat;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    @Builder.Default
+    private JobStatus status = JobStatus.queued;
+
+    /**
+     * Number of records in the source; unknown until the source has been read to the end.
+     */
+    private Integer total;
+
+    @Builder.Default
+    private int processed = 0;
+
+    @Builder.Default
+    private int enrolled = 0;
+
+    @Builder.Default
+    private int duplicates = 0;
+
+    @Builder.Default
+    private int failed = 0;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Doubles as the job heartbeat; written explicitly by the repository so stalled jobs can be claimed.
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum SourceFormat {
+        zip, ndjson
+    }
+
+    public enum JobStatus {
+        queued, running, completed, failed
+    }
+}
@@ -25,6 +25,21 @@ public class FaceFeature {
     @Column(name = "feature_vector", columnDefinition = "TEXT")
     private String featureVector;
 
+    /**
+     * Packed little-endian float32 embedding; see {@code EmbeddingCodec}.
+     */
+    @Column(name = "feature_embedding", columnDefinition = "BLOB")
+    private byte[] featureEmbedding;
+
+    @Column(name = "feature_dim")
+    private Integer featureDim;
+
+    /**
+     * The {@code face_images} row this feature was encoded from; null for features registered before the link.
+     */
+    @Column(name = "face_image_id")
+    private Long faceImageId;
+
     @Column(name = "algorithm_reg", length = 50)
     @Builder.Default
     private String algorithmReg = "facenet_mobilenet";
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "face_images", indexes = {
-    @Index(name = "idx_face_images_image_hash", columnList = "image_hash")
+    @Index(name = "idx_face_images_image_hash", columnList = "image_hash"),
+    @Index(name = "idx_face_images_object_name", columnList = "object_name")
 })
 @Data
 @Builder
@@ -0,0 +1,88 @@
+package com.mario.backend.face.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "face_reembedding_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceReembeddingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "requested_by", nullable = false)
+    private Long requestedBy;
+
+    @Column(name = "source_algorithm", length = 50, nullable = false)
+    private String sourceAlgorithm;
+
+    @Column(name = "target_algorithm", length = 50, nullable = false)
+    private String targetAlgorithm;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    @Builder.Default
+    private JobStatus status = JobStatus.queued;
+
+    /**
+     * Active source features when the job was created; registrations made while it runs are picked up too.
+     */
+    private Integer total;
+
+    /**
+     * Checkpoint: every source feature up to this id has been processed.
+     */
+    @Column(name = "last_feature_id", nullable = false)
+    @Builder.Default
+    private long lastFeatureId = 0;
+
+    @Builder.Default
+    private int processed = 0;
+
+    @Builder.Default
+    private int reembedded = 0;
+
+    /**
+     * Users that already had an active face for the target algorithm.
+     */
+    @Builder.Default
+    private int skipped = 0;
+
+    @Builder.Default
+    private int failed = 0;
+
+    /**
+     * Time spent running, summed over resumes; divides {@code processed} for the reported throughput.
+     */
+    @Column(name = "active_millis", nullable = false)
+    @Builder.Default
+    private long activeMillis = 0;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Doubles as the job heartbeat; written explicitly by the repository so stalled jobs can be claimed.
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum JobStatus {
+        queued, running, completed, failed
+    }
+}
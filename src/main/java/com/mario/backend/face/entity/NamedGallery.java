@@ -0,0 +1,50 @@
+package com.mario.backend.face.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A named subset of identities (site, group or watchlist) that 1:N
+ * recognition can be scoped to. Not to be confused with the per-algorithm
+ * in-memory {@code FaceGallery} it filters.
+ */
+@Entity
+@Table(name = "face_galleries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NamedGallery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 100, nullable = false, unique = true)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private GalleryType type;
+
+    private String description;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum GalleryType {
+        site, group, watchlist
+    }
+}
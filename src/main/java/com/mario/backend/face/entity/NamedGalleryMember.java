@@ -0,0 +1,30 @@
+package com.mario.backend.face.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "face_gallery_members")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NamedGalleryMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "gallery_id", nullable = false)
+    private Long galleryId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,21 @@
+package com.mario.backend.face.event;
+
+import java.util.List;
+
+/**
+ * A local gallery change that moved the gallery from {@code baseVersion} to
+ * {@code version} with no peer change in between. Published by
+ * {@code FaceGalleryCache} after the in-memory gallery has been patched.
+ *
+ * @param upserts active faces added or replaced
+ * @param deletes feature ids removed from the gallery
+ */
+public record FaceGalleryChangedEvent(String algorithmReg, long baseVersion, long version,
+                                      List<Upsert> upserts, List<Long> deletes) {
+
+    /**
+     * @param encoding face-ai encoding (base64 of packed float32)
+     */
+    public record Upsert(long featureId, long userId, String encoding) {
+    }
+}
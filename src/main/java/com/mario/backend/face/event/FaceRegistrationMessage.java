@@ -0,0 +1,19 @@
+package com.mario.backend.face.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceRegistrationMessage {
+
+    private String jobId;
+
+    private Long userId;
+
+    private String imageData;
+}
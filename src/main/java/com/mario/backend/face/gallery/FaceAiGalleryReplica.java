@@ -0,0 +1,283 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.common.http.ExternalServiceResponse;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.event.FaceGalleryChangedEvent;
+import com.mario.backend.face.service.FaceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Keeps face-ai's copy of each gallery in step with this node for
+ * {@code search.mode: synced}, so searches no longer carry the candidates.
+ * <p>
+ * Protocol, face-ai side:
+ * <ul>
+ *   <li>{@code PUT /api/v1/face/gallery/{algorithmReg}} with {@code version} and
+ *       {@code candidates: [{featureId, userId, encoding}]} replaces the replica;</li>
+ *   <li>{@code POST /api/v1/face/gallery/{algorithmReg}/deltas} with {@code baseVersion},
+ *       {@code version}, {@code upserts} and {@code deletes} (feature ids) applies only
+ *       when the replica is at {@code baseVersion};</li>
+ *   <li>{@code POST /api/v1/face/search} carries {@code galleryVersion} (and
+ *       {@code userIds} for a named gallery) instead of {@code candidates}.</li>
+ * </ul>
+ * A version disagreement is answered with HTTP 409, code
+ * {@code GALLERY_VERSION_MISMATCH} and the replica's version in {@code data.version}.
+ * <p>
+ * Deltas and full resyncs run on one thread, so they reach face-ai in version
+ * order; deltas are idempotent, so one replayed over a resync is harmless. A
+ * search that hits a mismatch catches this node up when the replica is ahead or
+ * resyncs the replica when it is behind, then retries once. If the versions still
+ * disagree it falls back to posting the candidates.
+ */
+@Slf4j
+@Component
+public class FaceAiGalleryReplica {
+
+    private static final String VERSION_MISMATCH = "GALLERY_VERSION_MISMATCH";
+
+    private final HttpClientService httpClientService;
+    private final FaceGalleryCache faceGalleryCache;
+    private final FaceRecognitionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService pusher;
+    /**
+     * Replica version face-ai last reported to this node, per algorithm.
+     */
+    private final ConcurrentMap<String, Long> replicaVersions = new ConcurrentHashMap<>();
+
+    @Value("${face-recognition.service-url:http://face-ai-service:5000}")
+    private String faceRecognitionServiceUrl;
+
+    public FaceAiGalleryReplica(HttpClientService httpClientService,
+                                FaceGalleryCache faceGalleryCache,
+                                FaceRecognitionProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.httpClientService = httpClientService;
+        this.faceGalleryCache = faceGalleryCache;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.pusher = Executors.newSingleThreadExecutor(r -> new Thread(r, "face-ai-gallery-replica"));
+    }
+
+    public boolean isEnabled() {
+        return properties.getSearch().getMode() == FaceRecognitionProperties.SearchMode.SYNCED;
+    }
+
+    @EventListener
+    public void onGalleryChanged(FaceGalleryChangedEvent event) {
+        if (isEnabled()) {
+            pusher.execute(() -> pushDelta(event));
+        }
+    }
+
+    /**
+     * Searches the replica at the gallery's current version.
+     *
+     * @param image     base64 String or {@code ImagePayload}
+     * @param scope     member user ids of a named gallery, or null for the whole gallery
+     * @param stateless search that posts the candidates, used when the versions can't be reconciled
+     */
+    public TypedExternalServiceResponse<FaceSearchData> search(
+            Object image, FaceGallery gallery, Set<Long> scope,
+            Supplier<TypedExternalServiceResponse<FaceSearchData>> stateless) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            long version = gallery.version();
+            Long replicaVersion;
+            try {
+                return httpClientService.post(faceRecognitionServiceUrl + "/api/v1/face/search",
+                        searchBody(image, gallery.getAlgorithmReg(), version, scope), FaceSearchData.RESPONSE);
+            } catch (NonRetryableHttpException e) {
+                replicaVersion = mismatchVersion(e);
+                if (replicaVersion == null) {
+                    throw e;
+                }
+            }
+            if (attempt > 0 || !reconcile(gallery, version, replicaVersion)) {
+                break;
+            }
+        }
+        mismatch(gallery.getAlgorithmReg(), "fallback");
+        return stateless.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pusher.shutdownNow();
+    }
+
+    /**
+     * Returns true when the search is worth retrying at the gallery's (possibly new) version.
+     */
+    private boolean reconcile(FaceGallery gallery, long version, long replicaVersion) {
+        String algorithmReg = gallery.getAlgorithmReg();
+        replicaVersions.put(algorithmReg, replicaVersion);
+        if (replicaVersion > version) {
+            // A peer pushed changes this node hasn't replayed yet
+            faceGalleryCache.syncWithPeers();
+            if (gallery.version() == replicaVersion) {
+                mismatch(algorithmReg, "caught_up");
+                return true;
+            }
+            if (gallery.version() < replicaVersion) {
+                // Never push an older gallery over a newer replica
+                return false;
+            }
+        }
+        if (!resync(gallery)) {
+            return false;
+        }
+        mismatch(algorithmReg, "resynced");
+        return true;
+    }
+
+    private boolean resync(FaceGallery gallery) {
+        Future<Boolean> task = pusher.submit(() -> {
+            long version = gallery.version();
+            // Another request's resync may already have brought the replica here
+            if (Objects.equals(replicaVersions.get(gallery.getAlgorithmReg()), version)) {
+                return true;
+            }
+            pushFull(gallery, version);
+            return true;
+        });
+        try {
+            return task.get(properties.getSearch().getReplica().getResyncTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Left running; later searches find the replica current
+            log.warn("Face-ai gallery resync for {} still running, falling back to posting candidates",
+                    gallery.getAlgorithmReg());
+            return false;
+        } catch (ExecutionException e) {
+            log.warn("Face-ai gallery resync for {} failed: {}", gallery.getAlgorithmReg(),
+                    e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void pushFull(FaceGallery gallery, long version) {
+        String algorithmReg = gallery.getAlgorithmReg();
+        long start = System.nanoTime();
+        Map<String, Object> body = new HashMap<>();
+        body.put("version", version);
+        body.put("candidates", GalleryCandidates.withFeatureIds(gallery));
+        httpClientService.put(galleryUrl(algorithmReg), body);
+        replicaVersions.put(algorithmReg, version);
+
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("face.gallery.replica.resync", "algorithm", algorithmReg)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Resynced face-ai gallery {} to version {}: {} vectors in {}ms",
+                algorithmReg, version, gallery.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private void pushDelta(FaceGalleryChangedEvent event) {
+        String algorithmReg = event.algorithmReg();
+        Map<String, Object> body = new HashMap<>();
+        body.put("baseVersion", event.baseVersion());
+        body.put("version", event.version());
+        body.put("upserts", event.upserts().stream()
+                .map(upsert -> Map.of(
+                        "featureId", String.valueOf(upsert.featureId()),
+                        "userId", String.valueOf(upsert.userId()),
+                        "encoding", upsert.encoding()))
+                .toList());
+        body.put("deletes", event.deletes().stream().map(String::valueOf).toList());
+        try {
+            httpClientService.post(galleryUrl(algorithmReg) + "/deltas", body);
+            replicaVersions.put(algorithmReg, event.version());
+            delta(algorithmReg, "applied");
+        } catch (NonRetryableHttpException e) {
+            Long replicaVersion = mismatchVersion(e);
+            if (replicaVersion == null) {
+                log.warn("Face-ai rejected gallery delta {} -> {} for {}: {}",
+                        event.baseVersion(), event.version(), algorithmReg, e.getMessage());
+                replicaVersions.remove(algorithmReg);
+                delta(algorithmReg, "failed");
+                return;
+            }
+            // The replica missed a change; the next search resyncs it
+            log.debug("Face-ai gallery {} is at version {}, skipping delta {} -> {}",
+                    algorithmReg, replicaVersion, event.baseVersion(), event.version());
+            replicaVersions.put(algorithmReg, replicaVersion);
+            delta(algorithmReg, "rejected");
+        } catch (Exception e) {
+            log.warn("Failed to push gallery delta {} -> {} for {}: {}",
+                    event.baseVersion(), event.version(), algorithmReg, e.getMessage());
+            replicaVersions.remove(algorithmReg);
+            delta(algorithmReg, "failed");
+        }
+    }
+
+    private static Map<String, Object> searchBody(Object image, String algorithmReg, long version, Set<Long> scope) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("imageBase64", image);
+        body.put("algorithmDet", FaceService.DEFAULT_DET_ALGORITHM);
+        body.put("algorithmReg", algorithmReg);
+        body.put("galleryVersion", version);
+        if (scope != null) {
+            List<String> userIds = scope.stream().map(String::valueOf).toList();
+            body.put("userIds", userIds);
+        }
+        return body;
+    }
+
+    /**
+     * The replica's version from a 409 mismatch answer, or null for any other error.
+     */
+    private static Long mismatchVersion(NonRetryableHttpException e) {
+        if (e.getHttpStatusCode() != 409 || e.getResponseBody() == null) {
+            return null;
+        }
+        try {
+            ExternalServiceResponse response = new ExternalServiceResponse(e.getResponseBody());
+            if (!VERSION_MISMATCH.equals(response.getCode()) || response.getData() == null
+                    || !response.getData().hasNonNull("version")) {
+                return null;
+            }
+            return response.getData().get("version").asLong();
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    private String galleryUrl(String algorithmReg) {
+        return faceRecognitionServiceUrl + "/api/v1/face/gallery/" + algorithmReg;
+    }
+
+    private void delta(String algorithmReg, String result) {
+        meterRegistry.counter("face.gallery.replica.deltas", "algorithm", algorithmReg, "result", result).increment();
+    }
+
+    private void mismatch(String algorithmReg, String resolution) {
+        meterRegistry.counter("face.gallery.replica.mismatches", "algorithm", algorithmReg,
+                "resolution", resolution).increment();
+    }
+}
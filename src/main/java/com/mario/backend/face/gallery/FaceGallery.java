@@ -0,0 +1,473 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.search.Distances;
+import com.mario.backend.face.search.ExactScan;
+import com.mario.backend.face.search.HnswIndex;
+import com.mario.backend.face.search.ProductQuantizer;
+import com.mario.backend.face.search.QuantizedIndex;
+import com.mario.backend.face.search.Quantizer;
+import com.mario.backend.face.search.ScalarQuantizer;
+import com.mario.backend.face.search.SearchMatch;
+import com.mario.backend.face.search.VectorDistance;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory gallery of active face embeddings for one {@code algorithmReg}.
+ * <p>
+ * Wraps the HNSW index together with its sync state: {@link #version()} mirrors
+ * the cluster-wide Redis counter and {@link #watermark()} bounds the next
+ * incremental replay from {@code face_features}. Galleries below
+ * {@code hnsw.exact-scan-below} skip the graph and are scanned exhaustively.
+ * <p>
+ * With quantization enabled, the initial load is staged, codebooks are trained
+ * from it in {@link #finishLoad()}, and the gallery keeps only compact codes;
+ * top candidates are re-ranked with full-precision vectors from the
+ * {@link FullPrecisionSource}.
+ * <p>
+ * A userId &rarr; featureIds index lets searches scoped to a named gallery
+ * score only the members' vectors.
+ */
+@Slf4j
+public class FaceGallery {
+
+    /**
+     * Loads full-precision vectors by {@code face_features.id} for re-ranking.
+     */
+    @FunctionalInterface
+    public interface FullPrecisionSource {
+        Map<Long, float[]> load(Collection<Long> featureIds);
+    }
+
+    private final String algorithmReg;
+    private final FaceRecognitionProperties.Hnsw hnsw;
+    private final FaceRecognitionProperties.Quantization quantization;
+    private final FullPrecisionSource fullPrecision;
+    private final ExactScan exactScan;
+    private final AtomicLong version;
+    private volatile LocalDateTime watermark;
+    private volatile HnswIndex index;
+    private volatile QuantizedIndex quantized;
+    /**
+     * Initial load buffer, only while quantization is pending; null otherwise.
+     */
+    private List<StagedVector> staging;
+    /**
+     * Copy-on-write feature ids per user; written under the gallery lock, read lock-free by scoped searches.
+     */
+    private final ConcurrentMap<Long, long[]> featuresByUser = new ConcurrentHashMap<>();
+    /**
+     * Held by an incremental replay from its read of {@code face_features} until the rows are
+     * applied, and by local patches, so a replay never applies rows older than a local change.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    FaceGallery(String algorithmReg, FaceRecognitionProperties.Hnsw hnsw,
+                FaceRecognitionProperties.Quantization quantization, FullPrecisionSource fullPrecision,
+                long version, LocalDateTime watermark) {
+        this.algorithmReg = algorithmReg;
+        this.hnsw = hnsw;
+        this.quantization = quantization;
+        this.fullPrecision = fullPrecision;
+        this.exactScan = new ExactScan(Distances.get(), hnsw.getScanChunk());
+        this.version = new AtomicLong(version);
+        this.watermark = watermark;
+        if (fullPrecision != null && quantization.getMode() != FaceRecognitionProperties.QuantizationMode.NONE) {
+            this.staging = new ArrayList<>();
+        }
+    }
+
+    public String getAlgorithmReg() {
+        return algorithmReg;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public LocalDateTime watermark() {
+        return watermark;
+    }
+
+    public int size() {
+        QuantizedIndex codes = quantized;
+        if (codes != null) {
+            return codes.size();
+        }
+        HnswIndex current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isQuantized() {
+        return quantized != null;
+    }
+
+    /**
+     * Approximate bytes held by vectors (codes when quantized, float32 otherwise).
+     */
+    public long vectorBytes() {
+        QuantizedIndex codes = quantized;
+        if (codes != null) {
+            return codes.codeBytes();
+        }
+        HnswIndex current = index;
+        return current == null ? 0 : (long) current.size() * current.dimension() * Float.BYTES;
+    }
+
+    /**
+     * Returns up to {@code topK} nearest faces, at most one per user, closest first.
+     * Distances are always exact L2.
+     *
+     * @throws RerankUnavailableException when quantized and the full vectors can't be loaded
+     */
+    public List<SearchMatch> search(float[] probe, int topK) {
+        QuantizedIndex codes = quantized;
+        List<SearchMatch> raw;
+        if (codes != null) {
+            checkProbe(probe, codes.quantizer().dimension());
+            raw = rerank(probe, codes.search(probe, topK * 2 * Math.max(1, quantization.getRerankFactor()), exactScan));
+        } else {
+            HnswIndex current = index;
+            if (current == null) {
+                return List.of();
+            }
+            checkProbe(probe, current.dimension());
+            // Over-fetch so users with several enrolled faces don't crowd out others
+            raw = current.size() <= hnsw.getExactScanBelow()
+                    ? current.exactSearch(probe, topK * 2, exactScan)
+                    : current.search(probe, topK * 2, Math.max(hnsw.getEfSearch(), topK * 2));
+        }
+        return distinctUsers(raw, topK);
+    }
+
+    /**
+     * Like {@link #search(float[], int)} but only over the faces of {@code userIds}.
+     * Exact (or re-ranked) and proportional to the members' face count, not the gallery size.
+     */
+    public List<SearchMatch> search(float[] probe, int topK, Collection<Long> userIds) {
+        long[] keys = featureIds(userIds);
+        if (keys.length == 0) {
+            return List.of();
+        }
+        QuantizedIndex codes = quantized;
+        List<SearchMatch> raw;
+        if (codes != null) {
+            checkProbe(probe, codes.quantizer().dimension());
+            raw = rerank(probe, codes.searchKeys(probe, keys,
+                    topK * 2 * Math.max(1, quantization.getRerankFactor()), exactScan));
+        } else {
+            HnswIndex current = index;
+            if (current == null) {
+                return List.of();
+            }
+            checkProbe(probe, current.dimension());
+            raw = current.searchKeys(probe, keys, topK * 2, exactScan);
+        }
+        return distinctUsers(raw, topK);
+    }
+
+    /**
+     * Number of faces held for the given users.
+     */
+    public int size(Collection<Long> userIds) {
+        int count = 0;
+        for (Long userId : userIds) {
+            long[] ids = featuresByUser.get(userId);
+            count += ids == null ? 0 : ids.length;
+        }
+        return count;
+    }
+
+    /**
+     * Visits every vector at full precision. Not available once quantized.
+     */
+    public void forEach(HnswIndex.EntryConsumer consumer) {
+        if (quantized != null) {
+            throw new IllegalStateException("Face gallery " + algorithmReg + " is quantized; full vectors are not held");
+        }
+        HnswIndex current = index;
+        if (current != null) {
+            current.forEachLive(consumer);
+        }
+    }
+
+    /**
+     * Like {@link #forEach}, but holds the index lock for at most {@code chunkSize}
+     * slots at a time and calls the consumer outside it, so a slow consumer (a
+     * network write) doesn't hold up registrations. Vectors added or removed
+     * during the walk may or may not be visited.
+     */
+    public void forEachChunked(int chunkSize, HnswIndex.EntryConsumer consumer) {
+        if (quantized != null) {
+            throw new IllegalStateException("Face gallery " + algorithmReg + " is quantized; full vectors are not held");
+        }
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        long[] keys = new long[chunkSize];
+        long[] userIds = new long[chunkSize];
+        float[][] vectors = new float[chunkSize][];
+        int[] filled = new int[1];
+        int next = 0;
+        while (next >= 0) {
+            filled[0] = 0;
+            next = current.forEachLive(next, chunkSize, (key, userId, vector) -> {
+                keys[filled[0]] = key;
+                userIds[filled[0]] = userId;
+                vectors[filled[0]++] = vector;
+            });
+            for (int i = 0; i < filled[0]; i++) {
+                consumer.accept(keys[i], userIds[i], vectors[i]);
+                vectors[i] = null;
+            }
+        }
+    }
+
+    synchronized boolean put(long featureId, long userId, float[] vector) {
+        if (staging != null) {
+            if (!staging.isEmpty() && vector.length != staging.get(0).vector().length) {
+                log.warn("Skipping faceFeatureId={} for gallery {}: dimension {} != {}",
+                        featureId, algorithmReg, vector.length, staging.get(0).vector().length);
+                return false;
+            }
+            staging.add(new StagedVector(featureId, userId, vector));
+            indexUser(featureId, userId);
+            return true;
+        }
+        QuantizedIndex codes = quantized;
+        if (codes != null) {
+            if (vector.length != codes.quantizer().dimension()) {
+                log.warn("Skipping faceFeatureId={} for gallery {}: dimension {} != {}",
+                        featureId, algorithmReg, vector.length, codes.quantizer().dimension());
+                return false;
+            }
+            codes.add(featureId, userId, vector);
+            indexUser(featureId, userId);
+            return true;
+        }
+        HnswIndex current = index;
+        if (current == null) {
+            current = new HnswIndex(vector.length, hnsw.getM(), hnsw.getEfConstruction());
+        } else if (vector.length != current.dimension()) {
+            log.warn("Skipping faceFeatureId={} for gallery {}: dimension {} != {}",
+                    featureId, algorithmReg, vector.length, current.dimension());
+            return false;
+        }
+        current.add(featureId, userId, vector);
+        index = current;
+        indexUser(featureId, userId);
+        return true;
+    }
+
+    synchronized boolean remove(long featureId, long userId) {
+        unindexUser(featureId, userId);
+        if (staging != null) {
+            return staging.removeIf(staged -> staged.featureId() == featureId);
+        }
+        QuantizedIndex codes = quantized;
+        if (codes != null) {
+            if (!codes.remove(featureId)) {
+                return false;
+            }
+            if (codes.deletedRatio() > hnsw.getMaxDeletedRatio()) {
+                quantized = codes.compact();
+            }
+            return true;
+        }
+        HnswIndex current = index;
+        if (current == null || !current.remove(featureId)) {
+            return false;
+        }
+        if (current.deletedRatio() > hnsw.getMaxDeletedRatio()) {
+            log.info("Compacting face gallery {} (deleted ratio {})", algorithmReg, current.deletedRatio());
+            index = current.compact();
+        }
+        return true;
+    }
+
+    /**
+     * Drops every vector, e.g. after a partially applied snapshot.
+     */
+    synchronized void clear() {
+        index = null;
+        quantized = null;
+        featuresByUser.clear();
+        if (staging != null) {
+            staging = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Ends the initial load. With quantization pending, trains the quantizer on a
+     * sample of the staged vectors and encodes them; galleries too small to train
+     * on fall back to the full-precision index.
+     */
+    synchronized void finishLoad() {
+        List<StagedVector> staged = staging;
+        if (staged == null) {
+            return;
+        }
+        staging = null;
+        if (staged.size() < quantization.getMinTrainingSize()) {
+            log.info("Face gallery {} has {} vectors (< {}), keeping full precision",
+                    algorithmReg, staged.size(), quantization.getMinTrainingSize());
+            staged.forEach(s -> put(s.featureId(), s.userId(), s.vector()));
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<float[]> sample = new ArrayList<>(Math.min(staged.size(), quantization.getTrainingSample()));
+        List<StagedVector> shuffled = new ArrayList<>(staged);
+        Collections.shuffle(shuffled, new Random(algorithmReg.hashCode()));
+        for (int i = 0; i < Math.min(shuffled.size(), quantization.getTrainingSample()); i++) {
+            sample.add(shuffled.get(i).vector());
+        }
+        Quantizer quantizer = quantization.getMode() == FaceRecognitionProperties.QuantizationMode.PQ
+                ? ProductQuantizer.train(sample, quantization.getPqSubquantizers(), quantization.getPqIterations(),
+                algorithmReg.hashCode())
+                : ScalarQuantizer.train(sample);
+
+        QuantizedIndex codes = new QuantizedIndex(quantizer, staged.size());
+        for (StagedVector s : staged) {
+            codes.add(s.featureId(), s.userId(), s.vector());
+        }
+        quantized = codes;
+        log.info("Quantized face gallery {} with {}: {} vectors, {} bytes/vector, trained in {}ms",
+                algorithmReg, quantization.getMode(), codes.size(), quantizer.codeSize(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    FullPrecisionSource fullPrecision() {
+        return fullPrecision;
+    }
+
+    ReentrantLock syncLock() {
+        return syncLock;
+    }
+
+    void advanceVersion(long newVersion) {
+        version.accumulateAndGet(newVersion, Math::max);
+    }
+
+    void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Moves the watermark forward only, so a slower replay or local change never rewinds it.
+     */
+    synchronized void advanceWatermark(LocalDateTime watermark) {
+        if (watermark.isAfter(this.watermark)) {
+            this.watermark = watermark;
+        }
+    }
+
+    /**
+     * Re-scores approximate candidates with exact L2. A candidate whose full vector
+     * is missing or undecodable is dropped rather than kept with its estimate.
+     */
+    private List<SearchMatch> rerank(float[] probe, List<SearchMatch> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        Map<Long, float[]> vectors;
+        try {
+            vectors = fullPrecision.load(candidates.stream().map(SearchMatch::featureId).toList());
+        } catch (Exception e) {
+            throw new RerankUnavailableException(algorithmReg, e);
+        }
+        VectorDistance distance = Distances.get();
+        List<SearchMatch> reranked = new ArrayList<>(candidates.size());
+        for (SearchMatch candidate : candidates) {
+            float[] vector = vectors.get(candidate.featureId());
+            if (vector != null && vector.length == probe.length) {
+                reranked.add(new SearchMatch(candidate.featureId(), candidate.userId(),
+                        Math.sqrt(distance.squaredL2(probe, vector))));
+            }
+        }
+        reranked.sort(Comparator.comparingDouble(SearchMatch::distance));
+        return reranked;
+    }
+
+    private long[] featureIds(Collection<Long> userIds) {
+        long[] keys = new long[size(userIds)];
+        int count = 0;
+        for (Long userId : userIds) {
+            long[] ids = featuresByUser.get(userId);
+            if (ids != null) {
+                int n = Math.min(ids.length, keys.length - count);
+                System.arraycopy(ids, 0, keys, count, n);
+                count += n;
+            }
+        }
+        return count == keys.length ? keys : Arrays.copyOf(keys, count);
+    }
+
+    private void indexUser(long featureId, long userId) {
+        featuresByUser.compute(userId, (user, ids) -> {
+            if (ids == null) {
+                return new long[]{featureId};
+            }
+            for (long id : ids) {
+                if (id == featureId) {
+                    return ids;
+                }
+            }
+            long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = featureId;
+            return grown;
+        });
+    }
+
+    private void unindexUser(long featureId, long userId) {
+        featuresByUser.computeIfPresent(userId, (user, ids) -> {
+            long[] kept = Arrays.stream(ids).filter(id -> id != featureId).toArray();
+            return kept.length == 0 ? null : kept;
+        });
+    }
+
+    private static List<SearchMatch> distinctUsers(List<SearchMatch> raw, int topK) {
+        Set<Long> seenUsers = new HashSet<>();
+        List<SearchMatch> matches = new ArrayList<>(topK);
+        for (SearchMatch match : raw) {
+            if (seenUsers.add(match.userId())) {
+                matches.add(match);
+                if (matches.size() == topK) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void checkProbe(float[] probe, int dimension) {
+        if (probe.length != dimension) {
+            throw new IllegalArgumentException("Probe dimension " + probe.length
+                    + " does not match gallery dimension " + dimension + " for " + algorithmReg);
+        }
+    }
+
+    private record StagedVector(long featureId, long userId, float[] vector) {
+    }
+}
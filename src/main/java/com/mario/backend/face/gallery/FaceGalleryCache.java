@@ -0,0 +1,498 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.event.FaceGalleryChangedEvent;
+import com.mario.backend.face.repository.FaceEmbeddingView;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned in-memory face galleries keyed by {@code algorithmReg}.
+ * <p>
+ * A gallery is loaded from MySQL once, then patched in place by
+ * {@link #onRegistered(FaceFeature)} / {@link #onDeleted(FaceFeature)}. Every
+ * local change bumps a Redis counter; peers poll it and, when they fall behind,
+ * replay only the {@code face_features} rows updated since their watermark.
+ * The recognition hot path therefore never queries MySQL.
+ * <p>
+ * When a {@link GallerySnapshot} is available the initial load maps it instead
+ * of scanning {@code face_features}, and only replays rows changed after the
+ * snapshot watermark.
+ * <p>
+ * Each local change that fast-forwards the gallery by exactly one version is
+ * also published as a {@link FaceGalleryChangedEvent}, and moves the watermark
+ * up to when it was published.
+ * <p>
+ * Quantized galleries re-rank from their memory-mapped snapshot by default
+ * ({@link SnapshotVectors}); only faces added since it was written are held on
+ * heap. A gallery loaded from MySQL writes that snapshot before it is quantized.
+ * <p>
+ * A replay and the local patches of one gallery are serialized on its sync lock:
+ * the replay's rows were read before any patch that waited for it, so a patch
+ * (e.g. the delete of a face the replay read as active) always lands last.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceGalleryCache {
+
+    private static final String VERSION_KEY_PREFIX = "face:gallery:version:";
+
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceRecognitionProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final GallerySnapshotStore snapshotStore;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Completed once the gallery is built; callers arriving during the build wait on
+     * the future rather than on a map bin lock, so other algorithms stay available.
+     */
+    private final ConcurrentMap<String, CompletableFuture<FaceGallery>> galleries = new ConcurrentHashMap<>();
+    private final Set<String> gauged = ConcurrentHashMap.newKeySet();
+
+    public FaceGallery get(String algorithmReg) {
+        FaceGallery gallery = loadedGallery(algorithmReg);
+        if (gallery != null) {
+            meterRegistry.counter("face.gallery.requests", "algorithm", algorithmReg, "result", "hit").increment();
+            return gallery;
+        }
+        meterRegistry.counter("face.gallery.requests", "algorithm", algorithmReg, "result", "miss").increment();
+        CompletableFuture<FaceGallery> created = new CompletableFuture<>();
+        CompletableFuture<FaceGallery> loading = galleries.putIfAbsent(algorithmReg, created);
+        if (loading == null) {
+            try {
+                created.complete(build(algorithmReg));
+            } catch (RuntimeException e) {
+                // Not cached: the next call builds again
+                galleries.remove(algorithmReg, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+            return created.join();
+        }
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public void onRegistered(FaceFeature feature) {
+        FaceGallery gallery = loadedGallery(feature.getAlgorithmReg());
+        if (gallery != null && feature.getId() != null) {
+            gallery.syncLock().lock();
+            try {
+                apply(gallery, feature.getId(), feature.getUserId(), feature.getStatus(),
+                        feature.getFeatureEmbedding(), feature.getFeatureVector());
+            } finally {
+                gallery.syncLock().unlock();
+            }
+        }
+        publishChange(feature.getAlgorithmReg(), gallery, List.of(feature), List.of());
+    }
+
+    /**
+     * Patches a batch of new features and publishes one version bump per algorithm.
+     */
+    public void onRegistered(Collection<FaceFeature> features) {
+        Map<String, List<FaceFeature>> byAlgorithm = features.stream()
+                .collect(Collectors.groupingBy(FaceFeature::getAlgorithmReg));
+        byAlgorithm.forEach((algorithmReg, batch) -> {
+            FaceGallery gallery = loadedGallery(algorithmReg);
+            if (gallery != null) {
+                gallery.syncLock().lock();
+                try {
+                    for (FaceFeature feature : batch) {
+                        if (feature.getId() != null) {
+                            apply(gallery, feature.getId(), feature.getUserId(), feature.getStatus(),
+                                    feature.getFeatureEmbedding(), feature.getFeatureVector());
+                        }
+                    }
+                } finally {
+                    gallery.syncLock().unlock();
+                }
+            }
+            publishChange(algorithmReg, gallery, batch, List.of());
+        });
+    }
+
+    public void onDeleted(FaceFeature feature) {
+        FaceGallery gallery = loadedGallery(feature.getAlgorithmReg());
+        if (gallery != null && feature.getId() != null) {
+            gallery.syncLock().lock();
+            try {
+                gallery.remove(feature.getId(), feature.getUserId());
+                SnapshotVectors mapped = mappedVectors(gallery);
+                if (mapped != null) {
+                    mapped.onRemoved(feature.getId());
+                }
+            } finally {
+                gallery.syncLock().unlock();
+            }
+        }
+        publishChange(feature.getAlgorithmReg(), gallery, List.of(),
+                feature.getId() != null ? List.of(feature.getId()) : List.of());
+    }
+
+    public void invalidate(String algorithmReg) {
+        galleries.remove(algorithmReg);
+    }
+
+    public boolean isLoaded(String algorithmReg) {
+        return loadedGallery(algorithmReg) != null;
+    }
+
+    /**
+     * Galleries currently held in memory; never triggers a load.
+     */
+    public Collection<FaceGallery> loaded() {
+        return galleries.keySet().stream().map(this::loadedGallery).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Catches up with changes made on other nodes.
+     */
+    @Scheduled(fixedDelayString = "${face-recognition.gallery.sync-interval-ms:1000}")
+    public void syncWithPeers() {
+        for (FaceGallery gallery : loaded()) {
+            long remoteVersion = readVersion(gallery.getAlgorithmReg());
+            if (remoteVersion > gallery.version()) {
+                try {
+                    replay(gallery, remoteVersion);
+                } catch (Exception e) {
+                    log.warn("Face gallery {} sync to version {} failed: {}",
+                            gallery.getAlgorithmReg(), remoteVersion, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private FaceGallery build(String algorithmReg) {
+        long start = System.nanoTime();
+        // Read version and watermark before loading so concurrent changes get replayed
+        long version = readVersion(algorithmReg);
+        LocalDateTime watermark = LocalDateTime.now();
+        FaceRecognitionProperties.Search search = properties.getSearch();
+        // Quantized galleries need full vectors for re-ranking; REMOTE and SYNCED modes send full vectors, so never quantize
+        FaceGallery.FullPrecisionSource fullPrecision = search.getMode() == FaceRecognitionProperties.SearchMode.LOCAL
+                && search.getQuantization().getMode() != FaceRecognitionProperties.QuantizationMode.NONE
+                ? fullPrecisionSource(algorithmReg, search.getQuantization().getRerankSource())
+                : null;
+        FaceGallery gallery = new FaceGallery(algorithmReg, search.getHnsw(), search.getQuantization(), fullPrecision,
+                version, watermark);
+
+        String source = loadFromSnapshot(gallery, watermark) ? "snapshot" : "database";
+        int skipped = 0;
+        if (source.equals("database")) {
+            List<FaceEmbeddingView> rows = faceFeatureRepository
+                    .findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, algorithmReg);
+            SnapshotVectors mapped = mappedVectors(gallery);
+            if (mapped != null) {
+                writeAndMap(mapped, algorithmReg, version, watermark, rows);
+            }
+            for (FaceEmbeddingView row : rows) {
+                if (!apply(gallery, row.getId(), row.getUserId(), FaceFeature.FaceStatus.active,
+                        row.getFeatureEmbedding(), row.getFeatureVector())) {
+                    skipped++;
+                }
+            }
+        }
+        gallery.finishLoad();
+
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("face.gallery.build", "algorithm", algorithmReg, "source", source)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (gauged.add(algorithmReg)) {
+            // Registered once against the cache: a rebuilt gallery replaces the one a gauge would have pinned
+            meterRegistry.gauge("face.gallery.size", Tags.of("algorithm", algorithmReg), this,
+                    cache -> cache.measure(algorithmReg, FaceGallery::size));
+            meterRegistry.gauge("face.gallery.vector.bytes", Tags.of("algorithm", algorithmReg), this,
+                    cache -> cache.measure(algorithmReg, FaceGallery::vectorBytes));
+        }
+        log.info("Built face gallery {} from {} at version {}: {} vectors, {} skipped in {}ms",
+                algorithmReg, source, version, gallery.size(), skipped, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return gallery;
+    }
+
+    /**
+     * Maps the latest snapshot into the gallery and replays rows changed after its
+     * watermark. Returns false, leaving the gallery empty, when there is no usable
+     * snapshot.
+     */
+    private boolean loadFromSnapshot(FaceGallery gallery, LocalDateTime loadStart) {
+        GallerySnapshot snapshot = snapshotStore.open(gallery.getAlgorithmReg()).orElse(null);
+        if (snapshot == null) {
+            return false;
+        }
+        try {
+            SnapshotVectors mapped = mappedVectors(gallery);
+            if (mapped != null) {
+                // Mapped first, so the snapshot's own rows are never copied to heap
+                mapped.rebase(snapshot.rows());
+            }
+            snapshot.forEach((featureId, userId, vector) -> gallery.put(featureId, userId, vector));
+        } catch (Exception e) {
+            log.warn("Failed to map face gallery snapshot for {}, loading from database: {}",
+                    gallery.getAlgorithmReg(), e.getMessage());
+            gallery.clear();
+            return false;
+        }
+        LocalDateTime since = snapshot.watermark().minus(properties.getGallery().getReplayMargin());
+        List<FaceEmbeddingView> changes = faceFeatureRepository
+                .findEmbeddingChangesSince(gallery.getAlgorithmReg(), since);
+        for (FaceEmbeddingView row : changes) {
+            apply(gallery, row.getId(), row.getUserId(), row.getStatus(),
+                    row.getFeatureEmbedding(), row.getFeatureVector());
+        }
+        gallery.setWatermark(loadStart);
+        log.info("Mapped face gallery snapshot for {} (version {}, {} rows, watermark {}), replayed {} changes",
+                gallery.getAlgorithmReg(), snapshot.version(), snapshot.size(), snapshot.watermark(), changes.size());
+        return true;
+    }
+
+    private void replay(FaceGallery gallery, long remoteVersion) {
+        long start = System.nanoTime();
+        List<FaceEmbeddingView> changes;
+        gallery.syncLock().lock();
+        try {
+            LocalDateTime replayStart = LocalDateTime.now();
+            // Margin absorbs clock skew between nodes; re-applying a row is idempotent
+            LocalDateTime since = gallery.watermark().minus(properties.getGallery().getReplayMargin());
+
+            changes = faceFeatureRepository.findEmbeddingChangesSince(gallery.getAlgorithmReg(), since);
+            for (FaceEmbeddingView row : changes) {
+                apply(gallery, row.getId(), row.getUserId(), row.getStatus(),
+                        row.getFeatureEmbedding(), row.getFeatureVector());
+            }
+            gallery.advanceWatermark(replayStart);
+        } finally {
+            gallery.syncLock().unlock();
+        }
+        gallery.advanceVersion(remoteVersion);
+
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("face.gallery.sync", "algorithm", gallery.getAlgorithmReg())
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("Synced face gallery {} to version {}: {} changed rows in {}ms",
+                gallery.getAlgorithmReg(), remoteVersion, changes.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * The gallery if it has finished building; null while absent or still building.
+     */
+    private FaceGallery loadedGallery(String algorithmReg) {
+        CompletableFuture<FaceGallery> loading = galleries.get(algorithmReg);
+        return loading != null && loading.isDone() && !loading.isCompletedExceptionally() ? loading.join() : null;
+    }
+
+    private double measure(String algorithmReg, ToDoubleFunction<FaceGallery> metric) {
+        FaceGallery gallery = loadedGallery(algorithmReg);
+        return gallery != null ? metric.applyAsDouble(gallery) : Double.NaN;
+    }
+
+    private FaceGallery.FullPrecisionSource fullPrecisionSource(String algorithmReg,
+                                                                FaceRecognitionProperties.RerankSource source) {
+        if (source == FaceRecognitionProperties.RerankSource.SNAPSHOT) {
+            if (snapshotStore.isEnabled()) {
+                return new SnapshotVectors(algorithmReg, meterRegistry);
+            }
+            log.warn("Face gallery snapshots are disabled; {} re-ranks from MySQL instead", algorithmReg);
+        }
+        return featureIds -> loadFullPrecision(algorithmReg, featureIds);
+    }
+
+    private static SnapshotVectors mappedVectors(FaceGallery gallery) {
+        return gallery.fullPrecision() instanceof SnapshotVectors mapped ? mapped : null;
+    }
+
+    /**
+     * Writes the rows just read as the gallery's snapshot and maps it for re-ranking,
+     * so they are never held on heap at full precision once quantized. When that
+     * fails they are held on heap instead; search still never reads MySQL.
+     */
+    private void writeAndMap(SnapshotVectors mapped, String algorithmReg, long version, LocalDateTime watermark,
+                             List<FaceEmbeddingView> rows) {
+        try {
+            snapshotStore.save(algorithmReg, version, watermark, writer -> {
+                for (FaceEmbeddingView row : rows) {
+                    float[] vector = vectorOf(row);
+                    if (vector != null) {
+                        writer.append(row.getId(), row.getUserId(), vector);
+                    }
+                }
+            });
+            GallerySnapshot snapshot = snapshotStore.openLocal(algorithmReg)
+                    .orElseThrow(() -> new IOException("snapshot just written is not readable"));
+            mapped.rebase(snapshot.rows());
+        } catch (Exception e) {
+            log.warn("Could not map a snapshot of face gallery {} for re-ranking, holding vectors on heap: {}",
+                    algorithmReg, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-maps a quantized gallery's re-rank vectors onto the snapshot this node just
+     * wrote, releasing the faces it now covers from heap.
+     */
+    void onSnapshotWritten(FaceGallery gallery) {
+        SnapshotVectors mapped = mappedVectors(gallery);
+        if (mapped == null) {
+            return;
+        }
+        try {
+            GallerySnapshot snapshot = snapshotStore.openLocal(gallery.getAlgorithmReg()).orElse(null);
+            if (snapshot != null) {
+                mapped.rebase(snapshot.rows());
+            }
+        } catch (IOException e) {
+            log.warn("Could not re-map face gallery snapshot for {}: {}", gallery.getAlgorithmReg(), e.getMessage());
+        }
+    }
+
+    /**
+     * The DATABASE re-rank source. Counts every failed load and every candidate left
+     * without a vector: each one is a search answered from fewer candidates than
+     * asked for, or not at all.
+     */
+    private Map<Long, float[]> loadFullPrecision(String algorithmReg, Collection<Long> featureIds) {
+        long start = System.nanoTime();
+        List<FaceEmbeddingView> rows;
+        try {
+            rows = faceFeatureRepository.findEmbeddingsByIdIn(featureIds);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("face.gallery.rerank", "algorithm", algorithmReg, "outcome", "failed").increment();
+            throw e;
+        } finally {
+            meterRegistry.timer("face.gallery.rerank.load", "algorithm", algorithmReg, "source", "database")
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        Map<Long, float[]> vectors = new HashMap<>();
+        for (FaceEmbeddingView row : rows) {
+            float[] vector = vectorOf(row);
+            if (vector != null) {
+                vectors.put(row.getId(), vector);
+            }
+        }
+        if (vectors.size() < featureIds.size()) {
+            meterRegistry.counter("face.gallery.rerank", "algorithm", algorithmReg, "outcome", "missing")
+                    .increment(featureIds.size() - vectors.size());
+        }
+        return vectors;
+    }
+
+    private boolean apply(FaceGallery gallery, Long featureId, Long userId, FaceFeature.FaceStatus status,
+                          byte[] embedding, String featureVector) {
+        SnapshotVectors mapped = mappedVectors(gallery);
+        if (status != FaceFeature.FaceStatus.active) {
+            gallery.remove(featureId, userId);
+            if (mapped != null) {
+                mapped.onRemoved(featureId);
+            }
+            return true;
+        }
+        try {
+            float[] vector = embedding != null
+                    ? EmbeddingCodec.decode(embedding)
+                    : EmbeddingCodec.decode(featureVector);
+            if (!gallery.put(featureId, userId, vector)) {
+                return false;
+            }
+            if (mapped != null) {
+                mapped.onAdded(featureId, vector);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            log.warn("Undecodable feature vector for faceFeatureId={}: {}", featureId, e.getMessage());
+            return false;
+        }
+    }
+
+    private static float[] vectorOf(FaceEmbeddingView row) {
+        try {
+            return row.getFeatureEmbedding() != null
+                    ? EmbeddingCodec.decode(row.getFeatureEmbedding())
+                    : EmbeddingCodec.decode(row.getFeatureVector());
+        } catch (IllegalArgumentException e) {
+            log.warn("Undecodable feature vector for faceFeatureId={}: {}", row.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void publishChange(String algorithmReg, FaceGallery gallery,
+                               Collection<FaceFeature> registered, List<Long> deleted) {
+        // Read before publishing: the change itself is already committed and applied
+        LocalDateTime publishStart = LocalDateTime.now();
+        Long newVersion;
+        try {
+            newVersion = redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + algorithmReg);
+        } catch (Exception e) {
+            log.warn("Failed to publish face gallery version for {}: {}", algorithmReg, e.getMessage());
+            return;
+        }
+        // Only fast-forward when no peer change slipped in between; otherwise let sync replay it
+        if (gallery != null && newVersion != null && gallery.version() == newVersion - 1) {
+            gallery.advanceVersion(newVersion);
+            // In step with every published change, so snapshots of a node without peers stop replaying from its build
+            gallery.advanceWatermark(publishStart);
+            eventPublisher.publishEvent(changedEvent(algorithmReg, newVersion, registered, deleted));
+        }
+    }
+
+    private static FaceGalleryChangedEvent changedEvent(String algorithmReg, long version,
+                                                        Collection<FaceFeature> registered, List<Long> deleted) {
+        List<FaceGalleryChangedEvent.Upsert> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>(deleted);
+        for (FaceFeature feature : registered) {
+            if (feature.getId() == null) {
+                continue;
+            }
+            if (feature.getStatus() != FaceFeature.FaceStatus.active) {
+                deletes.add(feature.getId());
+            } else if (feature.getFeatureEmbedding() != null || feature.getFeatureVector() != null) {
+                upserts.add(new FaceGalleryChangedEvent.Upsert(feature.getId(), feature.getUserId(),
+                        feature.getFeatureEmbedding() != null
+                                ? EmbeddingCodec.encode(feature.getFeatureEmbedding())
+                                : feature.getFeatureVector()));
+            }
+        }
+        return new FaceGalleryChangedEvent(algorithmReg, version - 1, version, upserts, deletes);
+    }
+
+    private long readVersion(String algorithmReg) {
+        try {
+            String value = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + algorithmReg);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("Failed to read face gallery version for {}: {}", algorithmReg, e.getMessage());
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Loads the configured galleries at startup and reports OUT_OF_SERVICE until
+ * all of them are in memory. It is part of the readiness health group, so the
+ * load balancer holds traffic back instead of sending the first recognitions
+ * into a cold build. Once ready it stays ready: a gallery invalidated later is
+ * rebuilt by the next request, as before.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceGalleryHealthIndicator implements HealthIndicator {
+
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+
+    private final FaceGalleryCache faceGalleryCache;
+    private final FaceRecognitionProperties properties;
+
+    private volatile boolean ready;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        long delay = 1000;
+        while (!ready) {
+            boolean failed = false;
+            for (String algorithmReg : properties.getGallery().getPreload()) {
+                try {
+                    faceGalleryCache.get(algorithmReg);
+                } catch (Exception e) {
+                    failed = true;
+                    log.error("Failed to preload face gallery {}, retrying in {}ms: {}",
+                            algorithmReg, delay, e.getMessage());
+                }
+            }
+            if (!failed) {
+                ready = true;
+                return;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    @Override
+    public Health health() {
+        List<String> pending = ready ? List.of() : properties.getGallery().getPreload().stream()
+                .filter(algorithmReg -> !faceGalleryCache.isLoaded(algorithmReg))
+                .toList();
+        Health.Builder builder = pending.isEmpty() ? Health.up() : Health.outOfService().withDetail("loading", pending);
+        for (FaceGallery gallery : faceGalleryCache.loaded()) {
+            builder.withDetail(gallery.getAlgorithmReg(), gallery.size());
+        }
+        return builder.build();
+    }
+}
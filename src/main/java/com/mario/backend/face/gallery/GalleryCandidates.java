@@ -0,0 +1,95 @@
+package com.mario.backend.face.gallery;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Set;
+
+/**
+ * Candidate list for face-ai {@code /api/v1/face/search}, written straight from
+ * the gallery into the request body as
+ * {@code [{"userId": "...", "encoding": "<base64 float32 LE>"}, ...]}.
+ * <p>
+ * Nothing is built per request beyond one chunk of vector references and a
+ * single pack buffer, and bytes reach face-ai while the gallery is still being
+ * walked. Every serialization walks the live gallery again, so a retried
+ * request sends the current candidates.
+ */
+public final class GalleryCandidates implements JsonSerializable {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final FaceGallery gallery;
+    private final Set<Long> scope;
+    private final boolean featureIds;
+
+    private GalleryCandidates(FaceGallery gallery, Set<Long> scope, boolean featureIds) {
+        this.gallery = gallery;
+        this.scope = scope;
+        this.featureIds = featureIds;
+    }
+
+    /**
+     * @param scope member user ids to include, or null for every face in the gallery
+     */
+    public static GalleryCandidates of(FaceGallery gallery, Set<Long> scope) {
+        return new GalleryCandidates(gallery, scope, false);
+    }
+
+    /**
+     * Every face with its {@code featureId} as well, for loading a face-ai replica
+     * that later receives deltas keyed by feature id.
+     */
+    public static GalleryCandidates withFeatureIds(FaceGallery gallery) {
+        return new GalleryCandidates(gallery, null, true);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartArray();
+        ByteBuffer[] packed = new ByteBuffer[1];
+        try {
+            gallery.forEachChunked(CHUNK_SIZE, (featureId, userId, vector) -> {
+                if (scope != null && !scope.contains(userId)) {
+                    return;
+                }
+                int length = vector.length * Float.BYTES;
+                if (packed[0] == null || packed[0].capacity() < length) {
+                    packed[0] = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                packed[0].clear();
+                packed[0].asFloatBuffer().put(vector);
+                try {
+                    generator.writeStartObject();
+                    if (featureIds) {
+                        generator.writeStringField("featureId", Long.toString(featureId));
+                    }
+                    generator.writeStringField("userId", Long.toString(userId));
+                    generator.writeFieldName("encoding");
+                    // Same alphabet and padding as java.util.Base64.getEncoder()
+                    generator.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, packed[0].array(), 0, length);
+                    generator.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+            throws IOException {
+        // Only ever a plain request body value; no type id
+        serialize(generator, provider);
+    }
+}
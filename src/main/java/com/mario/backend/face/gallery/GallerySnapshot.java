@@ -0,0 +1,382 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.search.HnswIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary dump of one gallery's active vectors, read back through a memory map.
+ * <p>
+ * Layout (little-endian): a header with magic, format, gallery version,
+ * watermark, dimension, row count and algorithm name; then fixed-size rows of
+ * {@code featureId, userId, float[dimension]}; then a CRC32 of the rows. Rows
+ * changed after the watermark are not in the file and must be replayed from
+ * {@code face_features}.
+ */
+public final class GallerySnapshot {
+
+    private static final int MAGIC = 0x31534746; // "FGS1"
+    private static final int FORMAT = 1;
+    private static final int FIXED_HEADER = 38;
+    private static final int TRAILER = Long.BYTES;
+    /**
+     * Rows per mapped segment; a single MappedByteBuffer is limited to 2GB.
+     */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path path;
+    private final String algorithmReg;
+    private final long version;
+    private final LocalDateTime watermark;
+    private final int dimension;
+    private final int count;
+    private final int headerSize;
+
+    private GallerySnapshot(Path path, String algorithmReg, long version, LocalDateTime watermark,
+                            int dimension, int count, int headerSize) {
+        this.path = path;
+        this.algorithmReg = algorithmReg;
+        this.version = version;
+        this.watermark = watermark;
+        this.dimension = dimension;
+        this.count = count;
+        this.headerSize = headerSize;
+    }
+
+    /**
+     * Validates header, size and checksum. Throws {@link IOException} for a missing,
+     * truncated or corrupt file, or one written for another algorithm.
+     */
+    public static GallerySnapshot open(Path path, String expectedAlgorithmReg) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new IOException("Not a face gallery snapshot: " + path);
+            }
+            long version = header.getLong();
+            LocalDateTime watermark = LocalDateTime.ofEpochSecond(header.getLong(), header.getInt(), ZoneOffset.UTC);
+            int dimension = header.getInt();
+            int count = header.getInt();
+            int nameLength = Short.toUnsignedInt(header.getShort());
+
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            readFully(channel, name, FIXED_HEADER);
+            String algorithmReg = new String(name.array(), StandardCharsets.UTF_8);
+            if (!algorithmReg.equals(expectedAlgorithmReg)) {
+                throw new IOException("Snapshot " + path + " is for " + algorithmReg + ", not " + expectedAlgorithmReg);
+            }
+
+            int headerSize = FIXED_HEADER + nameLength;
+            long rowBytes = rowBytes(dimension);
+            if (count < 0 || (count > 0 && dimension <= 0)
+                    || channel.size() != headerSize + count * rowBytes + TRAILER) {
+                throw new IOException("Truncated face gallery snapshot: " + path);
+            }
+            GallerySnapshot snapshot = new GallerySnapshot(path, algorithmReg, version, watermark, dimension, count,
+                    headerSize);
+            snapshot.verify(channel);
+            return snapshot;
+        }
+    }
+
+    public static Writer writer(Path target, String algorithmReg, long version, LocalDateTime watermark)
+            throws IOException {
+        return new Writer(target, algorithmReg, version, watermark);
+    }
+
+    public String algorithmReg() {
+        return algorithmReg;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public LocalDateTime watermark() {
+        return watermark;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Streams every row from the mapped file. Each vector is a fresh array the
+     * consumer may keep.
+     */
+    public void forEach(HnswIndex.EntryConsumer consumer) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long rowBytes = rowBytes(dimension);
+        int rowsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / rowBytes);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int first = 0; first < count; first += rowsPerSegment) {
+                int rows = Math.min(rowsPerSegment, count - first);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        headerSize + first * rowBytes, rows * rowBytes);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                for (int row = 0; row < rows; row++) {
+                    int offset = (int) (row * rowBytes);
+                    long featureId = segment.getLong(offset);
+                    long userId = segment.getLong(offset + Long.BYTES);
+                    float[] vector = new float[dimension];
+                    segment.slice(offset + 2 * Long.BYTES, dimension * Float.BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asFloatBuffer()
+                            .get(vector);
+                    consumer.accept(featureId, userId, vector);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the rows for lookups by featureId, e.g. to re-rank a quantized gallery
+     * without its float vectors on heap. Only a sorted id index (12 bytes per row)
+     * lives on heap; the mapping stays valid after the file is replaced.
+     */
+    public Rows rows() throws IOException {
+        long rowBytes = rowBytes(dimension);
+        int rowsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / rowBytes);
+        ByteBuffer[] segments = new ByteBuffer[(int) ((count + (long) rowsPerSegment - 1) / rowsPerSegment)];
+        long[] rowIds = new long[count];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < segments.length; i++) {
+                int first = i * rowsPerSegment;
+                int rows = Math.min(rowsPerSegment, count - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * rowBytes,
+                        rows * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+                for (int row = 0; row < rows; row++) {
+                    rowIds[first + row] = segments[i].getLong((int) (row * rowBytes));
+                }
+            }
+        }
+        long[] ids = rowIds.clone();
+        Arrays.sort(ids);
+        int[] rowNumbers = new int[count];
+        for (int row = 0; row < count; row++) {
+            rowNumbers[Arrays.binarySearch(ids, rowIds[row])] = row;
+        }
+        return new Rows(segments, rowsPerSegment, rowBytes, dimension, ids, rowNumbers);
+    }
+
+    private void verify(FileChannel channel) throws IOException {
+        long rowsBytes = count * rowBytes(dimension);
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < rowsBytes; position += MAX_SEGMENT_BYTES) {
+            long length = Math.min(MAX_SEGMENT_BYTES, rowsBytes - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, headerSize + position, length));
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, trailer, headerSize + rowsBytes);
+        trailer.flip();
+        if (trailer.getLong() != crc.getValue()) {
+            throw new IOException("Checksum mismatch in face gallery snapshot: " + path);
+        }
+    }
+
+    private static long rowBytes(int dimension) {
+        return 2L * Long.BYTES + (long) dimension * Float.BYTES;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of face gallery snapshot");
+            }
+        }
+    }
+
+    /**
+     * Mapped snapshot rows, looked up by featureId. Safe for concurrent readers.
+     */
+    public static final class Rows {
+
+        private final ByteBuffer[] segments;
+        private final int rowsPerSegment;
+        private final long rowBytes;
+        private final int dimension;
+        private final long[] ids;
+        private final int[] rowNumbers;
+
+        private Rows(ByteBuffer[] segments, int rowsPerSegment, long rowBytes, int dimension, long[] ids,
+                     int[] rowNumbers) {
+            this.segments = segments;
+            this.rowsPerSegment = rowsPerSegment;
+            this.rowBytes = rowBytes;
+            this.dimension = dimension;
+            this.ids = ids;
+            this.rowNumbers = rowNumbers;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public boolean contains(long featureId) {
+            return Arrays.binarySearch(ids, featureId) >= 0;
+        }
+
+        /**
+         * A fresh copy of the row's vector, or null when the snapshot has no such row.
+         */
+        public float[] vector(long featureId) {
+            int index = Arrays.binarySearch(ids, featureId);
+            if (index < 0) {
+                return null;
+            }
+            int row = rowNumbers[index];
+            int offset = (int) ((row % rowsPerSegment) * rowBytes) + 2 * Long.BYTES;
+            float[] vector = new float[dimension];
+            // Absolute slice: never moves the shared buffer's position
+            segments[row / rowsPerSegment].slice(offset, dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .get(vector);
+            return vector;
+        }
+    }
+
+    /**
+     * Writes to a temporary sibling file and atomically replaces the target on
+     * {@link #commit()}; closing without committing discards the partial file.
+     */
+    public static final class Writer implements Closeable {
+
+        private static final int BUFFER_BYTES = 1 << 16;
+
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ByteBuffer header;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private int dimension = -1;
+        private int count;
+        private boolean committed;
+
+        private Writer(Path target, String algorithmReg, long version, LocalDateTime watermark) throws IOException {
+            byte[] name = algorithmReg.getBytes(StandardCharsets.UTF_8);
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.header = ByteBuffer.allocate(FIXED_HEADER + name.length).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT)
+                    .putLong(version)
+                    .putLong(watermark.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(watermark.getNano())
+                    .putInt(0)
+                    .putInt(0)
+                    .putShort((short) name.length)
+                    .put(name);
+            // Placeholder header; dimension and count are patched in on commit
+            channel.position(header.capacity());
+        }
+
+        /**
+         * Appends one row; rows whose dimension differs from the first are skipped.
+         */
+        public void append(long featureId, long userId, float[] vector) {
+            if (dimension < 0) {
+                dimension = vector.length;
+            } else if (vector.length != dimension) {
+                return;
+            }
+            try {
+                if (buffer.remaining() < rowBytes(dimension)) {
+                    flush();
+                }
+                if (buffer.remaining() < rowBytes(dimension)) {
+                    writeLargeRow(featureId, userId, vector);
+                } else {
+                    buffer.putLong(featureId).putLong(userId);
+                    for (float value : vector) {
+                        buffer.putFloat(value);
+                    }
+                }
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public void commit() throws IOException {
+            flush();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN).putLong(crc.getValue());
+            trailer.flip();
+            writeFully(trailer, channel.position());
+
+            header.putInt(28, Math.max(dimension, 0)).putInt(32, count);
+            header.rewind();
+            writeFully(header, 0);
+            channel.force(true);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void writeLargeRow(long featureId, long userId, float[] vector) throws IOException {
+            ByteBuffer row = ByteBuffer.allocate((int) rowBytes(vector.length)).order(ByteOrder.LITTLE_ENDIAN);
+            row.putLong(featureId).putLong(userId);
+            row.asFloatBuffer().put(vector);
+            row.position(row.capacity()).flip();
+            crc.update(row.duplicate());
+            writeFully(row, channel.position());
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully(buffer, channel.position());
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer source, long position) throws IOException {
+            long offset = position;
+            while (source.hasRemaining()) {
+                offset += channel.write(source, offset);
+            }
+            if (position != 0) {
+                channel.position(offset);
+            }
+        }
+    }
+}
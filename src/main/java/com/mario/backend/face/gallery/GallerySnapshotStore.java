@@ -0,0 +1,133 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.service.MinioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Where gallery snapshots live. Files are always written to and mapped from
+ * the local snapshot directory; with {@code store: minio} they are also
+ * uploaded after each write and downloaded at boot, so a fresh node can start
+ * from a peer's snapshot.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GallerySnapshotStore {
+
+    private static final String OBJECT_PREFIX = "gallery-snapshots/";
+    private static final String SUFFIX = ".fgs";
+
+    private final FaceRecognitionProperties properties;
+    private final MinioService minioService;
+
+    /**
+     * Source of snapshot rows, fed to a {@link GallerySnapshot.Writer}.
+     */
+    @FunctionalInterface
+    public interface RowSource {
+        void writeTo(GallerySnapshot.Writer writer) throws IOException;
+    }
+
+    public boolean isEnabled() {
+        return snapshot().isEnabled();
+    }
+
+    /**
+     * Returns the latest valid snapshot for the algorithm, or empty when there is
+     * none or it can't be read (the caller then loads from MySQL).
+     */
+    public Optional<GallerySnapshot> open(String algorithmReg) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Path path = path(algorithmReg);
+        if (snapshot().getStore() == FaceRecognitionProperties.SnapshotStore.MINIO) {
+            download(algorithmReg, path);
+        }
+        return openLocal(algorithmReg);
+    }
+
+    /**
+     * Like {@link #open} but never downloads: the file this node wrote or last downloaded.
+     */
+    public Optional<GallerySnapshot> openLocal(String algorithmReg) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Path path = path(algorithmReg);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(GallerySnapshot.open(path, algorithmReg));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable face gallery snapshot {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes a snapshot atomically, then publishes it to MinIO if configured.
+     * Returns the number of rows written.
+     */
+    public int save(String algorithmReg, long version, LocalDateTime watermark, RowSource rows) throws IOException {
+        Path path = path(algorithmReg);
+        int written;
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(path, algorithmReg, version, watermark)) {
+            rows.writeTo(writer);
+            writer.commit();
+            written = writer.size();
+        }
+        if (snapshot().getStore() == FaceRecognitionProperties.SnapshotStore.MINIO) {
+            try (InputStream in = Files.newInputStream(path)) {
+                minioService.putObject(objectName(algorithmReg), in, Files.size(path), "application/octet-stream");
+            }
+        }
+        return written;
+    }
+
+    private void download(String algorithmReg, Path path) {
+        Path temp = path.resolveSibling(path.getFileName() + ".download");
+        try (InputStream in = minioService.openObject(objectName(algorithmReg))) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // No published snapshot yet, or MinIO is down: fall back to any local copy
+            log.info("No face gallery snapshot downloaded for {}: {}", algorithmReg, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+        }
+    }
+
+    private Path path(String algorithmReg) {
+        return Paths.get(snapshot().getDir()).resolve(fileName(algorithmReg));
+    }
+
+    private static String objectName(String algorithmReg) {
+        return OBJECT_PREFIX + fileName(algorithmReg);
+    }
+
+    private static String fileName(String algorithmReg) {
+        return algorithmReg.replaceAll("[^A-Za-z0-9_.-]", "_") + SUFFIX;
+    }
+
+    private FaceRecognitionProperties.Snapshot snapshot() {
+        return properties.getGallery().getSnapshot();
+    }
+}
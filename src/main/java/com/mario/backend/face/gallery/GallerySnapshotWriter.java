@@ -0,0 +1,124 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.repository.FaceEmbeddingView;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically re-writes the snapshot of every loaded gallery that changed
+ * since its last snapshot. Full-precision galleries are dumped from memory;
+ * quantized ones no longer hold float vectors, so they are read from MySQL.
+ * With a shared MinIO store a Redis lease keeps it to one writer per interval;
+ * a node that loses the lease keeps the faces added since its own snapshot on
+ * heap for its quantized galleries until it next wins it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GallerySnapshotWriter {
+
+    private static final String LOCK_KEY_PREFIX = "face:gallery:snapshot:lock:";
+
+    private final FaceGalleryCache faceGalleryCache;
+    private final GallerySnapshotStore snapshotStore;
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceRecognitionProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Long> writtenVersions = new ConcurrentHashMap<>();
+
+    @Scheduled(initialDelayString = "${face-recognition.gallery.snapshot.interval-ms:600000}",
+            fixedDelayString = "${face-recognition.gallery.snapshot.interval-ms:600000}")
+    public void writeSnapshots() {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+        for (FaceGallery gallery : faceGalleryCache.loaded()) {
+            Long written = writtenVersions.get(gallery.getAlgorithmReg());
+            if (written != null && written == gallery.version()) {
+                continue;
+            }
+            if (!acquireLease(gallery.getAlgorithmReg())) {
+                continue;
+            }
+            try {
+                write(gallery);
+            } catch (Exception e) {
+                log.warn("Failed to write face gallery snapshot for {}: {}", gallery.getAlgorithmReg(), e.getMessage());
+            }
+        }
+    }
+
+    void write(FaceGallery gallery) throws IOException {
+        long start = System.nanoTime();
+        // Read both before dumping: rows changed meanwhile are newer than the watermark and get replayed
+        long version = gallery.version();
+        LocalDateTime watermark = gallery.watermark();
+        String algorithmReg = gallery.getAlgorithmReg();
+
+        int rows = snapshotStore.save(algorithmReg, version, watermark, writer -> {
+            if (gallery.isQuantized()) {
+                for (FaceEmbeddingView row : faceFeatureRepository
+                        .findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, algorithmReg)) {
+                    float[] vector = decode(row);
+                    if (vector != null) {
+                        writer.append(row.getId(), row.getUserId(), vector);
+                    }
+                }
+            } else {
+                gallery.forEach(writer::append);
+            }
+        });
+        writtenVersions.put(algorithmReg, version);
+        // A quantized gallery re-ranks from the newer file and frees the faces it covers
+        faceGalleryCache.onSnapshotWritten(gallery);
+
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("face.gallery.snapshot.write", "algorithm", algorithmReg)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Wrote face gallery snapshot for {} at version {}: {} rows in {}ms",
+                algorithmReg, version, rows, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private boolean acquireLease(String algorithmReg) {
+        if (properties.getGallery().getSnapshot().getStore() != FaceRecognitionProperties.SnapshotStore.MINIO) {
+            return true;
+        }
+        try {
+            // Held for most of an interval and never released, so peers skip this round
+            Duration lease = Duration.ofMillis(properties.getGallery().getSnapshot().getIntervalMs() / 2);
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY_PREFIX + algorithmReg, "1", lease));
+        } catch (Exception e) {
+            log.warn("Failed to acquire face gallery snapshot lease for {}: {}", algorithmReg, e.getMessage());
+            return false;
+        }
+    }
+
+    private static float[] decode(FaceEmbeddingView row) {
+        try {
+            return row.getFeatureEmbedding() != null
+                    ? EmbeddingCodec.decode(row.getFeatureEmbedding())
+                    : EmbeddingCodec.decode(row.getFeatureVector());
+        } catch (IllegalArgumentException e) {
+            log.warn("Undecodable feature vector for faceFeatureId={}: {}", row.getId(), e.getMessage());
+            return null;
+        }
+    }
+}
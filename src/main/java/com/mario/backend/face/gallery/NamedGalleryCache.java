@@ -0,0 +1,123 @@
+package com.mario.backend.face.gallery;
+
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.repository.NamedGalleryMemberRepository;
+import com.mario.backend.face.repository.NamedGalleryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Member user ids of named galleries, loaded on first use and patched in place
+ * on membership changes. Peers follow the same Redis version-counter protocol
+ * as {@link FaceGalleryCache}, except that a stale member set is simply
+ * reloaded: galleries hold thousands of users, not millions.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NamedGalleryCache {
+
+    private static final String VERSION_KEY_PREFIX = "face:named-gallery:version:";
+
+    private final NamedGalleryRepository galleryRepository;
+    private final NamedGalleryMemberRepository memberRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    private final ConcurrentMap<Long, Members> members = new ConcurrentHashMap<>();
+
+    private record Members(long version, Set<Long> userIds) {
+    }
+
+    /**
+     * Throws {@link ErrorCode#FACE_GALLERY_NOT_FOUND} for an unknown gallery.
+     */
+    public Set<Long> members(Long galleryId) {
+        return members.computeIfAbsent(galleryId, this::load).userIds();
+    }
+
+    public void onMembersAdded(Long galleryId, Collection<Long> userIds) {
+        members.computeIfPresent(galleryId, (id, current) -> {
+            Set<Long> updated = new HashSet<>(current.userIds());
+            updated.addAll(userIds);
+            return new Members(current.version(), Set.copyOf(updated));
+        });
+        publishChange(galleryId);
+    }
+
+    public void onMembersRemoved(Long galleryId, Collection<Long> userIds) {
+        members.computeIfPresent(galleryId, (id, current) -> {
+            Set<Long> updated = new HashSet<>(current.userIds());
+            updated.removeAll(userIds);
+            return new Members(current.version(), Set.copyOf(updated));
+        });
+        publishChange(galleryId);
+    }
+
+    public void onDeleted(Long galleryId) {
+        members.remove(galleryId);
+        publishChange(galleryId);
+    }
+
+    @Scheduled(fixedDelayString = "${face-recognition.gallery.sync-interval-ms:1000}")
+    public void syncWithPeers() {
+        for (Long galleryId : members.keySet()) {
+            Members current = members.get(galleryId);
+            if (current == null || readVersion(galleryId) <= current.version()) {
+                continue;
+            }
+            try {
+                members.put(galleryId, load(galleryId));
+            } catch (ApiException e) {
+                // Deleted on another node
+                members.remove(galleryId);
+            } catch (Exception e) {
+                log.warn("Named gallery {} member sync failed: {}", galleryId, e.getMessage());
+            }
+        }
+    }
+
+    private Members load(Long galleryId) {
+        // Version first, so a change racing with the load is picked up by the next sync
+        long version = readVersion(galleryId);
+        if (!galleryRepository.existsById(galleryId)) {
+            throw new ApiException(ErrorCode.FACE_GALLERY_NOT_FOUND);
+        }
+        Set<Long> userIds = Set.copyOf(memberRepository.findUserIdsByGalleryId(galleryId));
+        log.debug("Loaded named gallery {} at version {}: {} members", galleryId, version, userIds.size());
+        return new Members(version, userIds);
+    }
+
+    private void publishChange(Long galleryId) {
+        try {
+            Long newVersion = redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + galleryId);
+            // Fast-forward only when no peer change slipped in between; otherwise let sync reload
+            if (newVersion != null) {
+                members.computeIfPresent(galleryId, (id, current) -> current.version() == newVersion - 1
+                        ? new Members(newVersion, current.userIds())
+                        : current);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to publish named gallery version for {}: {}", galleryId, e.getMessage());
+        }
+    }
+
+    private long readVersion(Long galleryId) {
+        try {
+            String value = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + galleryId);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("Failed to read named gallery version for {}: {}", galleryId, e.getMessage());
+            return 0L;
+        }
+    }
+}
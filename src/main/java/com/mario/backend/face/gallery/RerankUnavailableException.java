@@ -0,0 +1,13 @@
+package com.mario.backend.face.gallery;
+
+/**
+ * A quantized search could not load the full-precision vectors of its candidates.
+ * The estimated distances are never returned in their place: they are not
+ * comparable with the exact-L2 match threshold.
+ */
+public class RerankUnavailableException extends IllegalStateException {
+
+    public RerankUnavailableException(String algorithmReg, Throwable cause) {
+        super("Face gallery " + algorithmReg + " could not re-rank its candidates: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mario.backend.face.gallery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-precision vectors of a quantized gallery, read from its memory-mapped
+ * snapshot so re-ranking needs neither the float vectors on heap nor MySQL.
+ * Faces added after the snapshot are held on heap until a newer snapshot is
+ * mapped with {@link #rebase}.
+ */
+final class SnapshotVectors implements FaceGallery.FullPrecisionSource {
+
+    private final String algorithmReg;
+    private final MeterRegistry meterRegistry;
+    private volatile GallerySnapshot.Rows mapped;
+    private final ConcurrentMap<Long, float[]> changed = new ConcurrentHashMap<>();
+
+    SnapshotVectors(String algorithmReg, MeterRegistry meterRegistry) {
+        this.algorithmReg = algorithmReg;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Map<Long, float[]> load(Collection<Long> featureIds) {
+        long start = System.nanoTime();
+        GallerySnapshot.Rows rows = mapped;
+        Map<Long, float[]> vectors = new HashMap<>();
+        for (Long featureId : featureIds) {
+            float[] vector = changed.get(featureId);
+            if (vector == null && rows != null) {
+                vector = rows.vector(featureId);
+            }
+            if (vector != null) {
+                vectors.put(featureId, vector);
+            }
+        }
+        meterRegistry.timer("face.gallery.rerank.load", "algorithm", algorithmReg, "source", "snapshot")
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (vectors.size() < featureIds.size()) {
+            meterRegistry.counter("face.gallery.rerank", "algorithm", algorithmReg, "outcome", "missing")
+                    .increment(featureIds.size() - vectors.size());
+        }
+        return vectors;
+    }
+
+    /**
+     * Keeps the vector unless the mapped snapshot already has the row; a feature's vector never changes.
+     */
+    void onAdded(long featureId, float[] vector) {
+        GallerySnapshot.Rows rows = mapped;
+        if (rows == null || !rows.contains(featureId)) {
+            changed.put(featureId, vector);
+        }
+    }
+
+    void onRemoved(long featureId) {
+        changed.remove(featureId);
+    }
+
+    /**
+     * Switches to a newer snapshot and drops the held vectors it covers.
+     */
+    void rebase(GallerySnapshot.Rows rows) {
+        mapped = rows;
+        changed.keySet().removeIf(rows::contains);
+    }
+
+    int heldOnHeap() {
+        return changed.size();
+    }
+}
@@ -0,0 +1,91 @@
+package com.mario.backend.face.image;
+
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed storage for face images. The object key is the SHA-256 of the
+ * image bytes, so every {@code face_images} row for the same bytes points at one
+ * MinIO object and those rows are its reference count: storing an image that is
+ * already referenced is a metadata lookup instead of an upload.
+ * <p>
+ * The rows are only written once registration commits, so two registrations of
+ * the same bytes in flight at once both upload the same key. A registration that
+ * fails therefore never deletes its upload: the other may be about to reference
+ * it. Unreferenced objects are left to {@link FaceImageSweeper}.
+ * <p>
+ * The key is deliberately not the SHA-1 used for request dedupe: an upload is
+ * skipped whenever the key is already referenced, so a crafted SHA-1 collision
+ * would make another user's registration point at the attacker's image.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceImageStore {
+
+    static final String PREFIX = "images/";
+
+    private final MinioService minioService;
+    private final FaceImageRepository faceImageRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * {@code images/ab/abcdef....jpg}: the two-character fan-out keeps listings of one prefix small.
+     */
+    public static String objectName(String contentHash) {
+        return PREFIX + contentHash.substring(0, 2) + "/" + contentHash + ".jpg";
+    }
+
+    /**
+     * Hex SHA-256 of the raw image bytes, streamed from the shared buffer.
+     */
+    public static String contentHash(ImagePayload image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+        try (InputStream in = image.openStream();
+             OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Stores the image unless a registered face already references the same bytes.
+     *
+     * @return the object key to record on the {@code face_images} row
+     */
+    public String store(ImagePayload image) {
+        String objectName = objectName(contentHash(image));
+        if (faceImageRepository.existsByObjectName(objectName)) {
+            meterRegistry.counter("face.image.storage", "result", "deduplicated").increment();
+            log.debug("Image {} already stored, not uploading again", objectName);
+            return objectName;
+        }
+        minioService.uploadImage(objectName, image);
+        meterRegistry.counter("face.image.storage", "result", "uploaded").increment();
+        return objectName;
+    }
+
+    public String getBucketName() {
+        return minioService.getBucketName();
+    }
+}
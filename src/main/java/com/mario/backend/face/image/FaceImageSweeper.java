@@ -0,0 +1,88 @@
+package com.mario.backend.face.image;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Deletes stored face images that no {@code face_images} row references, i.e.
+ * uploads of registrations that failed or were rejected after storing.
+ * <p>
+ * An object is only deleted once it is older than the grace period, which is far
+ * longer than any registration runs, so a registration that uploaded it has by
+ * then committed or given up. Storing the same bytes again re-uploads the object
+ * and refreshes its last-modified time; that time is read again after the
+ * reference check, right before deleting. A Redis lease keeps it to one sweeping
+ * node per interval.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceImageSweeper {
+
+    private static final String LOCK_KEY = "face:image:sweep:lock";
+
+    private final MinioService minioService;
+    private final FaceImageRepository faceImageRepository;
+    private final FaceRecognitionProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(initialDelayString = "${face-recognition.image.orphan-sweep-interval-ms:3600000}",
+            fixedDelayString = "${face-recognition.image.orphan-sweep-interval-ms:3600000}")
+    public void sweep() {
+        if (!acquireLease()) {
+            return;
+        }
+        try {
+            int deleted = sweep(Instant.now().minus(properties.getImage().getOrphanGracePeriod()));
+            if (deleted > 0) {
+                log.info("Deleted {} unreferenced face images", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sweep unreferenced face images: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes unreferenced images last modified before {@code cutoff}; returns how many.
+     */
+    public int sweep(Instant cutoff) {
+        int[] deleted = {0};
+        minioService.listObjects(FaceImageStore.PREFIX, (objectName, lastModified) -> {
+            if (!lastModified.isBefore(cutoff) || faceImageRepository.existsByObjectName(objectName)) {
+                return;
+            }
+            Instant current = minioService.lastModified(objectName);
+            if (current == null || !current.isBefore(cutoff)) {
+                return;
+            }
+            minioService.deleteImage(objectName);
+            deleted[0]++;
+        });
+        if (deleted[0] > 0) {
+            meterRegistry.counter("face.image.storage", "result", "swept").increment(deleted[0]);
+        }
+        return deleted[0];
+    }
+
+    private boolean acquireLease() {
+        try {
+            // Held for most of an interval and never released, so peers skip this round
+            Duration lease = Duration.ofMillis(properties.getImage().getOrphanSweepIntervalMs() / 2);
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "1", lease));
+        } catch (Exception e) {
+            log.warn("Failed to acquire face image sweep lease: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.mario.backend.face.image;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * One decoded copy of an uploaded face image.
+ * <p>
+ * Hashing, the face-ai request and the MinIO upload all read from this buffer:
+ * the base64 text face-ai expects is produced on the fly while the request body
+ * is written ({@link Base64Serializer}), never materialised as a String.
+ */
+@JsonSerialize(using = ImagePayload.Base64Serializer.class)
+public final class ImagePayload {
+
+    private final byte[] bytes;
+
+    private ImagePayload(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Wraps raw image bytes (multipart / binary upload) without copying them.
+     */
+    public static ImagePayload of(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Image is empty");
+        }
+        return new ImagePayload(bytes);
+    }
+
+    /**
+     * Decodes standard base64 straight from the String's characters into a
+     * right-sized array, skipping the intermediate byte[] {@code Base64.Decoder.decode(String)} makes.
+     */
+    public static ImagePayload fromBase64(String base64) {
+        if (base64 == null || base64.isEmpty()) {
+            throw new IllegalArgumentException("Image is empty");
+        }
+        int length = base64.length();
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Image is not valid base64");
+        }
+        int padding = base64.endsWith("==") ? 2 : base64.endsWith("=") ? 1 : 0;
+        byte[] bytes = new byte[length / 4 * 3 - padding];
+        try (InputStream in = Base64.getDecoder().wrap(new AsciiInputStream(base64))) {
+            int offset = 0;
+            int n;
+            while (offset < bytes.length && (n = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                offset += n;
+            }
+            if (offset != bytes.length || in.read() != -1) {
+                throw new IllegalArgumentException("Image is not valid base64");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Image is not valid base64", e);
+        }
+        return of(bytes);
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * A fresh stream over the shared buffer; safe to call once per retry.
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Writes the standard base64 text of the image to {@code out} without closing it.
+     */
+    public void writeBase64(OutputStream out) throws IOException {
+        OutputStream encoder = Base64.getEncoder().wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+        encoder.write(bytes);
+        // Closing the encoder emits the final quantum and padding
+        encoder.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ImagePayload[" + bytes.length + " bytes]";
+    }
+
+    /**
+     * Serialises as a base64 JSON string, encoding straight into the generator's buffer.
+     */
+    public static final class Base64Serializer extends StdSerializer<ImagePayload> {
+
+        public Base64Serializer() {
+            super(ImagePayload.class);
+        }
+
+        @Override
+        public void serialize(ImagePayload value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeBinary(value.openStream(), value.size());
+        }
+    }
+
+    /**
+     * Reads the chars of a base64 String as bytes; non-ASCII chars map to an invalid byte.
+     */
+    private static final class AsciiInputStream extends InputStream {
+
+        private final String source;
+        private int position;
+
+        AsciiInputStream(String source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            if (position >= source.length()) {
+                return -1;
+            }
+            char c = source.charAt(position++);
+            return c < 0x80 ? c : '?';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= source.length()) {
+                return -1;
+            }
+            int n = Math.min(len, source.length() - position);
+            for (int i = 0; i < n; i++) {
+                char c = source.charAt(position++);
+                b[off + i] = (byte) (c < 0x80 ? c : '?');
+            }
+            return n;
+        }
+    }
+}
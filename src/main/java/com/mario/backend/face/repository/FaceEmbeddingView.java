@@ -0,0 +1,22 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.FaceFeature;
+
+/**
+ * Lightweight projection of {@code face_features} used to build and sync face galleries.
+ */
+public interface FaceEmbeddingView {
+
+    Long getId();
+
+    Long getUserId();
+
+    FaceFeature.FaceStatus getStatus();
+
+    byte[] getFeatureEmbedding();
+
+    /**
+     * Only populated when {@link #getFeatureEmbedding()} is null.
+     */
+    String getFeatureVector();
+}
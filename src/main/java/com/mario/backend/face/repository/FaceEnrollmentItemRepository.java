@@ -0,0 +1,18 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FaceEnrollmentItemRepository extends JpaRepository<FaceEnrollmentItem, Long> {
+
+    @Query("SELECT i.seq FROM FaceEnrollmentItem i WHERE i.jobId = :jobId")
+    List<Integer> findSeqsByJobId(@Param("jobId") Long jobId);
+
+    List<FaceEnrollmentItem> findTop50ByJobIdAndStatusOrderBySeq(Long jobId, FaceEnrollmentItem.ItemStatus status);
+}
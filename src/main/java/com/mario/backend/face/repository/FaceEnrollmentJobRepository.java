@@ -0,0 +1,55 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FaceEnrollmentJobRepository extends JpaRepository<FaceEnrollmentJob, Long> {
+
+    List<FaceEnrollmentJob> findByStatusInAndUpdatedAtBefore(Collection<FaceEnrollmentJob.JobStatus> statuses,
+                                                             LocalDateTime before);
+
+    /**
+     * Takes ownership of a job only if nobody touched it since {@code seen}; returns 0 when another node won.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FaceEnrollmentJob j SET j.status = :status, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.updatedAt = :seen")
+    int claim(@Param("id") Long id, @Param("status") FaceEnrollmentJob.JobStatus status,
+              @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+
+    /**
+     * This and the updates below return 0 if another node has re-claimed the job since
+     * this node's heartbeat {@code seen}.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FaceEnrollmentJob j SET j.updatedAt = :now WHERE j.id = :id AND j.updatedAt = :seen")
+    int heartbeat(@Param("id") Long id, @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE FaceEnrollmentJob j SET j.processed = j.processed + :enrolled + :duplicates + :failed, " +
+           "j.enrolled = j.enrolled + :enrolled, j.duplicates = j.duplicates + :duplicates, " +
+           "j.failed = j.failed + :failed, j.updatedAt = :now WHERE j.id = :id AND j.updatedAt = :seen")
+    int addProgress(@Param("id") Long id, @Param("enrolled") int enrolled, @Param("duplicates") int duplicates,
+                    @Param("failed") int failed, @Param("seen") LocalDateTime seen,
+                    @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FaceEnrollmentJob j SET j.status = :status, j.total = :total, j.errorMessage = :error, " +
+           "j.completedAt = :now, j.updatedAt = :now WHERE j.id = :id AND j.updatedAt = :seen")
+    int finish(@Param("id") Long id, @Param("status") FaceEnrollmentJob.JobStatus status,
+               @Param("total") Integer total, @Param("error") String error, @Param("seen") LocalDateTime seen,
+               @Param("now") LocalDateTime now);
+}
@@ -1,20 +1,76 @@
 package com.mario.backend.face.repository;
 
 import com.mario.backend.face.entity.FaceFeature;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface FaceFeatureRepository extends JpaRepository<FaceFeature, Long> {
 
-    Optional<FaceFeature> findByUserIdAndStatus(Long userId, FaceFeature.FaceStatus status);
+    List<FaceFeature> findAllByUserIdAndStatus(Long userId, FaceFeature.FaceStatus status);
+
+    /**
+     * A user's faces of one algorithm, newest first; one per enrolled image.
+     */
+    List<FaceFeature> findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(Long userId, FaceFeature.FaceStatus status,
+                                                                       String algorithmReg, Pageable page);
 
     boolean existsByUserIdAndStatus(Long userId, FaceFeature.FaceStatus status);
 
     List<FaceFeature> findAllByStatusAndAlgorithmReg(FaceFeature.FaceStatus status, String algorithmReg);
 
+    long countByStatusAndAlgorithmReg(FaceFeature.FaceStatus status, String algorithmReg);
+
+    /**
+     * One re-embedding page: features after the checkpoint, in id order.
+     */
+    List<FaceFeature> findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(FaceFeature.FaceStatus status,
+                                                                            String algorithmReg, Long afterId,
+                                                                            Pageable page);
+
+    /**
+     * Which of the images already have a feature of the algorithm, i.e. were re-embedded.
+     */
+    @Query("SELECT f.faceImageId FROM FaceFeature f " +
+           "WHERE f.status = :status AND f.algorithmReg = :algorithmReg AND f.faceImageId IN :faceImageIds")
+    List<Long> findFaceImageIdsWithFeature(@Param("status") FaceFeature.FaceStatus status,
+                                           @Param("algorithmReg") String algorithmReg,
+                                           @Param("faceImageIds") Collection<Long> faceImageIds);
+
+    /**
+     * Loads only what the search index needs. The TEXT encoding is fetched
+     * only for rows whose packed embedding has not been backfilled yet.
+     */
+    @Query("SELECT f.id AS id, f.userId AS userId, f.status AS status, f.featureEmbedding AS featureEmbedding, "
+            + "CASE WHEN f.featureEmbedding IS NULL THEN f.featureVector END AS featureVector "
+            + "FROM FaceFeature f WHERE f.status = :status AND f.algorithmReg = :algorithmReg")
+    List<FaceEmbeddingView> findEmbeddingsByStatusAndAlgorithmReg(@Param("status") FaceFeature.FaceStatus status,
+                                                                  @Param("algorithmReg") String algorithmReg);
+
+    /**
+     * Rows of any status touched since {@code since}, for incremental gallery replay.
+     */
+    @Query("SELECT f.id AS id, f.userId AS userId, f.status AS status, f.featureEmbedding AS featureEmbedding, "
+            + "CASE WHEN f.featureEmbedding IS NULL THEN f.featureVector END AS featureVector "
+            + "FROM FaceFeature f WHERE f.algorithmReg = :algorithmReg AND f.updatedAt >= :since "
+            + "ORDER BY f.updatedAt")
+    List<FaceEmbeddingView> findEmbeddingChangesSince(@Param("algorithmReg") String algorithmReg,
+                                                      @Param("since") LocalDateTime since);
+
+    /**
+     * Full-precision vectors for re-ranking quantized search candidates.
+     */
+    @Query("SELECT f.id AS id, f.userId AS userId, f.status AS status, f.featureEmbedding AS featureEmbedding, "
+            + "CASE WHEN f.featureEmbedding IS NULL THEN f.featureVector END AS featureVector "
+            + "FROM FaceFeature f WHERE f.id IN :ids")
+    List<FaceEmbeddingView> findEmbeddingsByIdIn(@Param("ids") Collection<Long> ids);
+
     void deleteByUserId(Long userId);
 }
@@ -4,6 +4,7 @@ import com.mario.backend.face.entity.FaceImage;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,7 +12,11 @@ public interface FaceImageRepository extends JpaRepository<FaceImage, Long> {
 
     List<FaceImage> findByUserId(Long userId);
 
+    List<FaceImage> findByUserIdIn(Collection<Long> userIds);
+
     boolean existsByUserIdAndImageHash(Long userId, String imageHash);
 
+    boolean existsByObjectName(String objectName);
+
     void deleteByUserId(Long userId);
 }
@@ -0,0 +1,58 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.FaceReembeddingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FaceReembeddingJobRepository extends JpaRepository<FaceReembeddingJob, Long> {
+
+    List<FaceReembeddingJob> findByStatusInAndUpdatedAtBefore(Collection<FaceReembeddingJob.JobStatus> statuses,
+                                                              LocalDateTime before);
+
+    boolean existsByTargetAlgorithmAndStatusIn(String targetAlgorithm,
+                                               Collection<FaceReembeddingJob.JobStatus> statuses);
+
+    /**
+     * Takes ownership of a job only if nobody touched it since {@code seen}; returns 0 when another node won.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FaceReembeddingJob j SET j.status = :status, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.updatedAt = :seen")
+    int claim(@Param("id") Long id, @Param("status") FaceReembeddingJob.JobStatus status,
+              @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+
+    /**
+     * Advances the checkpoint; returns 0 if another run already moved it past {@code afterId}
+     * or re-claimed the job since this node's heartbeat {@code seen}.
+     */
+    @Modifying
+    @Query("UPDATE FaceReembeddingJob j SET j.lastFeatureId = :lastFeatureId, " +
+           "j.processed = j.processed + :reembedded + :skipped + :failed, " +
+           "j.reembedded = j.reembedded + :reembedded, j.skipped = j.skipped + :skipped, " +
+           "j.failed = j.failed + :failed, j.activeMillis = j.activeMillis + :elapsedMillis, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.lastFeatureId = :afterId AND j.updatedAt = :seen")
+    int checkpoint(@Param("id") Long id, @Param("afterId") long afterId, @Param("lastFeatureId") long lastFeatureId,
+                   @Param("reembedded") int reembedded, @Param("skipped") int skipped, @Param("failed") int failed,
+                   @Param("elapsedMillis") long elapsedMillis, @Param("seen") LocalDateTime seen,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Returns 0 if another node has re-claimed the job since this node's heartbeat {@code seen}.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FaceReembeddingJob j SET j.status = :status, j.errorMessage = :error, " +
+           "j.completedAt = :now, j.updatedAt = :now WHERE j.id = :id AND j.updatedAt = :seen")
+    int finish(@Param("id") Long id, @Param("status") FaceReembeddingJob.JobStatus status,
+               @Param("error") String error, @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,32 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.NamedGalleryMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NamedGalleryMemberRepository extends JpaRepository<NamedGalleryMember, Long> {
+
+    @Query("SELECT m.userId FROM NamedGalleryMember m WHERE m.galleryId = :galleryId")
+    List<Long> findUserIdsByGalleryId(@Param("galleryId") Long galleryId);
+
+    @Query("SELECT m.userId FROM NamedGalleryMember m WHERE m.galleryId = :galleryId AND m.userId IN :userIds")
+    List<Long> findUserIdsByGalleryIdAndUserIdIn(@Param("galleryId") Long galleryId,
+                                                 @Param("userIds") Collection<Long> userIds);
+
+    long countByGalleryId(Long galleryId);
+
+    @Modifying
+    @Query("DELETE FROM NamedGalleryMember m WHERE m.galleryId = :galleryId AND m.userId IN :userIds")
+    int deleteByGalleryIdAndUserIdIn(@Param("galleryId") Long galleryId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM NamedGalleryMember m WHERE m.galleryId = :galleryId")
+    int deleteByGalleryId(@Param("galleryId") Long galleryId);
+}
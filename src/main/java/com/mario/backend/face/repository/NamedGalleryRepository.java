@@ -0,0 +1,11 @@
+package com.mario.backend.face.repository;
+
+import com.mario.backend.face.entity.NamedGallery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NamedGalleryRepository extends JpaRepository<NamedGallery, Long> {
+
+    boolean existsByName(String name);
+}
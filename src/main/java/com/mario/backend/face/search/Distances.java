@@ -0,0 +1,56 @@
+package com.mario.backend.face.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the distance kernel once per JVM: SIMD when {@code jdk.incubator.vector}
+ * is loaded and the CPU has at least 128-bit float lanes, scalar otherwise.
+ * {@code -Dface.search.simd=false} forces the scalar kernel.
+ */
+@Slf4j
+public final class Distances {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final int MIN_LANES = 4;
+
+    private static final VectorDistance SCALAR = new ScalarVectorDistance();
+    private static final VectorDistance BEST = select();
+
+    private Distances() {}
+
+    public static VectorDistance get() {
+        return BEST;
+    }
+
+    public static VectorDistance scalar() {
+        return SCALAR;
+    }
+
+    public static boolean isSimd() {
+        return BEST != SCALAR;
+    }
+
+    private static VectorDistance select() {
+        if (!Boolean.parseBoolean(System.getProperty("face.search.simd", "true"))) {
+            log.info("Face distance kernel: scalar (disabled by face.search.simd=false)");
+            return SCALAR;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("Face distance kernel: scalar ({} not loaded, start with --add-modules {})",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return SCALAR;
+        }
+        try {
+            int lanes = SimdVectorDistance.lanes();
+            if (lanes < MIN_LANES) {
+                log.info("Face distance kernel: scalar (only {} float lanes)", lanes);
+                return SCALAR;
+            }
+            log.info("Face distance kernel: SIMD, {} float lanes", lanes);
+            return new SimdVectorDistance();
+        } catch (LinkageError e) {
+            log.warn("Face distance kernel: scalar (Vector API unusable: {})", e.toString());
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.mario.backend.face.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Base64;
+
+/**
+ * Converts face-ai encodings to and from {@code float[]} and the packed
+ * {@code face_features.feature_embedding} BLOB.
+ * <p>
+ * face-ai returns embeddings as base64 of packed little-endian float32
+ * (numpy {@code tobytes()}), so the BLOB is simply the base64-decoded bytes.
+ * Plain numeric lists ({@code [0.1, 0.2]} or {@code 0.1,0.2}) are accepted
+ * as a fallback for older rows.
+ */
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {}
+
+    public static float[] decode(String encoding) {
+        return decode(toBytes(encoding));
+    }
+
+    /**
+     * Copies a packed embedding into a new {@code float[]} with a single bulk transfer.
+     */
+    public static float[] decode(byte[] packed) {
+        FloatBuffer view = asFloatBuffer(packed);
+        float[] vector = new float[view.remaining()];
+        view.get(vector);
+        return vector;
+    }
+
+    /**
+     * Zero-copy little-endian view over a packed embedding.
+     */
+    public static FloatBuffer asFloatBuffer(byte[] packed) {
+        checkLength(packed);
+        return ByteBuffer.wrap(packed).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Converts a face-ai encoding string into the packed BLOB layout. Base64
+     * encodings are decoded straight to bytes without materialising floats.
+     */
+    public static byte[] toBytes(String encoding) {
+        if (encoding == null || encoding.isBlank()) {
+            throw new IllegalArgumentException("Encoding is empty");
+        }
+        String trimmed = encoding.trim();
+        byte[] packed = trimmed.startsWith("[") || trimmed.indexOf(',') >= 0
+                ? toBytes(parseNumberList(trimmed))
+                : Base64.getDecoder().decode(trimmed);
+        checkLength(packed);
+        return packed;
+    }
+
+    public static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static String encode(float[] vector) {
+        return Base64.getEncoder().encodeToString(toBytes(vector));
+    }
+
+    public static String encode(byte[] packed) {
+        return Base64.getEncoder().encodeToString(packed);
+    }
+
+    private static void checkLength(byte[] packed) {
+        if (packed == null || packed.length == 0 || packed.length % Float.BYTES != 0) {
+            int length = packed == null ? 0 : packed.length;
+            throw new IllegalArgumentException("Embedding length " + length + " is not a positive multiple of 4");
+        }
+    }
+
+    private static float[] parseNumberList(String text) {
+        String body = text;
+        if (body.startsWith("[") && body.endsWith("]")) {
+            body = body.substring(1, body.length() - 1);
+        }
+        String[] parts = body.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
+        }
+        return vector;
+    }
+}
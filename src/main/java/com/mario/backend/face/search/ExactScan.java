@@ -0,0 +1,143 @@
+package com.mario.backend.face.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exhaustive top-K search: every row is scored, either with the {@link VectorDistance}
+ * kernel or an arbitrary {@link RowDistance} (e.g. quantized codes). Ranges larger
+ * than {@code minChunk} rows are split fork/join style across the common pool and
+ * the per-chunk top-K heaps merged, so a scan uses all cores while small galleries
+ * stay on the calling thread.
+ */
+public final class ExactScan {
+
+    /**
+     * Read-only view of the rows to scan. {@link #vector(int)} returns {@code null}
+     * for rows to skip (e.g. tombstoned). Must be safe for concurrent reads.
+     */
+    public interface Rows {
+        int size();
+
+        float[] vector(int row);
+
+        long key(int row);
+
+        long userId(int row);
+    }
+
+    /**
+     * Distance of one row to the probe; {@link Float#POSITIVE_INFINITY} skips the row.
+     */
+    @FunctionalInterface
+    public interface RowDistance {
+        float distance(int row);
+    }
+
+    /**
+     * A scored row, as returned by {@link #topRows}.
+     */
+    public record ScoredRow(int row, float distance) {
+    }
+
+    private final VectorDistance distance;
+    private final int minChunk;
+
+    public ExactScan(VectorDistance distance, int minChunk) {
+        this.distance = distance;
+        this.minChunk = Math.max(1, minChunk);
+    }
+
+    /**
+     * Returns the {@code k} closest rows, closest first; distances are Euclidean.
+     */
+    public List<SearchMatch> topK(float[] probe, Rows rows, int k) {
+        List<ScoredRow> scored = topRows(rows.size(), row -> {
+            float[] vector = rows.vector(row);
+            return vector == null ? Float.POSITIVE_INFINITY : distance.squaredL2(probe, vector);
+        }, k);
+        List<SearchMatch> matches = new ArrayList<>(scored.size());
+        for (ScoredRow hit : scored) {
+            matches.add(new SearchMatch(rows.key(hit.row()), rows.userId(hit.row()), Math.sqrt(hit.distance())));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the {@code k} rows of {@code [0, size)} with the smallest distance, closest first.
+     */
+    public List<ScoredRow> topRows(int size, RowDistance rowDistance, int k) {
+        if (size == 0 || k <= 0) {
+            return List.of();
+        }
+        PriorityQueue<ScoredRow> heap = size <= minChunk
+                ? scan(rowDistance, k, 0, size)
+                : ForkJoinPool.commonPool().invoke(new ScanTask(rowDistance, k, 0, size));
+
+        List<ScoredRow> hits = new ArrayList<>(heap);
+        hits.sort((x, y) -> Float.compare(x.distance(), y.distance()));
+        return hits;
+    }
+
+    private static PriorityQueue<ScoredRow> scan(RowDistance rowDistance, int k, int from, int to) {
+        // Max-heap on distance: the root is the worst of the current best k
+        PriorityQueue<ScoredRow> heap =
+                new PriorityQueue<>(k + 1, (x, y) -> Float.compare(y.distance(), x.distance()));
+        for (int row = from; row < to; row++) {
+            float d = rowDistance.distance(row);
+            if (d == Float.POSITIVE_INFINITY) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(new ScoredRow(row, d));
+            } else if (d < heap.peek().distance()) {
+                heap.poll();
+                heap.add(new ScoredRow(row, d));
+            }
+        }
+        return heap;
+    }
+
+    private static PriorityQueue<ScoredRow> merge(PriorityQueue<ScoredRow> into, PriorityQueue<ScoredRow> from,
+                                                  int k) {
+        for (ScoredRow hit : from) {
+            if (into.size() < k) {
+                into.add(hit);
+            } else if (hit.distance() < into.peek().distance()) {
+                into.poll();
+                into.add(hit);
+            }
+        }
+        return into;
+    }
+
+    private final class ScanTask extends RecursiveTask<PriorityQueue<ScoredRow>> {
+
+        private final RowDistance rowDistance;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        private ScanTask(RowDistance rowDistance, int k, int from, int to) {
+            this.rowDistance = rowDistance;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PriorityQueue<ScoredRow> compute() {
+            if (to - from <= minChunk) {
+                return scan(rowDistance, k, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(rowDistance, k, from, mid);
+            left.fork();
+            PriorityQueue<ScoredRow> right = new ScanTask(rowDistance, k, mid, to).compute();
+            return merge(right, left.join(), k);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.mario.backend.face.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour
+ * search over fixed-dimension float vectors using Euclidean distance.
+ * <p>
+ * Removal is by tombstone: deleted nodes keep routing searches but are never
+ * returned. Call {@link #compact()} once {@link #deletedRatio()} grows too large.
+ * Searches share a read lock; mutations take the write lock. Distances use the
+ * {@link Distances} kernel (SIMD when available).
+ */
+public class HnswIndex {
+
+    private static final Comparator<Candidate> BY_DISTANCE = Comparator.comparingDouble(Candidate::distance);
+    private static final VectorDistance DISTANCE = Distances.get();
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotsByKey = new HashMap<>();
+    private Node[] nodes = new Node[64];
+    private int slotCount;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+    }
+
+    /**
+     * Inserts or replaces the vector stored under {@code key}.
+     * The index takes ownership of {@code vector}; callers must not mutate it afterwards.
+     */
+    public void add(long key, long userId, float[] vector) {
+        checkDimension(vector);
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotsByKey.remove(key);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+
+            int level = randomLevel();
+            int slot = append(new Node(key, userId, vector, level, m, maxM0));
+            slotsByKey.put(key, slot);
+
+            if (entryPoint < 0) {
+                entryPoint = slot;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = searchLayer(vector, current, 1, l).get(0).slot();
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> candidates = searchLayer(vector, current, efConstruction, l);
+                for (Candidate neighbour : selectNeighbours(candidates, m)) {
+                    connect(slot, neighbour.slot(), l);
+                    connect(neighbour.slot(), slot, l);
+                }
+                current = candidates.get(0).slot();
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = slot;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsByKey.remove(key);
+            if (slot == null) {
+                return false;
+            }
+            markDeleted(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SearchMatch> search(float[] query, int k, int ef) {
+        checkDimension(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = searchLayer(query, current, 1, l).get(0).slot();
+            }
+            List<Candidate> found = searchLayer(query, current, Math.max(ef, k), 0);
+
+            List<SearchMatch> matches = new ArrayList<>(k);
+            for (Candidate candidate : found) {
+                Node node = nodes[candidate.slot()];
+                if (node.deleted) {
+                    continue;
+                }
+                matches.add(new SearchMatch(node.key, node.userId, Math.sqrt(candidate.distance())));
+                if (matches.size() == k) {
+                    break;
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-K by scanning every live vector instead of walking the graph.
+     */
+    public List<SearchMatch> exactSearch(float[] query, int k, ExactScan scan) {
+        checkDimension(query);
+        lock.readLock().lock();
+        try {
+            Node[] snapshot = nodes;
+            int count = slotCount;
+            return scan.topK(query, new ExactScan.Rows() {
+                @Override
+                public int size() {
+                    return count;
+                }
+
+                @Override
+                public float[] vector(int row) {
+                    Node node = snapshot[row];
+                    return node.deleted ? null : node.vector;
+                }
+
+                @Override
+                public long key(int row) {
+                    return snapshot[row].key;
+                }
+
+                @Override
+                public long userId(int row) {
+                    return snapshot[row].userId;
+                }
+            }, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-K over the given keys only; unknown or removed keys are ignored.
+     * Cost is proportional to {@code keys.length}, not to the index size.
+     */
+    public List<SearchMatch> searchKeys(float[] query, long[] keys, int k, ExactScan scan) {
+        checkDimension(query);
+        lock.readLock().lock();
+        try {
+            Node[] snapshot = nodes;
+            int[] slots = new int[keys.length];
+            int count = 0;
+            for (long key : keys) {
+                Integer slot = slotsByKey.get(key);
+                if (slot != null) {
+                    slots[count++] = slot;
+                }
+            }
+            int live = count;
+            return scan.topK(query, new ExactScan.Rows() {
+                @Override
+                public int size() {
+                    return live;
+                }
+
+                @Override
+                public float[] vector(int row) {
+                    return snapshot[slots[row]].vector;
+                }
+
+                @Override
+                public long key(int row) {
+                    return snapshot[slots[row]].key;
+                }
+
+                @Override
+                public long userId(int row) {
+                    return snapshot[slots[row]].userId;
+                }
+            }, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a fresh index containing only live vectors, dropping tombstones.
+     */
+    public HnswIndex compact() {
+        HnswIndex compacted = new HnswIndex(dimension, m, efConstruction);
+        forEachLive(compacted::add);
+        return compacted;
+    }
+
+    /**
+     * Visits every live vector in insertion order. Vectors are shared, not copied.
+     */
+    public void forEachLive(EntryConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                Node node = nodes[slot];
+                if (!node.deleted) {
+                    consumer.accept(node.key, node.userId, node.vector);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits live vectors from {@code fromSlot} on, stopping after {@code maxSlots}
+     * slots, and returns the slot to resume from, or -1 once the walk is done.
+     * Slots only grow, so a resumed walk sees every vector that stayed live
+     * throughout; the lock is released between calls.
+     */
+    public int forEachLive(int fromSlot, int maxSlots, EntryConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            int end = (int) Math.min((long) fromSlot + maxSlots, slotCount);
+            for (int slot = fromSlot; slot < end; slot++) {
+                Node node = nodes[slot];
+                if (!node.deleted) {
+                    consumer.accept(node.key, node.userId, node.vector);
+                }
+            }
+            return end < slotCount ? end : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return slotCount == 0 ? 0.0 : (double) deletedCount / slotCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(slotCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(BY_DISTANCE);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(BY_DISTANCE.reversed());
+
+        Candidate start = new Candidate(entry, squaredL2(query, nodes[entry].vector));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.distance() > results.peek().distance()) {
+                break;
+            }
+            Node node = nodes[closest.slot()];
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = links[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float distance = squaredL2(query, nodes[neighbour].vector);
+                if (results.size() < ef || distance < results.peek().distance()) {
+                    Candidate next = new Candidate(neighbour, distance);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(BY_DISTANCE);
+        return sorted;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the
+     * base node than to any neighbour already kept, then top up with the closest
+     * pruned candidates so sparse regions stay connected.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> sortedCandidates, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            float[] vector = nodes[candidate.slot()].vector;
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (squaredL2(vector, nodes[kept.slot()].vector) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        Node node = nodes[from];
+        int[] links = node.links[level];
+        int count = node.linkCounts[level];
+        if (count < links.length) {
+            links[count] = to;
+            node.linkCounts[level] = count + 1;
+            return;
+        }
+
+        List<Candidate> pool = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            pool.add(new Candidate(links[i], squaredL2(node.vector, nodes[links[i]].vector)));
+        }
+        pool.add(new Candidate(to, squaredL2(node.vector, nodes[to].vector)));
+        pool.sort(BY_DISTANCE);
+
+        List<Candidate> kept = selectNeighbours(pool, links.length);
+        for (int i = 0; i < kept.size(); i++) {
+            links[i] = kept.get(i).slot();
+        }
+        node.linkCounts[level] = kept.size();
+    }
+
+    private int append(Node node) {
+        if (slotCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        nodes[slotCount] = node;
+        return slotCount++;
+    }
+
+    private void markDeleted(int slot) {
+        if (!nodes[slot].deleted) {
+            nodes[slot].deleted = true;
+            deletedCount++;
+        }
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected vector of dimension " + dimension + " but got " + vector.length);
+        }
+    }
+
+    static float squaredL2(float[] a, float[] b) {
+        return DISTANCE.squaredL2(a, b);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long userId, float[] vector);
+    }
+
+    private record Candidate(int slot, float distance) {
+    }
+
+    private static final class Node {
+        private final long key;
+        private final long userId;
+        private final float[] vector;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private boolean deleted;
+
+        private Node(long key, long userId, float[] vector, int level, int m, int maxM0) {
+            this.key = key;
+            this.userId = userId;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.mario.backend.face.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Product quantization: the vector is split into {@code m} sub-vectors, each
+ * replaced by the index of its nearest centroid in a 256-entry codebook trained
+ * with k-means. One byte per sub-vector, so a 128-d float32 embedding (512 B)
+ * becomes {@code m} bytes. Scoring uses per-probe lookup tables (ADC).
+ */
+public final class ProductQuantizer implements Quantizer {
+
+    private static final int MAX_CENTROIDS = 256;
+
+    private final int dimension;
+    private final int m;
+    private final int subDim;
+    private final int centroids;
+    /**
+     * {@code codebooks[j]} holds {@code centroids * subDim} floats for sub-space {@code j}.
+     */
+    private final float[][] codebooks;
+
+    private ProductQuantizer(int dimension, int m, int centroids, float[][] codebooks) {
+        this.dimension = dimension;
+        this.m = m;
+        this.subDim = dimension / m;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+    }
+
+    /**
+     * Trains codebooks; {@code m} is lowered to the nearest divisor of the dimension.
+     * Sub-spaces are trained in parallel.
+     */
+    public static ProductQuantizer train(List<float[]> sample, int m, int iterations, long seed) {
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("Training sample is empty");
+        }
+        int dimension = sample.get(0).length;
+        int subspaces = Math.max(1, Math.min(m, dimension));
+        while (dimension % subspaces != 0) {
+            subspaces--;
+        }
+        int centroids = Math.min(MAX_CENTROIDS, sample.size());
+        int subDim = dimension / subspaces;
+        float[][] codebooks = new float[subspaces][];
+        IntStream.range(0, subspaces).parallel().forEach(j ->
+                codebooks[j] = kMeans(sample, j * subDim, subDim, centroids, iterations, new Random(seed + j)));
+        return new ProductQuantizer(dimension, subspaces, centroids, codebooks);
+    }
+
+    public int subquantizers() {
+        return m;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int codeSize() {
+        return m;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        ScalarVectorDistance.checkLength(dimension, vector.length);
+        for (int j = 0; j < m; j++) {
+            codes[offset + j] = (byte) nearest(codebooks[j], centroids, vector, j * subDim, subDim);
+        }
+    }
+
+    @Override
+    public CodeDistance forProbe(float[] probe) {
+        ScalarVectorDistance.checkLength(dimension, probe.length);
+        float[] table = new float[m * centroids];
+        for (int j = 0; j < m; j++) {
+            float[] codebook = codebooks[j];
+            for (int c = 0; c < centroids; c++) {
+                table[j * centroids + c] = subDistance(codebook, c * subDim, probe, j * subDim, subDim);
+            }
+        }
+        return (codes, offset) -> {
+            float sum = 0f;
+            for (int j = 0; j < m; j++) {
+                sum += table[j * centroids + (codes[offset + j] & 0xff)];
+            }
+            return sum;
+        };
+    }
+
+    private static float[] kMeans(List<float[]> sample, int from, int subDim, int k, int iterations, Random random) {
+        float[] centers = new float[k * subDim];
+        List<float[]> shuffled = new ArrayList<>(sample);
+        Collections.shuffle(shuffled, random);
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(shuffled.get(c), from, centers, c * subDim, subDim);
+        }
+
+        int[] assignment = new int[sample.size()];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < sample.size(); i++) {
+                assignment[i] = nearest(centers, k, sample.get(i), from, subDim);
+            }
+            float[] sums = new float[k * subDim];
+            int[] counts = new int[k];
+            for (int i = 0; i < sample.size(); i++) {
+                int c = assignment[i];
+                counts[c]++;
+                float[] vector = sample.get(i);
+                for (int d = 0; d < subDim; d++) {
+                    sums[c * subDim + d] += vector[from + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // Re-seed an empty cluster from a random training point
+                    System.arraycopy(sample.get(random.nextInt(sample.size())), from, centers, c * subDim, subDim);
+                    continue;
+                }
+                for (int d = 0; d < subDim; d++) {
+                    centers[c * subDim + d] = sums[c * subDim + d] / counts[c];
+                }
+            }
+        }
+        return centers;
+    }
+
+    private static int nearest(float[] centers, int k, float[] vector, int from, int subDim) {
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            float distance = subDistance(centers, c * subDim, vector, from, subDim);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static float subDistance(float[] centers, int centerOffset, float[] vector, int from, int subDim) {
+        float sum = 0f;
+        for (int d = 0; d < subDim; d++) {
+            float diff = vector[from + d] - centers[centerOffset + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,180 @@
+package com.mario.backend.face.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Measures recall@k and per-query latency of each compressed representation
+ * against exact search over the same vectors. Probes are gallery vectors with
+ * small Gaussian noise, standing in for a second capture of an enrolled face.
+ */
+public final class QuantizationReport {
+
+    public record Options(int queries, int k, int rerankFactor, int trainingSample,
+                          int pqSubquantizers, int pqIterations, long seed) {
+    }
+
+    public record Result(String variant, int bytesPerVector, double compression, double recallAtK,
+                         double meanLatencyMicros, double p95LatencyMicros, long trainMillis) {
+    }
+
+    private static final double PROBE_NOISE = 0.05;
+
+    private QuantizationReport() {}
+
+    public static List<Result> run(List<float[]> vectors, Options options) {
+        if (vectors.isEmpty()) {
+            return List.of();
+        }
+        int dimension = vectors.get(0).length;
+        int fullBytes = dimension * Float.BYTES;
+        Random random = new Random(options.seed());
+        List<float[]> probes = probes(vectors, options.queries(), random);
+        ExactScan scan = new ExactScan(Distances.get(), 4096);
+        ExactScan.Rows rows = rows(vectors);
+
+        List<Set<Long>> truth = new ArrayList<>(probes.size());
+        long[] exactNanos = new long[probes.size()];
+        for (int q = 0; q < probes.size(); q++) {
+            long start = System.nanoTime();
+            List<SearchMatch> exact = scan.topK(probes.get(q), rows, options.k());
+            exactNanos[q] = System.nanoTime() - start;
+            truth.add(keys(exact));
+        }
+
+        List<Result> results = new ArrayList<>();
+        results.add(result("exact", fullBytes, fullBytes, 1.0, exactNanos, 0));
+
+        List<float[]> sample = sample(vectors, options.trainingSample(), random);
+        long trainStart = System.nanoTime();
+        Quantizer int8 = ScalarQuantizer.train(sample);
+        long int8Train = (System.nanoTime() - trainStart) / 1_000_000;
+        trainStart = System.nanoTime();
+        Quantizer pq = ProductQuantizer.train(sample, options.pqSubquantizers(), options.pqIterations(),
+                options.seed());
+        long pqTrain = (System.nanoTime() - trainStart) / 1_000_000;
+
+        addVariants(results, "int8", int8, int8Train, vectors, probes, truth, scan, options);
+        addVariants(results, "pq", pq, pqTrain, vectors, probes, truth, scan, options);
+        return results;
+    }
+
+    /**
+     * Adds the approximate-only and re-ranked results for one quantizer.
+     */
+    private static void addVariants(List<Result> results, String name, Quantizer quantizer, long trainMillis,
+                                    List<float[]> vectors, List<float[]> probes, List<Set<Long>> truth,
+                                    ExactScan scan, Options options) {
+        int fullBytes = quantizer.dimension() * Float.BYTES;
+        QuantizedIndex index = new QuantizedIndex(quantizer, vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, i, vectors.get(i));
+        }
+        int candidates = options.k() * Math.max(1, options.rerankFactor());
+        results.add(measure(name, quantizer, fullBytes, probes, truth, trainMillis,
+                probe -> index.search(probe, options.k(), scan)));
+        results.add(measure(name + "+rerank", quantizer, fullBytes, probes, truth, trainMillis,
+                probe -> rerank(probe, index.search(probe, candidates, scan), vectors, options.k())));
+    }
+
+    private static Result measure(String name, Quantizer quantizer, int fullBytes, List<float[]> probes,
+                                  List<Set<Long>> truth, long trainMillis,
+                                  Function<float[], List<SearchMatch>> search) {
+        long[] nanos = new long[probes.size()];
+        double hits = 0;
+        double total = 0;
+        for (int q = 0; q < probes.size(); q++) {
+            long start = System.nanoTime();
+            List<SearchMatch> found = search.apply(probes.get(q));
+            nanos[q] = System.nanoTime() - start;
+            Set<Long> expected = truth.get(q);
+            for (SearchMatch match : found) {
+                if (expected.contains(match.featureId())) {
+                    hits++;
+                }
+            }
+            total += expected.size();
+        }
+        return result(name, quantizer.codeSize(), fullBytes, total == 0 ? 1.0 : hits / total, nanos, trainMillis);
+    }
+
+    private static List<SearchMatch> rerank(float[] probe, List<SearchMatch> candidates, List<float[]> vectors, int k) {
+        VectorDistance distance = Distances.get();
+        return candidates.stream()
+                .map(c -> new SearchMatch(c.featureId(), c.userId(),
+                        Math.sqrt(distance.squaredL2(probe, vectors.get((int) c.featureId())))))
+                .sorted((a, b) -> Double.compare(a.distance(), b.distance()))
+                .limit(k)
+                .toList();
+    }
+
+    private static Result result(String variant, int bytesPerVector, int fullBytes, double recall, long[] nanos,
+                                 long trainMillis) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1000.0;
+        double p95 = sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.95))] / 1000.0;
+        return new Result(variant, bytesPerVector, (double) fullBytes / bytesPerVector, recall, mean, p95, trainMillis);
+    }
+
+    private static List<float[]> probes(List<float[]> vectors, int count, Random random) {
+        List<float[]> probes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] base = vectors.get(random.nextInt(vectors.size()));
+            float[] probe = new float[base.length];
+            for (int d = 0; d < base.length; d++) {
+                probe[d] = base[d] + (float) (random.nextGaussian() * PROBE_NOISE);
+            }
+            probes.add(probe);
+        }
+        return probes;
+    }
+
+    private static List<float[]> sample(List<float[]> vectors, int size, Random random) {
+        if (vectors.size() <= size) {
+            return vectors;
+        }
+        List<float[]> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add(vectors.get(random.nextInt(vectors.size())));
+        }
+        return sample;
+    }
+
+    private static Set<Long> keys(List<SearchMatch> matches) {
+        Set<Long> keys = new HashSet<>();
+        for (SearchMatch match : matches) {
+            keys.add(match.featureId());
+        }
+        return keys;
+    }
+
+    private static ExactScan.Rows rows(List<float[]> vectors) {
+        return new ExactScan.Rows() {
+            @Override
+            public int size() {
+                return vectors.size();
+            }
+
+            @Override
+            public float[] vector(int row) {
+                return vectors.get(row);
+            }
+
+            @Override
+            public long key(int row) {
+                return row;
+            }
+
+            @Override
+            public long userId(int row) {
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,178 @@
+package com.mario.backend.face.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Flat index of quantized embeddings: codes live in one contiguous array and
+ * are scanned exhaustively with the quantizer's asymmetric distance. Results
+ * are approximate; callers re-rank the top candidates at full precision.
+ * <p>
+ * Same concurrency and removal model as {@link HnswIndex}: read lock for
+ * searches, write lock for mutations, tombstones until {@link #compact()}.
+ */
+public class QuantizedIndex {
+
+    private final Quantizer quantizer;
+    private final int codeSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> rowsByKey = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private byte[] codes;
+    private long[] keys;
+    private long[] userIds;
+    private int rowCount;
+
+    public QuantizedIndex(Quantizer quantizer, int initialCapacity) {
+        this.quantizer = quantizer;
+        this.codeSize = quantizer.codeSize();
+        int capacity = Math.max(16, initialCapacity);
+        this.codes = new byte[capacity * codeSize];
+        this.keys = new long[capacity];
+        this.userIds = new long[capacity];
+    }
+
+    public Quantizer quantizer() {
+        return quantizer;
+    }
+
+    public void add(long key, long userId, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowsByKey.remove(key);
+            if (existing != null) {
+                deleted.set(existing);
+            }
+            if (rowCount == keys.length) {
+                int capacity = keys.length * 2;
+                codes = Arrays.copyOf(codes, capacity * codeSize);
+                keys = Arrays.copyOf(keys, capacity);
+                userIds = Arrays.copyOf(userIds, capacity);
+            }
+            quantizer.encode(vector, codes, rowCount * codeSize);
+            keys[rowCount] = key;
+            userIds[rowCount] = userId;
+            rowsByKey.put(key, rowCount);
+            rowCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowsByKey.remove(key);
+            if (row == null) {
+                return false;
+            }
+            deleted.set(row);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-{@code k}; {@link SearchMatch#distance()} is the estimated L2.
+     */
+    public List<SearchMatch> search(float[] probe, int k, ExactScan scan) {
+        Quantizer.CodeDistance distance = quantizer.forProbe(probe);
+        lock.readLock().lock();
+        try {
+            byte[] snapshot = codes;
+            List<ExactScan.ScoredRow> rows = scan.topRows(rowCount,
+                    row -> deleted.get(row) ? Float.POSITIVE_INFINITY : distance.squaredL2(snapshot, row * codeSize),
+                    k);
+            List<SearchMatch> matches = new ArrayList<>(rows.size());
+            for (ExactScan.ScoredRow row : rows) {
+                matches.add(new SearchMatch(keys[row.row()], userIds[row.row()], Math.sqrt(row.distance())));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-{@code k} over the given keys only; unknown or removed keys are ignored.
+     */
+    public List<SearchMatch> searchKeys(float[] probe, long[] subset, int k, ExactScan scan) {
+        Quantizer.CodeDistance distance = quantizer.forProbe(probe);
+        lock.readLock().lock();
+        try {
+            byte[] snapshot = codes;
+            int[] rows = new int[subset.length];
+            int count = 0;
+            for (long key : subset) {
+                Integer row = rowsByKey.get(key);
+                if (row != null) {
+                    rows[count++] = row;
+                }
+            }
+            List<ExactScan.ScoredRow> top = scan.topRows(count,
+                    i -> distance.squaredL2(snapshot, rows[i] * codeSize), k);
+            List<SearchMatch> matches = new ArrayList<>(top.size());
+            for (ExactScan.ScoredRow scored : top) {
+                int row = rows[scored.row()];
+                matches.add(new SearchMatch(keys[row], userIds[row], Math.sqrt(scored.distance())));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return rowCount == 0 ? 0.0 : (double) (rowCount - rowsByKey.size()) / rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes held by codes of live vectors (excluding keys and bookkeeping).
+     */
+    public long codeBytes() {
+        return (long) size() * codeSize;
+    }
+
+    /**
+     * Copies live rows into a new index with the same quantizer, dropping tombstones.
+     */
+    public QuantizedIndex compact() {
+        lock.readLock().lock();
+        try {
+            QuantizedIndex compacted = new QuantizedIndex(quantizer, rowsByKey.size());
+            for (int row = 0; row < rowCount; row++) {
+                if (!deleted.get(row)) {
+                    System.arraycopy(codes, row * codeSize, compacted.codes, compacted.rowCount * codeSize, codeSize);
+                    compacted.keys[compacted.rowCount] = keys[row];
+                    compacted.userIds[compacted.rowCount] = userIds[row];
+                    compacted.rowsByKey.put(keys[row], compacted.rowCount);
+                    compacted.rowCount++;
+                }
+            }
+            return compacted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
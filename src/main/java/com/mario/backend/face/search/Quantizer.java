@@ -0,0 +1,31 @@
+package com.mario.backend.face.search;
+
+/**
+ * Lossy fixed-size encoding of embeddings, trained once from a gallery sample.
+ * Distances are asymmetric: the probe stays full precision and is compared to
+ * encoded vectors via a per-probe {@link CodeDistance}.
+ */
+public interface Quantizer {
+
+    int dimension();
+
+    /**
+     * Bytes per encoded vector.
+     */
+    int codeSize();
+
+    void encode(float[] vector, byte[] codes, int offset);
+
+    /**
+     * Prepares a probe for scoring against many codes.
+     */
+    CodeDistance forProbe(float[] probe);
+
+    @FunctionalInterface
+    interface CodeDistance {
+        /**
+         * Approximate squared L2 between the probe and the code at {@code offset}.
+         */
+        float squaredL2(byte[] codes, int offset);
+    }
+}
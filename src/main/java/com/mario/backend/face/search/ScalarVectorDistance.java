@@ -0,0 +1,78 @@
+package com.mario.backend.face.search;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Plain-loop kernels; the fallback when the Vector API is unavailable.
+ */
+final class ScalarVectorDistance implements VectorDistance {
+
+    private static final VarHandle LE_FLOAT =
+            MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public float squaredL2(float[] a, float[] b) {
+        checkLength(a.length, b.length);
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredL2(float[] a, byte[] packed) {
+        checkLength(a.length, packed.length / Float.BYTES);
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - (float) LE_FLOAT.get(packed, i * Float.BYTES);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosineDistance(float[] a, float[] b) {
+        checkLength(a.length, b.length);
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return cosine(dot, normA, normB);
+    }
+
+    @Override
+    public float cosineDistance(float[] a, byte[] packed) {
+        checkLength(a.length, packed.length / Float.BYTES);
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float b = (float) LE_FLOAT.get(packed, i * Float.BYTES);
+            dot += a[i] * b;
+            normA += a[i] * a[i];
+            normB += b * b;
+        }
+        return cosine(dot, normA, normB);
+    }
+
+    static float cosine(float dot, float normA, float normB) {
+        if (normA == 0f || normB == 0f) {
+            return 1f;
+        }
+        return 1f - (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    static void checkLength(int expected, int actual) {
+        if (expected != actual) {
+            throw new IllegalArgumentException("Expected vector of dimension " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.mario.backend.face.search;
+
+/**
+ * A single nearest-neighbour hit. {@code distance} is Euclidean (L2).
+ */
+public record SearchMatch(long featureId, long userId, double distance) {
+}
@@ -0,0 +1,122 @@
+package com.mario.backend.face.search;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteOrder;
+
+/**
+ * Kernels on {@code jdk.incubator.vector}: lane-wise FMA over the widest
+ * species the CPU supports, with a scalar loop for the tail.
+ * <p>
+ * The only class that links against the incubator module; {@link Distances}
+ * instantiates it only when the module is present (JVM started with
+ * {@code --add-modules jdk.incubator.vector}). Packed loads use the JDK 17
+ * {@code fromByteArray} API.
+ */
+final class SimdVectorDistance implements VectorDistance {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public float squaredL2(float[] a, float[] b) {
+        ScalarVectorDistance.checkLength(a.length, b.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, b, i));
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredL2(float[] a, byte[] packed) {
+        ScalarVectorDistance.checkLength(a.length, packed.length / Float.BYTES);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector b = FloatVector.fromByteArray(SPECIES, packed, i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(b);
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float diff = a[i] - Float.intBitsToFloat(littleEndianInt(packed, i * Float.BYTES));
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosineDistance(float[] a, float[] b) {
+        ScalarVectorDistance.checkLength(a.length, b.length);
+        FloatVector dot = FloatVector.zero(SPECIES);
+        FloatVector normA = FloatVector.zero(SPECIES);
+        FloatVector normB = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            dot = va.fma(vb, dot);
+            normA = va.fma(va, normA);
+            normB = vb.fma(vb, normB);
+        }
+        float d = dot.reduceLanes(VectorOperators.ADD);
+        float na = normA.reduceLanes(VectorOperators.ADD);
+        float nb = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            d += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return ScalarVectorDistance.cosine(d, na, nb);
+    }
+
+    @Override
+    public float cosineDistance(float[] a, byte[] packed) {
+        ScalarVectorDistance.checkLength(a.length, packed.length / Float.BYTES);
+        FloatVector dot = FloatVector.zero(SPECIES);
+        FloatVector normA = FloatVector.zero(SPECIES);
+        FloatVector normB = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromByteArray(SPECIES, packed, i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            dot = va.fma(vb, dot);
+            normA = va.fma(va, normA);
+            normB = vb.fma(vb, normB);
+        }
+        float d = dot.reduceLanes(VectorOperators.ADD);
+        float na = normA.reduceLanes(VectorOperators.ADD);
+        float nb = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float b = Float.intBitsToFloat(littleEndianInt(packed, i * Float.BYTES));
+            d += a[i] * b;
+            na += a[i] * a[i];
+            nb += b * b;
+        }
+        return ScalarVectorDistance.cosine(d, na, nb);
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mario.backend.face.search;
+
+/**
+ * Distance kernels between a probe and a gallery vector, either as
+ * {@code float[]} or as a packed little-endian float32 embedding
+ * ({@link EmbeddingCodec} layout). Implementations are stateless and thread-safe;
+ * obtain one from {@link Distances}.
+ */
+public interface VectorDistance {
+
+    /**
+     * Squared Euclidean distance; callers take the square root only for reporting.
+     */
+    float squaredL2(float[] a, float[] b);
+
+    float squaredL2(float[] a, byte[] packed);
+
+    /**
+     * {@code 1 - cos(a, b)}, in {@code [0, 2]}; 1 if either vector is zero.
+     */
+    float cosineDistance(float[] a, float[] b);
+
+    float cosineDistance(float[] a, byte[] packed);
+}
@@ -0,0 +1,318 @@
+package com.mario.backend.face.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.common.http.ExternalServiceResponse;
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces concurrent single-image encodes into face-ai
+ * {@code /api/v1/face/encode-batch} calls.
+ * <p>
+ * A batch opens with its first image and is sent once it holds
+ * {@code max-batch-size} images or {@code linger} after it opened, whichever
+ * comes first; each caller waits for its own result to be fanned back out. A
+ * batch of one goes to {@code /encode} as before, so an idle system pays only
+ * the linger. Batches are per algorithm, and at most
+ * {@code max-concurrent-batches} are in flight at once.
+ * <p>
+ * A batch call that fails fails every caller in it with the same exception.
+ * When face-ai has no batch endpoint the images are encoded one by one.
+ * Callers that already hold a batch of their own send it with
+ * {@link #encodeAll}, over the same request and fallback.
+ */
+@Slf4j
+@Component
+public class EncodeBatcher {
+
+    private final HttpClientService httpClientService;
+    private final FaceRecognitionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService lingerTimer;
+    private final ExecutorService senders;
+
+    private final Object lock = new Object();
+    /**
+     * The batch still accepting images, per algorithm; guarded by {@code lock}.
+     */
+    private final Map<String, Batch> open = new HashMap<>();
+
+    @Value("${face-recognition.service-url:http://face-ai-service:5000}")
+    private String faceRecognitionServiceUrl;
+
+    public EncodeBatcher(HttpClientService httpClientService,
+                         FaceRecognitionProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.httpClientService = httpClientService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "face-encode-linger"));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(
+                Math.max(1, properties.getEncodeBatching().getMaxConcurrentBatches()),
+                r -> new Thread(r, "face-encode-batch-" + threadCount.incrementAndGet()));
+    }
+
+    /**
+     * Encodes one image, sharing the face-ai call with whatever other images
+     * arrive within the linger window.
+     *
+     * @param image base64 String or {@code ImagePayload}
+     * @throws NonRetryableHttpException if face-ai rejected the call
+     * @throws HttpClientException       if face-ai stayed unavailable, or the result didn't arrive in time
+     */
+    public EncodeResult encode(Object image, String algorithmReg) {
+        FaceRecognitionProperties.EncodeBatching config = properties.getEncodeBatching();
+        if (!config.isEnabled() || config.getMaxBatchSize() <= 1) {
+            return encodeOne(image, algorithmReg);
+        }
+
+        return HttpClientService.await(encodeAsync(image, algorithmReg), batchUrl());
+    }
+
+    /**
+     * As {@link #encode}, without holding the caller's thread while the batch fills
+     * and face-ai answers. The caller's idempotency key is captured now. A batched
+     * encode that has not completed within {@code wait-timeout} fails with a
+     * {@link TimeoutException}.
+     */
+    public CompletableFuture<EncodeResult> encodeAsync(Object image, String algorithmReg) {
+        FaceRecognitionProperties.EncodeBatching config = properties.getEncodeBatching();
+        if (!config.isEnabled() || config.getMaxBatchSize() <= 1) {
+            return httpClientService.postAsync(encodeUrl(), encodeRequest(image, algorithmReg))
+                    .thenApply(response -> toResult(new ExternalServiceResponse(response), algorithmReg));
+        }
+        return enqueue(new Pending(image, IdempotencyService.getCurrentKey(), System.nanoTime()), algorithmReg, config)
+                .orTimeout(config.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encodes the caller's own images with one {@code /encode-batch} call, bypassing
+     * the coalescing queue. An image face-ai rejects while falling back to one call
+     * per image gets a result with {@code failureCode} instead of failing the rest.
+     *
+     * @param images base64 Strings or {@code ImagePayload}s
+     * @return one result per image, in order
+     */
+    public List<EncodeResult> encodeAll(List<?> images, String algorithmReg, ErrorCode failureCode) {
+        String idempotencyKey = IdempotencyService.getCurrentKey();
+        List<Pending> items = new ArrayList<>(images.size());
+        for (Object image : images) {
+            items.add(new Pending(image, idempotencyKey, System.nanoTime()));
+        }
+        return encodeBatch(items, algorithmReg, failureCode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lingerTimer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private CompletableFuture<EncodeResult> enqueue(Pending pending, String algorithmReg,
+                                                    FaceRecognitionProperties.EncodeBatching config) {
+        Batch full = null;
+        synchronized (lock) {
+            Batch batch = open.computeIfAbsent(algorithmReg, Batch::new);
+            batch.items.add(pending);
+            if (batch.items.size() == 1) {
+                batch.linger = lingerTimer.schedule(() -> expire(batch),
+                        config.getLinger().toNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (batch.items.size() >= config.getMaxBatchSize()) {
+                open.remove(algorithmReg);
+                batch.linger.cancel(false);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            dispatch(full, "size");
+        }
+        return pending.result;
+    }
+
+    private void expire(Batch batch) {
+        synchronized (lock) {
+            // Already sent when it filled up
+            if (open.get(batch.algorithmReg) != batch) {
+                return;
+            }
+            open.remove(batch.algorithmReg);
+        }
+        dispatch(batch, "linger");
+    }
+
+    private void dispatch(Batch batch, String trigger) {
+        try {
+            senders.execute(() -> send(batch, trigger));
+        } catch (RejectedExecutionException e) {
+            HttpClientException failure = new HttpClientException(batchUrl(), "Encode batcher is shut down");
+            batch.items.forEach(pending -> pending.result.completeExceptionally(failure));
+        }
+    }
+
+    private void send(Batch batch, String trigger) {
+        List<Pending> items = batch.items;
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            List<EncodeResult> results = items.size() == 1
+                    ? List.of(encodeOne(items.get(0), batch.algorithmReg))
+                    : encodeBatch(items, batch.algorithmReg, ErrorCode.FACE_REGISTRATION_FAILED);
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).result.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            outcome = "failure";
+            items.forEach(pending -> pending.result.completeExceptionally(e));
+        } finally {
+            long end = System.nanoTime();
+            DistributionSummary.builder("face.encode.batch.size")
+                    .tag("algorithm", batch.algorithmReg)
+                    .tag("trigger", trigger)
+                    .register(meterRegistry)
+                    .record(items.size());
+            meterRegistry.timer("face.encode.batch.wait", "algorithm", batch.algorithmReg)
+                    .record(start - items.get(0).enqueuedNanos, TimeUnit.NANOSECONDS);
+            meterRegistry.timer("face.encode.batch", "algorithm", batch.algorithmReg, "result", outcome)
+                    .record(end - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<EncodeResult> encodeBatch(List<Pending> items, String algorithmReg, ErrorCode failureCode) {
+        List<Object> images = new ArrayList<>(items.size());
+        items.forEach(pending -> images.add(pending.image));
+        try {
+            ExternalServiceResponse response = new ExternalServiceResponse(httpClientService.post(batchUrl(), Map.of(
+                    "imagesBase64", images,
+                    "algorithmDet", FaceService.DEFAULT_DET_ALGORITHM,
+                    "algorithmReg", algorithmReg
+            )));
+            JsonNode results = response.getData() != null ? response.getData().get("results") : null;
+            if (!response.isSuccess() || results == null || !results.isArray() || results.size() != items.size()) {
+                throw new ApiException(ErrorCode.EXTERNAL_SERVICE_BAD_RESPONSE, response.getMessage());
+            }
+            List<EncodeResult> encodings = new ArrayList<>(items.size());
+            for (JsonNode result : results) {
+                encodings.add(new EncodeResult(
+                        result.hasNonNull("encoding") ? result.get("encoding").asText() : null,
+                        result.hasNonNull("algorithmReg") ? result.get("algorithmReg").asText() : algorithmReg,
+                        result.path("code").asText(""),
+                        result.path("message").asText("")));
+            }
+            return encodings;
+        } catch (NonRetryableHttpException e) {
+            if (e.getHttpStatusCode() != 404 && e.getHttpStatusCode() != 405) {
+                throw e;
+            }
+            log.debug("face-ai has no encode-batch endpoint, encoding {} images one by one", items.size());
+        }
+
+        List<EncodeResult> encodings = new ArrayList<>(items.size());
+        for (Pending pending : items) {
+            try {
+                encodings.add(encodeOne(pending, algorithmReg));
+            } catch (NonRetryableHttpException e) {
+                encodings.add(new EncodeResult(null, algorithmReg, failureCode.getCode(), e.getMessage()));
+            }
+        }
+        return encodings;
+    }
+
+    /**
+     * Sends the caller's idempotency key along, as a direct call from the caller's thread would.
+     * Restores whatever key the running thread had, which is the caller's own for {@link #encodeAll}.
+     */
+    private EncodeResult encodeOne(Pending pending, String algorithmReg) {
+        String previous = IdempotencyService.getCurrentKey();
+        IdempotencyService.setCurrentKey(pending.idempotencyKey);
+        try {
+            return encodeOne(pending.image, algorithmReg);
+        } finally {
+            if (previous != null) {
+                IdempotencyService.setCurrentKey(previous);
+            } else {
+                IdempotencyService.clearCurrentKey();
+            }
+        }
+    }
+
+    private EncodeResult encodeOne(Object image, String algorithmReg) {
+        return toResult(new ExternalServiceResponse(httpClientService.post(encodeUrl(),
+                encodeRequest(image, algorithmReg))), algorithmReg);
+    }
+
+    private static Map<String, Object> encodeRequest(Object image, String algorithmReg) {
+        return Map.of(
+                "imageBase64", image,
+                "algorithmDet", FaceService.DEFAULT_DET_ALGORITHM,
+                "algorithmReg", algorithmReg
+        );
+    }
+
+    private static EncodeResult toResult(ExternalServiceResponse response, String algorithmReg) {
+        JsonNode data = response.getData();
+        return new EncodeResult(
+                response.isSuccess() && data != null && data.hasNonNull("encoding")
+                        ? data.get("encoding").asText() : null,
+                data != null && data.hasNonNull("algorithmReg") ? data.get("algorithmReg").asText() : algorithmReg,
+                response.getCode(),
+                response.getMessage());
+    }
+
+    private String encodeUrl() {
+        return faceRecognitionServiceUrl + "/api/v1/face/encode";
+    }
+
+    private String batchUrl() {
+        return faceRecognitionServiceUrl + "/api/v1/face/encode-batch";
+    }
+
+    private static final class Batch {
+        private final String algorithmReg;
+        private final List<Pending> items = new ArrayList<>();
+        private ScheduledFuture<?> linger;
+
+        private Batch(String algorithmReg) {
+            this.algorithmReg = algorithmReg;
+        }
+    }
+
+    private static final class Pending {
+        private final Object image;
+        private final String idempotencyKey;
+        private final long enqueuedNanos;
+        private final CompletableFuture<EncodeResult> result = new CompletableFuture<>();
+
+        private Pending(Object image, String idempotencyKey, long enqueuedNanos) {
+            this.image = image;
+            this.idempotencyKey = idempotencyKey;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
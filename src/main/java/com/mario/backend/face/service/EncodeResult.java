@@ -0,0 +1,11 @@
+package com.mario.backend.face.service;
+
+/**
+ * One image's face-ai encode outcome; {@code encoding} is null when no face was encoded.
+ */
+public record EncodeResult(String encoding, String algorithmReg, String code, String message) {
+
+    public boolean isSuccess() {
+        return encoding != null;
+    }
+}
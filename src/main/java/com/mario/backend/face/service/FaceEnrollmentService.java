@@ -0,0 +1,140 @@
+package com.mario.backend.face.service;
+
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceEnrollmentJobResponse;
+import com.mario.backend.face.enrollment.BulkEnrollmentPipeline;
+import com.mario.backend.face.enrollment.JobCoordinator;
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import com.mario.backend.face.repository.FaceEnrollmentItemRepository;
+import com.mario.backend.face.repository.FaceEnrollmentJobRepository;
+import com.mario.backend.logging.annotation.Traceable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Accepts bulk enrollment uploads and runs them one at a time per node.
+ * <p>
+ * The upload is staged in MinIO before the job is acknowledged, so any node
+ * can (re)run it. Claiming and resuming are left to a {@link JobCoordinator};
+ * stale jobs are handed to it by {@link #resumeStalledJobs()}.
+ */
+@Slf4j
+@Service
+public class FaceEnrollmentService {
+
+    private static final String STAGING_PREFIX = "enrollments/";
+
+    private final FaceEnrollmentJobRepository jobRepository;
+    private final FaceEnrollmentItemRepository itemRepository;
+    private final MinioService minioService;
+    private final BulkEnrollmentPipeline pipeline;
+    private final FaceRecognitionProperties properties;
+
+    private final JobCoordinator coordinator;
+
+    public FaceEnrollmentService(FaceEnrollmentJobRepository jobRepository,
+                                 FaceEnrollmentItemRepository itemRepository,
+                                 MinioService minioService,
+                                 BulkEnrollmentPipeline pipeline,
+                                 FaceRecognitionProperties properties) {
+        this.jobRepository = jobRepository;
+        this.itemRepository = itemRepository;
+        this.minioService = minioService;
+        this.pipeline = pipeline;
+        this.properties = properties;
+        this.coordinator = new JobCoordinator("Enrollment", "face-enroll-coordinator",
+                (jobId, seen, now) -> jobRepository.claim(jobId, FaceEnrollmentJob.JobStatus.running, seen, now),
+                lease -> jobRepository.findById(lease.jobId()).ifPresent(job -> pipeline.run(job, lease)));
+    }
+
+    @Traceable("face.createEnrollmentJob")
+    public FaceEnrollmentJobResponse createJob(Long requestedBy, InputStream source, long size,
+                                               FaceEnrollmentJob.SourceFormat format) {
+        String objectName = STAGING_PREFIX + UUID.randomUUID() + "." + format.name();
+        minioService.putObject(objectName, source, size,
+                format == FaceEnrollmentJob.SourceFormat.zip ? "application/zip" : "application/x-ndjson");
+
+        FaceEnrollmentJob job;
+        try {
+            job = jobRepository.save(FaceEnrollmentJob.builder()
+                    .requestedBy(requestedBy)
+                    .sourceObject(objectName)
+                    .sourceFormat(format)
+                    .status(FaceEnrollmentJob.JobStatus.queued)
+                    .updatedAt(JobCoordinator.now())
+                    .build());
+        } catch (RuntimeException e) {
+            minioService.deleteImage(objectName);
+            throw e;
+        }
+
+        log.info("Enrollment job {} queued by userId={} ({}, {} bytes)", job.getId(), requestedBy, format, size);
+        coordinator.schedule(job.getId(), job.getUpdatedAt());
+        return toResponse(job, List.of());
+    }
+
+    @Traceable("face.getEnrollmentJob")
+    public FaceEnrollmentJobResponse getJob(Long jobId) {
+        FaceEnrollmentJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new ApiException(ErrorCode.ENROLLMENT_JOB_NOT_FOUND));
+        List<FaceEnrollmentItem> failures = job.getFailed() > 0
+                ? itemRepository.findTop50ByJobIdAndStatusOrderBySeq(jobId, FaceEnrollmentItem.ItemStatus.failed)
+                : List.of();
+        return toResponse(job, failures);
+    }
+
+    /**
+     * Picks up jobs left behind by a crashed node or paused by a transient failure.
+     */
+    @Scheduled(fixedDelayString = "${face-recognition.enrollment.resume-check-interval-ms:30000}")
+    public void resumeStalledJobs() {
+        LocalDateTime cutoff = JobCoordinator.now().minus(properties.getEnrollment().getStaleAfter());
+        List<FaceEnrollmentJob> stalled = jobRepository.findByStatusInAndUpdatedAtBefore(
+                List.of(FaceEnrollmentJob.JobStatus.queued, FaceEnrollmentJob.JobStatus.running), cutoff);
+        for (FaceEnrollmentJob job : stalled) {
+            coordinator.resume(job.getId(), job.getUpdatedAt());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdown();
+    }
+
+    private FaceEnrollmentJobResponse toResponse(FaceEnrollmentJob job, List<FaceEnrollmentItem> failures) {
+        Double progress = job.getTotal() == null ? null
+                : job.getTotal() == 0 ? 100.0
+                : Math.min(100.0, Math.round(job.getProcessed() * 1000.0 / job.getTotal()) / 10.0);
+        return FaceEnrollmentJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .total(job.getTotal())
+                .processed(job.getProcessed())
+                .enrolled(job.getEnrolled())
+                .duplicates(job.getDuplicates())
+                .failed(job.getFailed())
+                .progress(progress)
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .completedAt(job.getCompletedAt())
+                .failures(failures.isEmpty() ? null : failures.stream()
+                        .map(item -> FaceEnrollmentJobResponse.Failure.builder()
+                                .seq(item.getSeq())
+                                .userId(item.getUserId())
+                                .message(item.getMessage())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
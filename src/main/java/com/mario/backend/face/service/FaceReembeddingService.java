@@ -0,0 +1,132 @@
+package com.mario.backend.face.service;
+
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceReembeddingJobResponse;
+import com.mario.backend.face.enrollment.JobCoordinator;
+import com.mario.backend.face.enrollment.ReembeddingPipeline;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceReembeddingJob;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.repository.FaceReembeddingJobRepository;
+import com.mario.backend.logging.annotation.Traceable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Re-encodes the stored face images with a new recognition algorithm in the
+ * background, one job at a time per node.
+ * <p>
+ * Recognition keeps using {@code face-recognition.algorithm-reg} throughout;
+ * once a job has completed the property is switched to the target algorithm.
+ * Ownership and resumption work as for bulk enrollment, through a
+ * {@link JobCoordinator} fed stale jobs by {@link #resumeStalledJobs()}.
+ */
+@Slf4j
+@Service
+public class FaceReembeddingService {
+
+    private static final List<FaceReembeddingJob.JobStatus> UNFINISHED =
+            List.of(FaceReembeddingJob.JobStatus.queued, FaceReembeddingJob.JobStatus.running);
+
+    private final FaceReembeddingJobRepository jobRepository;
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final ReembeddingPipeline pipeline;
+    private final FaceRecognitionProperties properties;
+
+    private final JobCoordinator coordinator;
+
+    public FaceReembeddingService(FaceReembeddingJobRepository jobRepository,
+                                  FaceFeatureRepository faceFeatureRepository,
+                                  ReembeddingPipeline pipeline,
+                                  FaceRecognitionProperties properties) {
+        this.jobRepository = jobRepository;
+        this.faceFeatureRepository = faceFeatureRepository;
+        this.pipeline = pipeline;
+        this.properties = properties;
+        this.coordinator = new JobCoordinator("Re-embedding", "face-reembed-coordinator",
+                (jobId, seen, now) -> jobRepository.claim(jobId, FaceReembeddingJob.JobStatus.running, seen, now),
+                lease -> jobRepository.findById(lease.jobId()).ifPresent(job -> pipeline.run(job, lease)));
+    }
+
+    @Traceable("face.createReembeddingJob")
+    public FaceReembeddingJobResponse createJob(Long requestedBy, String sourceAlgorithm, String targetAlgorithm) {
+        String source = sourceAlgorithm != null && !sourceAlgorithm.isBlank()
+                ? sourceAlgorithm : properties.getAlgorithmReg();
+        if (source.equals(targetAlgorithm)) {
+            throw new ApiException(ErrorCode.REEMBEDDING_JOB_INVALID);
+        }
+        if (jobRepository.existsByTargetAlgorithmAndStatusIn(targetAlgorithm, UNFINISHED)) {
+            throw new ApiException(ErrorCode.REEMBEDDING_JOB_CONFLICT);
+        }
+
+        FaceReembeddingJob job = jobRepository.save(FaceReembeddingJob.builder()
+                .requestedBy(requestedBy)
+                .sourceAlgorithm(source)
+                .targetAlgorithm(targetAlgorithm)
+                .total((int) faceFeatureRepository.countByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, source))
+                .status(FaceReembeddingJob.JobStatus.queued)
+                .updatedAt(JobCoordinator.now())
+                .build());
+
+        log.info("Re-embedding job {} queued by userId={}: {} faces {} -> {}",
+                job.getId(), requestedBy, job.getTotal(), source, targetAlgorithm);
+        coordinator.schedule(job.getId(), job.getUpdatedAt());
+        return toResponse(job);
+    }
+
+    @Traceable("face.getReembeddingJob")
+    public FaceReembeddingJobResponse getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .map(FaceReembeddingService::toResponse)
+                .orElseThrow(() -> new ApiException(ErrorCode.REEMBEDDING_JOB_NOT_FOUND));
+    }
+
+    /**
+     * Picks up jobs left behind by a crashed node or paused by a transient failure.
+     */
+    @Scheduled(fixedDelayString = "${face-recognition.reembedding.resume-check-interval-ms:30000}")
+    public void resumeStalledJobs() {
+        LocalDateTime cutoff = JobCoordinator.now().minus(properties.getReembedding().getStaleAfter());
+        for (FaceReembeddingJob job : jobRepository.findByStatusInAndUpdatedAtBefore(UNFINISHED, cutoff)) {
+            coordinator.resume(job.getId(), job.getUpdatedAt());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdown();
+    }
+
+    static FaceReembeddingJobResponse toResponse(FaceReembeddingJob job) {
+        Double progress = job.getTotal() == null ? null
+                : job.getTotal() == 0 ? 100.0
+                : Math.min(100.0, Math.round(job.getProcessed() * 1000.0 / job.getTotal()) / 10.0);
+        Double imagesPerSecond = job.getActiveMillis() > 0
+                ? Math.round(job.getProcessed() * 10_000.0 / job.getActiveMillis()) / 10.0
+                : null;
+        return FaceReembeddingJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .sourceAlgorithm(job.getSourceAlgorithm())
+                .targetAlgorithm(job.getTargetAlgorithm())
+                .total(job.getTotal())
+                .processed(job.getProcessed())
+                .reembedded(job.getReembedded())
+                .skipped(job.getSkipped())
+                .failed(job.getFailed())
+                .progress(progress)
+                .imagesPerSecond(imagesPerSecond)
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.mario.backend.face.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRabbitConfig;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceJobResponse;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.event.FaceRegistrationMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Asynchronous face registration: the request thread only records a pending
+ * job and publishes it; {@code FaceRegistrationConsumer} does the work.
+ * Job state lives in Redis so any node can answer status queries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceRegistrationJobService {
+
+    private static final String JOB_PREFIX = "face:job:";
+
+    public static final String PENDING = "pending";
+    public static final String RUNNING = "running";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final FaceRecognitionProperties properties;
+
+    public FaceJobResponse submitRegistration(Long userId, String imageData) {
+        LocalDateTime now = LocalDateTime.now();
+        FaceJobResponse job = FaceJobResponse.builder()
+                .jobId(UUID.randomUUID().toString())
+                .status(PENDING)
+                .userId(userId)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        save(job);
+
+        try {
+            rabbitTemplate.convertAndSend(FaceRabbitConfig.FACE_EXCHANGE, FaceRabbitConfig.FACE_REGISTER_ROUTING_KEY,
+                    FaceRegistrationMessage.builder()
+                            .jobId(job.getJobId())
+                            .userId(userId)
+                            .imageData(imageData)
+                            .build());
+        } catch (AmqpException e) {
+            log.warn("RabbitMQ unavailable, rejecting async face registration for userId={}: {}", userId, e.getMessage());
+            redisTemplate.delete(JOB_PREFIX + job.getJobId());
+            throw new ApiException(ErrorCode.FACE_JOB_QUEUE_UNAVAILABLE);
+        }
+
+        log.debug("Face registration job {} queued for userId={}", job.getJobId(), userId);
+        return job;
+    }
+
+    /**
+     * Returns the job only to the user who submitted it.
+     */
+    public FaceJobResponse getJob(Long userId, String jobId) {
+        FaceJobResponse job = find(jobId);
+        if (job == null || !userId.equals(job.getUserId())) {
+            throw new ApiException(ErrorCode.FACE_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * Marks the job running unless it already finished; returns the previous
+     * status, or {@code null} if the job expired.
+     */
+    public String markRunning(String jobId) {
+        FaceJobResponse job = find(jobId);
+        if (job == null) {
+            return null;
+        }
+        String previous = job.getStatus();
+        if (COMPLETED.equals(previous) || FAILED.equals(previous)) {
+            return previous;
+        }
+        job.setStatus(RUNNING);
+        job.setUpdatedAt(LocalDateTime.now());
+        save(job);
+        return previous;
+    }
+
+    public void complete(String jobId, FaceResponse result) {
+        update(jobId, COMPLETED, result.getCode(), result.getMessage(), result);
+    }
+
+    public void fail(String jobId, String code, String message) {
+        update(jobId, FAILED, code, message, null);
+    }
+
+    private void update(String jobId, String status, String code, String message, FaceResponse result) {
+        FaceJobResponse job = find(jobId);
+        if (job == null) {
+            log.warn("Face job {} expired before it finished with status {}", jobId, status);
+            return;
+        }
+        job.setStatus(status);
+        job.setCode(code);
+        job.setMessage(message);
+        job.setResult(result);
+        job.setUpdatedAt(LocalDateTime.now());
+        save(job);
+    }
+
+    private FaceJobResponse find(String jobId) {
+        String json = redisTemplate.opsForValue().get(JOB_PREFIX + jobId);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, FaceJobResponse.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable face job {}: {}", jobId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(FaceJobResponse job) {
+        try {
+            redisTemplate.opsForValue().set(JOB_PREFIX + job.getJobId(), objectMapper.writeValueAsString(job),
+                    properties.getJobs().getTtl());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize face job " + job.getJobId(), e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mario.backend.face.service;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceQuantizationReportResponse;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.repository.FaceEmbeddingView;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.QuantizationReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline-style measurements over the live gallery, used to pick a
+ * quantization mode before switching {@code face-recognition.search.quantization.mode}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FaceSearchDiagnosticsService {
+
+    private static final int MAX_QUERIES = 1000;
+    private static final int MAX_K = 100;
+
+    private final FaceFeatureRepository faceFeatureRepository;
+    private final FaceRecognitionProperties properties;
+
+    public FaceQuantizationReportResponse quantizationReport(String algorithmReg, int queries, int k) {
+        int queryCount = Math.max(1, Math.min(queries, MAX_QUERIES));
+        int topK = Math.max(1, Math.min(k, MAX_K));
+        List<float[]> vectors = loadVectors(algorithmReg);
+        FaceRecognitionProperties.Quantization quantization = properties.getSearch().getQuantization();
+
+        List<QuantizationReport.Result> results = vectors.isEmpty()
+                ? List.of()
+                : QuantizationReport.run(vectors, new QuantizationReport.Options(queryCount, topK,
+                        quantization.getRerankFactor(), quantization.getTrainingSample(),
+                        quantization.getPqSubquantizers(), quantization.getPqIterations(), 42L));
+
+        log.info("Quantization report for {}: {} vectors, {} queries, k={}", algorithmReg, vectors.size(),
+                queryCount, topK);
+        return FaceQuantizationReportResponse.builder()
+                .algorithmReg(algorithmReg)
+                .vectors(vectors.size())
+                .dimension(vectors.isEmpty() ? 0 : vectors.get(0).length)
+                .k(topK)
+                .queries(queryCount)
+                .currentMode(quantization.getMode().name().toLowerCase())
+                .results(results.stream().map(FaceSearchDiagnosticsService::toVariant).toList())
+                .build();
+    }
+
+    private List<float[]> loadVectors(String algorithmReg) {
+        List<FaceEmbeddingView> rows = faceFeatureRepository
+                .findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, algorithmReg);
+        List<float[]> vectors = new ArrayList<>(rows.size());
+        int dimension = -1;
+        for (FaceEmbeddingView row : rows) {
+            try {
+                float[] vector = row.getFeatureEmbedding() != null
+                        ? EmbeddingCodec.decode(row.getFeatureEmbedding())
+                        : EmbeddingCodec.decode(row.getFeatureVector());
+                if (dimension < 0) {
+                    dimension = vector.length;
+                }
+                if (vector.length == dimension) {
+                    vectors.add(vector);
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Undecodable feature vector for faceFeatureId={}: {}", row.getId(), e.getMessage());
+            }
+        }
+        return vectors;
+    }
+
+    private static FaceQuantizationReportResponse.Variant toVariant(QuantizationReport.Result result) {
+        return FaceQuantizationReportResponse.Variant.builder()
+                .variant(result.variant())
+                .bytesPerVector(result.bytesPerVector())
+                .compression(result.compression())
+                .recallAtK(result.recallAtK())
+                .meanLatencyMicros(result.meanLatencyMicros())
+                .p95LatencyMicros(result.p95LatencyMicros())
+                .trainMillis(result.trainMillis())
+                .build();
+    }
+}
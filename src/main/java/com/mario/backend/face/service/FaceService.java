@@ -1,33 +1,60 @@
 package com.mario.backend.face.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.mario.backend.common.exception.ApiException;
 import com.mario.backend.common.exception.ErrorCode;
 import com.mario.backend.common.http.ExternalServiceResponse;
 import com.mario.backend.common.http.HttpClientException;
 import com.mario.backend.common.http.HttpClientService;
 import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
 import com.mario.backend.logging.annotation.Traceable;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceBatchItemResponse;
+import com.mario.backend.face.dto.FaceBatchResponse;
+import com.mario.backend.face.dto.FaceMatch;
 import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.dto.FaceVerifyResponse;
 import com.mario.backend.face.entity.FaceFeature;
 import com.mario.backend.face.entity.FaceImage;
 import com.mario.backend.face.repository.FaceFeatureRepository;
 import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.gallery.FaceAiGalleryReplica;
+import com.mario.backend.face.gallery.FaceGallery;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.gallery.GalleryCandidates;
+import com.mario.backend.face.gallery.NamedGalleryCache;
+import com.mario.backend.face.gallery.RerankUnavailableException;
+import com.mario.backend.face.image.FaceImageStore;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.Distances;
+import com.mario.backend.face.search.SearchMatch;
+import com.mario.backend.face.search.VectorDistance;
 import com.mario.backend.users.entity.User;
 import com.mario.backend.users.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -35,26 +62,56 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FaceService {
 
-    private static final String DEFAULT_DET_ALGORITHM = "retinaface_mobilenet";
-    private static final String DEFAULT_REG_ALGORITHM = "facenet_mobilenet";
+    public static final String DEFAULT_DET_ALGORITHM = "retinaface_mobilenet";
+    public static final String DEFAULT_REG_ALGORITHM = "facenet_mobilenet";
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final VectorDistance DISTANCE = Distances.get();
 
     private final FaceFeatureRepository faceFeatureRepository;
     private final FaceImageRepository faceImageRepository;
     private final UserRepository userRepository;
-    private final MinioService minioService;
+    private final FaceImageStore faceImageStore;
     private final HttpClientService httpClientService;
+    private final EncodeBatcher encodeBatcher;
     private final IdempotencyService idempotencyService;
+    private final FaceGalleryCache faceGalleryCache;
+    private final NamedGalleryCache namedGalleryCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RecognitionResultCache resultCache;
+    private final FaceAiGalleryReplica galleryReplica;
+    private final FaceRecognitionProperties properties;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${face-recognition.service-url:http://face-ai-service:5000}")
     private String faceRecognitionServiceUrl;
 
-    @Traceable("face.registerFace")
-    @Transactional
+    /**
+     * Registers a face without holding a database connection across remote calls:
+     * <ol>
+     *   <li>dedupe check (single auto-committed read)</li>
+     *   <li>face-ai encode and MinIO upload, run concurrently with no transaction open</li>
+     *   <li>short transaction re-checking the dedupe and persisting feature + image</li>
+     * </ol>
+     * An upload left unreferenced by a failure is removed later by {@code FaceImageSweeper};
+     * deleting it here could pull it from under a concurrent registration of the same image.
+     */
     public FaceResponse registerFace(Long userId, String imageData) {
-        String imageHash = idempotencyService.computeImageHash(imageData);
+        return registerFace(userId, decodeImage(imageData));
+    }
 
+    /**
+     * The image is held once as raw bytes; hashing, the face-ai request body and the
+     * MinIO upload all stream from that buffer.
+     */
+    @Traceable("face.registerFace")
+    public FaceResponse registerFace(Long userId, ImagePayload image) {
+        String imageHash = idempotencyService.computeImageHash(image);
+        // A retried copy that overlaps the first gets its result instead of FACE_ALREADY_REGISTERED
+        return coalesced("register", () -> userId + ":" + imageHash, FaceResponse.class,
+                () -> register(userId, image, imageHash));
+    }
+
+    private FaceResponse register(Long userId, ImagePayload image, String imageHash) {
         if (faceImageRepository.existsByUserIdAndImageHash(userId, imageHash)) {
             throw new ApiException(ErrorCode.FACE_ALREADY_REGISTERED);
         }
@@ -62,53 +119,45 @@ public class FaceService {
         try {
             IdempotencyService.setCurrentKey(imageHash);
 
-            // Call face-ai-service /api/v1/face/encode (stateless)
-            String url = faceRecognitionServiceUrl + "/api/v1/face/encode";
-
-            ExternalServiceResponse response = new ExternalServiceResponse(httpClientService.post(url, Map.of(
-                    "imageBase64", imageData,
-                    "algorithmDet", DEFAULT_DET_ALGORITHM,
-                    "algorithmReg", DEFAULT_REG_ALGORITHM
-            )));
-
-            if (response.isSuccess()) {
-                JsonNode data = response.getData();
-                String encoding = data != null && data.has("encoding")
-                        ? data.get("encoding").asText()
-                        : null;
-                String algorithmReg = data != null && data.has("algorithmReg")
-                        ? data.get("algorithmReg").asText()
-                        : DEFAULT_REG_ALGORITHM;
-
-                if (encoding != null) {
-                    FaceFeature faceFeature = FaceFeature.builder()
-                            .userId(userId)
-                            .featureVector(encoding)
-                            .algorithmReg(algorithmReg)
-                            .status(FaceFeature.FaceStatus.active)
-                            .build();
-                    faceFeatureRepository.save(faceFeature);
-                }
-
-                String objectName = minioService.uploadImage(userId, imageData);
-                FaceImage faceImage = FaceImage.builder()
+            // Neither call needs the other's result; a failed encode leaves an unreferenced upload behind
+            CompletableFuture<EncodeResult> encoding = encodeBatcher.encodeAsync(image, properties.getAlgorithmReg());
+            String objectName = faceImageStore.store(image);
+            EncodeResult encoded = HttpClientService.await(encoding,
+                    faceRecognitionServiceUrl + "/api/v1/face/encode");
+            if (!"0000".equals(encoded.code())) {
+                throw new ApiException(ErrorCode.FACE_REGISTRATION_FAILED, encoded.message());
+            }
+            FaceImage faceImage = FaceImage.builder()
+                    .userId(userId)
+                    .imagePath(objectName)
+                    .bucketName(faceImageStore.getBucketName())
+                    .objectName(objectName)
+                    .imageHash(imageHash)
+                    .build();
+            FaceFeature faceFeature = null;
+            if (encoded.encoding() != null) {
+                byte[] embedding = packEmbedding(userId, encoded.encoding());
+                faceFeature = FaceFeature.builder()
                         .userId(userId)
-                        .imagePath(objectName)
-                        .bucketName(minioService.getBucketName())
-                        .objectName(objectName)
-                        .imageHash(imageHash)
+                        .featureVector(encoded.encoding())
+                        .featureEmbedding(embedding)
+                        .featureDim(embedding != null ? embedding.length / Float.BYTES : null)
+                        .algorithmReg(encoded.algorithmReg())
+                        .status(FaceFeature.FaceStatus.active)
                         .build();
-                faceImageRepository.save(faceImage);
+            }
 
-                return FaceResponse.builder()
-                        .success(true)
-                        .code("0000")
-                        .message(response.getMessage())
-                        .userId(userId)
-                        .build();
-            } else {
-                throw new ApiException(ErrorCode.FACE_REGISTRATION_FAILED, response.getMessage());
+            FaceFeature saved = persistRegistration(faceFeature, faceImage);
+            if (saved != null) {
+                faceGalleryCache.onRegistered(saved);
             }
+
+            return FaceResponse.builder()
+                    .success(true)
+                    .code("0000")
+                    .message(encoded.message())
+                    .userId(userId)
+                    .build();
         } catch (ApiException e) {
             throw e;
         } catch (NonRetryableHttpException e) {
@@ -126,74 +175,523 @@ public class FaceService {
         }
     }
 
-    @Traceable("face.recognizeFace")
+    /**
+     * The only part of registration that needs a connection. Re-checks the dedupe so a
+     * concurrent request for the same image loses here rather than inserting twice.
+     */
+    private FaceFeature persistRegistration(FaceFeature faceFeature, FaceImage faceImage) {
+        return transactionTemplate.execute(status -> {
+            if (faceImageRepository.existsByUserIdAndImageHash(faceImage.getUserId(), faceImage.getImageHash())) {
+                throw new ApiException(ErrorCode.FACE_ALREADY_REGISTERED);
+            }
+            faceImageRepository.save(faceImage);
+            if (faceFeature == null) {
+                return null;
+            }
+            faceFeature.setFaceImageId(faceImage.getId());
+            return faceFeatureRepository.save(faceFeature);
+        });
+    }
+
     public FaceResponse recognizeFace(Long userId, String imageData) {
-        try {
-            String algorithmReg = DEFAULT_REG_ALGORITHM;
+        return recognizeFace(userId, decodeImage(imageData), null);
+    }
 
-            // Load all active candidates encoded with the same algorithm from MySQL
-            List<FaceFeature> candidates = faceFeatureRepository
-                    .findAllByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, algorithmReg);
+    public FaceResponse recognizeFace(Long userId, String imageData, Long galleryId) {
+        return recognizeFace(userId, decodeImage(imageData), galleryId);
+    }
 
-            if (candidates.isEmpty()) {
-                return FaceResponse.builder()
-                        .success(false)
-                        .code("5002")
-                        .message("No registered faces found")
-                        .userId(userId)
-                        .build();
-            }
+    public FaceResponse recognizeFace(Long userId, ImagePayload image) {
+        return recognizeFace(userId, image, null);
+    }
 
-            List<Map<String, String>> candidateList = candidates.stream()
-                    .map(f -> Map.of(
-                            "userId", String.valueOf(f.getUserId()),
-                            "encoding", f.getFeatureVector()
-                    ))
-                    .toList();
+    /**
+     * @param galleryId named gallery to search, or null for every registered face
+     */
+    @Traceable("face.recognizeFace")
+    public FaceResponse recognizeFace(Long userId, ImagePayload image, Long galleryId) {
+        String imageHash = requestCoalescer.isEnabled() || resultCache.isEnabled()
+                ? idempotencyService.computeImageHash(image)
+                : null;
+        return coalesced("recognize", () -> userId + ":" + galleryId + ":" + imageHash,
+                FaceResponse.class, () -> recognize(userId, image, galleryId, imageHash));
+    }
 
-            // Call face-ai-service /api/v1/face/search (stateless)
-            String url = faceRecognitionServiceUrl + "/api/v1/face/search";
+    private FaceResponse recognize(Long userId, ImagePayload image, Long galleryId, String imageHash) {
+        try {
+            String algorithmReg = properties.getAlgorithmReg();
+            Set<Long> scope = galleryId != null ? namedGalleryCache.members(galleryId) : null;
 
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("imageBase64", imageData);
-            requestBody.put("algorithmDet", DEFAULT_DET_ALGORITHM);
-            requestBody.put("algorithmReg", algorithmReg);
-            requestBody.put("candidates", candidateList);
+            if (imageHash == null || !resultCache.isEnabled()) {
+                return search(userId, image, algorithmReg, scope);
+            }
+            return resultCache.get(imageHash, faceGalleryCache.get(algorithmReg), galleryId, scope, userId,
+                    () -> search(userId, image, algorithmReg, scope));
+        } catch (NonRetryableHttpException e) {
+            log.error("External service rejected face recognition for userId={}: status={}, message={}",
+                    userId, e.getHttpStatusCode(), e.getMessage());
+            throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, e.getMessage());
+        } catch (HttpClientException e) {
+            log.error("External service unavailable during face recognition for userId={}: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.EXTERNAL_SERVICE_RETRY_EXHAUSTED, e.getMessage());
+        } catch (RerankUnavailableException e) {
+            log.error("Face recognition for userId={} could not be scored: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.FACE_GALLERY_UNAVAILABLE, e.getMessage());
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to recognize face for userId={}: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, "Failed to recognize face: " + e.getMessage());
+        }
+    }
 
-            ExternalServiceResponse response = new ExternalServiceResponse(
-                    httpClientService.post(url, requestBody));
+    private FaceResponse search(Long userId, ImagePayload image, String algorithmReg, Set<Long> scope) {
+        if (properties.getSearch().getMode() == FaceRecognitionProperties.SearchMode.LOCAL) {
+            return recognizeLocally(userId, image, algorithmReg, scope);
+        }
+        return recognizeRemotely(userId, image, algorithmReg, scope);
+    }
 
-            JsonNode enrichedData = enrichMatchesWithUserInfo(response.getData());
+    /**
+     * face-ai only encodes the probe; top-K search runs against the in-JVM index.
+     */
+    private FaceResponse recognizeLocally(Long userId, ImagePayload image, String algorithmReg, Set<Long> scope) {
+        FaceGallery gallery = faceGalleryCache.get(algorithmReg);
+        if (isEmpty(gallery, scope)) {
+            return noRegisteredFaces(userId);
+        }
 
+        ExternalServiceResponse response = encode(image, algorithmReg);
+        JsonNode data = response.getData();
+        if (!response.isSuccess() || data == null || !data.hasNonNull("encoding")) {
             return FaceResponse.builder()
-                    .success(response.isSuccess())
+                    .success(false)
                     .message(response.getMessage())
                     .userId(userId)
                     .code(response.getCode())
-                    .data(enrichedData)
                     .build();
+        }
+
+        String encoding = data.get("encoding").asText();
+        FaceSearchData searchData = searchGallery(gallery, encoding, scope);
+
+        return FaceResponse.builder()
+                .success(true)
+                .message(hasMatch(searchData) ? "Match found" : "No match found")
+                .userId(userId)
+                .code("0000")
+                .data(enrichMatchesWithUserInfo(searchData))
+                .build();
+    }
+
+    /**
+     * face-ai searches: REMOTE posts the whole candidate gallery to /api/v1/face/search,
+     * SYNCED only the version of face-ai's replica.
+     */
+    private FaceResponse recognizeRemotely(Long userId, ImagePayload image, String algorithmReg, Set<Long> scope) {
+        // Candidates come from the cached gallery rather than a per-request table scan
+        FaceGallery gallery = faceGalleryCache.get(algorithmReg);
+        if (isEmpty(gallery, scope)) {
+            return noRegisteredFaces(userId);
+        }
+
+        TypedExternalServiceResponse<FaceSearchData> response = searchRemotely(image, gallery, scope);
+
+        FaceSearchData enrichedData = enrichMatchesWithUserInfo(response.getData());
+
+        return FaceResponse.builder()
+                .success(response.isSuccess())
+                .message(response.getMessage())
+                .userId(userId)
+                .code(response.getCode())
+                .data(enrichedData)
+                .build();
+    }
+
+    public FaceVerifyResponse verifyFace(Long userId, String imageData) {
+        return verifyFace(userId, decodeImage(imageData));
+    }
+
+    /**
+     * 1:1 check of the probe against the caller's own active faces only, so the
+     * cost does not depend on the gallery size. The closest face decides.
+     */
+    @Traceable("face.verifyFace")
+    public FaceVerifyResponse verifyFace(Long userId, ImagePayload image) {
+        return coalesced("verify", () -> userId + ":" + idempotencyService.computeImageHash(image),
+                FaceVerifyResponse.class, () -> verify(userId, image));
+    }
+
+    private FaceVerifyResponse verify(Long userId, ImagePayload image) {
+        try {
+            List<FaceFeature> features = faceFeatureRepository.findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(
+                    userId, FaceFeature.FaceStatus.active, properties.getAlgorithmReg(),
+                    PageRequest.of(0, properties.getSearch().getVerifyMaxFaces()));
+            if (features.isEmpty()) {
+                return FaceVerifyResponse.builder()
+                        .success(false)
+                        .code("5002")
+                        .message("No registered face found")
+                        .userId(userId)
+                        .build();
+            }
+
+            if (properties.getSearch().getMode() == FaceRecognitionProperties.SearchMode.LOCAL) {
+                return verifyLocally(userId, image, features);
+            }
+            return verifyRemotely(userId, image, features);
         } catch (NonRetryableHttpException e) {
-            log.error("External service rejected face recognition for userId={}: status={}, message={}",
+            log.error("External service rejected face verification for userId={}: status={}, message={}",
                     userId, e.getHttpStatusCode(), e.getMessage());
             throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, e.getMessage());
         } catch (HttpClientException e) {
-            log.error("External service unavailable during face recognition for userId={}: {}", userId, e.getMessage());
+            log.error("External service unavailable during face verification for userId={}: {}", userId, e.getMessage());
             throw new ApiException(ErrorCode.EXTERNAL_SERVICE_RETRY_EXHAUSTED, e.getMessage());
+        } catch (ApiException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Failed to recognize face for userId={}: {}", userId, e.getMessage());
-            throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, "Failed to recognize face: " + e.getMessage());
+            log.error("Failed to verify face for userId={}: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, "Failed to verify face: " + e.getMessage());
         }
     }
 
+    private FaceVerifyResponse verifyLocally(Long userId, ImagePayload image, List<FaceFeature> features) {
+        ExternalServiceResponse response = encode(image, properties.getAlgorithmReg());
+        JsonNode data = response.getData();
+        if (!response.isSuccess() || data == null || !data.hasNonNull("encoding")) {
+            return FaceVerifyResponse.builder()
+                    .success(false)
+                    .code(response.getCode())
+                    .message(response.getMessage())
+                    .userId(userId)
+                    .build();
+        }
+
+        float[] probe = EmbeddingCodec.decode(data.get("encoding").asText());
+        double closest = Double.MAX_VALUE;
+        for (FaceFeature feature : features) {
+            byte[] enrolled = feature.getFeatureEmbedding() != null
+                    ? feature.getFeatureEmbedding()
+                    : EmbeddingCodec.toBytes(feature.getFeatureVector());
+            closest = Math.min(closest, DISTANCE.squaredL2(probe, enrolled));
+        }
+        return verified(userId, Math.sqrt(closest));
+    }
+
+    /**
+     * REMOTE mode keeps face-ai as the only place distances are computed: the
+     * search is posted with the caller's vectors as the only candidates.
+     */
+    private FaceVerifyResponse verifyRemotely(Long userId, ImagePayload image, List<FaceFeature> features) {
+        List<Map<String, Object>> candidates = new ArrayList<>(features.size());
+        for (FaceFeature feature : features) {
+            candidates.add(Map.of(
+                    "userId", String.valueOf(userId),
+                    "encoding", feature.getFeatureEmbedding() != null
+                            ? EmbeddingCodec.encode(feature.getFeatureEmbedding())
+                            : feature.getFeatureVector()
+            ));
+        }
+        TypedExternalServiceResponse<FaceSearchData> response = remoteSearch(image, properties.getAlgorithmReg(),
+                candidates);
+
+        List<FaceMatch> matches = response.getData() != null ? response.getData().getMatches() : null;
+        FaceMatch match = matches == null ? null : matches.stream()
+                .filter(m -> m.getDistance() != null)
+                .min(Comparator.comparingDouble(FaceMatch::getDistance))
+                .orElse(null);
+        if (!response.isSuccess() || match == null) {
+            return FaceVerifyResponse.builder()
+                    .success(false)
+                    .code(response.getCode())
+                    .message(response.getMessage())
+                    .userId(userId)
+                    .build();
+        }
+        return verified(userId, match.getDistance());
+    }
+
+    private FaceVerifyResponse verified(Long userId, double distance) {
+        double threshold = properties.getSearch().getMatchThreshold();
+        boolean matched = distance <= threshold;
+        return FaceVerifyResponse.builder()
+                .success(true)
+                .code("0000")
+                .message(matched ? "Face verified" : "Face does not match")
+                .userId(userId)
+                .matched(matched)
+                .distance(distance)
+                .threshold(threshold)
+                .build();
+    }
+
+    /**
+     * Recognizes several probes in one call: the gallery is resolved once, probes
+     * are encoded together, and all matches are enriched with a single user lookup.
+     * Failures that only affect one image are reported on that item.
+     */
+    public FaceBatchResponse recognizeBatch(Long userId, List<String> images) {
+        return recognizeBatch(userId, images, null);
+    }
+
+    @Traceable("face.recognizeBatch")
+    public FaceBatchResponse recognizeBatch(Long userId, List<String> images, Long galleryId) {
+        if (images.size() > properties.getBatch().getMaxSize()) {
+            throw new ApiException(ErrorCode.FACE_BATCH_TOO_LARGE,
+                    "At most " + properties.getBatch().getMaxSize() + " images per batch");
+        }
+
+        try {
+            String algorithmReg = properties.getAlgorithmReg();
+            Set<Long> scope = galleryId != null ? namedGalleryCache.members(galleryId) : null;
+            FaceGallery gallery = faceGalleryCache.get(algorithmReg);
+
+            List<FaceBatchItemResponse> items = isEmpty(gallery, scope)
+                    ? noRegisteredFaces(images.size())
+                    : properties.getSearch().getMode() == FaceRecognitionProperties.SearchMode.LOCAL
+                    ? recognizeBatchLocally(gallery, images, algorithmReg, scope)
+                    : recognizeBatchRemotely(gallery, images, scope);
+
+            // One user lookup for every matched identity across the batch
+            Set<Long> matchedUserIds = new HashSet<>();
+            for (FaceBatchItemResponse item : items) {
+                matchedUserIds.addAll(collectMatchedUserIds(item.getData()));
+            }
+            Map<Long, User> userMap = loadUsers(matchedUserIds);
+            int succeeded = 0;
+            for (FaceBatchItemResponse item : items) {
+                item.setData(enrichMatches(item.getData(), userMap));
+                if (Boolean.TRUE.equals(item.getSuccess())) {
+                    succeeded++;
+                }
+            }
+
+            return FaceBatchResponse.builder()
+                    .success(succeeded > 0)
+                    .code("0000")
+                    .message(succeeded + " of " + items.size() + " images recognized")
+                    .userId(userId)
+                    .total(items.size())
+                    .succeeded(succeeded)
+                    .failed(items.size() - succeeded)
+                    .results(items)
+                    .build();
+        } catch (HttpClientException e) {
+            log.error("External service unavailable during batch face recognition for userId={}: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.EXTERNAL_SERVICE_RETRY_EXHAUSTED, e.getMessage());
+        } catch (RerankUnavailableException e) {
+            log.error("Batch face recognition for userId={} could not be scored: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.FACE_GALLERY_UNAVAILABLE, e.getMessage());
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to recognize face batch for userId={}: {}", userId, e.getMessage());
+            throw new ApiException(ErrorCode.FACE_RECOGNITION_FAILED, "Failed to recognize faces: " + e.getMessage());
+        }
+    }
+
+    private List<FaceBatchItemResponse> recognizeBatchLocally(FaceGallery gallery, List<String> images,
+                                                              String algorithmReg, Set<Long> scope) {
+        // One /encode-batch call for all probes, or one /encode per image when face-ai has no batch endpoint
+        List<EncodeResult> encodings = encodeBatcher.encodeAll(images, algorithmReg,
+                ErrorCode.FACE_RECOGNITION_FAILED);
+        List<FaceBatchItemResponse> items = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            EncodeResult encoded = encodings.get(i);
+            if (!encoded.isSuccess()) {
+                items.add(failedItem(i, encoded.code(), encoded.message()));
+                continue;
+            }
+            try {
+                FaceSearchData searchData = searchGallery(gallery, encoded.encoding(), scope);
+                items.add(FaceBatchItemResponse.builder()
+                        .index(i)
+                        .success(true)
+                        .code("0000")
+                        .message(hasMatch(searchData) ? "Match found" : "No match found")
+                        .data(searchData)
+                        .build());
+            } catch (IllegalArgumentException e) {
+                items.add(failedItem(i, ErrorCode.FACE_RECOGNITION_FAILED.getCode(), e.getMessage()));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * face-ai has no batched search, so each probe is still a separate /search call,
+     * each streaming the candidates (REMOTE) or sending the replica version (SYNCED).
+     */
+    private List<FaceBatchItemResponse> recognizeBatchRemotely(FaceGallery gallery, List<String> images,
+                                                               Set<Long> scope) {
+        List<FaceBatchItemResponse> items = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            try {
+                TypedExternalServiceResponse<FaceSearchData> response = searchRemotely(images.get(i), gallery, scope);
+                items.add(FaceBatchItemResponse.builder()
+                        .index(i)
+                        .success(response.isSuccess())
+                        .code(response.getCode())
+                        .message(response.getMessage())
+                        .data(response.getData())
+                        .build());
+            } catch (NonRetryableHttpException e) {
+                items.add(failedItem(i, ErrorCode.FACE_RECOGNITION_FAILED.getCode(), e.getMessage()));
+            }
+        }
+        return items;
+    }
+
+    private FaceSearchData searchGallery(FaceGallery gallery, String encoding, Set<Long> scope) {
+        FaceRecognitionProperties.Search search = properties.getSearch();
+        float[] probe = EmbeddingCodec.decode(encoding);
+        List<SearchMatch> hits = scope != null
+                ? gallery.search(probe, search.getTopK(), scope)
+                : gallery.search(probe, search.getTopK());
+
+        List<FaceMatch> matches = new ArrayList<>(hits.size());
+        for (SearchMatch hit : hits) {
+            matches.add(FaceMatch.builder()
+                    .userId(String.valueOf(hit.userId()))
+                    .distance(hit.distance())
+                    .matched(hit.distance() <= search.getMatchThreshold())
+                    .build());
+        }
+        return FaceSearchData.builder()
+                .matches(matches)
+                .queryEncoding(encoding)
+                .build();
+    }
+
+    private static boolean hasMatch(FaceSearchData searchData) {
+        return searchData.getMatches().stream().anyMatch(match -> Boolean.TRUE.equals(match.getMatched()));
+    }
+
+    private static boolean isEmpty(FaceGallery gallery, Set<Long> scope) {
+        return scope != null ? gallery.size(scope) == 0 : gallery.isEmpty();
+    }
+
+
+    /**
+     * SYNCED mode searches face-ai's replica by version, REMOTE mode posts the candidates.
+     */
+    private TypedExternalServiceResponse<FaceSearchData> searchRemotely(Object image, FaceGallery gallery,
+                                                                       Set<Long> scope) {
+        Supplier<TypedExternalServiceResponse<FaceSearchData>> stateless =
+                () -> remoteSearch(image, gallery.getAlgorithmReg(), GalleryCandidates.of(gallery, scope));
+        if (properties.getSearch().getMode() == FaceRecognitionProperties.SearchMode.SYNCED) {
+            return galleryReplica.search(image, gallery, scope, stateless);
+        }
+        return stateless.get();
+    }
+
+    /**
+     * @param image base64 String or {@link ImagePayload}; both serialize to the same JSON string
+     */
+    private TypedExternalServiceResponse<FaceSearchData> remoteSearch(Object image, String algorithmReg,
+                                                                     Object candidates) {
+        // Call face-ai-service /api/v1/face/search (stateless)
+        String url = faceRecognitionServiceUrl + "/api/v1/face/search";
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("imageBase64", image);
+        requestBody.put("algorithmDet", DEFAULT_DET_ALGORITHM);
+        requestBody.put("algorithmReg", algorithmReg);
+        requestBody.put("candidates", candidates);
+
+        return httpClientService.post(url, requestBody, FaceSearchData.RESPONSE);
+    }
+
+    private static List<FaceBatchItemResponse> noRegisteredFaces(int count) {
+        List<FaceBatchItemResponse> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(failedItem(i, "5002", "No registered faces found"));
+        }
+        return items;
+    }
+
+    private static FaceBatchItemResponse failedItem(int index, String code, String message) {
+        return FaceBatchItemResponse.builder()
+                .index(index)
+                .success(false)
+                .code(code)
+                .message(message)
+                .build();
+    }
+
+    private FaceResponse noRegisteredFaces(Long userId) {
+        return FaceResponse.builder()
+                .success(false)
+                .code("5002")
+                .message("No registered faces found")
+                .userId(userId)
+                .build();
+    }
+
+    /**
+     * @param image base64 String or {@link ImagePayload}; both serialize to the same JSON string
+     */
+    private ExternalServiceResponse encode(Object image, String algorithmReg) {
+        // Call face-ai-service /api/v1/face/encode (stateless)
+        String url = faceRecognitionServiceUrl + "/api/v1/face/encode";
+
+        return new ExternalServiceResponse(httpClientService.post(url, Map.of(
+                "imageBase64", image,
+                "algorithmDet", DEFAULT_DET_ALGORITHM,
+                "algorithmReg", algorithmReg
+        )));
+    }
+
+    /**
+     * The key is only built (hashing the image) when coalescing is on.
+     */
+    private <T> T coalesced(String operation, Supplier<String> key, Class<T> type, Supplier<T> computation) {
+        if (!requestCoalescer.isEnabled()) {
+            return computation.get();
+        }
+        return requestCoalescer.execute(operation, key.get(), type, computation);
+    }
+
+    private static ImagePayload decodeImage(String imageData) {
+        try {
+            return ImagePayload.fromBase64(imageData);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(ErrorCode.FACE_IMAGE_INVALID, e.getMessage());
+        }
+    }
+
+    private static byte[] packEmbedding(Long userId, String encoding) {
+        try {
+            return EmbeddingCodec.toBytes(encoding);
+        } catch (IllegalArgumentException e) {
+            log.warn("Storing face encoding for userId={} as text only: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     @Traceable("face.deleteFace")
     @Transactional
     public FaceResponse deleteFace(Long userId) {
-        // No external service call needed — just mark inactive in MySQL
-        faceFeatureRepository.findByUserIdAndStatus(userId, FaceFeature.FaceStatus.active)
-                .ifPresent(feature -> {
-                    feature.setStatus(FaceFeature.FaceStatus.inactive);
-                    faceFeatureRepository.save(feature);
-                });
+        // No external service call needed — just mark inactive in MySQL. Every active feature of the
+        // user goes, for every algorithm: there is one per enrolled image, re-embedded ones included.
+        for (FaceFeature feature : faceFeatureRepository.findAllByUserIdAndStatus(userId, FaceFeature.FaceStatus.active)) {
+            feature.setStatus(FaceFeature.FaceStatus.inactive);
+            faceFeatureRepository.save(feature);
+            afterCommit(() -> faceGalleryCache.onDeleted(feature));
+        }
 
         return FaceResponse.builder()
                 .success(true)
@@ -203,69 +701,62 @@ public class FaceService {
                 .build();
     }
 
-    private JsonNode enrichMatchesWithUserInfo(JsonNode data) {
-        if (data == null || !data.has("matches")) {
-            return data;
-        }
-
-        JsonNode matchesNode = data.get("matches");
-        if (!matchesNode.isArray() || matchesNode.isEmpty()) {
-            return data;
-        }
+    private FaceSearchData enrichMatchesWithUserInfo(FaceSearchData data) {
+        return enrichMatches(data, loadUsers(collectMatchedUserIds(data)));
+    }
 
-        // Filter to matched entries only (prevent leaking unmatched user info)
-        List<JsonNode> matchedOnly = new java.util.ArrayList<>();
-        for (JsonNode match : matchesNode) {
-            if (match.has("matched") && match.get("matched").asBoolean()) {
-                matchedOnly.add(match);
-            }
+    private List<Long> collectMatchedUserIds(FaceSearchData data) {
+        List<Long> userIds = new ArrayList<>();
+        if (data == null || data.getMatches() == null) {
+            return userIds;
         }
-
-        // Collect userIds from matched entries
-        List<Long> userIds = new java.util.ArrayList<>();
-        for (JsonNode match : matchedOnly) {
-            if (match.has("userId")) {
+        for (FaceMatch match : data.getMatches()) {
+            if (Boolean.TRUE.equals(match.getMatched()) && match.getUserId() != null) {
                 try {
-                    userIds.add(Long.parseLong(match.get("userId").asText()));
+                    userIds.add(Long.parseLong(match.getUserId()));
                 } catch (NumberFormatException e) {
-                    log.warn("Invalid userId in match: {}", match.get("userId").asText());
+                    log.warn("Invalid userId in match: {}", match.getUserId());
                 }
             }
         }
+        return userIds;
+    }
 
-        // Batch fetch users
-        Map<Long, User> userMap = userRepository.findAllById(userIds).stream()
+    private Map<Long, User> loadUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findAllById(userIds).stream()
                 .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
 
-        // Build enriched matches array (matched only)
-        ArrayNode enrichedMatches = OBJECT_MAPPER.createArrayNode();
-        for (JsonNode match : matchedOnly) {
-            ObjectNode enrichedMatch = OBJECT_MAPPER.createObjectNode();
-            enrichedMatch.put("userId", match.get("userId").asText());
-            enrichedMatch.put("distance", match.get("distance").asDouble());
-            enrichedMatch.put("matched", true);
+    /**
+     * Keeps only matched hits, to prevent leaking unmatched user info, and adds the
+     * user's name to each in place; the bound matches are what gets serialized.
+     */
+    private FaceSearchData enrichMatches(FaceSearchData data, Map<Long, User> userMap) {
+        if (data == null || data.getMatches() == null || data.getMatches().isEmpty()) {
+            return data;
+        }
 
+        List<FaceMatch> matched = new ArrayList<>();
+        for (FaceMatch match : data.getMatches()) {
+            if (!Boolean.TRUE.equals(match.getMatched())) {
+                continue;
+            }
             try {
-                Long matchUserId = Long.parseLong(match.get("userId").asText());
-                User user = userMap.get(matchUserId);
+                User user = userMap.get(Long.parseLong(match.getUserId()));
                 if (user != null) {
-                    enrichedMatch.put("firstName", user.getFirstName());
-                    enrichedMatch.put("lastName", user.getLastName());
+                    match.setFirstName(user.getFirstName());
+                    match.setLastName(user.getLastName());
                 }
             } catch (NumberFormatException ignored) {
                 // userId wasn't a valid number, skip enrichment
             }
-
-            enrichedMatches.add(enrichedMatch);
-        }
-
-        // Build enriched data node
-        ObjectNode enrichedData = OBJECT_MAPPER.createObjectNode();
-        enrichedData.set("matches", enrichedMatches);
-        if (data.has("query_encoding")) {
-            enrichedData.put("query_encoding", data.get("query_encoding").asText());
+            matched.add(match);
         }
-        return enrichedData;
+        data.setMatches(matched);
+        return data;
     }
 
     @Traceable("face.isRegistered")
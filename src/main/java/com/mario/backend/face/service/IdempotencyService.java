@@ -1,8 +1,13 @@
 package com.mario.backend.face.service;
 
+import com.mario.backend.face.image.ImagePayload;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -11,11 +16,44 @@ public class IdempotencyService {
 
     private static final ThreadLocal<String> currentKey = new ThreadLocal<>();
 
+    private static final int HASH_CHUNK = 8192;
+
     public String computeImageHash(String imageData) {
+        MessageDigest digest = newDigest();
+        // Base64 is ASCII, so feed the chars in small chunks instead of copying the whole String
+        byte[] chunk = new byte[Math.min(HASH_CHUNK, imageData.length())];
+        for (int start = 0; start < imageData.length(); start += chunk.length) {
+            int n = Math.min(chunk.length, imageData.length() - start);
+            for (int i = 0; i < n; i++) {
+                char c = imageData.charAt(start + i);
+                if (c >= 0x80) {
+                    return bytesToHex(newDigest().digest(imageData.getBytes(StandardCharsets.UTF_8)));
+                }
+                chunk[i] = (byte) c;
+            }
+            digest.update(chunk, 0, n);
+        }
+        return bytesToHex(digest.digest());
+    }
+
+    /**
+     * Same hash as {@link #computeImageHash(String)} of the image's standard base64
+     * text, so dedupe keys match across JSON and binary uploads. The base64 is
+     * streamed into the digest rather than built.
+     */
+    public String computeImageHash(ImagePayload image) {
+        MessageDigest digest = newDigest();
+        try (DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            image.writeBase64(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytesToHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-1");
-            byte[] hash = digest.digest(imageData.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
+            return MessageDigest.getInstance("SHA-1");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-1 algorithm not available", e);
         }
@@ -1,47 +1,67 @@
 package com.mario.backend.face.service;
 
+import com.mario.backend.face.image.ImagePayload;
 import io.minio.*;
 import io.minio.errors.*;
+import io.minio.messages.Item;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.UUID;
+import java.time.Instant;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MinioService {
 
+    private static final long STREAM_PART_SIZE = 10L * 1024 * 1024;
+
     private final MinioClient minioClient;
 
     @Value("${minio.bucket-name:face-images}")
     private String bucketName;
 
-    public String uploadImage(Long userId, String base64Image) {
+    private volatile boolean bucketVerified;
+
+    /**
+     * Checks the bucket once up front instead of on every upload. MinIO being down at
+     * startup is not fatal: the check is then repeated by uploads until one succeeds.
+     */
+    @PostConstruct
+    public void verifyBucket() {
         try {
             ensureBucketExists();
+        } catch (Exception e) {
+            log.warn("Could not verify MinIO bucket {} at startup, will retry on first upload: {}",
+                    bucketName, e.getMessage());
+        }
+    }
 
-            byte[] imageBytes = Base64.getDecoder().decode(base64Image);
-            String objectName = String.format("%d/%s.jpg", userId, UUID.randomUUID());
+    /**
+     * Uploads straight from the shared image buffer under the given key; no copy is made.
+     */
+    public void uploadImage(String objectName, ImagePayload image) {
+        try {
+            ensureBucketExists();
 
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
-                            .stream(new ByteArrayInputStream(imageBytes), imageBytes.length, -1)
+                            .stream(image.openStream(), image.size(), -1)
                             .contentType("image/jpeg")
                             .build()
             );
 
             log.info("Image uploaded successfully: {}/{}", bucketName, objectName);
-            return objectName;
 
         } catch (Exception e) {
             log.error("Failed to upload image to MinIO", e);
@@ -49,6 +69,47 @@ public class MinioService {
         }
     }
 
+    /**
+     * Streams an object of unknown or known size ({@code size < 0} for unknown) without buffering it in memory.
+     */
+    public void putObject(String objectName, InputStream stream, long size, String contentType) {
+        try {
+            ensureBucketExists();
+
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(stream, size, size < 0 ? STREAM_PART_SIZE : -1)
+                            .contentType(contentType)
+                            .build()
+            );
+            log.info("Object uploaded successfully: {}/{}", bucketName, objectName);
+
+        } catch (Exception e) {
+            log.error("Failed to upload object to MinIO", e);
+            throw new RuntimeException("Failed to upload object", e);
+        }
+    }
+
+    /**
+     * Opens an object for streaming; the caller must close the returned stream.
+     */
+    public InputStream openObject(String objectName) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .build()
+            );
+
+        } catch (Exception e) {
+            log.error("Failed to open object from MinIO", e);
+            throw new RuntimeException("Failed to open object", e);
+        }
+    }
+
     public byte[] downloadImage(String objectName) {
         try {
             GetObjectResponse response = minioClient.getObject(
@@ -65,6 +126,52 @@ public class MinioService {
         }
     }
 
+    /**
+     * Passes every object under {@code prefix} with its last-modified time to {@code consumer};
+     * the listing is paged lazily, so the bucket is never held in memory.
+     */
+    public void listObjects(String prefix, BiConsumer<String, Instant> consumer) {
+        try {
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .prefix(prefix)
+                            .recursive(true)
+                            .build())) {
+                Item item = result.get();
+                consumer.accept(item.objectName(), item.lastModified().toInstant());
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to list objects in MinIO", e);
+            throw new RuntimeException("Failed to list objects", e);
+        }
+    }
+
+    /**
+     * The object's last-modified time, or null when it does not exist.
+     */
+    public Instant lastModified(String objectName) {
+        try {
+            return minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .build()
+            ).lastModified().toInstant();
+
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return null;
+            }
+            log.error("Failed to stat object in MinIO", e);
+            throw new RuntimeException("Failed to stat object", e);
+        } catch (Exception e) {
+            log.error("Failed to stat object in MinIO", e);
+            throw new RuntimeException("Failed to stat object", e);
+        }
+    }
+
     public void deleteImage(String objectName) {
         try {
             minioClient.removeObject(
@@ -85,6 +192,9 @@ public class MinioService {
             IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException,
             InternalException {
 
+        if (bucketVerified) {
+            return;
+        }
         boolean exists = minioClient.bucketExists(
                 BucketExistsArgs.builder().bucket(bucketName).build()
         );
@@ -95,6 +205,7 @@ public class MinioService {
             );
             log.info("Bucket created: {}", bucketName);
         }
+        bucketVerified = true;
     }
 
     public String getBucketName() {
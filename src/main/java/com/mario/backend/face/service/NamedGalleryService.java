@@ -0,0 +1,141 @@
+package com.mario.backend.face.service;
+
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.dto.NamedGalleryRequest;
+import com.mario.backend.face.dto.NamedGalleryResponse;
+import com.mario.backend.face.entity.NamedGallery;
+import com.mario.backend.face.entity.NamedGalleryMember;
+import com.mario.backend.face.gallery.NamedGalleryCache;
+import com.mario.backend.face.repository.NamedGalleryMemberRepository;
+import com.mario.backend.face.repository.NamedGalleryRepository;
+import com.mario.backend.users.entity.User;
+import com.mario.backend.users.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Named galleries (site / group / watchlist) and their membership. Changes are
+ * applied as deltas, both in MySQL and in the in-memory member sets, so
+ * adding a few users to a large gallery costs only those rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NamedGalleryService {
+
+    private final NamedGalleryRepository galleryRepository;
+    private final NamedGalleryMemberRepository memberRepository;
+    private final UserRepository userRepository;
+    private final NamedGalleryCache namedGalleryCache;
+
+    @Transactional
+    public NamedGalleryResponse create(Long createdBy, NamedGalleryRequest request) {
+        if (galleryRepository.existsByName(request.getName())) {
+            throw new ApiException(ErrorCode.FACE_GALLERY_NAME_EXISTS);
+        }
+        NamedGallery gallery = galleryRepository.save(NamedGallery.builder()
+                .name(request.getName())
+                .type(request.getType())
+                .description(request.getDescription())
+                .createdBy(createdBy)
+                .build());
+        log.info("Named gallery {} ({}) created by userId={}", gallery.getId(), gallery.getName(), createdBy);
+        return toResponse(gallery, 0L, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<NamedGalleryResponse> list() {
+        return galleryRepository.findAll().stream()
+                .map(gallery -> toResponse(gallery, memberRepository.countByGalleryId(gallery.getId()), null))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public NamedGalleryResponse get(Long galleryId) {
+        NamedGallery gallery = find(galleryId);
+        return toResponse(gallery, memberRepository.countByGalleryId(galleryId), null);
+    }
+
+    @Transactional
+    public void delete(Long galleryId) {
+        find(galleryId);
+        memberRepository.deleteByGalleryId(galleryId);
+        galleryRepository.deleteById(galleryId);
+        afterCommit(() -> namedGalleryCache.onDeleted(galleryId));
+    }
+
+    /**
+     * Adds users that exist and are not members yet; others are ignored.
+     */
+    @Transactional
+    public NamedGalleryResponse addMembers(Long galleryId, List<Long> userIds) {
+        NamedGallery gallery = find(galleryId);
+        Set<Long> requested = new LinkedHashSet<>(userIds);
+        requested.removeAll(memberRepository.findUserIdsByGalleryIdAndUserIdIn(galleryId, requested));
+        Set<Long> existing = new HashSet<>();
+        for (User user : userRepository.findAllById(requested)) {
+            existing.add(user.getId());
+        }
+        requested.retainAll(existing);
+
+        memberRepository.saveAll(requested.stream()
+                .map(userId -> NamedGalleryMember.builder().galleryId(galleryId).userId(userId).build())
+                .toList());
+        Set<Long> added = Set.copyOf(requested);
+        afterCommit(() -> namedGalleryCache.onMembersAdded(galleryId, added));
+        return toResponse(gallery, memberRepository.countByGalleryId(galleryId), added.size());
+    }
+
+    @Transactional
+    public NamedGalleryResponse removeMembers(Long galleryId, List<Long> userIds) {
+        NamedGallery gallery = find(galleryId);
+        Set<Long> removed = Set.copyOf(userIds);
+        int deleted = memberRepository.deleteByGalleryIdAndUserIdIn(galleryId, removed);
+        afterCommit(() -> namedGalleryCache.onMembersRemoved(galleryId, removed));
+        return toResponse(gallery, memberRepository.countByGalleryId(galleryId), deleted);
+    }
+
+    private NamedGallery find(Long galleryId) {
+        return galleryRepository.findById(galleryId)
+                .orElseThrow(() -> new ApiException(ErrorCode.FACE_GALLERY_NOT_FOUND));
+    }
+
+    /**
+     * Peers reload from MySQL on the version bump, so it must not precede the commit.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static NamedGalleryResponse toResponse(NamedGallery gallery, Long memberCount, Integer changed) {
+        return NamedGalleryResponse.builder()
+                .id(gallery.getId())
+                .name(gallery.getName())
+                .type(gallery.getType().name())
+                .description(gallery.getDescription())
+                .memberCount(memberCount)
+                .changed(changed)
+                .createdAt(gallery.getCreatedAt())
+                .updatedAt(gallery.getUpdatedAt())
+                .build();
+    }
+}
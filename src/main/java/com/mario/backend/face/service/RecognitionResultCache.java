@@ -0,0 +1,121 @@
+package com.mario.backend.face.service;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.gallery.FaceGallery;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU of successful 1:N recognition results, keyed by image hash,
+ * algorithm, gallery version and named gallery. Registering or deleting a face
+ * bumps the gallery version, so entries from before the change are never hit
+ * again and simply age out. Named gallery member sets are replaced on every
+ * membership change, so an entry only hits for the exact set it was computed
+ * against.
+ * <p>
+ * Results are stored without the caller's user id and re-stamped on a hit.
+ */
+@Component
+public class RecognitionResultCache {
+
+    private final FaceRecognitionProperties properties;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Access-ordered, so the eldest entry is the least recently used; guarded by itself.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > properties.getResultCache().getMaxEntries();
+        }
+    };
+
+    public RecognitionResultCache(FaceRecognitionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = meterRegistry.counter("face.recognition.cache", "result", "hit");
+        this.misses = meterRegistry.counter("face.recognition.cache", "result", "miss");
+        Gauge.builder("face.recognition.cache.hit.ratio", this, RecognitionResultCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("face.recognition.cache.size", this, RecognitionResultCache::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.getResultCache().isEnabled();
+    }
+
+    /**
+     * Returns the cached result for this probe against the gallery as it is now,
+     * or runs the search and caches a successful result.
+     *
+     * @param galleryId named gallery, or null for the whole gallery
+     * @param scope     its member set, as passed to the search
+     */
+    public FaceResponse get(String imageHash, FaceGallery gallery, Long galleryId, Set<Long> scope, Long userId,
+                            Supplier<FaceResponse> search) {
+        // Version read before searching, so a result racing with a change is filed under the old version
+        Key key = new Key(imageHash, gallery.getAlgorithmReg(), gallery.version(), galleryId);
+        long now = System.nanoTime();
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && (cached.expiresAt - now <= 0 || cached.scope != scope)) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.increment();
+            return FaceResponse.builder()
+                    .success(cached.success)
+                    .code(cached.code)
+                    .message(cached.message)
+                    .data(cached.data)
+                    .userId(userId)
+                    .build();
+        }
+
+        misses.increment();
+        FaceResponse response = search.get();
+        if (Boolean.TRUE.equals(response.getSuccess())) {
+            Entry entry = new Entry(response.getSuccess(), response.getCode(), response.getMessage(),
+                    response.getData(), scope, now + properties.getResultCache().getTtl().toNanos());
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+        return response;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private record Key(String imageHash, String algorithmReg, long galleryVersion, Long galleryId) {
+    }
+
+    /**
+     * @param data shared between hits; only ever serialized, never modified
+     */
+    private record Entry(Boolean success, String code, String message, FaceSearchData data, Set<Long> scope,
+                         long expiresAt) {
+    }
+}
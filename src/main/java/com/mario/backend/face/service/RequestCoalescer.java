@@ -0,0 +1,187 @@
+package com.mario.backend.face.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for identical concurrent face requests, typically kiosk retries
+ * of the same image: the first caller computes, the others wait for and share
+ * its result (or exception).
+ * <p>
+ * Within a node callers join the in-flight future. With
+ * {@code coalescing.distributed} the first caller cluster-wide also takes a
+ * short Redis lease; callers on other nodes poll for the result it publishes
+ * and compute themselves if the lease goes away without one. Only requests
+ * that arrive while the lease is held see the published result, so this never
+ * acts as a cache.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private static final String LEASE_PREFIX = "face:inflight:lease:";
+    private static final String RESULT_PREFIX = "face:inflight:result:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final FaceRecognitionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return properties.getCoalescing().isEnabled();
+    }
+
+    /**
+     * @param operation e.g. {@code recognize}; part of the key and the metric tag
+     * @param key       everything the result depends on, including the image hash
+     * @param type      result type, for reading a result published by another node
+     */
+    public <T> T execute(String operation, String key, Class<T> type, Supplier<T> computation) {
+        if (!isEnabled()) {
+            return computation.get();
+        }
+        String flightKey = operation + ":" + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, mine);
+        if (leader != null) {
+            count(operation, "joined");
+            return type.cast(await(leader));
+        }
+
+        try {
+            T result = properties.getCoalescing().isDistributed()
+                    ? executeWithLease(operation, flightKey, type, computation)
+                    : lead(operation, computation);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    private <T> T executeWithLease(String operation, String flightKey, Class<T> type, Supplier<T> computation) {
+        FaceRecognitionProperties.Coalescing config = properties.getCoalescing();
+        String leaseKey = LEASE_PREFIX + flightKey;
+        String resultKey = RESULT_PREFIX + flightKey;
+        String token = UUID.randomUUID().toString();
+
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token, config.getLease());
+        } catch (Exception e) {
+            log.warn("Failed to acquire face request lease {}: {}", flightKey, e.getMessage());
+            return lead(operation, computation);
+        }
+
+        if (Boolean.TRUE.equals(acquired)) {
+            try {
+                T result = lead(operation, computation);
+                publish(resultKey, result);
+                return result;
+            } finally {
+                release(leaseKey, token);
+            }
+        }
+
+        T remote = awaitRemote(leaseKey, resultKey, type);
+        if (remote != null) {
+            count(operation, "joined_remote");
+            return remote;
+        }
+        // The other node failed or gave up; its callers see their own error, ours get a fresh attempt
+        count(operation, "fallback");
+        return computation.get();
+    }
+
+    private <T> T lead(String operation, Supplier<T> computation) {
+        count(operation, "leader");
+        return computation.get();
+    }
+
+    /**
+     * Polls for the lease holder's result until it appears, the lease is gone or
+     * has outlived its TTL. Returns null when this caller should compute itself.
+     */
+    private <T> T awaitRemote(String leaseKey, String resultKey, Class<T> type) {
+        FaceRecognitionProperties.Coalescing config = properties.getCoalescing();
+        long deadline = System.nanoTime() + config.getLease().toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(config.getPollInterval().toMillis());
+                String json = redisTemplate.opsForValue().get(resultKey);
+                if (json != null) {
+                    return objectMapper.readValue(json, type);
+                }
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(leaseKey))) {
+                    // The result is written before the lease is released
+                    json = redisTemplate.opsForValue().get(resultKey);
+                    return json != null ? objectMapper.readValue(json, type) : null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read coalesced face result {}: {}", resultKey, e.getMessage());
+        }
+        return null;
+    }
+
+    private void publish(String resultKey, Object result) {
+        try {
+            redisTemplate.opsForValue().set(resultKey, objectMapper.writeValueAsString(result),
+                    properties.getCoalescing().getResultTtl());
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize coalesced face result {}: {}", resultKey, e.getMessage());
+        } catch (Exception e) {
+            log.warn("Failed to publish coalesced face result {}: {}", resultKey, e.getMessage());
+        }
+    }
+
+    private void release(String leaseKey, String token) {
+        try {
+            // Not atomic; at worst a lease that expired and was re-taken is dropped early
+            if (token.equals(redisTemplate.opsForValue().get(leaseKey))) {
+                redisTemplate.delete(leaseKey);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release face request lease {}: {}", leaseKey, e.getMessage());
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        meterRegistry.counter("face.requests.coalesced", "operation", operation, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,98 @@
+package com.mario.backend.gateway.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+    /**
+     * Downstream name to base URL. Each downstream gets its own circuit breaker,
+     * bulkhead and retry budget; calls to other hosts are keyed by host and port.
+     */
+    private Map<String, String> downstreams = new LinkedHashMap<>();
+
+    private RetryBudget retryBudget = new RetryBudget();
+
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    private Hedging hedging = new Hedging();
+
+    @Getter
+    @Setter
+    public static class RetryBudget {
+        /**
+         * Retries allowed per first attempt, e.g. 0.2 lets retries add at most 20% load.
+         */
+        private double ratio = 0.2;
+        /**
+         * Retries always allowed per second, so a quiet downstream can still be retried.
+         */
+        private int minRetriesPerSecond = 5;
+        /**
+         * Upper bound on saved-up retries, so a long healthy period cannot fund a retry storm.
+         */
+        private int maxBalance = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class ConcurrencyLimit {
+        private boolean enabled = true;
+        private int initialLimit = 16;
+        private int minLimit = 4;
+        /**
+         * Kept at or below the bulkhead size, which remains the hard cap.
+         */
+        private int maxLimit = 32;
+        /**
+         * Latency may grow to this multiple of the long-term average before the limit shrinks.
+         */
+        private double rttTolerance = 1.5;
+        private double smoothing = 0.2;
+        /**
+         * Calls allowed to wait for a permit once the limit is reached; beyond that they are shed.
+         */
+        private int maxQueue = 16;
+        private Duration maxWait = Duration.ofMillis(100);
+    }
+
+    @Getter
+    @Setter
+    public static class Hedging {
+        private boolean enabled = false;
+        /**
+         * Request paths that are safe to send twice; only these are hedged. Batch encodes
+         * are left out: they carry no {@code X-Idempotency-Key} to deduplicate a second copy.
+         */
+        private Set<String> paths = new LinkedHashSet<>(List.of("/api/v1/face/encode", "/api/v1/face/search"));
+        /**
+         * A second request goes out once the first has taken longer than this share of recent calls to the path.
+         */
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private int windowSize = 1000;
+        /**
+         * Calls to a path before it is hedged at all.
+         */
+        private int minSamples = 50;
+        /**
+         * Hedges allowed per hedgeable call, capping the extra load on the downstream.
+         */
+        private double budgetRatio = 0.1;
+        private int minHedgesPerSecond = 1;
+        private int maxBalance = 20;
+    }
+}
@@ -2,6 +2,7 @@ package com.mario.backend.gateway.config;
 
 import com.mario.backend.face.service.IdempotencyService;
 import com.mario.backend.logging.context.TraceContext;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -12,7 +13,7 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 public class OkHttpConfig {
 
-    @Value("${http-client.connect-timeout:30000}")
+    @Value("${http-client.connect-timeout:5000}")
     private long connectTimeout;
 
     @Value("${http-client.read-timeout:60000}")
@@ -21,9 +22,20 @@ public class OkHttpConfig {
     @Value("${http-client.write-timeout:60000}")
     private long writeTimeout;
 
+    /**
+     * Bounds asynchronous (hedged) calls only; concurrency per downstream is governed by
+     * the bulkhead and adaptive limit in {@code HttpClientService}, so this must stay above them.
+     */
+    @Value("${http-client.max-requests-per-host:128}")
+    private int maxRequestsPerHost;
+
     @Bean
     public OkHttpClient okHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), maxRequestsPerHost * 2));
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
         return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
                 .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
                 .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
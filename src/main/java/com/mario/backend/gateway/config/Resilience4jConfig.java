@@ -1,37 +1,91 @@
 package com.mario.backend.gateway.config;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 
 import jakarta.annotation.PostConstruct;
 
+/**
+ * Logs retry, circuit breaker and bulkhead events. Circuit breakers and bulkheads
+ * are created per downstream on first use, so listeners are also attached to
+ * registry entries added after startup.
+ */
 @Slf4j
 @Configuration
 public class Resilience4jConfig {
 
     private final RetryRegistry retryRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
 
-    public Resilience4jConfig(RetryRegistry retryRegistry) {
+    public Resilience4jConfig(RetryRegistry retryRegistry,
+                              CircuitBreakerRegistry circuitBreakerRegistry,
+                              BulkheadRegistry bulkheadRegistry) {
         this.retryRegistry = retryRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
     }
 
     @PostConstruct
     public void registerRetryEventListeners() {
-        retryRegistry.getAllRetries().forEach(retry -> {
-            retry.getEventPublisher()
-                    .onRetry(event -> log.warn("Retry attempt #{} for '{}', waiting {}ms. Last exception: {}",
-                            event.getNumberOfRetryAttempts(),
-                            event.getName(),
-                            event.getWaitInterval().toMillis(),
-                            event.getLastThrowable().getMessage()))
-                    .onError(event -> log.error("Retry exhausted for '{}' after {} attempts. Last exception: {}",
-                            event.getName(),
-                            event.getNumberOfRetryAttempts(),
-                            event.getLastThrowable().getMessage()))
-                    .onSuccess(event -> log.info("Retry succeeded for '{}' after {} attempt(s)",
-                            event.getName(),
-                            event.getNumberOfRetryAttempts()));
-        });
+        retryRegistry.getAllRetries().forEach(this::registerListeners);
+        retryRegistry.getEventPublisher().onEntryAdded(event -> registerListeners(event.getAddedEntry()));
+    }
+
+    @PostConstruct
+    public void registerCircuitBreakerEventListeners() {
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::registerListeners);
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event -> registerListeners(event.getAddedEntry()));
+    }
+
+    @PostConstruct
+    public void registerBulkheadEventListeners() {
+        bulkheadRegistry.getAllBulkheads().forEach(this::registerListeners);
+        bulkheadRegistry.getEventPublisher().onEntryAdded(event -> registerListeners(event.getAddedEntry()));
+    }
+
+    private void registerListeners(Retry retry) {
+        retry.getEventPublisher()
+                .onRetry(event -> log.warn("Retry attempt #{} for '{}', waiting {}ms. Last exception: {}",
+                        event.getNumberOfRetryAttempts(),
+                        event.getName(),
+                        event.getWaitInterval().toMillis(),
+                        event.getLastThrowable().getMessage()))
+                .onError(event -> log.error("Retry exhausted for '{}' after {} attempts. Last exception: {}",
+                        event.getName(),
+                        event.getNumberOfRetryAttempts(),
+                        event.getLastThrowable().getMessage()))
+                .onSuccess(event -> log.info("Retry succeeded for '{}' after {} attempt(s)",
+                        event.getName(),
+                        event.getNumberOfRetryAttempts()));
+    }
+
+    private void registerListeners(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher()
+                .onStateTransition(event -> log.warn("Circuit breaker '{}' changed state: {}",
+                        event.getCircuitBreakerName(),
+                        event.getStateTransition()))
+                .onFailureRateExceeded(event -> log.warn("Circuit breaker '{}' failure rate {}% exceeded threshold",
+                        event.getCircuitBreakerName(),
+                        event.getFailureRate()))
+                .onSlowCallRateExceeded(event -> log.warn("Circuit breaker '{}' slow call rate {}% exceeded threshold",
+                        event.getCircuitBreakerName(),
+                        event.getSlowCallRate()))
+                // One per rejected call while open; the state transition above is the signal
+                .onCallNotPermitted(event -> log.debug("Circuit breaker '{}' is open, call rejected",
+                        event.getCircuitBreakerName()));
+    }
+
+    private void registerListeners(Bulkhead bulkhead) {
+        bulkhead.getEventPublisher()
+                .onCallRejected(event -> log.warn("Bulkhead '{}' is full ({} concurrent calls), call rejected",
+                        event.getBulkheadName(),
+                        bulkhead.getBulkheadConfig().getMaxConcurrentCalls()));
     }
 }
@@ -46,10 +46,13 @@ public class SecurityConfig {
                                 "/api/v1/user/forgot-password",
                                 "/api/v1/user/reset-password",
                                 "/api/v1/user/accept-invitation",
-                                "/actuator/**",
+                                "/actuator/health/**",
+                                "/actuator/info",
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**"
                         ).permitAll()
+                        // Metrics expose per-endpoint traffic and internals: admin only
+                        .requestMatchers("/actuator/**").hasAuthority("metrics:read")
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(ex -> ex
@@ -0,0 +1,118 @@
+package com.mario.backend.unittest.common;
+
+import com.mario.backend.common.http.AdaptiveConcurrencyLimiter;
+import com.mario.backend.gateway.config.HttpClientProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private HttpClientProperties.ConcurrencyLimit config;
+
+    @BeforeEach
+    void setUp() {
+        config = new HttpClientProperties.ConcurrencyLimit();
+        config.setInitialLimit(10);
+        config.setMinLimit(2);
+        config.setMaxLimit(50);
+        config.setMaxQueue(0);
+    }
+
+    @Test
+    void steadyLatencyUnderLoad_growsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        hold(limiter, 9);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.acquire()).isTrue();
+            limiter.onSuccess(FAST);
+        }
+
+        assertThat(limiter.limit()).isGreaterThan(10);
+    }
+
+    @Test
+    void risingLatency_shrinksLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        // Establish the baseline while mostly idle, so the limit does not move yet
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.onSuccess(FAST);
+        }
+        assertThat(limiter.limit()).isEqualTo(10);
+
+        hold(limiter, 5);
+        for (int i = 0; i < 20 && limiter.acquire(); i++) {
+            limiter.onSuccess(SLOW);
+        }
+
+        assertThat(limiter.limit()).isLessThan(10);
+    }
+
+    @Test
+    void idleLimiter_doesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.onSuccess(FAST);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void limitReached_shedsWithoutQueue() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        hold(limiter, 10);
+
+        assertThat(limiter.acquire()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(10);
+    }
+
+    @Test
+    void limitReached_queuedCallerProceedsWhenPermitFreed() throws Exception {
+        config.setMaxQueue(1);
+        config.setMaxWait(Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        hold(limiter, 10);
+
+        Thread releaser = new Thread(() -> {
+            while (limiter.queued() == 0) {
+                Thread.onSpinWait();
+            }
+            limiter.onIgnore();
+        });
+        releaser.start();
+
+        assertThat(limiter.acquire()).isTrue();
+        releaser.join();
+        assertThat(limiter.inFlight()).isEqualTo(10);
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    void droppedCall_backsOff() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+
+        limiter.acquire();
+        limiter.onDropped();
+
+        assertThat(limiter.limit()).isEqualTo(9);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    private static void hold(AdaptiveConcurrencyLimiter limiter, int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertThat(limiter.acquire()).isTrue();
+        }
+    }
+}
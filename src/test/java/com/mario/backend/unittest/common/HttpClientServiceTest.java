@@ -0,0 +1,271 @@
+package com.mario.backend.unittest.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.common.http.RetryableHttpException;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
+import com.mario.backend.face.service.IdempotencyService;
+import com.mario.backend.gateway.config.HttpClientProperties;
+import com.mario.backend.logging.context.TraceContext;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HttpClientServiceTest {
+
+    private MockWebServer server;
+    private HttpClientProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientService httpClientService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        properties = new HttpClientProperties();
+        properties.getDownstreams().put("face-ai", server.url("/").toString());
+        meterRegistry = new SimpleMeterRegistry();
+        httpClientService = newService();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClientService.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void retryableFailure_isRetriedUntilSuccess() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"code\":\"0000\"}"));
+
+        String response = httpClientService.post(url("/api/v1/face/encode"), Map.of("image", "abc"));
+
+        assertThat(response).isEqualTo("{\"code\":\"0000\"}");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void clientError_isNotRetried() {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("bad image"));
+
+        assertThatThrownBy(() -> httpClientService.post(url("/api/v1/face/encode"), Map.of()))
+                .isInstanceOf(NonRetryableHttpException.class)
+                .satisfies(e -> assertThat(((NonRetryableHttpException) e).getResponseBody()).isEqualTo("bad image"));
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void openCircuit_failsFastWithoutCallingTheDownstream() {
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        // Two calls of three attempts each fill the window with failures
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> httpClientService.get(url("/health"))).isInstanceOf(HttpClientException.class);
+        }
+        int requests = server.getRequestCount();
+
+        assertThatThrownBy(() -> httpClientService.get(url("/health")))
+                .isInstanceOf(HttpClientException.class)
+                .hasCauseInstanceOf(CallNotPermittedException.class);
+        assertThat(server.getRequestCount()).isEqualTo(requests);
+    }
+
+    @Test
+    void exhaustedRetryBudget_stopsRetrying() {
+        properties.getRetryBudget().setRatio(0);
+        properties.getRetryBudget().setMinRetriesPerSecond(0);
+        properties.getRetryBudget().setMaxBalance(0);
+        httpClientService = newService();
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertThatThrownBy(() -> httpClientService.get(url("/health")))
+                .isInstanceOf(HttpClientException.class)
+                .hasCauseInstanceOf(RetryableHttpException.class);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(meterRegistry.counter("http.client.retry.budget.exhausted", "downstream", "face-ai").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void slowIdempotentCall_isHedgedAndFirstAnswerWins() throws InterruptedException {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(1);
+        properties.getHedging().setMinDelay(Duration.ofMillis(10));
+        httpClientService = newService();
+        server.enqueue(new MockResponse().setBody("warm-up"));
+        httpClientService.post(url("/api/v1/face/encode"), Map.of("image", "abc"));
+
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(5, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+        String response;
+        IdempotencyService.setCurrentKey("image-hash");
+        try {
+            response = httpClientService.post(url("/api/v1/face/encode"), Map.of("image", "abc"));
+        } finally {
+            IdempotencyService.clearCurrentKey();
+        }
+
+        assertThat(response).isEqualTo("fast");
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        server.takeRequest();
+        // The hedge runs on an OkHttp thread but still carries the caller's idempotency key
+        assertThat(server.takeRequest().getHeader("X-Idempotency-Key")).isEqualTo("image-hash");
+        assertThat(server.takeRequest().getHeader("X-Idempotency-Key")).isEqualTo("image-hash");
+        assertThat(meterRegistry.counter("http.client.hedging", "downstream", "face-ai", "outcome", "hedge_won")
+                .count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void hedge_withoutAFreeLimiterPermit_isSkipped() {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(1);
+        properties.getHedging().setMinDelay(Duration.ofMillis(10));
+        properties.getConcurrencyLimit().setInitialLimit(1);
+        properties.getConcurrencyLimit().setMinLimit(1);
+        properties.getConcurrencyLimit().setMaxLimit(1);
+        httpClientService = newService();
+        server.enqueue(new MockResponse().setBody("warm-up"));
+        httpClientService.post(url("/api/v1/face/encode"), Map.of("image", "abc"));
+
+        // The primary holds the only permit for its whole run
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        String response = httpClientService.post(url("/api/v1/face/encode"), Map.of("image", "abc"));
+
+        assertThat(response).isEqualTo("slow");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(meterRegistry.counter("http.client.hedging", "downstream", "face-ai", "outcome", "limited")
+                .count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void nonIdempotentPath_isNeverHedged() {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(1);
+        httpClientService = newService();
+        server.enqueue(new MockResponse().setBody("ok"));
+        server.enqueue(new MockResponse().setBody("ok").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+
+        httpClientService.post(url("/api/v1/face/galleries/facenet/deltas"), Map.of());
+        httpClientService.post(url("/api/v1/face/galleries/facenet/deltas"), Map.of());
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void postAsync_retriesWithoutBlockingAndKeepsTheCallersHeaders() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"code\":\"0000\"}"));
+
+        CompletableFuture<String> response;
+        TraceContext.setTraceId("trace-1");
+        IdempotencyService.setCurrentKey("image-hash");
+        try {
+            response = httpClientService.postAsync(url("/api/v1/face/encode"), Map.of("image", "abc"));
+        } finally {
+            IdempotencyService.clearCurrentKey();
+            TraceContext.clear();
+        }
+
+        assertThat(response.join()).isEqualTo("{\"code\":\"0000\"}");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        for (int i = 0; i < 2; i++) {
+            var request = server.takeRequest();
+            assertThat(request.getHeader("X-Request-ID")).isEqualTo("trace-1");
+            assertThat(request.getHeader("X-Idempotency-Key")).isEqualTo("image-hash");
+        }
+    }
+
+    @Test
+    void getAsync_clientError_failsTheFutureWithoutRetrying() {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+
+        CompletableFuture<String> response = httpClientService.getAsync(url("/health"));
+
+        assertThatThrownBy(() -> HttpClientService.await(response, url("/health")))
+                .isInstanceOf(NonRetryableHttpException.class);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAsync_openCircuit_failsFast() {
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> httpClientService.getAsync(url("/health")).join())
+                    .hasCauseInstanceOf(HttpClientException.class);
+        }
+        int requests = server.getRequestCount();
+
+        assertThatThrownBy(() -> HttpClientService.await(httpClientService.getAsync(url("/health")), url("/health")))
+                .isInstanceOf(HttpClientException.class)
+                .hasCauseInstanceOf(CallNotPermittedException.class);
+        assertThat(server.getRequestCount()).isEqualTo(requests);
+    }
+
+    @Test
+    void typedPost_bindsTheStreamedBodyAndRejectsOneThatDoesNotFit() {
+        TypeReference<TypedExternalServiceResponse<Map<String, Integer>>> type = new TypeReference<>() {
+        };
+        server.enqueue(new MockResponse().setBody("{\"code\":\"0000\",\"extra\":true,\"data\":{\"size\":2}}"));
+        server.enqueue(new MockResponse().setBody("{\"code\":\"0000\",\"data\":{\"size\":\"two\"}}"));
+
+        TypedExternalServiceResponse<Map<String, Integer>> response =
+                httpClientService.post(url("/api/v1/face/search"), Map.of(), type);
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).containsEntry("size", 2);
+        assertThatThrownBy(() -> httpClientService.post(url("/api/v1/face/search"), Map.of(), type))
+                .isInstanceOf(HttpClientException.class)
+                .hasMessageContaining("Failed to parse response body");
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    private HttpClientService newService() {
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(Map.of("externalService",
+                CircuitBreakerConfig.custom()
+                        .slidingWindowSize(6)
+                        .minimumNumberOfCalls(6)
+                        .failureRateThreshold(50)
+                        .waitDurationInOpenState(Duration.ofMinutes(1))
+                        .recordExceptions(RetryableHttpException.class)
+                        .build()));
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(4).build());
+        RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryExceptions(RetryableHttpException.class)
+                .build());
+        return new HttpClientService(new OkHttpClient(), new ObjectMapper(), circuitBreakers, bulkheads, retries,
+                properties, meterRegistry);
+    }
+
+    private String url(String path) {
+        String base = server.url("/").toString();
+        return base.substring(0, base.length() - 1) + path;
+    }
+}
@@ -0,0 +1,188 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.enrollment.BulkEnrollmentPipeline;
+import com.mario.backend.face.enrollment.EnrollmentBatchWriter;
+import com.mario.backend.face.enrollment.EnrollmentOutcome;
+import com.mario.backend.face.enrollment.JobCoordinator;
+import com.mario.backend.face.enrollment.JobLease;
+import com.mario.backend.face.enrollment.LeaseLostException;
+import com.mario.backend.face.entity.FaceEnrollmentItem;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.image.FaceImageStore;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.repository.FaceEnrollmentItemRepository;
+import com.mario.backend.face.repository.FaceEnrollmentJobRepository;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.IdempotencyService;
+import com.mario.backend.face.service.MinioService;
+import com.mario.backend.users.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static com.mario.backend.testutil.TestConstants.SAMPLE_IMAGE_BASE64;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkEnrollmentPipelineTest {
+
+    private static final String SOURCE = "enrollments/source.ndjson";
+    private static final String OBJECT =
+            FaceImageStore.objectName(FaceImageStore.contentHash(ImagePayload.fromBase64(SAMPLE_IMAGE_BASE64)));
+
+    @Mock private FaceEnrollmentJobRepository jobRepository;
+    @Mock private FaceEnrollmentItemRepository itemRepository;
+    @Mock private FaceImageRepository faceImageRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private MinioService minioService;
+    @Mock private HttpClientService httpClientService;
+    @Mock private IdempotencyService idempotencyService;
+    @Mock private EnrollmentBatchWriter batchWriter;
+    @Mock private FaceGalleryCache faceGalleryCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BulkEnrollmentPipeline pipeline;
+    private FaceEnrollmentJob job;
+
+    @BeforeEach
+    void setUp() {
+        FaceRecognitionProperties properties = new FaceRecognitionProperties();
+        properties.getEnrollment().setWorkers(2);
+        properties.getEnrollment().setMaxInFlight(4);
+        properties.getEnrollment().setFlushInterval(Duration.ofMillis(20));
+        // One /encode call per record, so the stubs below see every image
+        properties.getEncodeBatching().setEnabled(false);
+        meterRegistry = new SimpleMeterRegistry();
+        EncodeBatcher encodeBatcher = new EncodeBatcher(httpClientService, properties, meterRegistry);
+        ReflectionTestUtils.setField(encodeBatcher, "faceRecognitionServiceUrl", "http://localhost:5000");
+        FaceImageStore faceImageStore = new FaceImageStore(minioService, faceImageRepository, meterRegistry);
+        pipeline = new BulkEnrollmentPipeline(jobRepository, itemRepository, faceImageRepository, userRepository,
+                minioService, faceImageStore, encodeBatcher, idempotencyService, batchWriter, faceGalleryCache,
+                properties, meterRegistry);
+
+        job = FaceEnrollmentJob.builder()
+                .id(7L).requestedBy(1L).sourceObject(SOURCE)
+                .sourceFormat(FaceEnrollmentJob.SourceFormat.ndjson)
+                .status(FaceEnrollmentJob.JobStatus.running)
+                .build();
+        String ndjson = line(1L) + line(2L) + line(3L);
+        when(minioService.openObject(SOURCE))
+                .thenReturn(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+        when(idempotencyService.computeImageHash(SAMPLE_IMAGE_BASE64)).thenReturn("hash");
+    }
+
+    @Test
+    void run_skipsCommittedRecordsDedupesAndCompletes() {
+        when(itemRepository.findSeqsByJobId(7L)).thenReturn(List.of(0));
+        when(faceImageRepository.existsByUserIdAndImageHash(2L, "hash")).thenReturn(false);
+        when(faceImageRepository.existsByUserIdAndImageHash(3L, "hash")).thenReturn(true);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(httpClientService.post(contains("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"AACAPw==\"}}");
+        when(faceImageRepository.existsByObjectName(OBJECT)).thenReturn(false);
+        when(minioService.getBucketName()).thenReturn("face-images");
+        when(batchWriter.persist(eq(7L), anyList(), any(), any())).thenAnswer(inv -> {
+            List<EnrollmentOutcome> outcomes = inv.getArgument(1);
+            return outcomes.stream().map(EnrollmentOutcome::feature).filter(f -> f != null).toList();
+        });
+        when(jobRepository.finish(eq(7L), eq(FaceEnrollmentJob.JobStatus.completed), eq(3), isNull(), any(), any()))
+                .thenReturn(1);
+
+        pipeline.run(job, lease());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EnrollmentOutcome>> batches = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter, atLeastOnce()).persist(eq(7L), batches.capture(), any(), any());
+        List<EnrollmentOutcome> outcomes = batches.getAllValues().stream().flatMap(List::stream).toList();
+        assertThat(outcomes).extracting(o -> o.record().seq()).containsExactlyInAnyOrder(1, 2);
+        EnrollmentOutcome enrolled = outcomes.stream()
+                .filter(o -> o.status() == FaceEnrollmentItem.ItemStatus.enrolled).findFirst().orElseThrow();
+        assertThat(enrolled.feature().getFeatureDim()).isEqualTo(1);
+        assertThat(enrolled.image().getObjectName()).isEqualTo(OBJECT);
+        verify(minioService).uploadImage(eq(OBJECT), any(ImagePayload.class));
+
+        verify(httpClientService, times(1)).post(anyString(), anyMap());
+        verify(faceGalleryCache).onRegistered(argThat((List<FaceFeature> features) -> features.size() == 1));
+        verify(jobRepository).finish(eq(7L), eq(FaceEnrollmentJob.JobStatus.completed), eq(3), isNull(), any(), any());
+        verify(minioService).deleteImage(SOURCE);
+    }
+
+    @Test
+    void run_leaseLost_stopsWithoutFinishing() {
+        when(itemRepository.findSeqsByJobId(7L)).thenReturn(List.of(1, 2));
+        when(faceImageRepository.existsByUserIdAndImageHash(1L, "hash")).thenReturn(true);
+        when(batchWriter.persist(eq(7L), anyList(), any(), any())).thenThrow(new LeaseLostException(7L));
+
+        pipeline.run(job, lease());
+
+        verify(jobRepository, never()).finish(anyLong(), any(), any(), any(), any(), any());
+        verify(minioService, never()).deleteImage(anyString());
+        verifyNoInteractions(faceGalleryCache);
+    }
+
+    @Test
+    void run_poisonRecord_isRecordedFailedAfterMaxAttempts() {
+        when(itemRepository.findSeqsByJobId(7L)).thenReturn(List.of(1, 2));
+        when(faceImageRepository.existsByUserIdAndImageHash(1L, "hash")).thenReturn(false);
+        when(userRepository.existsById(1L)).thenThrow(new IllegalStateException("Unexpected row"));
+        when(batchWriter.persist(eq(7L), anyList(), any(), any())).thenReturn(List.of());
+        when(jobRepository.finish(eq(7L), eq(FaceEnrollmentJob.JobStatus.completed), eq(3), isNull(), any(), any()))
+                .thenReturn(1);
+
+        pipeline.run(job, lease());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EnrollmentOutcome>> batches = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).persist(eq(7L), batches.capture(), any(), any());
+        assertThat(batches.getValue()).singleElement().satisfies(outcome -> {
+            assertThat(outcome.status()).isEqualTo(FaceEnrollmentItem.ItemStatus.failed);
+            assertThat(outcome.message()).isEqualTo("Failed after 3 attempts: Unexpected row");
+        });
+        verify(userRepository, times(3)).existsById(1L);
+        verify(minioService).deleteImage(SOURCE);
+    }
+
+    @Test
+    void run_faceAiUnavailable_pausesWithoutFinishing() {
+        when(itemRepository.findSeqsByJobId(7L)).thenReturn(List.of(1, 2));
+        when(faceImageRepository.existsByUserIdAndImageHash(1L, "hash")).thenReturn(false);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(httpClientService.post(anyString(), anyMap()))
+                .thenThrow(new HttpClientException("http://localhost:5000", "Retries exhausted"));
+
+        pipeline.run(job, lease());
+
+        verify(batchWriter, never()).persist(anyLong(), anyList(), any(), any());
+        verify(minioService, never()).uploadImage(anyString(), any(ImagePayload.class));
+        verify(jobRepository, never()).finish(anyLong(), any(), any(), any(), any(), any());
+        verify(minioService, never()).deleteImage(anyString());
+        verify(httpClientService, times(3)).post(anyString(), anyMap());
+        assertThat(meterRegistry.counter("face.enrollment.records", "result", "retry").count()).isEqualTo(3.0);
+    }
+
+    private static JobLease lease() {
+        return new JobLease(7L, JobCoordinator.now());
+    }
+
+    private static String line(long userId) {
+        return "{\"user_id\":" + userId + ",\"image_data\":\"" + SAMPLE_IMAGE_BASE64 + "\"}\n";
+    }
+}
@@ -0,0 +1,59 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.search.EmbeddingCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.*;
+
+class EmbeddingCodecTest {
+
+    private static final float[] VECTOR = {0.25f, -1.5f, 3.0f};
+
+    @Test
+    void decode_base64LittleEndian() {
+        assertThat(EmbeddingCodec.decode(EmbeddingCodec.encode(VECTOR))).containsExactly(VECTOR);
+    }
+
+    @Test
+    void decode_numberListFallback() {
+        assertThat(EmbeddingCodec.decode("[0.25, -1.5, 3.0]")).containsExactly(VECTOR);
+        assertThat(EmbeddingCodec.decode("0.25,-1.5,3.0")).containsExactly(VECTOR);
+    }
+
+    @Test
+    void toBytes_base64_isDecodedBytesVerbatim() {
+        byte[] packed = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN)
+                .putFloat(0.25f).putFloat(-1.5f).putFloat(3.0f).array();
+
+        assertThat(EmbeddingCodec.toBytes(Base64.getEncoder().encodeToString(packed))).isEqualTo(packed);
+        assertThat(EmbeddingCodec.toBytes(VECTOR)).isEqualTo(packed);
+    }
+
+    @Test
+    void asFloatBuffer_isViewOverPackedBytes() {
+        byte[] packed = EmbeddingCodec.toBytes(VECTOR);
+
+        FloatBuffer view = EmbeddingCodec.asFloatBuffer(packed);
+        packed[0] = 0;
+        packed[1] = 0;
+        packed[2] = 0;
+        packed[3] = 0;
+
+        assertThat(view.remaining()).isEqualTo(3);
+        assertThat(view.get(0)).isZero();
+        assertThat(view.get(2)).isEqualTo(3.0f);
+    }
+
+    @Test
+    void toBytes_invalidLength_throws() {
+        assertThatThrownBy(() -> EmbeddingCodec.toBytes(Base64.getEncoder().encodeToString(new byte[5])))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EmbeddingCodec.toBytes(" "))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
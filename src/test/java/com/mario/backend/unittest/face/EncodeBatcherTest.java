@@ -0,0 +1,211 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.NonRetryableHttpException;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.EncodeResult;
+import com.mario.backend.face.service.IdempotencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EncodeBatcherTest {
+
+    private static final String ALGORITHM = "facenet_mobilenet";
+
+    @Mock private HttpClientService httpClientService;
+
+    private FaceRecognitionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private EncodeBatcher batcher;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FaceRecognitionProperties();
+        properties.getEncodeBatching().setMaxBatchSize(3);
+        // Long enough that only a full batch is sent early
+        properties.getEncodeBatching().setLinger(Duration.ofSeconds(2));
+        meterRegistry = new SimpleMeterRegistry();
+        batcher = new EncodeBatcher(httpClientService, properties, meterRegistry);
+        ReflectionTestUtils.setField(batcher, "faceRecognitionServiceUrl", "http://localhost:5000");
+        callers = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        batcher.shutdown();
+    }
+
+    @Test
+    void encode_concurrentCallers_shareOneBatchAndGetTheirOwnResults() throws Exception {
+        when(httpClientService.post(endsWith("/api/v1/face/encode-batch"), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> body = inv.getArgument(1);
+            List<?> images = (List<?>) body.get("imagesBase64");
+            List<String> results = new ArrayList<>();
+            images.forEach(image -> results.add(
+                    "{\"encoding\":\"enc-" + image + "\",\"code\":\"0000\",\"message\":\"Success\"}"));
+            return "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"results\":[" + String.join(",", results) + "]}}";
+        });
+
+        List<Future<EncodeResult>> results = new ArrayList<>();
+        for (String image : List.of("a", "b", "c")) {
+            results.add(callers.submit(() -> batcher.encode(image, ALGORITHM)));
+        }
+
+        assertThat(results.get(0).get().encoding()).isEqualTo("enc-a");
+        assertThat(results.get(1).get().encoding()).isEqualTo("enc-b");
+        assertThat(results.get(2).get().encoding()).isEqualTo("enc-c");
+        assertThat(results.get(2).get().algorithmReg()).isEqualTo(ALGORITHM);
+        verify(httpClientService, times(1)).post(anyString(), anyMap());
+        assertThat(meterRegistry.get("face.encode.batch.size").tag("trigger", "size").summary().totalAmount())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void encode_loneImage_goesToSingleEncodeAfterLingerWithCallersIdempotencyKey() {
+        properties.getEncodeBatching().setLinger(Duration.ofMillis(5));
+        AtomicReference<String> keySeen = new AtomicReference<>();
+        when(httpClientService.post(endsWith("/api/v1/face/encode"), anyMap())).thenAnswer(inv -> {
+            keySeen.set(IdempotencyService.getCurrentKey());
+            return "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"enc\",\"algorithmReg\":\"arcface\"}}";
+        });
+
+        IdempotencyService.setCurrentKey("image-hash");
+        EncodeResult result;
+        try {
+            result = batcher.encode("a", ALGORITHM);
+        } finally {
+            IdempotencyService.clearCurrentKey();
+        }
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.algorithmReg()).isEqualTo("arcface");
+        assertThat(keySeen.get()).isEqualTo("image-hash");
+        assertThat(meterRegistry.get("face.encode.batch.size").tag("trigger", "linger").summary().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void encode_batchEndpointMissing_fallsBackToOneCallPerImage() throws Exception {
+        when(httpClientService.post(endsWith("/api/v1/face/encode-batch"), anyMap()))
+                .thenThrow(new NonRetryableHttpException("url", "Not Found", 404, ""));
+        when(httpClientService.post(endsWith("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"enc\"}}");
+
+        List<Future<EncodeResult>> results = new ArrayList<>();
+        for (String image : List.of("a", "b", "c")) {
+            results.add(callers.submit(() -> batcher.encode(image, ALGORITHM)));
+        }
+
+        for (Future<EncodeResult> result : results) {
+            assertThat(result.get().encoding()).isEqualTo("enc");
+        }
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> bodies = ArgumentCaptor.forClass(Map.class);
+        verify(httpClientService, times(3)).post(endsWith("/api/v1/face/encode"), bodies.capture());
+        assertThat(bodies.getAllValues()).extracting(body -> body.get("imageBase64"))
+                .containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test
+    void encode_batchCallFails_failsEveryCaller() {
+        when(httpClientService.post(anyString(), anyMap())).thenThrow(new HttpClientException("url", "timeout"));
+
+        List<Future<EncodeResult>> results = new ArrayList<>();
+        for (String image : List.of("a", "b", "c")) {
+            results.add(callers.submit(() -> batcher.encode(image, ALGORITHM)));
+        }
+
+        for (Future<EncodeResult> result : results) {
+            assertThatThrownBy(result::get).hasCauseInstanceOf(HttpClientException.class);
+        }
+        assertThat(meterRegistry.get("face.encode.batch").tag("result", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void encode_disabled_callsSingleEncodeOnCallerThread() {
+        properties.getEncodeBatching().setEnabled(false);
+        when(httpClientService.post(endsWith("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"5001\",\"message\":\"No face detected\"}");
+
+        EncodeResult result = batcher.encode("a", ALGORITHM);
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.code()).isEqualTo("5001");
+        assertThat(meterRegistry.find("face.encode.batch.size").summary()).isNull();
+    }
+
+    @Test
+    void encodeAll_sendsTheCallersImagesInOneBatchCall() {
+        when(httpClientService.post(endsWith("/api/v1/face/encode-batch"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"results\":["
+                        + "{\"code\":\"0000\",\"encoding\":\"enc\"},"
+                        + "{\"code\":\"4001\",\"message\":\"No face detected\"}]}}");
+
+        List<EncodeResult> results = batcher.encodeAll(List.of("a", "b"), ALGORITHM, ErrorCode.FACE_RECOGNITION_FAILED);
+
+        assertThat(results).extracting(EncodeResult::encoding).containsExactly("enc", null);
+        assertThat(results.get(1).code()).isEqualTo("4001");
+        verify(httpClientService, times(1)).post(anyString(), anyMap());
+    }
+
+    @Test
+    void encodeAll_batchEndpointMissing_fallsBackWithTheCallersFailureCodeAndKey() {
+        IdempotencyService.setCurrentKey("caller-key");
+        try {
+            when(httpClientService.post(endsWith("/api/v1/face/encode-batch"), anyMap()))
+                    .thenThrow(new NonRetryableHttpException("url", "Not Found", 404, ""));
+            when(httpClientService.post(endsWith("/api/v1/face/encode"), anyMap()))
+                    .thenReturn("{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"enc\"}}")
+                    .thenThrow(new NonRetryableHttpException("url", "Bad Request", 400, ""));
+
+            List<EncodeResult> results = batcher.encodeAll(List.of("a", "b"), ALGORITHM,
+                    ErrorCode.FACE_RECOGNITION_FAILED);
+
+            assertThat(results.get(0).encoding()).isEqualTo("enc");
+            assertThat(results.get(1).isSuccess()).isFalse();
+            assertThat(results.get(1).code()).isEqualTo(ErrorCode.FACE_RECOGNITION_FAILED.getCode());
+            assertThat(IdempotencyService.getCurrentKey()).isEqualTo("caller-key");
+        } finally {
+            IdempotencyService.clearCurrentKey();
+        }
+    }
+
+    @Test
+    void encodeAsync_disabled_usesTheAsyncClient() {
+        properties.getEncodeBatching().setEnabled(false);
+        when(httpClientService.postAsync(endsWith("/api/v1/face/encode"), anyMap())).thenReturn(
+                CompletableFuture.completedFuture("{\"code\":\"0000\",\"data\":{\"encoding\":\"[0.1]\"}}"));
+
+        EncodeResult result = batcher.encodeAsync("a", ALGORITHM).join();
+
+        assertThat(result.encoding()).isEqualTo("[0.1]");
+        verify(httpClientService, never()).post(anyString(), anyMap());
+    }
+}
@@ -0,0 +1,106 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.enrollment.EnrollmentRecord;
+import com.mario.backend.face.enrollment.EnrollmentSource;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.mario.backend.testutil.TestConstants.SAMPLE_IMAGE_BASE64;
+import static org.assertj.core.api.Assertions.*;
+
+class EnrollmentSourceTest {
+
+    @Test
+    void ndjson_readsRecordsAndReportsBadLinesInPlace() throws IOException {
+        String ndjson = "{\"user_id\": 1, \"image_data\": \"" + SAMPLE_IMAGE_BASE64 + "\"}\n"
+                + "\n"
+                + "not json\n"
+                + "{\"user_id\": 3}\r\n"
+                + "{\"user_id\": \"4\", \"image_data\": \"" + SAMPLE_IMAGE_BASE64 + "\"}";
+
+        List<EnrollmentRecord> records = readAll(ndjson.getBytes(StandardCharsets.UTF_8),
+                FaceEnrollmentJob.SourceFormat.ndjson, 1024);
+
+        assertThat(records).extracting(EnrollmentRecord::seq).containsExactly(0, 1, 2, 3);
+        assertThat(records.get(0).isValid()).isTrue();
+        assertThat(records.get(0).userId()).isEqualTo(1L);
+        assertThat(records.get(0).imageBase64()).isEqualTo(SAMPLE_IMAGE_BASE64);
+        assertThat(records.get(1).error()).isEqualTo("Malformed JSON line");
+        assertThat(records.get(2).isValid()).isFalse();
+        assertThat(records.get(2).userId()).isEqualTo(3L);
+        assertThat(records.get(3).userId()).isEqualTo(4L);
+    }
+
+    @Test
+    void ndjson_oversizedLine_isRejectedWithoutBufferingIt() throws IOException {
+        String huge = "{\"user_id\": 1, \"image_data\": \"" + "A".repeat(10_000) + "\"}\n"
+                + "{\"user_id\": 2, \"image_data\": \"" + SAMPLE_IMAGE_BASE64 + "\"}\n";
+
+        List<EnrollmentRecord> records = readAll(huge.getBytes(StandardCharsets.UTF_8),
+                FaceEnrollmentJob.SourceFormat.ndjson, 1024);
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0).error()).startsWith("Line exceeds");
+        assertThat(records.get(1).isValid()).isTrue();
+    }
+
+    @Test
+    void zip_derivesUserIdFromEntryName() throws IOException {
+        byte[] image = Base64.getDecoder().decode(SAMPLE_IMAGE_BASE64);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, "12.jpg", image);
+            addEntry(zip, "34/front.jpg", image);
+            addEntry(zip, "__MACOSX/._12.jpg", image);
+            addEntry(zip, "alice.jpg", image);
+        }
+
+        List<EnrollmentRecord> records = readAll(bytes.toByteArray(), FaceEnrollmentJob.SourceFormat.zip, 1024);
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).userId()).isEqualTo(12L);
+        assertThat(records.get(0).imageBase64()).isEqualTo(SAMPLE_IMAGE_BASE64);
+        assertThat(records.get(1).userId()).isEqualTo(34L);
+        assertThat(records.get(2).isValid()).isFalse();
+    }
+
+    @Test
+    void zip_oversizedImage_isRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, "12.jpg", new byte[2048]);
+        }
+
+        List<EnrollmentRecord> records = readAll(bytes.toByteArray(), FaceEnrollmentJob.SourceFormat.zip, 1024);
+
+        assertThat(records.get(0).error()).startsWith("Image exceeds");
+    }
+
+    private static List<EnrollmentRecord> readAll(byte[] data, FaceEnrollmentJob.SourceFormat format,
+                                                  int maxImageBytes) throws IOException {
+        List<EnrollmentRecord> records = new ArrayList<>();
+        try (EnrollmentSource source = EnrollmentSource.open(new ByteArrayInputStream(data), format, maxImageBytes)) {
+            EnrollmentRecord record;
+            while ((record = source.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,266 @@
+package com.mario.backend.unittest.face;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceMatch;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.event.FaceGalleryChangedEvent;
+import com.mario.backend.face.gallery.FaceAiGalleryReplica;
+import com.mario.backend.face.gallery.FaceGallery;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.HnswIndex;
+import com.mario.backend.gateway.config.HttpClientProperties;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaceAiGalleryReplicaTest {
+
+    private static final String ALGORITHM = "facenet_mobilenet";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Mock private FaceGalleryCache faceGalleryCache;
+    @Mock private FaceGallery gallery;
+
+    private final AtomicLong galleryVersion = new AtomicLong();
+    private final Map<Long, float[]> galleryVectors = new ConcurrentHashMap<>();
+
+    private MockWebServer server;
+    private FaceAiStub faceAi;
+    private FaceAiGalleryReplica replica;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        faceAi = new FaceAiStub();
+        server = new MockWebServer();
+        server.setDispatcher(faceAi);
+        server.start();
+
+        FaceRecognitionProperties properties = new FaceRecognitionProperties();
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.SYNCED);
+        HttpClientService httpClientService = new HttpClientService(new OkHttpClient(), new ObjectMapper(),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+                new HttpClientProperties(), new SimpleMeterRegistry());
+        replica = new FaceAiGalleryReplica(httpClientService, faceGalleryCache, properties, new SimpleMeterRegistry());
+        String url = server.url("/").toString();
+        ReflectionTestUtils.setField(replica, "faceRecognitionServiceUrl", url.substring(0, url.length() - 1));
+
+        lenient().when(gallery.getAlgorithmReg()).thenReturn(ALGORITHM);
+        lenient().when(gallery.version()).thenAnswer(inv -> galleryVersion.get());
+        lenient().doAnswer(inv -> {
+            HnswIndex.EntryConsumer consumer = inv.getArgument(1);
+            // userId = featureId * 10 keeps the fixture readable
+            galleryVectors.forEach((featureId, vector) -> consumer.accept(featureId, featureId * 10, vector));
+            return null;
+        }).when(gallery).forEachChunked(anyInt(), any());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        replica.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void search_replicaBehind_resyncsOnceThenSearchesByVersionOnly() throws Exception {
+        galleryVersion.set(3);
+        galleryVectors.put(1L, new float[]{1f, 0f});
+        galleryVectors.put(2L, new float[]{0f, 1f});
+
+        TypedExternalServiceResponse<FaceSearchData> first =
+                replica.search("probe", gallery, null, this::unexpectedFallback);
+        TypedExternalServiceResponse<FaceSearchData> second =
+                replica.search("probe", gallery, null, this::unexpectedFallback);
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(second.getData().getMatches()).extracting(FaceMatch::getUserId)
+                .containsExactlyInAnyOrder("10", "20");
+        assertThat(faceAi.version).isEqualTo(3L);
+        assertThat(faceAi.replica).containsEntry("1", "10").containsEntry("2", "20");
+        assertThat(faceAi.paths).containsExactly("POST /api/v1/face/search", "PUT /api/v1/face/gallery/" + ALGORITHM,
+                "POST /api/v1/face/search", "POST /api/v1/face/search");
+
+        JsonNode search = faceAi.bodies.get(faceAi.bodies.size() - 1);
+        assertThat(search.has("candidates")).isFalse();
+        assertThat(search.get("galleryVersion").asLong()).isEqualTo(3L);
+    }
+
+    @Test
+    void onGalleryChanged_pushesDeltaAndReplicaFollowsWithoutResync() {
+        galleryVersion.set(3);
+        galleryVectors.put(1L, new float[]{1f, 0f});
+        replica.search("probe", gallery, null, this::unexpectedFallback);
+
+        galleryVersion.set(4);
+        replica.onGalleryChanged(new FaceGalleryChangedEvent(ALGORITHM, 3, 4,
+                List.of(new FaceGalleryChangedEvent.Upsert(7L, 70L, EmbeddingCodec.encode(new float[]{0.5f, 0.5f}))),
+                List.of(1L)));
+        await().atMost(Duration.ofSeconds(5)).until(() -> faceAi.version == 4L);
+
+        TypedExternalServiceResponse<FaceSearchData> response =
+                replica.search("probe", gallery, null, this::unexpectedFallback);
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(faceAi.replica).containsOnlyKeys("7");
+        assertThat(faceAi.paths).filteredOn(path -> path.startsWith("PUT")).hasSize(1);
+        assertThat(faceAi.paths).contains("POST /api/v1/face/gallery/" + ALGORITHM + "/deltas");
+    }
+
+    @Test
+    void onGalleryChanged_replicaMissedDelta_nextSearchResyncs() {
+        galleryVersion.set(3);
+        faceAi.version = 1;
+
+        replica.onGalleryChanged(new FaceGalleryChangedEvent(ALGORITHM, 2, 3, List.of(), List.of(9L)));
+        await().atMost(Duration.ofSeconds(5)).until(() -> faceAi.paths.size() == 1);
+        assertThat(faceAi.version).isEqualTo(1L);
+
+        replica.search("probe", gallery, null, this::unexpectedFallback);
+
+        assertThat(faceAi.version).isEqualTo(3L);
+        assertThat(faceAi.paths).contains("PUT /api/v1/face/gallery/" + ALGORITHM);
+    }
+
+    @Test
+    void search_replicaAhead_catchesUpInsteadOfOverwritingIt() {
+        galleryVersion.set(4);
+        faceAi.version = 5;
+        doAnswer(inv -> {
+            galleryVersion.set(5);
+            return null;
+        }).when(faceGalleryCache).syncWithPeers();
+
+        TypedExternalServiceResponse<FaceSearchData> response =
+                replica.search("probe", gallery, null, this::unexpectedFallback);
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(faceAi.paths).containsExactly("POST /api/v1/face/search", "POST /api/v1/face/search");
+    }
+
+    @Test
+    void search_stillBehindAfterCatchUp_fallsBackToPostingCandidates() {
+        galleryVersion.set(4);
+        faceAi.version = 5;
+        TypedExternalServiceResponse<FaceSearchData> stateless =
+                new TypedExternalServiceResponse<>("0000", "", "stateless", null);
+
+        TypedExternalServiceResponse<FaceSearchData> response =
+                replica.search("probe", gallery, null, () -> stateless);
+
+        assertThat(response).isSameAs(stateless);
+        verify(faceGalleryCache).syncWithPeers();
+        assertThat(faceAi.paths).noneMatch(path -> path.startsWith("PUT"));
+        assertThat(faceAi.version).isEqualTo(5L);
+    }
+
+    @Test
+    void search_namedGallery_sendsMemberIds() {
+        galleryVersion.set(0);
+
+        replica.search("probe", gallery, Set.of(10L), this::unexpectedFallback);
+
+        assertThat(faceAi.bodies.get(0).get("userIds")).extracting(JsonNode::asText).containsExactly("10");
+    }
+
+    private TypedExternalServiceResponse<FaceSearchData> unexpectedFallback() {
+        throw new AssertionError("Fell back to posting candidates");
+    }
+
+    /**
+     * Minimal face-ai side of the replica protocol: one gallery, feature id -> user id.
+     */
+    private static final class FaceAiStub extends Dispatcher {
+
+        private volatile long version;
+        private final Map<String, String> replica = new ConcurrentHashMap<>();
+        private final List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        private final List<JsonNode> bodies = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            try {
+                JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                String path = request.getMethod() + " " + request.getPath();
+                MockResponse response = handle(path, body);
+                bodies.add(body);
+                paths.add(path);
+                return response;
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(400);
+            }
+        }
+
+        private MockResponse handle(String path, JsonNode body) {
+            if (path.equals("PUT /api/v1/face/gallery/" + ALGORITHM)) {
+                replica.clear();
+                body.get("candidates").forEach(c -> replica.put(c.get("featureId").asText(), c.get("userId").asText()));
+                version = body.get("version").asLong();
+                return ok("{}");
+            }
+            if (path.equals("POST /api/v1/face/gallery/" + ALGORITHM + "/deltas")) {
+                if (body.get("baseVersion").asLong() != version) {
+                    return mismatch();
+                }
+                body.get("upserts").forEach(u -> replica.put(u.get("featureId").asText(), u.get("userId").asText()));
+                body.get("deletes").forEach(d -> replica.remove(d.asText()));
+                version = body.get("version").asLong();
+                return ok("{}");
+            }
+            if (path.equals("POST /api/v1/face/search")) {
+                if (body.get("galleryVersion").asLong() != version) {
+                    return mismatch();
+                }
+                // Every replica member matches, so the answer shows what the replica held
+                String matches = replica.values().stream()
+                        .map(userId -> "{\"userId\":\"" + userId + "\",\"distance\":0.0,\"matched\":true}")
+                        .collect(Collectors.joining(","));
+                return ok("{\"matches\":[" + matches + "]}");
+            }
+            return new MockResponse().setResponseCode(404);
+        }
+
+        private MockResponse mismatch() {
+            return new MockResponse().setResponseCode(409).setBody(
+                    "{\"code\":\"GALLERY_VERSION_MISMATCH\",\"message\":\"Gallery version mismatch\",\"data\":{\"version\":"
+                            + version + "}}");
+        }
+
+        private static MockResponse ok(String data) {
+            return new MockResponse().setBody("{\"code\":\"0000\",\"message\":\"Success\",\"data\":" + data + "}");
+        }
+    }
+}
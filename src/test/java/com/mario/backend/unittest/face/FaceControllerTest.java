@@ -4,14 +4,21 @@ import com.mario.backend.auth.security.AuthenticatedUser;
 import com.mario.backend.auth.security.JwtTokenProvider;
 import com.mario.backend.auth.service.TokenBlacklistService;
 import com.mario.backend.audit.publisher.AuditEventPublisher;
+import com.mario.backend.face.config.FaceRecognitionProperties;
 import com.mario.backend.face.controller.FaceController;
+import com.mario.backend.face.dto.FaceBatchResponse;
+import com.mario.backend.face.dto.FaceJobResponse;
 import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceVerifyResponse;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.service.FaceRegistrationJobService;
 import com.mario.backend.face.service.FaceService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
@@ -34,6 +41,8 @@ class FaceControllerTest {
     @Autowired private MockMvc mockMvc;
 
     @MockBean private FaceService faceService;
+    @MockBean private FaceRegistrationJobService faceRegistrationJobService;
+    @MockBean private FaceRecognitionProperties properties;
     @MockBean private JwtTokenProvider jwtTokenProvider;
     @MockBean private TokenBlacklistService tokenBlacklistService;
     @MockBean private AuditEventPublisher auditEventPublisher;
@@ -64,11 +73,68 @@ class FaceControllerTest {
                 .andExpect(jsonPath("$.data.user_id").value(USER_ID.intValue()));
     }
 
+    @Test
+    void registerFaceUpload_multipart_returns200() throws Exception {
+        when(properties.getImage()).thenReturn(new FaceRecognitionProperties.Image());
+        when(faceService.registerFace(eq(USER_ID), any(ImagePayload.class))).thenReturn(
+                FaceResponse.builder().success(true).code("0000").userId(USER_ID).build());
+
+        mockMvc.perform(multipart("/api/v1/face/register-identity")
+                        .file(new MockMultipartFile("image", "face.jpg", "image/jpeg", new byte[]{1, 2, 3}))
+                        .with(premiumUser()).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.code").value("0000"));
+    }
+
+    @Test
+    void registerFaceUpload_tooLarge_returns400() throws Exception {
+        FaceRecognitionProperties.Image limits = new FaceRecognitionProperties.Image();
+        limits.setMaxBytes(2);
+        when(properties.getImage()).thenReturn(limits);
+
+        mockMvc.perform(multipart("/api/v1/face/register-identity")
+                        .file(new MockMultipartFile("image", "face.jpg", "image/jpeg", new byte[]{1, 2, 3}))
+                        .with(premiumUser()).with(csrf()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void registerFaceAsync_returns202WithJobLocation() throws Exception {
+        FaceJobResponse job = FaceJobResponse.builder()
+                .jobId("0b6f3c1e-7d0a-4f53-9a39-2f1c7d9e4a10").status("pending").userId(USER_ID).build();
+        when(faceRegistrationJobService.submitRegistration(eq(USER_ID), anyString())).thenReturn(job);
+
+        mockMvc.perform(post("/api/v1/face/register-identity")
+                        .param("async", "true")
+                        .with(premiumUser()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"image_data\":\"base64data\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/face/jobs/" + job.getJobId()))
+                .andExpect(jsonPath("$.data.job_id").value(job.getJobId()))
+                .andExpect(jsonPath("$.data.status").value("pending"));
+    }
+
+    @Test
+    void getJob_returns200() throws Exception {
+        FaceJobResponse job = FaceJobResponse.builder()
+                .jobId("0b6f3c1e-7d0a-4f53-9a39-2f1c7d9e4a10").status("completed").userId(USER_ID)
+                .result(FaceResponse.builder().success(true).code("0000").build())
+                .build();
+        when(faceRegistrationJobService.getJob(USER_ID, job.getJobId())).thenReturn(job);
+
+        mockMvc.perform(get("/api/v1/face/jobs/" + job.getJobId())
+                        .with(premiumUser()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("completed"))
+                .andExpect(jsonPath("$.data.result.code").value("0000"));
+    }
+
     @Test
     void recognizeFace_returns200() throws Exception {
         FaceResponse response = FaceResponse.builder()
                 .success(true).userId(USER_ID).build();
-        when(faceService.recognizeFace(eq(USER_ID), anyString())).thenReturn(response);
+        when(faceService.recognizeFace(eq(USER_ID), anyString(), isNull())).thenReturn(response);
 
         mockMvc.perform(post("/api/v1/face/recognize-identity")
                         .with(premiumUser()).with(csrf())
@@ -78,6 +144,59 @@ class FaceControllerTest {
                 .andExpect(jsonPath("$.data.success").value(true));
     }
 
+    @Test
+    void recognizeFace_withGalleryId_passesItThrough() throws Exception {
+        FaceResponse response = FaceResponse.builder()
+                .success(true).userId(USER_ID).build();
+        when(faceService.recognizeFace(eq(USER_ID), anyString(), eq(7L))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/face/recognize-identity")
+                        .with(premiumUser()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"image_data\":\"base64data\",\"gallery_id\":7}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.success").value(true));
+    }
+
+    @Test
+    void verifyFace_returns200() throws Exception {
+        FaceVerifyResponse response = FaceVerifyResponse.builder()
+                .success(true).code("0000").userId(USER_ID).matched(true).distance(0.42).threshold(1.1).build();
+        when(faceService.verifyFace(eq(USER_ID), anyString())).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/face/verify")
+                        .with(premiumUser()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"image_data\":\"base64data\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.matched").value(true))
+                .andExpect(jsonPath("$.data.distance").value(0.42));
+    }
+
+    @Test
+    void recognizeBatch_returns200() throws Exception {
+        FaceBatchResponse response = FaceBatchResponse.builder()
+                .success(true).code("0000").userId(USER_ID).total(2).succeeded(2).failed(0).results(List.of()).build();
+        when(faceService.recognizeBatch(eq(USER_ID), anyList(), isNull())).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/face/recognize-batch")
+                        .with(premiumUser()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"images\":[\"base64data\",\"base64data\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.total").value(2))
+                .andExpect(jsonPath("$.data.succeeded").value(2));
+    }
+
+    @Test
+    void recognizeBatch_emptyImages_returns400() throws Exception {
+        mockMvc.perform(post("/api/v1/face/recognize-batch")
+                        .with(premiumUser()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"images\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void deleteFace_returns200() throws Exception {
         FaceResponse response = FaceResponse.builder()
@@ -0,0 +1,83 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.auth.security.AuthenticatedUser;
+import com.mario.backend.auth.security.JwtTokenProvider;
+import com.mario.backend.auth.service.TokenBlacklistService;
+import com.mario.backend.audit.publisher.AuditEventPublisher;
+import com.mario.backend.face.controller.FaceEnrollmentController;
+import com.mario.backend.face.dto.FaceEnrollmentJobResponse;
+import com.mario.backend.face.entity.FaceEnrollmentJob;
+import com.mario.backend.face.service.FaceEnrollmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mario.backend.testutil.TestConstants.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = FaceEnrollmentController.class)
+class FaceEnrollmentControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private FaceEnrollmentService faceEnrollmentService;
+    @MockBean private JwtTokenProvider jwtTokenProvider;
+    @MockBean private TokenBlacklistService tokenBlacklistService;
+    @MockBean private AuditEventPublisher auditEventPublisher;
+
+    private RequestPostProcessor userWith(List<String> permissions) {
+        AuthenticatedUser principal = new AuthenticatedUser(USER_ID, USER_EMAIL, ROLE_SUPERADMIN, permissions);
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + ROLE_SUPERADMIN));
+        permissions.forEach(p -> authorities.add(new SimpleGrantedAuthority(p)));
+        return authentication(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @Test
+    void uploadZip_returns202WithJobId() throws Exception {
+        when(faceEnrollmentService.createJob(eq(USER_ID), any(), eq(3L), eq(FaceEnrollmentJob.SourceFormat.zip)))
+                .thenReturn(FaceEnrollmentJobResponse.builder().jobId(7L).status("queued").build());
+
+        mockMvc.perform(multipart("/api/v1/face/enrollments")
+                        .file(new MockMultipartFile("file", "site-a.zip", "application/zip", new byte[]{1, 2, 3}))
+                        .with(userWith(List.of("face:enroll_bulk"))).with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.data.job_id").value(7))
+                .andExpect(jsonPath("$.data.status").value("queued"));
+    }
+
+    @Test
+    void uploadUnknownFormat_returns400() throws Exception {
+        mockMvc.perform(multipart("/api/v1/face/enrollments")
+                        .file(new MockMultipartFile("file", "site-a.csv", "text/csv", new byte[]{1}))
+                        .with(userWith(List.of("face:enroll_bulk"))).with(csrf()))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(faceEnrollmentService);
+    }
+
+    @Test
+    void getJob_returnsProgress() throws Exception {
+        when(faceEnrollmentService.getJob(7L)).thenReturn(FaceEnrollmentJobResponse.builder()
+                .jobId(7L).status("running").processed(40).enrolled(38).duplicates(1).failed(1).build());
+
+        mockMvc.perform(get("/api/v1/face/enrollments/7")
+                        .with(userWith(List.of("face:enroll_bulk"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.processed").value(40))
+                .andExpect(jsonPath("$.data.enrolled").value(38));
+    }
+}
@@ -0,0 +1,375 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.event.FaceGalleryChangedEvent;
+import com.mario.backend.face.gallery.FaceGallery;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.gallery.GallerySnapshot;
+import com.mario.backend.face.gallery.GallerySnapshotStore;
+import com.mario.backend.face.gallery.RerankUnavailableException;
+import com.mario.backend.face.repository.FaceEmbeddingView;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.SearchMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaceGalleryCacheTest {
+
+    private static final String ALGORITHM = "facenet_mobilenet";
+    private static final String VERSION_KEY = "face:gallery:version:" + ALGORITHM;
+
+    @Mock private FaceFeatureRepository faceFeatureRepository;
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+    @Mock private GallerySnapshotStore snapshotStore;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FaceGalleryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cache = new FaceGalleryCache(faceFeatureRepository, new FaceRecognitionProperties(), redisTemplate,
+                snapshotStore, meterRegistry, eventPublisher);
+    }
+
+    @Test
+    void get_buildsOnceThenServesFromMemory() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("3");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of(view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f})));
+
+        FaceGallery first = cache.get(ALGORITHM);
+        FaceGallery second = cache.get(ALGORITHM);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(first.version()).isEqualTo(3L);
+        verify(faceFeatureRepository, times(1)).findEmbeddingsByStatusAndAlgorithmReg(any(), anyString());
+        assertThat(meterRegistry.counter("face.gallery.requests", "algorithm", ALGORITHM, "result", "miss").count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.counter("face.gallery.requests", "algorithm", ALGORITHM, "result", "hit").count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.timer("face.gallery.build", "algorithm", ALGORITHM, "source", "database").count()).isEqualTo(1L);
+    }
+
+    @Test
+    void gauges_followTheGalleryAcrossRebuilds() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("1");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of(view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f})))
+                .thenReturn(List.of(
+                        view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f}),
+                        view(2L, 11L, FaceFeature.FaceStatus.active, new float[]{0f, 1f})));
+
+        cache.get(ALGORITHM);
+        assertThat(meterRegistry.get("face.gallery.size").tag("algorithm", ALGORITHM).gauge().value()).isEqualTo(1.0);
+
+        cache.invalidate(ALGORITHM);
+        assertThat(meterRegistry.get("face.gallery.size").tag("algorithm", ALGORITHM).gauge().value()).isNaN();
+
+        cache.get(ALGORITHM);
+        assertThat(meterRegistry.get("face.gallery.size").tag("algorithm", ALGORITHM).gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.find("face.gallery.size").gauges()).hasSize(1);
+    }
+
+    @Test
+    void onRegisteredAndDeleted_patchInPlaceAndBumpVersion() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn(null);
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of());
+        when(valueOperations.increment(VERSION_KEY)).thenReturn(1L, 2L);
+        FaceGallery gallery = cache.get(ALGORITHM);
+        // As if built long ago: only a watermark moved by the local change can pass the check below
+        LocalDateTime builtAt = LocalDateTime.now().minusDays(1);
+        ReflectionTestUtils.setField(gallery, "watermark", builtAt);
+
+        FaceFeature feature = FaceFeature.builder()
+                .id(5L).userId(20L).algorithmReg(ALGORITHM).status(FaceFeature.FaceStatus.active)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{0f, 1f}))
+                .build();
+        cache.onRegistered(feature);
+
+        assertThat(gallery.size()).isEqualTo(1);
+        assertThat(gallery.version()).isEqualTo(1L);
+        assertThat(gallery.watermark()).isAfter(builtAt);
+        assertThat(gallery.search(new float[]{0f, 1f}, 1).get(0).userId()).isEqualTo(20L);
+
+        cache.onDeleted(feature);
+
+        assertThat(gallery.isEmpty()).isTrue();
+        assertThat(gallery.version()).isEqualTo(2L);
+        verify(faceFeatureRepository, never()).findEmbeddingChangesSince(anyString(), any());
+
+        ArgumentCaptor<FaceGalleryChangedEvent> events = ArgumentCaptor.forClass(FaceGalleryChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        FaceGalleryChangedEvent registered = events.getAllValues().get(0);
+        assertThat(registered.baseVersion()).isZero();
+        assertThat(registered.version()).isEqualTo(1L);
+        assertThat(registered.upserts()).extracting(FaceGalleryChangedEvent.Upsert::featureId).containsExactly(5L);
+        assertThat(events.getAllValues().get(1).deletes()).containsExactly(5L);
+    }
+
+    @Test
+    void onRegistered_peerChangeInBetween_publishesNoEvent() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("1");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of());
+        when(valueOperations.increment(VERSION_KEY)).thenReturn(3L);
+        FaceGallery gallery = cache.get(ALGORITHM);
+        LocalDateTime builtAt = gallery.watermark();
+
+        cache.onRegistered(FaceFeature.builder()
+                .id(5L).userId(20L).algorithmReg(ALGORITHM).status(FaceFeature.FaceStatus.active)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{0f, 1f}))
+                .build());
+
+        assertThat(gallery.version()).isEqualTo(1L);
+        // The peer's change is not applied yet, so the next replay must still start from the build
+        assertThat(gallery.watermark()).isEqualTo(builtAt);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void syncWithPeers_replaysChangesWhenBehind() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("1", "4");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of(view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f})));
+        when(faceFeatureRepository.findEmbeddingChangesSince(eq(ALGORITHM), any(LocalDateTime.class)))
+                .thenReturn(List.of(
+                        view(1L, 10L, FaceFeature.FaceStatus.inactive, new float[]{1f, 0f}),
+                        view(2L, 11L, FaceFeature.FaceStatus.active, new float[]{0f, 1f})));
+        FaceGallery gallery = cache.get(ALGORITHM);
+
+        cache.syncWithPeers();
+
+        assertThat(gallery.version()).isEqualTo(4L);
+        assertThat(gallery.size()).isEqualTo(1);
+        assertThat(gallery.search(new float[]{1f, 0f}, 1).get(0).userId()).isEqualTo(11L);
+        assertThat(meterRegistry.timer("face.gallery.sync", "algorithm", ALGORITHM).count()).isEqualTo(1L);
+    }
+
+    @Test
+    void syncWithPeers_upToDate_doesNotTouchDatabase() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("2");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of());
+        cache.get(ALGORITHM);
+
+        cache.syncWithPeers();
+
+        verify(faceFeatureRepository, never()).findEmbeddingChangesSince(anyString(), any());
+    }
+
+    @Test
+    void syncWithPeers_localDeleteDuringReplay_isAppliedAfterTheReplayedRows() throws Exception {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("1", "2");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of());
+        FaceGallery gallery = cache.get(ALGORITHM);
+        FaceFeature deleted = FaceFeature.builder()
+                .id(5L).userId(20L).algorithmReg(ALGORITHM).status(FaceFeature.FaceStatus.inactive).build();
+        Thread deleter = new Thread(() -> cache.onDeleted(deleted));
+        // The replay read the row before the delete committed; the delete is patched in while it applies
+        when(faceFeatureRepository.findEmbeddingChangesSince(eq(ALGORITHM), any(LocalDateTime.class)))
+                .thenAnswer(inv -> {
+                    deleter.start();
+                    while (deleter.getState() != Thread.State.WAITING
+                            && deleter.getState() != Thread.State.TERMINATED) {
+                        Thread.onSpinWait();
+                    }
+                    return List.of(view(5L, 20L, FaceFeature.FaceStatus.active, new float[]{0f, 1f}));
+                });
+
+        cache.syncWithPeers();
+        deleter.join();
+
+        assertThat(gallery.isEmpty()).isTrue();
+    }
+
+    @Test
+    void scopedSearch_scoresOnlyMemberFacesAndTracksRemovals() {
+        when(valueOperations.get(VERSION_KEY)).thenReturn("1");
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of(
+                        view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f}),
+                        view(2L, 11L, FaceFeature.FaceStatus.active, new float[]{0f, 1f}),
+                        view(3L, 11L, FaceFeature.FaceStatus.active, new float[]{0.1f, 1f})));
+        when(valueOperations.increment(VERSION_KEY)).thenReturn(2L);
+        FaceGallery gallery = cache.get(ALGORITHM);
+
+        assertThat(gallery.size(Set.of(11L, 99L))).isEqualTo(2);
+        assertThat(gallery.search(new float[]{1f, 0f}, 5, Set.of(11L)))
+                .extracting(SearchMatch::userId).containsOnly(11L);
+
+        cache.onDeleted(FaceFeature.builder().id(2L).userId(11L).algorithmReg(ALGORITHM).build());
+
+        assertThat(gallery.size(Set.of(11L))).isEqualTo(1);
+        assertThat(gallery.search(new float[]{0f, 1f}, 5, Set.of(11L)))
+                .extracting(SearchMatch::featureId).containsExactly(3L);
+    }
+
+    @Test
+    void get_withSnapshot_mapsItAndReplaysOnlyLaterChanges(@TempDir Path dir) throws Exception {
+        LocalDateTime snapshotWatermark = LocalDateTime.now().minusMinutes(10);
+        Path file = dir.resolve("gallery.fgs");
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, 2L, snapshotWatermark)) {
+            writer.append(1L, 10L, new float[]{1f, 0f});
+            writer.append(2L, 11L, new float[]{0f, 1f});
+            writer.commit();
+        }
+        when(valueOperations.get(VERSION_KEY)).thenReturn("5");
+        when(snapshotStore.open(ALGORITHM)).thenReturn(Optional.of(GallerySnapshot.open(file, ALGORITHM)));
+        when(faceFeatureRepository.findEmbeddingChangesSince(eq(ALGORITHM), any(LocalDateTime.class)))
+                .thenReturn(List.of(
+                        view(2L, 11L, FaceFeature.FaceStatus.inactive, new float[]{0f, 1f}),
+                        view(3L, 12L, FaceFeature.FaceStatus.active, new float[]{0.6f, 0.8f})));
+
+        FaceGallery gallery = cache.get(ALGORITHM);
+
+        assertThat(gallery.size()).isEqualTo(2);
+        assertThat(gallery.version()).isEqualTo(5L);
+        assertThat(gallery.watermark()).isAfter(snapshotWatermark);
+        assertThat(gallery.search(new float[]{0f, 1f}, 1).get(0).userId()).isEqualTo(12L);
+        verify(faceFeatureRepository).findEmbeddingChangesSince(ALGORITHM,
+                snapshotWatermark.minus(new FaceRecognitionProperties().getGallery().getReplayMargin()));
+        verify(faceFeatureRepository, never()).findEmbeddingsByStatusAndAlgorithmReg(any(), anyString());
+        assertThat(meterRegistry.timer("face.gallery.build", "algorithm", ALGORITHM, "source", "snapshot").count())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    void get_quantizedGallery_reranksWithFullPrecisionVectors() {
+        FaceRecognitionProperties properties = new FaceRecognitionProperties();
+        properties.getSearch().getQuantization().setMode(FaceRecognitionProperties.QuantizationMode.INT8);
+        properties.getSearch().getQuantization().setMinTrainingSize(2);
+        cache = new FaceGalleryCache(faceFeatureRepository, properties, redisTemplate, snapshotStore, meterRegistry,
+                eventPublisher);
+        List<FaceEmbeddingView> rows = List.of(
+                view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f}),
+                view(2L, 11L, FaceFeature.FaceStatus.active, new float[]{0f, 1f}),
+                view(3L, 12L, FaceFeature.FaceStatus.active, new float[]{0.7f, 0.7f}));
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(rows);
+        when(faceFeatureRepository.findEmbeddingsByIdIn(anyCollection())).thenReturn(rows);
+
+        FaceGallery gallery = cache.get(ALGORITHM);
+
+        assertThat(gallery.isQuantized()).isTrue();
+        assertThat(gallery.vectorBytes()).isEqualTo(6L);
+        assertThat(gallery.search(new float[]{0f, 1f}, 1).get(0).userId()).isEqualTo(11L);
+        verify(faceFeatureRepository).findEmbeddingsByIdIn(anyCollection());
+    }
+
+    @Test
+    void search_quantizedGallery_failsWhenFullVectorsCannotBeLoaded() {
+        FaceGallery gallery = quantizedGallery();
+        when(faceFeatureRepository.findEmbeddingsByIdIn(anyCollection()))
+                .thenThrow(new IllegalStateException("Connection is not available"));
+
+        assertThatThrownBy(() -> gallery.search(new float[]{0f, 1f}, 1))
+                .isInstanceOf(RerankUnavailableException.class);
+        assertThat(meterRegistry.counter("face.gallery.rerank", "algorithm", ALGORITHM, "outcome", "failed").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void search_quantizedGallery_dropsCandidatesWithoutFullVectors() {
+        FaceGallery gallery = quantizedGallery();
+        // Feature 2, the closest, has no row any more: it must not be returned with its estimate
+        when(faceFeatureRepository.findEmbeddingsByIdIn(anyCollection())).thenReturn(List.of(
+                view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f}),
+                view(3L, 12L, FaceFeature.FaceStatus.active, new float[]{0.7f, 0.7f})));
+
+        List<SearchMatch> matches = gallery.search(new float[]{0f, 1f}, 3);
+
+        assertThat(matches).extracting(SearchMatch::featureId).containsExactly(3L, 1L);
+        assertThat(meterRegistry.counter("face.gallery.rerank", "algorithm", ALGORITHM, "outcome", "missing").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void search_quantizedGallery_reranksFromTheMappedSnapshotWithoutMySql(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("gallery.fgs");
+        when(snapshotStore.isEnabled()).thenReturn(true);
+        // The gallery loaded from MySQL writes its own snapshot and maps it
+        when(snapshotStore.save(eq(ALGORITHM), anyLong(), any(LocalDateTime.class), any())).thenAnswer(invocation -> {
+            try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, invocation.getArgument(1),
+                    invocation.getArgument(2))) {
+                invocation.<GallerySnapshotStore.RowSource>getArgument(3).writeTo(writer);
+                writer.commit();
+                return writer.size();
+            }
+        });
+        when(snapshotStore.openLocal(ALGORITHM))
+                .thenAnswer(invocation -> Optional.of(GallerySnapshot.open(file, ALGORITHM)));
+        when(valueOperations.increment(VERSION_KEY)).thenReturn(1L);
+        FaceGallery gallery = quantizedGallery();
+
+        assertThat(gallery.isQuantized()).isTrue();
+        assertThat(gallery.search(new float[]{0f, 1f}, 1).get(0).userId()).isEqualTo(11L);
+
+        // Added after the snapshot: re-ranked from heap
+        cache.onRegistered(FaceFeature.builder()
+                .id(4L).userId(13L).algorithmReg(ALGORITHM).status(FaceFeature.FaceStatus.active)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{0.1f, 1f}))
+                .build());
+        List<SearchMatch> matches = gallery.search(new float[]{0.1f, 1f}, 1);
+
+        assertThat(matches.get(0).userId()).isEqualTo(13L);
+        assertThat(matches.get(0).distance()).isCloseTo(0.0, within(1e-6));
+        verify(faceFeatureRepository, never()).findEmbeddingsByIdIn(anyCollection());
+        assertThat(meterRegistry.timer("face.gallery.rerank.load", "algorithm", ALGORITHM, "source", "snapshot")
+                .count()).isEqualTo(2L);
+    }
+
+    private FaceGallery quantizedGallery() {
+        FaceRecognitionProperties properties = new FaceRecognitionProperties();
+        properties.getSearch().getQuantization().setMode(FaceRecognitionProperties.QuantizationMode.INT8);
+        properties.getSearch().getQuantization().setMinTrainingSize(2);
+        cache = new FaceGalleryCache(faceFeatureRepository, properties, redisTemplate, snapshotStore, meterRegistry,
+                eventPublisher);
+        when(faceFeatureRepository.findEmbeddingsByStatusAndAlgorithmReg(FaceFeature.FaceStatus.active, ALGORITHM))
+                .thenReturn(List.of(
+                        view(1L, 10L, FaceFeature.FaceStatus.active, new float[]{1f, 0f}),
+                        view(2L, 11L, FaceFeature.FaceStatus.active, new float[]{0f, 1f}),
+                        view(3L, 12L, FaceFeature.FaceStatus.active, new float[]{0.7f, 0.7f})));
+        return cache.get(ALGORITHM);
+    }
+
+    private static FaceEmbeddingView view(Long id, Long userId, FaceFeature.FaceStatus status, float[] vector) {
+        byte[] embedding = EmbeddingCodec.toBytes(vector);
+        return new FaceEmbeddingView() {
+            @Override public Long getId() { return id; }
+            @Override public Long getUserId() { return userId; }
+            @Override public FaceFeature.FaceStatus getStatus() { return status; }
+            @Override public byte[] getFeatureEmbedding() { return embedding; }
+            @Override public String getFeatureVector() { return null; }
+        };
+    }
+}
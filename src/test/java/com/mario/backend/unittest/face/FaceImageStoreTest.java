@@ -0,0 +1,55 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.image.FaceImageStore;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaceImageStoreTest {
+
+    // SHA-256 of the bytes {1, 2, 3}
+    private static final String OBJECT = "images/03/039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81.jpg";
+
+    @Mock private MinioService minioService;
+    @Mock private FaceImageRepository faceImageRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FaceImageStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new FaceImageStore(minioService, faceImageRepository, meterRegistry);
+    }
+
+    @Test
+    void store_newImage_uploadsUnderTheSha256OfItsBytes() {
+        ImagePayload image = ImagePayload.of(new byte[]{1, 2, 3});
+
+        assertThat(store.store(image)).isEqualTo(OBJECT);
+
+        verify(minioService).uploadImage(OBJECT, image);
+        assertThat(meterRegistry.counter("face.image.storage", "result", "uploaded").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void store_referencedImage_skipsTheUpload() {
+        when(faceImageRepository.existsByObjectName(OBJECT)).thenReturn(true);
+
+        assertThat(store.store(ImagePayload.of(new byte[]{1, 2, 3}))).isEqualTo(OBJECT);
+
+        verify(minioService, never()).uploadImage(anyString(), any());
+        assertThat(meterRegistry.counter("face.image.storage", "result", "deduplicated").count()).isEqualTo(1.0);
+    }
+}
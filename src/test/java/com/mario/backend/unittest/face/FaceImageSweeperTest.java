@@ -0,0 +1,82 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.image.FaceImageSweeper;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaceImageSweeperTest {
+
+    private static final Instant CUTOFF = Instant.parse("2026-10-16T00:00:00Z");
+    private static final Instant OLD = CUTOFF.minus(Duration.ofDays(3));
+    private static final Instant RECENT = CUTOFF.plus(Duration.ofHours(1));
+
+    @Mock private MinioService minioService;
+    @Mock private FaceImageRepository faceImageRepository;
+    @Mock private StringRedisTemplate redisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FaceImageSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new FaceImageSweeper(minioService, faceImageRepository, new FaceRecognitionProperties(),
+                redisTemplate, meterRegistry);
+    }
+
+    @Test
+    void sweep_deletesOnlyOldUnreferencedObjects() {
+        listing(Map.of(
+                "images/aa/orphan.jpg", OLD,
+                "images/bb/referenced.jpg", OLD,
+                "images/cc/young.jpg", RECENT));
+        when(faceImageRepository.existsByObjectName("images/aa/orphan.jpg")).thenReturn(false);
+        when(faceImageRepository.existsByObjectName("images/bb/referenced.jpg")).thenReturn(true);
+        when(minioService.lastModified("images/aa/orphan.jpg")).thenReturn(OLD);
+
+        assertThat(sweeper.sweep(CUTOFF)).isEqualTo(1);
+
+        verify(minioService).deleteImage("images/aa/orphan.jpg");
+        verify(minioService, times(1)).deleteImage(anyString());
+        verify(faceImageRepository, never()).existsByObjectName("images/cc/young.jpg");
+        assertThat(meterRegistry.counter("face.image.storage", "result", "swept").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void sweep_keepsAnObjectReuploadedSinceItWasListed() {
+        listing(Map.of("images/aa/orphan.jpg", OLD));
+        when(faceImageRepository.existsByObjectName("images/aa/orphan.jpg")).thenReturn(false);
+        when(minioService.lastModified("images/aa/orphan.jpg")).thenReturn(RECENT);
+
+        assertThat(sweeper.sweep(CUTOFF)).isZero();
+
+        verify(minioService, never()).deleteImage(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void listing(Map<String, Instant> objects) {
+        doAnswer(inv -> {
+            BiConsumer<String, Instant> consumer = inv.getArgument(1);
+            objects.forEach(consumer);
+            return null;
+        }).when(minioService).listObjects(eq("images/"), any(BiConsumer.class));
+    }
+}
@@ -0,0 +1,98 @@
+package com.mario.backend.unittest.face;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.face.config.FaceRabbitConfig;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceJobResponse;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.event.FaceRegistrationMessage;
+import com.mario.backend.face.service.FaceRegistrationJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.net.ConnectException;
+import java.time.Duration;
+
+import static com.mario.backend.testutil.TestConstants.SAMPLE_IMAGE_BASE64;
+import static com.mario.backend.testutil.TestConstants.USER_ID;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaceRegistrationJobServiceTest {
+
+    @Mock private RabbitTemplate rabbitTemplate;
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private FaceRegistrationJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        jobService = new FaceRegistrationJobService(rabbitTemplate, redisTemplate, objectMapper,
+                new FaceRecognitionProperties());
+    }
+
+    @Test
+    void submitRegistration_storesPendingJobAndPublishes() throws Exception {
+        FaceJobResponse job = jobService.submitRegistration(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(job.getStatus()).isEqualTo(FaceRegistrationJobService.PENDING);
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(eq("face:job:" + job.getJobId()), json.capture(), eq(Duration.ofHours(24)));
+        assertThat(objectMapper.readValue(json.getValue(), FaceJobResponse.class).getUserId()).isEqualTo(USER_ID);
+
+        ArgumentCaptor<FaceRegistrationMessage> message = ArgumentCaptor.forClass(FaceRegistrationMessage.class);
+        verify(rabbitTemplate).convertAndSend(eq(FaceRabbitConfig.FACE_EXCHANGE),
+                eq(FaceRabbitConfig.FACE_REGISTER_ROUTING_KEY), message.capture());
+        assertThat(message.getValue().getJobId()).isEqualTo(job.getJobId());
+        assertThat(message.getValue().getImageData()).isEqualTo(SAMPLE_IMAGE_BASE64);
+    }
+
+    @Test
+    void submitRegistration_brokerDown_throws503AndDropsJob() {
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        assertThatThrownBy(() -> jobService.submitRegistration(USER_ID, SAMPLE_IMAGE_BASE64))
+                .isInstanceOf(ApiException.class)
+                .hasMessageContaining("queue unavailable");
+        verify(redisTemplate).delete(startsWith("face:job:"));
+    }
+
+    @Test
+    void getJob_otherUsersJob_isNotFound() throws Exception {
+        FaceJobResponse stored = FaceJobResponse.builder().jobId("j1").status("pending").userId(99L).build();
+        when(valueOperations.get("face:job:j1")).thenReturn(objectMapper.writeValueAsString(stored));
+
+        assertThatThrownBy(() -> jobService.getJob(USER_ID, "j1"))
+                .isInstanceOf(ApiException.class)
+                .hasMessageContaining("not found");
+    }
+
+    @Test
+    void complete_recordsResult() throws Exception {
+        FaceJobResponse stored = FaceJobResponse.builder().jobId("j1").status("running").userId(USER_ID).build();
+        when(valueOperations.get("face:job:j1")).thenReturn(objectMapper.writeValueAsString(stored));
+
+        jobService.complete("j1", FaceResponse.builder().success(true).code("0000").message("Face registered").build());
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(eq("face:job:j1"), json.capture(), any(Duration.class));
+        FaceJobResponse saved = objectMapper.readValue(json.getValue(), FaceJobResponse.class);
+        assertThat(saved.getStatus()).isEqualTo(FaceRegistrationJobService.COMPLETED);
+        assertThat(saved.getResult().getCode()).isEqualTo("0000");
+    }
+}
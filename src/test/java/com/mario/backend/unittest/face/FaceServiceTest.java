@@ -1,27 +1,58 @@
 package com.mario.backend.unittest.face;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
 import com.mario.backend.common.http.HttpClientException;
 import com.mario.backend.common.http.HttpClientService;
+import com.mario.backend.common.http.TypedExternalServiceResponse;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceBatchResponse;
 import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.dto.FaceVerifyResponse;
 import com.mario.backend.face.entity.FaceFeature;
 import com.mario.backend.face.entity.FaceImage;
+import com.mario.backend.face.gallery.FaceAiGalleryReplica;
+import com.mario.backend.face.gallery.FaceGallery;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.gallery.NamedGalleryCache;
+import com.mario.backend.face.gallery.RerankUnavailableException;
+import com.mario.backend.face.image.FaceImageStore;
+import com.mario.backend.face.image.ImagePayload;
 import com.mario.backend.face.repository.FaceFeatureRepository;
 import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.HnswIndex;
+import com.mario.backend.face.search.SearchMatch;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.EncodeResult;
 import com.mario.backend.face.service.FaceService;
 import com.mario.backend.face.service.IdempotencyService;
-import com.mario.backend.face.service.MinioService;
+import com.mario.backend.face.service.RecognitionResultCache;
+import com.mario.backend.face.service.RequestCoalescer;
+import com.mario.backend.users.entity.User;
 import com.mario.backend.users.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static com.mario.backend.testutil.TestConstants.*;
 import static org.assertj.core.api.Assertions.*;
@@ -34,9 +65,18 @@ class FaceServiceTest {
     @Mock private FaceFeatureRepository faceFeatureRepository;
     @Mock private FaceImageRepository faceImageRepository;
     @Mock private UserRepository userRepository;
-    @Mock private MinioService minioService;
+    @Mock private FaceImageStore faceImageStore;
     @Mock private HttpClientService httpClientService;
+    @Mock private EncodeBatcher encodeBatcher;
     @Mock private IdempotencyService idempotencyService;
+    @Mock private FaceGalleryCache faceGalleryCache;
+    @Mock private FaceGallery gallery;
+    @Mock private NamedGalleryCache namedGalleryCache;
+    @Mock private RequestCoalescer requestCoalescer;
+    @Mock private RecognitionResultCache resultCache;
+    @Mock private FaceAiGalleryReplica galleryReplica;
+    @Spy private FaceRecognitionProperties properties = new FaceRecognitionProperties();
+    @Mock private TransactionTemplate transactionTemplate;
 
     @InjectMocks private FaceService faceService;
 
@@ -48,26 +88,114 @@ class FaceServiceTest {
     @Test
     void registerFace_success() {
         String imageHash = "abc123";
-        when(idempotencyService.computeImageHash(SAMPLE_IMAGE_BASE64)).thenReturn(imageHash);
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn(imageHash);
         when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, imageHash)).thenReturn(false);
-        when(httpClientService.post(anyString(), anyMap())).thenReturn(
-                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"encoded\",\"algorithmReg\":\"facenet_mobilenet\"}}");
-        when(minioService.uploadImage(eq(USER_ID), eq(SAMPLE_IMAGE_BASE64))).thenReturn("1/image.jpg");
-        when(minioService.getBucketName()).thenReturn("face-images");
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), eq("facenet_mobilenet"))).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult("encoded", "facenet_mobilenet", "0000", "Success")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+        when(faceImageStore.getBucketName()).thenReturn("face-images");
         when(faceFeatureRepository.save(any(FaceFeature.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(faceImageRepository.save(any(FaceImage.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(faceImageRepository.save(any(FaceImage.class))).thenAnswer(inv -> {
+            FaceImage image = inv.getArgument(0);
+            image.setId(42L);
+            return image;
+        });
+        runTransactionsInline();
 
         FaceResponse response = faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64);
 
         assertThat(response.getSuccess()).isTrue();
         assertThat(response.getCode()).isEqualTo("0000");
-        verify(faceFeatureRepository).save(any(FaceFeature.class));
+        verify(faceFeatureRepository).save(
+                argThat((FaceFeature feature) -> Long.valueOf(42L).equals(feature.getFaceImageId())));
         verify(faceImageRepository).save(any(FaceImage.class));
     }
 
+    @Test
+    void registerFace_storesPackedEmbedding() {
+        String encoding = EmbeddingCodec.encode(new float[]{0.1f, 0.2f, 0.3f, 0.4f});
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false);
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString())).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult(encoding, "facenet_mobilenet", "0000", "Success")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+        when(faceFeatureRepository.save(any(FaceFeature.class))).thenAnswer(inv -> inv.getArgument(0));
+        runTransactionsInline();
+
+        faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        ArgumentCaptor<FaceFeature> captor = ArgumentCaptor.forClass(FaceFeature.class);
+        verify(faceFeatureRepository).save(captor.capture());
+        assertThat(captor.getValue().getFeatureDim()).isEqualTo(4);
+        assertThat(captor.getValue().getFeatureEmbedding()).isEqualTo(EmbeddingCodec.toBytes(encoding));
+    }
+
+    @Test
+    void registerFace_remoteCallsHappenBeforeTheTransaction() {
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false);
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString())).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult("encoded", "facenet_mobilenet", "0000", "Success")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+        runTransactionsInline();
+
+        faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        InOrder order = inOrder(encodeBatcher, faceImageStore, transactionTemplate, faceFeatureRepository);
+        order.verify(encodeBatcher).encodeAsync(any(ImagePayload.class), anyString());
+        order.verify(faceImageStore).store(any(ImagePayload.class));
+        order.verify(transactionTemplate).execute(any());
+        order.verify(faceFeatureRepository).save(any(FaceFeature.class));
+    }
+
+    @Test
+    void registerFace_persistFails_leavesTheGalleryUntouched() {
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false);
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString())).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult("encoded", "facenet_mobilenet", "0000", "Success")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+        when(faceFeatureRepository.save(any(FaceFeature.class))).thenThrow(new IllegalStateException("db down"));
+        runTransactionsInline();
+
+        assertThatThrownBy(() -> faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64))
+                .isInstanceOf(ApiException.class)
+                .extracting("code").isEqualTo("REGISTRATION_FAILED");
+        verifyNoInteractions(faceGalleryCache);
+    }
+
+    @Test
+    void registerFace_concurrentDuplicate_losesInTransaction() {
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false, true);
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString())).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult("encoded", "facenet_mobilenet", "0000", "Success")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+        runTransactionsInline();
+
+        assertThatThrownBy(() -> faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64))
+                .isInstanceOf(ApiException.class)
+                .extracting("code").isEqualTo("FACE_ALREADY_REGISTERED");
+        verify(faceFeatureRepository, never()).save(any());
+    }
+
+    @Test
+    void registerFace_encodeFailsAfterConcurrentUpload_failsBeforeTheTransaction() {
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false);
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString())).thenReturn(
+                CompletableFuture.completedFuture(new EncodeResult(null, "facenet_mobilenet", "4001", "No face detected")));
+        when(faceImageStore.store(any(ImagePayload.class))).thenReturn("images/ab/abc.jpg");
+
+        assertThatThrownBy(() -> faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64))
+                .isInstanceOf(ApiException.class)
+                .extracting("code").isEqualTo("REGISTRATION_FAILED");
+        verifyNoInteractions(transactionTemplate);
+    }
+
     @Test
     void registerFace_duplicateImage_throws() {
-        when(idempotencyService.computeImageHash(SAMPLE_IMAGE_BASE64)).thenReturn("dup-hash");
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("dup-hash");
         when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "dup-hash")).thenReturn(true);
 
         assertThatThrownBy(() -> faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64))
@@ -77,21 +205,37 @@ class FaceServiceTest {
 
     @Test
     void registerFace_externalServiceUnavailable_throws() {
-        when(idempotencyService.computeImageHash(SAMPLE_IMAGE_BASE64)).thenReturn("hash");
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
         when(faceImageRepository.existsByUserIdAndImageHash(USER_ID, "hash")).thenReturn(false);
-        when(httpClientService.post(anyString(), anyMap()))
-                .thenThrow(new HttpClientException("url", "timeout"));
+        when(encodeBatcher.encodeAsync(any(ImagePayload.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientException("url", "timeout")));
 
         assertThatThrownBy(() -> faceService.registerFace(USER_ID, SAMPLE_IMAGE_BASE64))
                 .isInstanceOf(ApiException.class)
                 .extracting("code").isEqualTo("RETRY_EXHAUSTED");
     }
 
+    @Test
+    void recognizeFace_coalescingOn_keysByCallerGalleryAndImageHash() {
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        when(requestCoalescer.isEnabled()).thenReturn(true);
+        when(idempotencyService.computeImageHash(any(ImagePayload.class))).thenReturn("hash");
+        when(requestCoalescer.execute(eq("recognize"), eq(USER_ID + ":7:hash"), eq(FaceResponse.class), any()))
+                .thenAnswer(inv -> inv.<Supplier<FaceResponse>>getArgument(3).get());
+        when(namedGalleryCache.members(7L)).thenReturn(Set.of());
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64, 7L);
+
+        assertThat(response.getCode()).isEqualTo("5002");
+        verifyNoInteractions(httpClientService);
+    }
+
     @Test
     void recognizeFace_noCandidates_returnsNoFaces() {
-        when(faceFeatureRepository.findAllByStatusAndAlgorithmReg(
-                FaceFeature.FaceStatus.active, "facenet_mobilenet"))
-                .thenReturn(List.of());
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(true);
 
         FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
 
@@ -101,30 +245,278 @@ class FaceServiceTest {
 
     @Test
     void recognizeFace_withCandidates_callsSearch() {
-        FaceFeature candidate = FaceFeature.builder()
-                .userId(2L)
-                .featureVector("encodedVector")
-                .algorithmReg("facenet_mobilenet")
-                .status(FaceFeature.FaceStatus.active)
-                .build();
-        when(faceFeatureRepository.findAllByStatusAndAlgorithmReg(
-                FaceFeature.FaceStatus.active, "facenet_mobilenet"))
-                .thenReturn(List.of(candidate));
-        when(httpClientService.post(anyString(), anyMap())).thenReturn(
-                "{\"code\":\"0000\",\"message\":\"Match found\",\"data\":{\"matches\":[{\"userId\":\"2\",\"distance\":0.5,\"matched\":true}]}}");
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(httpClientService.post(anyString(), anyMap(), eq(FaceSearchData.RESPONSE))).thenReturn(searchResponse(
+                "{\"code\":\"0000\",\"message\":\"Match found\",\"data\":{\"matches\":[{\"userId\":\"2\",\"distance\":0.5,\"matched\":true}]}}"));
 
         FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
 
         assertThat(response.getSuccess()).isTrue();
         assertThat(response.getMessage()).isEqualTo("Match found");
-        verify(httpClientService).post(contains("/api/v1/face/search"), anyMap());
+        verify(httpClientService).post(contains("/api/v1/face/search"), anyMap(), eq(FaceSearchData.RESPONSE));
+        // Candidates are streamed from the gallery when the body is written, not collected up front
+        verify(gallery, never()).forEach(any());
+        verify(gallery, never()).forEachChunked(anyInt(), any());
+    }
+
+    @Test
+    void recognizeFace_remoteMode_returnsOnlyMatchedHitsWithNames() {
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(httpClientService.post(anyString(), anyMap(), eq(FaceSearchData.RESPONSE))).thenReturn(searchResponse(
+                "{\"code\":\"0000\",\"message\":\"Match found\",\"data\":{\"matches\":["
+                        + "{\"userId\":\"2\",\"distance\":0.5,\"matched\":true,\"encoding\":\"ignored\"},"
+                        + "{\"userId\":\"3\",\"distance\":1.5,\"matched\":false}]}}"));
+        when(userRepository.findAllById(List.of(2L))).thenReturn(List.of(
+                User.builder().id(2L).firstName("Ada").lastName("Lovelace").build()));
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getData().getMatches()).singleElement().satisfies(match -> {
+            assertThat(match.getUserId()).isEqualTo("2");
+            assertThat(match.getDistance()).isEqualTo(0.5);
+            assertThat(match.getFirstName()).isEqualTo("Ada");
+            assertThat(match.getLastName()).isEqualTo("Lovelace");
+        });
+    }
+
+    @Test
+    void recognizeFace_remoteMode_streamsCandidatesInLegacyFormat() throws Exception {
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        when(namedGalleryCache.members(5L)).thenReturn(Set.of(2L));
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.size(Set.of(2L))).thenReturn(1);
+        doAnswer(inv -> {
+            HnswIndex.EntryConsumer consumer = inv.getArgument(1);
+            consumer.accept(10L, 2L, new float[]{0.1f, 0.2f});
+            consumer.accept(11L, 3L, new float[]{0.3f, 0.4f});
+            return null;
+        }).when(gallery).forEachChunked(anyInt(), any());
+        when(httpClientService.post(anyString(), anyMap(), eq(FaceSearchData.RESPONSE))).thenReturn(searchResponse(
+                "{\"code\":\"0000\",\"message\":\"No match found\",\"data\":{\"matches\":[]}}"));
+
+        faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64, 5L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> body = ArgumentCaptor.forClass(Map.class);
+        verify(httpClientService).post(contains("/api/v1/face/search"), body.capture(), eq(FaceSearchData.RESPONSE));
+        String candidates = new ObjectMapper().writeValueAsString(body.getValue().get("candidates"));
+        assertThat(candidates).isEqualTo("[{\"userId\":\"2\",\"encoding\":\""
+                + EmbeddingCodec.encode(new float[]{0.1f, 0.2f}) + "\"}]");
+    }
+
+    @Test
+    void recognizeFace_syncedMode_searchesReplicaWithoutPostingCandidates() {
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.SYNCED);
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(galleryReplica.search(any(), eq(gallery), isNull(), any())).thenReturn(searchResponse(
+                "{\"code\":\"0000\",\"message\":\"Match found\",\"data\":{\"matches\":[{\"userId\":\"2\",\"distance\":0.5,\"matched\":true}]}}"));
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getSuccess()).isTrue();
+        verifyNoInteractions(httpClientService);
+        verify(gallery, never()).forEachChunked(anyInt(), any());
+    }
+
+    @Test
+    void recognizeFace_localMode_emptyIndex_returnsNoFaces() {
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(true);
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getCode()).isEqualTo("5002");
+        verifyNoInteractions(httpClientService);
+    }
+
+    @Test
+    void recognizeFace_localMode_encodesProbeAndSearchesIndex() {
+        float[] probe = {0.1f, 0.2f, 0.3f};
+        String encoding = EmbeddingCodec.encode(probe);
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(httpClientService.post(contains("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"" + encoding + "\"}}");
+        when(gallery.search(any(float[].class), eq(5)))
+                .thenReturn(List.of(new SearchMatch(10L, 2L, 0.4), new SearchMatch(11L, 3L, 1.5)));
+        when(userRepository.findAllById(anyList())).thenReturn(List.of());
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getSuccess()).isTrue();
+        assertThat(response.getMessage()).isEqualTo("Match found");
+        assertThat(response.getData().getMatches()).hasSize(1);
+        assertThat(response.getData().getMatches().get(0).getUserId()).isEqualTo("2");
+        verify(httpClientService, never()).post(contains("/api/v1/face/search"), anyMap(), eq(FaceSearchData.RESPONSE));
+        verifyNoInteractions(faceFeatureRepository);
+    }
+
+    @Test
+    void recognizeFace_localMode_rerankUnavailable_failsInsteadOfMatchingOnEstimates() {
+        String encoding = EmbeddingCodec.encode(new float[]{0.1f, 0.2f, 0.3f});
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(httpClientService.post(contains("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"" + encoding + "\"}}");
+        when(gallery.search(any(float[].class), eq(5)))
+                .thenThrow(new RerankUnavailableException("facenet_mobilenet", new IllegalStateException("db down")));
+
+        assertThatThrownBy(() -> faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64))
+                .isInstanceOf(ApiException.class)
+                .extracting("code").isEqualTo("FACE_GALLERY_UNAVAILABLE");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void recognizeFace_withGallery_searchesOnlyMembers() {
+        String encoding = EmbeddingCodec.encode(new float[]{0.1f, 0.2f, 0.3f});
+        when(namedGalleryCache.members(5L)).thenReturn(Set.of(2L));
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.size(Set.of(2L))).thenReturn(1);
+        when(httpClientService.post(contains("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\"" + encoding + "\"}}");
+        when(gallery.search(any(float[].class), eq(5), eq(Set.of(2L))))
+                .thenReturn(List.of(new SearchMatch(10L, 2L, 0.4)));
+        when(userRepository.findAllById(anyList())).thenReturn(List.of());
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64, 5L);
+
+        assertThat(response.getSuccess()).isTrue();
+        assertThat(response.getData().getMatches()).hasSize(1);
+        verify(gallery, never()).search(any(float[].class), anyInt());
+    }
+
+    @Test
+    void recognizeFace_withEmptyGallery_returnsNoFacesWithoutEncoding() {
+        when(namedGalleryCache.members(5L)).thenReturn(Set.of());
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.size(Set.of())).thenReturn(0);
+
+        FaceResponse response = faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64, 5L);
+
+        assertThat(response.getCode()).isEqualTo("5002");
+        verifyNoInteractions(httpClientService);
+    }
+
+    @Test
+    void recognizeFace_unknownGallery_throwsNotFound() {
+        when(namedGalleryCache.members(9L)).thenThrow(new ApiException(ErrorCode.FACE_GALLERY_NOT_FOUND));
+
+        assertThatThrownBy(() -> faceService.recognizeFace(USER_ID, SAMPLE_IMAGE_BASE64, 9L))
+                .isInstanceOf(ApiException.class)
+                .extracting("code").isEqualTo("FACE_GALLERY_NOT_FOUND");
+        verifyNoInteractions(httpClientService);
+    }
+
+    @Test
+    void verifyFace_localMode_comparesOnlyAgainstOwnFacesAndKeepsTheClosest() {
+        FaceFeature newest = FaceFeature.builder().id(2L).userId(USER_ID)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{3f, 5f})).build();
+        FaceFeature own = FaceFeature.builder().id(1L).userId(USER_ID)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{0f, 1f})).build();
+        when(faceFeatureRepository.findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(
+                eq(USER_ID), eq(FaceFeature.FaceStatus.active), eq("facenet_mobilenet"), any()))
+                .thenReturn(List.of(newest, own));
+        when(httpClientService.post(contains("/api/v1/face/encode"), anyMap())).thenReturn(
+                "{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"encoding\":\""
+                        + EmbeddingCodec.encode(new float[]{0.6f, 1.8f}) + "\"}}");
+
+        FaceVerifyResponse response = faceService.verifyFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getSuccess()).isTrue();
+        assertThat(response.getMatched()).isTrue();
+        assertThat(response.getDistance()).isCloseTo(1.0, within(1e-5));
+        verify(faceFeatureRepository).findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(
+                USER_ID, FaceFeature.FaceStatus.active, "facenet_mobilenet", PageRequest.of(0, 10));
+        verifyNoInteractions(faceGalleryCache);
+        verify(httpClientService, never()).post(contains("/api/v1/face/search"), anyMap(), eq(FaceSearchData.RESPONSE));
+    }
+
+    @Test
+    void verifyFace_remoteMode_postsOwnFacesAsOnlyCandidates() {
+        properties.getSearch().setMode(FaceRecognitionProperties.SearchMode.REMOTE);
+        FaceFeature newest = FaceFeature.builder().id(2L).userId(USER_ID)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{1f, 1f})).build();
+        FaceFeature own = FaceFeature.builder().id(1L).userId(USER_ID)
+                .featureEmbedding(EmbeddingCodec.toBytes(new float[]{0f, 1f})).build();
+        when(faceFeatureRepository.findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(
+                eq(USER_ID), eq(FaceFeature.FaceStatus.active), eq("facenet_mobilenet"), any()))
+                .thenReturn(List.of(newest, own));
+        when(httpClientService.post(contains("/api/v1/face/search"), anyMap(), eq(FaceSearchData.RESPONSE)))
+                .thenReturn(searchResponse("{\"code\":\"0000\",\"message\":\"Success\",\"data\":{\"matches\":["
+                        + "{\"userId\":\"" + USER_ID + "\",\"distance\":1.6},"
+                        + "{\"userId\":\"" + USER_ID + "\",\"distance\":1.4}]}}"));
+
+        FaceVerifyResponse response = faceService.verifyFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getMatched()).isFalse();
+        assertThat(response.getDistance()).isEqualTo(1.4);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> body = ArgumentCaptor.forClass(Map.class);
+        verify(httpClientService).post(contains("/api/v1/face/search"), body.capture(), eq(FaceSearchData.RESPONSE));
+        assertThat((List<?>) body.getValue().get("candidates")).hasSize(2);
+        verifyNoInteractions(faceGalleryCache);
+    }
+
+    @Test
+    void verifyFace_notRegistered_returnsNoFaceWithoutEncoding() {
+        when(faceFeatureRepository.findByUserIdAndStatusAndAlgorithmRegOrderByIdDesc(
+                eq(USER_ID), eq(FaceFeature.FaceStatus.active), eq("facenet_mobilenet"), any()))
+                .thenReturn(List.of());
+
+        FaceVerifyResponse response = faceService.verifyFace(USER_ID, SAMPLE_IMAGE_BASE64);
+
+        assertThat(response.getSuccess()).isFalse();
+        assertThat(response.getCode()).isEqualTo("5002");
+        verifyNoInteractions(httpClientService);
+    }
+
+    @Test
+    void recognizeBatch_encodesOnceAndEnrichesWithSingleLookup() {
+        String encoding = EmbeddingCodec.encode(new float[]{0.1f, 0.2f, 0.3f});
+        when(faceGalleryCache.get("facenet_mobilenet")).thenReturn(gallery);
+        when(gallery.isEmpty()).thenReturn(false);
+        when(encodeBatcher.encodeAll(anyList(), eq("facenet_mobilenet"), eq(ErrorCode.FACE_RECOGNITION_FAILED)))
+                .thenReturn(List.of(
+                        new EncodeResult(encoding, "facenet_mobilenet", "0000", "Success"),
+                        new EncodeResult(null, "facenet_mobilenet", "4001", "No face detected"),
+                        new EncodeResult(encoding, "facenet_mobilenet", "0000", "Success")));
+        when(gallery.search(any(float[].class), eq(5))).thenReturn(List.of(new SearchMatch(10L, 2L, 0.4)));
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of());
+
+        FaceBatchResponse response = faceService.recognizeBatch(USER_ID,
+                List.of(SAMPLE_IMAGE_BASE64, SAMPLE_IMAGE_BASE64, SAMPLE_IMAGE_BASE64));
+
+        assertThat(response.getTotal()).isEqualTo(3);
+        assertThat(response.getSucceeded()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getResults().get(0).getData().getMatches()).hasSize(1);
+        assertThat(response.getResults().get(1).getCode()).isEqualTo("4001");
+        verify(encodeBatcher, times(1)).encodeAll(anyList(), anyString(), any());
+        verifyNoInteractions(httpClientService);
+        verify(faceGalleryCache, times(1)).get("facenet_mobilenet");
+        verify(userRepository, times(1)).findAllById(anyCollection());
+    }
+
+    @Test
+    void recognizeBatch_tooManyImages_throws() {
+        properties.getBatch().setMaxSize(2);
+
+        assertThatThrownBy(() -> faceService.recognizeBatch(USER_ID, Collections.nCopies(3, SAMPLE_IMAGE_BASE64)))
+                .isInstanceOf(ApiException.class);
+        verifyNoInteractions(httpClientService, faceGalleryCache);
     }
 
     @Test
     void deleteFace_success_deactivatesFeature() {
         FaceFeature feature = FaceFeature.builder().userId(USER_ID).status(FaceFeature.FaceStatus.active).build();
-        when(faceFeatureRepository.findByUserIdAndStatus(USER_ID, FaceFeature.FaceStatus.active))
-                .thenReturn(Optional.of(feature));
+        when(faceFeatureRepository.findAllByUserIdAndStatus(USER_ID, FaceFeature.FaceStatus.active))
+                .thenReturn(List.of(feature));
         when(faceFeatureRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         FaceResponse response = faceService.deleteFace(USER_ID);
@@ -135,6 +527,20 @@ class FaceServiceTest {
         verifyNoInteractions(httpClientService);
     }
 
+    @Test
+    void deleteFace_midReembedding_deactivatesFeaturesOfEveryAlgorithm() {
+        FaceFeature current = FaceFeature.builder().id(1L).userId(USER_ID).algorithmReg("facenet_mobilenet").build();
+        FaceFeature reembedded = FaceFeature.builder().id(2L).userId(USER_ID).algorithmReg("arcface_r100").build();
+        when(faceFeatureRepository.findAllByUserIdAndStatus(USER_ID, FaceFeature.FaceStatus.active))
+                .thenReturn(List.of(current, reembedded));
+        when(faceFeatureRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        faceService.deleteFace(USER_ID);
+
+        assertThat(current.getStatus()).isEqualTo(FaceFeature.FaceStatus.inactive);
+        assertThat(reembedded.getStatus()).isEqualTo(FaceFeature.FaceStatus.inactive);
+    }
+
     @Test
     void isRegistered_exists_returnsTrue() {
         when(faceFeatureRepository.existsByUserIdAndStatus(USER_ID, FaceFeature.FaceStatus.active)).thenReturn(true);
@@ -150,4 +556,18 @@ class FaceServiceTest {
         FaceResponse response = faceService.isRegistered(USER_ID);
         assertThat(response.getIsRegistered()).isFalse();
     }
+
+    private static TypedExternalServiceResponse<FaceSearchData> searchResponse(String json) {
+        try {
+            return new ObjectMapper().readValue(json, FaceSearchData.RESPONSE);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+    }
 }
@@ -0,0 +1,114 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.gallery.GallerySnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GallerySnapshotTest {
+
+    private static final String ALGORITHM = "facenet_mobilenet";
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2026, 10, 17, 8, 30, 15, 123456789);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenOpen_roundTripsHeaderAndRows() throws IOException {
+        Path file = write(dir.resolve("gallery.fgs"));
+
+        GallerySnapshot snapshot = GallerySnapshot.open(file, ALGORITHM);
+        List<long[]> keys = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        snapshot.forEach((featureId, userId, vector) -> {
+            keys.add(new long[]{featureId, userId});
+            vectors.add(vector);
+        });
+
+        assertThat(snapshot.version()).isEqualTo(9L);
+        assertThat(snapshot.watermark()).isEqualTo(WATERMARK);
+        assertThat(snapshot.dimension()).isEqualTo(3);
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(keys).containsExactly(new long[]{1L, 10L}, new long[]{2L, 20L});
+        assertThat(vectors.get(1)).containsExactly(4f, 5f, 6f);
+    }
+
+    @Test
+    void writer_skipsRowsWithAnotherDimension() throws IOException {
+        Path file = dir.resolve("mixed.fgs");
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, 1L, WATERMARK)) {
+            writer.append(1L, 10L, new float[]{1f, 2f});
+            writer.append(2L, 20L, new float[]{1f, 2f, 3f});
+            writer.commit();
+        }
+
+        assertThat(GallerySnapshot.open(file, ALGORITHM).size()).isEqualTo(1);
+    }
+
+    @Test
+    void close_withoutCommit_leavesNoFile() throws IOException {
+        Path file = dir.resolve("aborted.fgs");
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, 1L, WATERMARK)) {
+            writer.append(1L, 10L, new float[]{1f});
+        }
+
+        assertThat(dir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void open_rejectsOtherAlgorithmCorruptionAndTruncation() throws IOException {
+        Path file = write(dir.resolve("gallery.fgs"));
+        assertThatThrownBy(() -> GallerySnapshot.open(file, "arcface"))
+                .isInstanceOf(IOException.class);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 12] ^= 1;
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> GallerySnapshot.open(file, ALGORITHM))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum");
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThatThrownBy(() -> GallerySnapshot.open(file, ALGORITHM))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void rows_looksUpVectorsByFeatureIdWhateverTheRowOrder() throws IOException {
+        Path file = dir.resolve("unordered.fgs");
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, 1L, WATERMARK)) {
+            writer.append(5L, 50L, new float[]{5f, 5f});
+            writer.append(1L, 10L, new float[]{1f, 1f});
+            writer.append(3L, 30L, new float[]{3f, 3f});
+            writer.commit();
+        }
+
+        GallerySnapshot.Rows rows = GallerySnapshot.open(file, ALGORITHM).rows();
+
+        assertThat(rows.size()).isEqualTo(3);
+        assertThat(rows.vector(3L)).containsExactly(3f, 3f);
+        assertThat(rows.vector(5L)).containsExactly(5f, 5f);
+        assertThat(rows.contains(1L)).isTrue();
+        assertThat(rows.contains(2L)).isFalse();
+        assertThat(rows.vector(2L)).isNull();
+    }
+
+    private static Path write(Path file) throws IOException {
+        try (GallerySnapshot.Writer writer = GallerySnapshot.writer(file, ALGORITHM, 9L, WATERMARK)) {
+            writer.append(1L, 10L, new float[]{1f, 2f, 3f});
+            writer.append(2L, 20L, new float[]{4f, 5f, 6f});
+            writer.commit();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,111 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.search.HnswIndex;
+import com.mario.backend.face.search.SearchMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void search_findsExactVector() {
+        float[][] vectors = randomVectors(500, new Random(1));
+        HnswIndex index = newIndex(vectors);
+
+        List<SearchMatch> matches = index.search(vectors[42], 1, 64);
+
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).featureId()).isEqualTo(42L);
+        assertThat(matches.get(0).distance()).isZero();
+    }
+
+    @Test
+    void search_recallAgainstBruteForce() {
+        Random random = new Random(7);
+        float[][] vectors = randomVectors(2000, random);
+        HnswIndex index = newIndex(vectors);
+
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVectors(1, random)[0];
+            int expected = IntStream.range(0, vectors.length).boxed()
+                    .min(Comparator.comparingDouble(i -> l2(query, vectors[i])))
+                    .orElseThrow();
+            if (index.search(query, 1, 64).get(0).featureId() == expected) {
+                hits++;
+            }
+        }
+
+        assertThat((double) hits / queries).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void remove_excludesVectorFromResults() {
+        float[][] vectors = randomVectors(200, new Random(3));
+        HnswIndex index = newIndex(vectors);
+
+        assertThat(index.remove(5L)).isTrue();
+
+        assertThat(index.search(vectors[5], 3, 64)).extracting(SearchMatch::featureId).doesNotContain(5L);
+        assertThat(index.size()).isEqualTo(199);
+        assertThat(index.deletedRatio()).isGreaterThan(0.0);
+    }
+
+    @Test
+    void compact_dropsTombstones() {
+        float[][] vectors = randomVectors(100, new Random(4));
+        HnswIndex index = newIndex(vectors);
+        index.remove(1L);
+        index.remove(2L);
+
+        HnswIndex compacted = index.compact();
+
+        assertThat(compacted.size()).isEqualTo(98);
+        assertThat(compacted.deletedRatio()).isZero();
+        assertThat(compacted.search(vectors[3], 1, 64).get(0).featureId()).isEqualTo(3L);
+    }
+
+    @Test
+    void add_wrongDimension_throws() {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+
+        assertThatThrownBy(() -> index.add(1L, 1L, new float[DIMENSION + 1]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HnswIndex newIndex(float[][] vectors) {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, i, vectors[i]);
+        }
+        return index;
+    }
+
+    private static float[][] randomVectors(int count, Random random) {
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static double l2(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mario.backend.unittest.face;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.service.IdempotencyService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static com.mario.backend.testutil.TestConstants.SAMPLE_IMAGE_BASE64;
+import static org.assertj.core.api.Assertions.*;
+
+class ImagePayloadTest {
+
+    @Test
+    void fromBase64_decodesToRawBytes() throws Exception {
+        ImagePayload image = ImagePayload.fromBase64(SAMPLE_IMAGE_BASE64);
+
+        assertThat(image.size()).isEqualTo(Base64.getDecoder().decode(SAMPLE_IMAGE_BASE64).length);
+        assertThat(image.openStream().readAllBytes()).isEqualTo(Base64.getDecoder().decode(SAMPLE_IMAGE_BASE64));
+    }
+
+    @Test
+    void fromBase64_rejectsInvalidInput() {
+        assertThatThrownBy(() -> ImagePayload.fromBase64("abc")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ImagePayload.fromBase64("ab$d")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ImagePayload.fromBase64("")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void writeBase64_andJsonSerialization_roundTrip() throws Exception {
+        ImagePayload image = ImagePayload.fromBase64(SAMPLE_IMAGE_BASE64);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        image.writeBase64(out);
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo(SAMPLE_IMAGE_BASE64);
+
+        String json = new ObjectMapper().writeValueAsString(Map.of("imageBase64", image));
+        assertThat(json).isEqualTo("{\"imageBase64\":\"" + SAMPLE_IMAGE_BASE64 + "\"}");
+    }
+
+    @Test
+    void imageHash_matchesBetweenBase64AndBinaryUploads() {
+        IdempotencyService idempotencyService = new IdempotencyService();
+
+        assertThat(idempotencyService.computeImageHash(ImagePayload.fromBase64(SAMPLE_IMAGE_BASE64)))
+                .isEqualTo(idempotencyService.computeImageHash(SAMPLE_IMAGE_BASE64));
+    }
+}
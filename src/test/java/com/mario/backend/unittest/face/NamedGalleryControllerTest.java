@@ -0,0 +1,103 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.auth.security.AuthenticatedUser;
+import com.mario.backend.auth.security.JwtTokenProvider;
+import com.mario.backend.auth.service.TokenBlacklistService;
+import com.mario.backend.audit.publisher.AuditEventPublisher;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.controller.NamedGalleryController;
+import com.mario.backend.face.dto.NamedGalleryResponse;
+import com.mario.backend.face.service.NamedGalleryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mario.backend.testutil.TestConstants.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = NamedGalleryController.class)
+class NamedGalleryControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private NamedGalleryService namedGalleryService;
+    @MockBean private JwtTokenProvider jwtTokenProvider;
+    @MockBean private TokenBlacklistService tokenBlacklistService;
+    @MockBean private AuditEventPublisher auditEventPublisher;
+
+    private RequestPostProcessor userWith(List<String> permissions) {
+        AuthenticatedUser principal = new AuthenticatedUser(USER_ID, USER_EMAIL, ROLE_SUPERADMIN, permissions);
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + ROLE_SUPERADMIN));
+        permissions.forEach(p -> authorities.add(new SimpleGrantedAuthority(p)));
+        return authentication(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @Test
+    void create_returnsGallery() throws Exception {
+        when(namedGalleryService.create(eq(USER_ID), any())).thenReturn(NamedGalleryResponse.builder()
+                .id(3L).name("hq-lobby").type("site").memberCount(0L).build());
+
+        mockMvc.perform(post("/api/v1/face/galleries")
+                        .with(userWith(List.of("face:gallery_manage"))).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"hq-lobby\",\"type\":\"site\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(3))
+                .andExpect(jsonPath("$.data.member_count").value(0));
+    }
+
+    @Test
+    void create_missingType_returns400() throws Exception {
+        mockMvc.perform(post("/api/v1/face/galleries")
+                        .with(userWith(List.of("face:gallery_manage"))).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"hq-lobby\"}"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(namedGalleryService);
+    }
+
+    @Test
+    void addMembers_returnsChangedCount() throws Exception {
+        when(namedGalleryService.addMembers(3L, List.of(10L, 11L))).thenReturn(NamedGalleryResponse.builder()
+                .id(3L).memberCount(2L).changed(2).build());
+
+        mockMvc.perform(post("/api/v1/face/galleries/3/members")
+                        .with(userWith(List.of("face:gallery_manage"))).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"user_ids\":[10,11]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.changed").value(2));
+    }
+
+    @Test
+    void get_unknownGallery_returns404() throws Exception {
+        when(namedGalleryService.get(9L)).thenThrow(new ApiException(ErrorCode.FACE_GALLERY_NOT_FOUND));
+
+        mockMvc.perform(get("/api/v1/face/galleries/9")
+                        .with(userWith(List.of("face:gallery_manage"))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void withoutPermission_returns403() throws Exception {
+        mockMvc.perform(get("/api/v1/face/galleries")
+                        .with(userWith(List.of("face:recognize"))))
+                .andExpect(status().isForbidden());
+    }
+}
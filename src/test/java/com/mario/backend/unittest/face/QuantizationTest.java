@@ -0,0 +1,121 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.search.Distances;
+import com.mario.backend.face.search.ExactScan;
+import com.mario.backend.face.search.ProductQuantizer;
+import com.mario.backend.face.search.QuantizationReport;
+import com.mario.backend.face.search.QuantizedIndex;
+import com.mario.backend.face.search.Quantizer;
+import com.mario.backend.face.search.ScalarQuantizer;
+import com.mario.backend.face.search.SearchMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QuantizationTest {
+
+    private static final int DIMENSION = 64;
+
+    private final ExactScan scan = new ExactScan(Distances.get(), 256);
+
+    @Test
+    void scalarQuantizer_fourTimesSmallerAndFindsStoredVector() {
+        List<float[]> vectors = randomVectors(1000, new Random(1));
+        ScalarQuantizer quantizer = ScalarQuantizer.train(vectors);
+        QuantizedIndex index = index(quantizer, vectors);
+
+        assertThat(quantizer.codeSize()).isEqualTo(DIMENSION);
+        assertThat(index.codeBytes()).isEqualTo((long) DIMENSION * vectors.size());
+        for (int i = 0; i < 20; i++) {
+            assertThat(index.search(vectors.get(i), 1, scan).get(0).featureId()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void productQuantizer_codeSizeIsSubquantizerCount() {
+        List<float[]> vectors = randomVectors(2000, new Random(2));
+        ProductQuantizer quantizer = ProductQuantizer.train(vectors, 16, 4, 7L);
+        QuantizedIndex index = index(quantizer, vectors);
+
+        assertThat(quantizer.subquantizers()).isEqualTo(16);
+        assertThat(quantizer.codeSize()).isEqualTo(16);
+        int hits = 0;
+        for (int i = 0; i < 50; i++) {
+            long expected = i;
+            List<SearchMatch> matches = index.search(vectors.get(i), 10, scan);
+            if (matches.stream().anyMatch(m -> m.featureId() == expected)) {
+                hits++;
+            }
+        }
+        assertThat(hits).isGreaterThanOrEqualTo(45);
+    }
+
+    @Test
+    void productQuantizer_subquantizersRoundedToDivisorOfDimension() {
+        ProductQuantizer quantizer = ProductQuantizer.train(randomVectors(300, new Random(3)), 30, 2, 1L);
+
+        assertThat(DIMENSION % quantizer.subquantizers()).isZero();
+        assertThat(quantizer.subquantizers()).isLessThanOrEqualTo(30);
+    }
+
+    @Test
+    void quantizedIndex_removeHidesRowAndCompactDropsIt() {
+        List<float[]> vectors = randomVectors(200, new Random(4));
+        QuantizedIndex index = index(ScalarQuantizer.train(vectors), vectors);
+
+        assertThat(index.remove(5L)).isTrue();
+        assertThat(index.remove(5L)).isFalse();
+        assertThat(index.size()).isEqualTo(199);
+        assertThat(index.search(vectors.get(5), 1, scan).get(0).featureId()).isNotEqualTo(5L);
+        assertThat(index.deletedRatio()).isGreaterThan(0.0);
+
+        QuantizedIndex compacted = index.compact();
+
+        assertThat(compacted.size()).isEqualTo(199);
+        assertThat(compacted.deletedRatio()).isZero();
+        assertThat(compacted.search(vectors.get(6), 1, scan).get(0).featureId()).isEqualTo(6L);
+    }
+
+    @Test
+    void report_rerankRecoversRecall() {
+        List<float[]> vectors = randomVectors(2000, new Random(5));
+
+        List<QuantizationReport.Result> results = QuantizationReport.run(vectors,
+                new QuantizationReport.Options(50, 5, 4, 2000, 16, 4, 11L));
+
+        assertThat(results).extracting(QuantizationReport.Result::variant)
+                .containsExactly("exact", "int8", "int8+rerank", "pq", "pq+rerank");
+        QuantizationReport.Result exact = results.get(0);
+        QuantizationReport.Result pq = results.get(3);
+        QuantizationReport.Result pqRerank = results.get(4);
+        assertThat(exact.recallAtK()).isEqualTo(1.0);
+        assertThat(results.get(2).recallAtK()).isGreaterThanOrEqualTo(0.95);
+        assertThat(pq.bytesPerVector()).isEqualTo(16);
+        assertThat(pq.compression()).isEqualTo(16.0);
+        assertThat(pqRerank.recallAtK()).isGreaterThanOrEqualTo(pq.recallAtK());
+    }
+
+    private static QuantizedIndex index(Quantizer quantizer, List<float[]> vectors) {
+        QuantizedIndex index = new QuantizedIndex(quantizer, vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, 1000L + i, vectors.get(i));
+        }
+        return index;
+    }
+
+    private static List<float[]> randomVectors(int count, Random random) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] v = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                v[d] = (float) random.nextGaussian();
+            }
+            vectors.add(v);
+        }
+        return vectors;
+    }
+}
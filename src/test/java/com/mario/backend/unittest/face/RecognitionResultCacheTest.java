@@ -0,0 +1,122 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceMatch;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.dto.FaceSearchData;
+import com.mario.backend.face.gallery.FaceGallery;
+import com.mario.backend.face.service.RecognitionResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecognitionResultCacheTest {
+
+    private static final String ALGORITHM = "facenet_mobilenet";
+
+    @Mock private FaceGallery gallery;
+
+    private FaceRecognitionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RecognitionResultCache cache;
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties = new FaceRecognitionProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new RecognitionResultCache(properties, meterRegistry);
+        lenient().when(gallery.getAlgorithmReg()).thenReturn(ALGORITHM);
+        lenient().when(gallery.version()).thenReturn(3L);
+    }
+
+    @Test
+    void get_sameImageAndVersion_answersFromCacheForTheCaller() {
+        cache.get("hash", gallery, null, null, 1L, match());
+        FaceResponse second = cache.get("hash", gallery, null, null, 2L, match());
+
+        assertThat(searches).hasValue(1);
+        assertThat(second.getUserId()).isEqualTo(2L);
+        assertThat(second.getData().getMatches().get(0).getUserId()).isEqualTo("9");
+        assertThat(meterRegistry.get("face.recognition.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void get_galleryChanged_searchesAgain() {
+        cache.get("hash", gallery, null, null, 1L, match());
+        when(gallery.version()).thenReturn(4L);
+        cache.get("hash", gallery, null, null, 1L, match());
+
+        assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void get_namedGalleryMembersReplaced_searchesAgain() {
+        Set<Long> members = Set.of(9L);
+        cache.get("hash", gallery, 5L, members, 1L, match());
+        cache.get("hash", gallery, 5L, members, 1L, match());
+        cache.get("hash", gallery, 5L, Set.of(9L, 10L), 1L, match());
+        cache.get("hash", gallery, null, null, 1L, match());
+
+        assertThat(searches).hasValue(3);
+    }
+
+    @Test
+    void get_failedSearch_isNotCached() {
+        Supplier<FaceResponse> failing = () -> {
+            searches.incrementAndGet();
+            return FaceResponse.builder().success(false).code("5001").build();
+        };
+        cache.get("hash", gallery, null, null, 1L, failing);
+        cache.get("hash", gallery, null, null, 1L, failing);
+
+        assertThat(searches).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_expiredOrEvicted_searchesAgain() {
+        properties.getResultCache().setMaxEntries(2);
+        cache.get("a", gallery, null, null, 1L, match());
+        cache.get("b", gallery, null, null, 1L, match());
+        cache.get("a", gallery, null, null, 1L, match());
+        cache.get("c", gallery, null, null, 1L, match());
+        // "b" was least recently used
+        cache.get("b", gallery, null, null, 1L, match());
+        assertThat(searches).hasValue(4);
+        assertThat(cache.size()).isEqualTo(2);
+
+        properties.getResultCache().setTtl(Duration.ZERO);
+        cache.get("d", gallery, null, null, 1L, match());
+        cache.get("d", gallery, null, null, 1L, match());
+        assertThat(searches).hasValue(6);
+    }
+
+    private Supplier<FaceResponse> match() {
+        return () -> {
+            searches.incrementAndGet();
+            return FaceResponse.builder()
+                    .success(true)
+                    .code("0000")
+                    .message("Match found")
+                    .userId(1L)
+                    .data(FaceSearchData.builder()
+                            .matches(List.of(FaceMatch.builder().userId("9").distance(0.4).build()))
+                            .build())
+                    .build();
+        };
+    }
+}
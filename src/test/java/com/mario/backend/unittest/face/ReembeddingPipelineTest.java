@@ -0,0 +1,225 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.common.http.HttpClientException;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.enrollment.JobCoordinator;
+import com.mario.backend.face.enrollment.JobLease;
+import com.mario.backend.face.enrollment.LeaseLostException;
+import com.mario.backend.face.enrollment.ReembeddingBatchWriter;
+import com.mario.backend.face.enrollment.ReembeddingPipeline;
+import com.mario.backend.face.entity.FaceFeature;
+import com.mario.backend.face.entity.FaceImage;
+import com.mario.backend.face.entity.FaceReembeddingJob;
+import com.mario.backend.face.gallery.FaceGalleryCache;
+import com.mario.backend.face.image.ImagePayload;
+import com.mario.backend.face.repository.FaceFeatureRepository;
+import com.mario.backend.face.repository.FaceImageRepository;
+import com.mario.backend.face.repository.FaceReembeddingJobRepository;
+import com.mario.backend.face.service.EncodeBatcher;
+import com.mario.backend.face.service.EncodeResult;
+import com.mario.backend.face.service.MinioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReembeddingPipelineTest {
+
+    private static final String SOURCE = "facenet_mobilenet";
+    private static final String TARGET = "arcface_r100";
+    private static final LocalDateTime REGISTERED = LocalDateTime.of(2026, 10, 1, 12, 0);
+    private static final Duration TOLERANCE = Duration.ofSeconds(5);
+
+    @Mock private FaceReembeddingJobRepository jobRepository;
+    @Mock private FaceFeatureRepository faceFeatureRepository;
+    @Mock private FaceImageRepository faceImageRepository;
+    @Mock private MinioService minioService;
+    @Mock private EncodeBatcher encodeBatcher;
+    @Mock private ReembeddingBatchWriter batchWriter;
+    @Mock private FaceGalleryCache faceGalleryCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReembeddingPipeline pipeline;
+    private FaceReembeddingJob job;
+
+    @BeforeEach
+    void setUp() {
+        FaceRecognitionProperties properties = new FaceRecognitionProperties();
+        properties.getReembedding().setWorkers(2);
+        properties.getReembedding().setMaxImagesPerSecond(0);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new ReembeddingPipeline(jobRepository, faceFeatureRepository, faceImageRepository, minioService,
+                encodeBatcher, batchWriter, faceGalleryCache, properties, meterRegistry);
+
+        job = FaceReembeddingJob.builder()
+                .id(7L).requestedBy(1L).sourceAlgorithm(SOURCE).targetAlgorithm(TARGET)
+                .status(FaceReembeddingJob.JobStatus.running)
+                .build();
+    }
+
+    @Test
+    void run_reembedsPageSkipsMigratedImagesAndCompletes() {
+        List<FaceFeature> page = List.of(feature(10L, 1L), feature(11L, 2L), feature(12L, 3L));
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(0L), any())).thenReturn(page);
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(12L), any())).thenReturn(List.of());
+        // userId=2's image was already re-embedded; userId=3 has no stored image
+        when(faceImageRepository.findByUserIdIn(anyCollection()))
+                .thenReturn(List.of(image(100L, 1L, REGISTERED), image(101L, 2L, REGISTERED)));
+        when(faceFeatureRepository.findFaceImageIdsWithFeature(eq(FaceFeature.FaceStatus.active), eq(TARGET),
+                eq(List.of(100L, 101L)))).thenReturn(List.of(101L));
+        when(minioService.downloadImage("1/100.jpg")).thenReturn(new byte[]{1, 2, 3});
+        when(encodeBatcher.encode(any(ImagePayload.class), eq(TARGET)))
+                .thenReturn(new EncodeResult("AACAPw==", TARGET, "0000", "Success"));
+        when(batchWriter.persist(eq(7L), anyList(), eq(0L), eq(12L), eq(1), eq(1), anyLong(), any(), any()))
+                .thenAnswer(inv -> inv.getArgument(1));
+
+        pipeline.run(job, lease());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FaceFeature>> saved = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).persist(eq(7L), saved.capture(), eq(0L), eq(12L), eq(1), eq(1), anyLong(), any(), any());
+        assertThat(saved.getValue()).singleElement().satisfies(feature -> {
+            assertThat(feature.getUserId()).isEqualTo(1L);
+            assertThat(feature.getFaceImageId()).isEqualTo(100L);
+            assertThat(feature.getAlgorithmReg()).isEqualTo(TARGET);
+            assertThat(feature.getFeatureDim()).isEqualTo(1);
+            assertThat(feature.getStatus()).isEqualTo(FaceFeature.FaceStatus.active);
+        });
+        verify(faceGalleryCache).onRegistered(saved.getValue());
+        verify(jobRepository).finish(eq(7L), eq(FaceReembeddingJob.JobStatus.completed), isNull(), any(), any());
+        assertThat(meterRegistry.counter("face.reembedding.images", "result", "reembedded").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("face.reembedding.images", "result", "skipped").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void run_reembedsEveryFaceOfAUser() {
+        FaceFeature front = feature(10L, 1L);
+        front.setFaceImageId(100L);
+        FaceFeature profile = feature(11L, 1L);
+        profile.setFaceImageId(101L);
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(0L), any())).thenReturn(List.of(front, profile));
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(11L), any())).thenReturn(List.of());
+        // Both registered in the same second; the link, not the timestamp, picks the image
+        when(faceImageRepository.findByUserIdIn(anyCollection()))
+                .thenReturn(List.of(image(100L, 1L, REGISTERED), image(101L, 1L, REGISTERED)));
+        when(minioService.downloadImage(anyString())).thenReturn(new byte[]{1, 2, 3});
+        when(encodeBatcher.encode(any(ImagePayload.class), eq(TARGET)))
+                .thenReturn(new EncodeResult("AACAPw==", TARGET, "0000", "Success"));
+        when(batchWriter.persist(eq(7L), anyList(), eq(0L), eq(11L), eq(0), eq(0), anyLong(), any(), any()))
+                .thenAnswer(inv -> inv.getArgument(1));
+
+        pipeline.run(job, lease());
+
+        verify(minioService).downloadImage("1/100.jpg");
+        verify(minioService).downloadImage("1/101.jpg");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FaceFeature>> saved = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).persist(eq(7L), saved.capture(), eq(0L), eq(11L), eq(0), eq(0), anyLong(), any(), any());
+        assertThat(saved.getValue()).extracting(FaceFeature::getFaceImageId).containsExactlyInAnyOrder(100L, 101L);
+    }
+
+    @Test
+    void run_resumesAfterCheckpoint() {
+        job.setLastFeatureId(12L);
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(12L), any())).thenReturn(List.of());
+
+        pipeline.run(job, lease());
+
+        verify(faceFeatureRepository, never()).findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                any(), any(), eq(0L), any());
+        verifyNoInteractions(encodeBatcher, batchWriter);
+        verify(jobRepository).finish(eq(7L), eq(FaceReembeddingJob.JobStatus.completed), isNull(), any(), any());
+    }
+
+    @Test
+    void run_faceAiUnavailable_pausesWithoutCheckpoint() {
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(0L), any())).thenReturn(List.of(feature(10L, 1L)));
+        when(faceImageRepository.findByUserIdIn(anyCollection())).thenReturn(List.of(image(100L, 1L, REGISTERED)));
+        when(minioService.downloadImage("1/100.jpg")).thenReturn(new byte[]{1, 2, 3});
+        when(encodeBatcher.encode(any(ImagePayload.class), eq(TARGET)))
+                .thenThrow(new HttpClientException("http://localhost:5000/api/v1/face/encode", "retries exhausted"));
+
+        pipeline.run(job, lease());
+
+        verifyNoInteractions(batchWriter, faceGalleryCache);
+        verify(jobRepository, never()).finish(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void run_leaseLost_stopsWithoutFailingJob() {
+        when(faceFeatureRepository.findByStatusAndAlgorithmRegAndIdGreaterThanOrderByIdAsc(
+                eq(FaceFeature.FaceStatus.active), eq(SOURCE), eq(0L), any())).thenReturn(List.of(feature(10L, 1L)));
+        when(faceImageRepository.findByUserIdIn(anyCollection())).thenReturn(List.of(image(100L, 1L, REGISTERED)));
+        when(minioService.downloadImage("1/100.jpg")).thenReturn(new byte[]{1, 2, 3});
+        when(encodeBatcher.encode(any(ImagePayload.class), eq(TARGET)))
+                .thenReturn(new EncodeResult("AACAPw==", TARGET, "0000", "Success"));
+        when(batchWriter.persist(eq(7L), anyList(), eq(0L), eq(10L), eq(0), eq(0), anyLong(), any(), any()))
+                .thenThrow(new LeaseLostException(7L));
+
+        pipeline.run(job, lease());
+
+        verifyNoInteractions(faceGalleryCache);
+        verify(jobRepository, never()).finish(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void sourceImage_prefersTheLinkedImage() {
+        FaceFeature feature = feature(10L, 1L);
+        feature.setFaceImageId(100L);
+        FaceImage linked = image(100L, 1L, REGISTERED.minusDays(30));
+        FaceImage same = image(101L, 1L, REGISTERED);
+
+        assertThat(ReembeddingPipeline.sourceImage(feature, List.of(linked, same), TOLERANCE)).isSameAs(linked);
+        assertThat(ReembeddingPipeline.sourceImage(feature, List.of(same), TOLERANCE)).isNull();
+    }
+
+    @Test
+    void sourceImage_unlinkedFeature_picksClosestImageWithinTolerance() {
+        FaceFeature feature = feature(10L, 1L);
+        FaceImage older = image(100L, 1L, REGISTERED.minusDays(30));
+        FaceImage same = image(101L, 1L, REGISTERED.plusSeconds(1));
+        FaceImage newer = image(102L, 1L, REGISTERED.plusDays(2));
+
+        assertThat(ReembeddingPipeline.sourceImage(feature, List.of(older, same, newer), TOLERANCE)).isSameAs(same);
+        assertThat(ReembeddingPipeline.sourceImage(feature, List.of(older, newer), TOLERANCE)).isNull();
+        assertThat(ReembeddingPipeline.sourceImage(feature, List.of(), TOLERANCE)).isNull();
+    }
+
+    private static JobLease lease() {
+        return new JobLease(7L, JobCoordinator.now());
+    }
+
+    private static FaceFeature feature(Long id, Long userId) {
+        return FaceFeature.builder()
+                .id(id).userId(userId).algorithmReg(SOURCE)
+                .status(FaceFeature.FaceStatus.active)
+                .createdAt(REGISTERED)
+                .build();
+    }
+
+    private static FaceImage image(Long id, Long userId, LocalDateTime createdAt) {
+        return FaceImage.builder()
+                .id(id).userId(userId)
+                .objectName(userId + "/" + id + ".jpg")
+                .createdAt(createdAt)
+                .build();
+    }
+}
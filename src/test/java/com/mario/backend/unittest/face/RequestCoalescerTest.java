@@ -0,0 +1,186 @@
+package com.mario.backend.unittest.face;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mario.backend.common.exception.ApiException;
+import com.mario.backend.common.exception.ErrorCode;
+import com.mario.backend.face.config.FaceRecognitionProperties;
+import com.mario.backend.face.dto.FaceResponse;
+import com.mario.backend.face.service.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RequestCoalescerTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    private FaceRecognitionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FaceRecognitionProperties();
+        properties.getCoalescing().setPollInterval(Duration.ofMillis(5));
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(redisTemplate, new ObjectMapper(), properties, meterRegistry);
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void execute_identicalConcurrentCalls_shareOneComputation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        FaceResponse result = FaceResponse.builder().success(true).code("0000").build();
+
+        Future<FaceResponse> first = callers.submit(() -> coalescer.execute("recognize", "1:hash", FaceResponse.class, () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            await(release);
+            return result;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<FaceResponse> second = callers.submit(() -> coalescer.execute("recognize", "1:hash", FaceResponse.class, () -> {
+            computations.incrementAndGet();
+            return FaceResponse.builder().build();
+        }));
+        // Let the second caller reach the in-flight future before the first one finishes
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(computations).hasValue(1);
+        assertThat(meterRegistry.get("face.requests.coalesced").tag("outcome", "joined").counter().count())
+                .isEqualTo(1.0);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void execute_leaderFails_joinedCallerGetsTheSameExceptionAndNextCallRecomputes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ApiException failure = new ApiException(ErrorCode.EXTERNAL_SERVICE_RETRY_EXHAUSTED);
+
+        Future<FaceResponse> first = callers.submit(() -> coalescer.execute("verify", "1:hash", FaceResponse.class, () -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<FaceResponse> second = callers.submit(() -> coalescer.execute("verify", "1:hash", FaceResponse.class,
+                () -> FaceResponse.builder().build()));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCause(failure);
+
+        FaceResponse retried = coalescer.execute("verify", "1:hash", FaceResponse.class,
+                () -> FaceResponse.builder().code("0000").build());
+        assertThat(retried.getCode()).isEqualTo("0000");
+    }
+
+    @Test
+    void execute_distributedLeaseHeld_returnsResultPublishedByOtherNode() {
+        properties.getCoalescing().setDistributed(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("face:inflight:lease:recognize:1:hash"), anyString(), any(Duration.class)))
+                .thenReturn(false);
+        when(valueOperations.get("face:inflight:result:recognize:1:hash"))
+                .thenReturn(null, "{\"success\":true,\"code\":\"0000\",\"user_id\":1}");
+        when(redisTemplate.hasKey("face:inflight:lease:recognize:1:hash")).thenReturn(true);
+
+        FaceResponse response = coalescer.execute("recognize", "1:hash", FaceResponse.class, () -> {
+            throw new AssertionError("Computed although another node holds the lease");
+        });
+
+        assertThat(response.getCode()).isEqualTo("0000");
+        assertThat(response.getUserId()).isEqualTo(1L);
+        assertThat(meterRegistry.get("face.requests.coalesced").tag("outcome", "joined_remote").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void execute_distributedLeaseReleasedWithoutResult_computesItself() {
+        properties.getCoalescing().setDistributed(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(redisTemplate.hasKey("face:inflight:lease:recognize:1:hash")).thenReturn(false);
+
+        FaceResponse response = coalescer.execute("recognize", "1:hash", FaceResponse.class,
+                () -> FaceResponse.builder().code("0000").build());
+
+        assertThat(response.getCode()).isEqualTo("0000");
+        assertThat(meterRegistry.get("face.requests.coalesced").tag("outcome", "fallback").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void execute_distributedLeaseAcquired_publishesResultThenReleasesLease() {
+        properties.getCoalescing().setDistributed(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        String[] token = new String[1];
+        when(valueOperations.setIfAbsent(eq("face:inflight:lease:verify:1:hash"), anyString(), any(Duration.class)))
+                .thenAnswer(inv -> {
+                    token[0] = inv.getArgument(1);
+                    return true;
+                });
+        when(valueOperations.get("face:inflight:lease:verify:1:hash")).thenAnswer(inv -> token[0]);
+
+        coalescer.execute("verify", "1:hash", FaceResponse.class, () -> FaceResponse.builder().code("0000").build());
+
+        verify(valueOperations).set(eq("face:inflight:result:verify:1:hash"), contains("\"code\":\"0000\""),
+                eq(properties.getCoalescing().getResultTtl()));
+        verify(redisTemplate).delete("face:inflight:lease:verify:1:hash");
+    }
+
+    @Test
+    void execute_redisDown_computesLocally() {
+        properties.getCoalescing().setDistributed(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        FaceResponse response = coalescer.execute("register", "1:hash", FaceResponse.class,
+                () -> FaceResponse.builder().code("0000").build());
+
+        assertThat(response.getCode()).isEqualTo("0000");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
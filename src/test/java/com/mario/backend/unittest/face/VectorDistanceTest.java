@@ -0,0 +1,107 @@
+package com.mario.backend.unittest.face;
+
+import com.mario.backend.face.search.Distances;
+import com.mario.backend.face.search.EmbeddingCodec;
+import com.mario.backend.face.search.ExactScan;
+import com.mario.backend.face.search.HnswIndex;
+import com.mario.backend.face.search.SearchMatch;
+import com.mario.backend.face.search.VectorDistance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VectorDistanceTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void bestKernel_matchesScalar_forArraysAndPackedBuffers() {
+        // Includes lengths that are not a multiple of any lane count to cover the scalar tail
+        for (int dimension : new int[]{1, 3, 7, 16, 128, 131, 512}) {
+            assertKernelsAgree(dimension);
+        }
+    }
+
+    private void assertKernelsAgree(int dimension) {
+        VectorDistance scalar = Distances.scalar();
+        VectorDistance best = Distances.get();
+        float[] a = randomVector(dimension);
+        float[] b = randomVector(dimension);
+        byte[] packed = EmbeddingCodec.toBytes(b);
+
+        float l2 = scalar.squaredL2(a, b);
+        assertThat(best.squaredL2(a, b)).isCloseTo(l2, within(l2 * 1e-4f));
+        assertThat(best.squaredL2(a, packed)).isCloseTo(l2, within(l2 * 1e-4f));
+        assertThat(scalar.squaredL2(a, packed)).isEqualTo(l2);
+
+        float cosine = scalar.cosineDistance(a, b);
+        assertThat(best.cosineDistance(a, b)).isCloseTo(cosine, within(1e-4f));
+        assertThat(best.cosineDistance(a, packed)).isCloseTo(cosine, within(1e-4f));
+    }
+
+    @Test
+    void cosineDistance_edgeCases() {
+        VectorDistance distance = Distances.get();
+        float[] v = {1f, 2f, 3f, 4f, 5f};
+
+        assertThat(distance.cosineDistance(v, v)).isCloseTo(0f, within(1e-6f));
+        assertThat(distance.cosineDistance(v, new float[]{-1f, -2f, -3f, -4f, -5f})).isCloseTo(2f, within(1e-6f));
+        assertThat(distance.cosineDistance(v, new float[5])).isEqualTo(1f);
+        assertThatThrownBy(() -> distance.squaredL2(v, new float[4])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exactScan_parallelMatchesSequentialBruteForce() {
+        int dimension = 64;
+        float[][] vectors = IntStream.range(0, 5000).mapToObj(i -> randomVector(dimension)).toArray(float[][]::new);
+        ExactScan.Rows rows = new ExactScan.Rows() {
+            @Override public int size() { return vectors.length; }
+            @Override public float[] vector(int row) { return row % 10 == 0 ? null : vectors[row]; }
+            @Override public long key(int row) { return row; }
+            @Override public long userId(int row) { return row + 1000L; }
+        };
+        float[] probe = randomVector(dimension);
+
+        List<SearchMatch> parallel = new ExactScan(Distances.get(), 256).topK(probe, rows, 10);
+        List<SearchMatch> sequential = new ExactScan(Distances.scalar(), Integer.MAX_VALUE).topK(probe, rows, 10);
+        List<Long> expected = IntStream.range(0, vectors.length)
+                .filter(i -> i % 10 != 0)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> Distances.scalar().squaredL2(probe, vectors[i])))
+                .limit(10)
+                .map(Integer::longValue)
+                .toList();
+
+        assertThat(parallel).extracting(SearchMatch::featureId).containsExactlyElementsOf(expected);
+        assertThat(sequential).extracting(SearchMatch::featureId).containsExactlyElementsOf(expected);
+        assertThat(parallel.get(0).userId()).isEqualTo(expected.get(0) + 1000L);
+        assertThat(parallel).isSortedAccordingTo(Comparator.comparingDouble(SearchMatch::distance));
+    }
+
+    @Test
+    void hnswExactSearch_skipsRemovedVectors() {
+        HnswIndex index = new HnswIndex(2, 16, 200);
+        index.add(1L, 10L, new float[]{0f, 0f});
+        index.add(2L, 20L, new float[]{1f, 0f});
+        index.add(3L, 30L, new float[]{5f, 5f});
+        index.remove(1L);
+
+        List<SearchMatch> matches = index.exactSearch(new float[]{0f, 0f}, 2, new ExactScan(Distances.get(), 1));
+
+        assertThat(matches).extracting(SearchMatch::featureId).containsExactly(2L, 3L);
+        assertThat(matches.get(0).distance()).isCloseTo(1.0, within(1e-6));
+    }
+
+    private float[] randomVector(int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}